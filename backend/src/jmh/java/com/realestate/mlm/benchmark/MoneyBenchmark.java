@@ -0,0 +1,120 @@
+package com.realestate.mlm.benchmark;
+
+import com.realestate.mlm.util.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BigDecimal vs {@link Money} for the per-investment commission chain (direct referral, ten
+ * levels, daily cap) and the payout deduction split (TDS, admin charge, net).
+ *
+ * Run with: mvn -Pjmh compile exec:exec -Djmh.args="MoneyBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyBenchmark {
+
+    private static final int AMOUNTS = 1024;
+
+    private static final BigDecimal DIRECT_PERCENT = new BigDecimal("2.00");
+    private static final BigDecimal[] LEVEL_PERCENTS = {
+            new BigDecimal("3.0"), new BigDecimal("2.0"), new BigDecimal("1.5"), new BigDecimal("1.0"),
+            new BigDecimal("1.0"), new BigDecimal("0.5"), new BigDecimal("0.5"), new BigDecimal("0.5"),
+            new BigDecimal("0.5"), new BigDecimal("0.5")
+    };
+    private static final BigDecimal DAILY_CAP = new BigDecimal("25000.00");
+    private static final BigDecimal TDS_PERCENT = new BigDecimal("10.00");
+    private static final BigDecimal ADMIN_PERCENT = new BigDecimal("2.00");
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+
+    private static final Money.Rate DIRECT_RATE = Money.Rate.of(DIRECT_PERCENT);
+    private static final Money.Rate[] LEVEL_RATES = new Money.Rate[LEVEL_PERCENTS.length];
+    private static final Money DAILY_CAP_AMOUNT = Money.of(DAILY_CAP);
+    private static final Money.Rate TDS_RATE = Money.Rate.of(TDS_PERCENT);
+    private static final Money.Rate ADMIN_RATE = Money.Rate.of(ADMIN_PERCENT);
+
+    static {
+        for (int i = 0; i < LEVEL_PERCENTS.length; i++) {
+            LEVEL_RATES[i] = Money.Rate.of(LEVEL_PERCENTS[i]);
+        }
+    }
+
+    private BigDecimal[] decimalAmounts;
+    private Money[] moneyAmounts;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        decimalAmounts = new BigDecimal[AMOUNTS];
+        moneyAmounts = new Money[AMOUNTS];
+        for (int i = 0; i < AMOUNTS; i++) {
+            // Investments between 10,000.00 and 50,00,000.00 rupees
+            BigDecimal amount = BigDecimal.valueOf(1_000_000L + random.nextInt(499_000_000), 2);
+            decimalAmounts[i] = amount;
+            moneyAmounts[i] = Money.of(amount);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal commissionChainBigDecimal() {
+        BigDecimal amount = decimalAmounts[next()];
+        BigDecimal total = amount.multiply(DIRECT_PERCENT)
+                .divide(HUNDRED, 2, RoundingMode.HALF_UP)
+                .min(DAILY_CAP);
+        for (BigDecimal percent : LEVEL_PERCENTS) {
+            BigDecimal commission = amount.multiply(percent)
+                    .divide(HUNDRED, 2, RoundingMode.HALF_UP);
+            total = total.add(commission.min(DAILY_CAP));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long commissionChainMoney() {
+        Money amount = moneyAmounts[next()];
+        Money total = amount.percent(DIRECT_RATE).min(DAILY_CAP_AMOUNT);
+        for (Money.Rate rate : LEVEL_RATES) {
+            total = total.plus(amount.percent(rate).min(DAILY_CAP_AMOUNT));
+        }
+        return total.paise();
+    }
+
+    @Benchmark
+    public BigDecimal payoutSplitBigDecimal() {
+        BigDecimal amount = decimalAmounts[next()];
+        BigDecimal tds = amount.multiply(TDS_PERCENT).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+        BigDecimal admin = amount.multiply(ADMIN_PERCENT).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+        return amount.subtract(tds).subtract(admin);
+    }
+
+    @Benchmark
+    public long payoutSplitMoney() {
+        Money amount = moneyAmounts[next()];
+        Money tds = amount.percent(TDS_RATE);
+        Money admin = amount.percent(ADMIN_RATE);
+        return amount.minus(tds).minus(admin).paise();
+    }
+
+    private int next() {
+        index = (index + 1) & (AMOUNTS - 1);
+        return index;
+    }
+}
@@ -1,18 +1,37 @@
 package com.realestate.mlm.controller;
 
+import com.realestate.mlm.dto.request.CompensationSimulationRequest;
 import com.realestate.mlm.dto.response.*;
 import com.realestate.mlm.service.AdminService;
+import com.realestate.mlm.service.CommissionRecalculationService;
+import com.realestate.mlm.service.CompensationSimulationService;
+import com.realestate.mlm.service.InvestmentService;
+import com.realestate.mlm.service.PayoutBankFileService;
+import com.realestate.mlm.service.StatementExportService;
+import com.realestate.mlm.service.StatementExportService.StatementExport;
+import com.realestate.mlm.service.WalletReconciliationService;
+import com.realestate.mlm.service.WalletService;
+import com.realestate.mlm.util.SecurityUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.file.Path;
 
 /**
  * REST controller for admin operations
@@ -27,6 +46,13 @@ import org.springframework.web.bind.annotation.*;
 public class AdminController {
 
     private final AdminService adminService;
+    private final CompensationSimulationService compensationSimulationService;
+    private final CommissionRecalculationService commissionRecalculationService;
+    private final InvestmentService investmentService;
+    private final WalletService walletService;
+    private final StatementExportService statementExportService;
+    private final WalletReconciliationService walletReconciliationService;
+    private final PayoutBankFileService payoutBankFileService;
 
     @Operation(summary = "Get all users", description = "Get paginated list of all registered users")
     @ApiResponses(value = {
@@ -89,6 +115,218 @@ public class AdminController {
                 .build());
     }
 
+    @Operation(summary = "Simulate compensation plan change",
+            description = "Replay investment history against an alternate compensation plan and report the payout delta by commission type and rank. Read-only.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Simulation completed successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid plan or date range, or a simulation is already running"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @PostMapping("/simulations/compensation")
+    public ResponseEntity<ApiResponse<CompensationSimulationResponse>> simulateCompensationPlan(
+            @Valid @RequestBody CompensationSimulationRequest request) {
+        CompensationSimulationResponse simulation = compensationSimulationService.simulate(request);
+        return ResponseEntity.ok(ApiResponse.<CompensationSimulationResponse>builder()
+                .success(true)
+                .message("Compensation simulation completed successfully")
+                .data(simulation)
+                .build());
+    }
+
+    @Operation(summary = "Cancel investment",
+            description = "Cancel an investment and reverse every commission paid on it, debiting the beneficiaries' commission wallets")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Investment cancelled"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Investment already cancelled or exited"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Investment not found"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @PutMapping("/investments/{id}/cancel")
+    public ResponseEntity<ApiResponse<CommissionReversalResponse>> cancelInvestment(
+            @Parameter(description = "Investment ID") @PathVariable Long id,
+            @Parameter(description = "Cancellation reason") @RequestParam String reason) {
+        CommissionReversalResponse reversal = investmentService.cancelInvestment(id, reason, SecurityUtil.getCurrentUserMlmId());
+        return ResponseEntity.ok(ApiResponse.<CommissionReversalResponse>builder()
+                .success(true)
+                .message("Investment cancelled and commissions reversed")
+                .data(reversal)
+                .build());
+    }
+
+    @Operation(summary = "Set wallet striping",
+            description = "Spread credits to a hot wallet over striped sub-balances instead of locking its row. Switching off folds the stripes back.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Wallet striping updated"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Wallet not found"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @PutMapping("/wallets/{userId}/striping")
+    public ResponseEntity<ApiResponse<String>> setWalletStriping(
+            @Parameter(description = "User ID") @PathVariable Long userId,
+            @Parameter(description = "Enable striped credits") @RequestParam boolean enabled) {
+        String message = walletService.setStriped(userId, enabled);
+        return ResponseEntity.ok(ApiResponse.<String>builder()
+                .success(true)
+                .message(message)
+                .data(message)
+                .build());
+    }
+
+    @Operation(summary = "Export user statement", description = "Stream a user's full wallet statement as CSV, NDJSON or XLSX")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Statement streamed"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid format or date"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "User not found"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @GetMapping("/users/{id}/statement")
+    public ResponseEntity<StreamingResponseBody> exportUserStatement(
+            @Parameter(description = "User ID") @PathVariable Long id,
+            @Parameter(description = "csv, ndjson or xlsx") @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "Start date (yyyy-MM-dd)") @RequestParam(required = false) String startDate,
+            @Parameter(description = "End date (yyyy-MM-dd)") @RequestParam(required = false) String endDate) {
+        StatementExport export = statementExportService.exportStatement(id, format, startDate, endDate);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + export.fileName() + "\"")
+                .contentType(MediaType.parseMediaType(export.contentType()))
+                .body(export.body());
+    }
+
+    @Operation(summary = "Start commission recalculation",
+            description = "Replay the whole investment history and correct direct referral and level commissions in the background. A dry run only produces the difference report.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Recalculation started"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "A recalculation is already running"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @PostMapping("/commissions/recalculations")
+    public ResponseEntity<ApiResponse<CommissionRecalculationRunResponse>> startCommissionRecalculation(
+            @Parameter(description = "Only report differences, write nothing") @RequestParam(defaultValue = "true") boolean dryRun) {
+        CommissionRecalculationRunResponse run = commissionRecalculationService.startRecalculation(dryRun);
+        return ResponseEntity.ok(ApiResponse.<CommissionRecalculationRunResponse>builder()
+                .success(true)
+                .message("Commission recalculation started")
+                .data(run)
+                .build());
+    }
+
+    @Operation(summary = "Get commission recalculation", description = "Get progress and totals of a commission recalculation")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Recalculation retrieved successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Recalculation not found"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @GetMapping("/commissions/recalculations/{runId}")
+    public ResponseEntity<ApiResponse<CommissionRecalculationRunResponse>> getCommissionRecalculation(
+            @Parameter(description = "Recalculation run ID") @PathVariable String runId) {
+        CommissionRecalculationRunResponse run = commissionRecalculationService.getRecalculation(runId);
+        return ResponseEntity.ok(ApiResponse.<CommissionRecalculationRunResponse>builder()
+                .success(true)
+                .message("Commission recalculation retrieved successfully")
+                .data(run)
+                .build());
+    }
+
+    @Operation(summary = "Pause commission recalculation", description = "Stop a running recalculation after the partition in progress")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Pause requested"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Recalculation is not running"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Recalculation not found"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @PutMapping("/commissions/recalculations/{runId}/pause")
+    public ResponseEntity<ApiResponse<CommissionRecalculationRunResponse>> pauseCommissionRecalculation(
+            @Parameter(description = "Recalculation run ID") @PathVariable String runId) {
+        CommissionRecalculationRunResponse run = commissionRecalculationService.pauseRecalculation(runId);
+        return ResponseEntity.ok(ApiResponse.<CommissionRecalculationRunResponse>builder()
+                .success(true)
+                .message("Commission recalculation pause requested")
+                .data(run)
+                .build());
+    }
+
+    @Operation(summary = "Resume commission recalculation", description = "Continue a paused or failed recalculation from its last checkpoint")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Recalculation resumed"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Recalculation cannot be resumed"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Recalculation not found"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @PutMapping("/commissions/recalculations/{runId}/resume")
+    public ResponseEntity<ApiResponse<CommissionRecalculationRunResponse>> resumeCommissionRecalculation(
+            @Parameter(description = "Recalculation run ID") @PathVariable String runId) {
+        CommissionRecalculationRunResponse run = commissionRecalculationService.resumeRecalculation(runId);
+        return ResponseEntity.ok(ApiResponse.<CommissionRecalculationRunResponse>builder()
+                .success(true)
+                .message("Commission recalculation resumed")
+                .data(run)
+                .build());
+    }
+
+    @Operation(summary = "Get commission recalculation differences", description = "Get the paginated difference report of a recalculation")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Differences retrieved successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Recalculation not found"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @GetMapping("/commissions/recalculations/{runId}/differences")
+    public ResponseEntity<PageResponse<CommissionRecalculationDiffResponse>> getCommissionRecalculationDifferences(
+            @Parameter(description = "Recalculation run ID") @PathVariable String runId,
+            @PageableDefault(size = 50) Pageable pageable) {
+        PageResponse<CommissionRecalculationDiffResponse> differences =
+                commissionRecalculationService.getDifferenceReport(runId, pageable);
+        return ResponseEntity.ok(differences);
+    }
+
+    @Operation(summary = "Start wallet reconciliation",
+            description = "Compare every wallet with its transaction ledger, locked payouts and recorded earnings in the background and report discrepancies")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Reconciliation started"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "A reconciliation is already running"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @PostMapping("/wallets/reconciliations")
+    public ResponseEntity<ApiResponse<WalletReconciliationRunResponse>> startWalletReconciliation() {
+        WalletReconciliationRunResponse run = walletReconciliationService.startReconciliation();
+        return ResponseEntity.ok(ApiResponse.<WalletReconciliationRunResponse>builder()
+                .success(true)
+                .message("Wallet reconciliation started")
+                .data(run)
+                .build());
+    }
+
+    @Operation(summary = "Get wallet reconciliation", description = "Get progress and totals of a wallet reconciliation")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Reconciliation retrieved successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Reconciliation not found"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @GetMapping("/wallets/reconciliations/{runId}")
+    public ResponseEntity<ApiResponse<WalletReconciliationRunResponse>> getWalletReconciliation(
+            @Parameter(description = "Reconciliation run ID") @PathVariable String runId) {
+        WalletReconciliationRunResponse run = walletReconciliationService.getReconciliation(runId);
+        return ResponseEntity.ok(ApiResponse.<WalletReconciliationRunResponse>builder()
+                .success(true)
+                .message("Wallet reconciliation retrieved successfully")
+                .data(run)
+                .build());
+    }
+
+    @Operation(summary = "Get wallet reconciliation discrepancies", description = "Get the paginated discrepancy report of a reconciliation")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Discrepancies retrieved successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Reconciliation not found"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @GetMapping("/wallets/reconciliations/{runId}/discrepancies")
+    public ResponseEntity<PageResponse<WalletReconciliationDiscrepancyResponse>> getWalletReconciliationDiscrepancies(
+            @Parameter(description = "Reconciliation run ID") @PathVariable String runId,
+            @PageableDefault(size = 50) Pageable pageable) {
+        PageResponse<WalletReconciliationDiscrepancyResponse> discrepancies =
+                walletReconciliationService.getDiscrepancyReport(runId, pageable);
+        return ResponseEntity.ok(discrepancies);
+    }
+
     @Operation(summary = "Get pending payouts", description = "Get paginated list of pending payout requests")
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Pending payouts retrieved successfully"),
@@ -138,6 +376,79 @@ public class AdminController {
                 .build());
     }
 
+    @Operation(summary = "Export payout bank file",
+            description = "Claim the approved bank transfer payouts into a batch and write its NEFT/IMPS bulk file with a checksum manifest")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Bank file written"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid format or mode, or no payouts to export"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @PostMapping("/payouts/bank-files")
+    public ResponseEntity<ApiResponse<PayoutBankBatchResponse>> exportPayoutBankFile(
+            @Parameter(description = "csv or fixed_width") @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "NEFT or IMPS") @RequestParam(defaultValue = "NEFT") String mode) {
+        PayoutBankBatchResponse batch = payoutBankFileService.exportBatch(format, mode);
+        return ResponseEntity.ok(ApiResponse.<PayoutBankBatchResponse>builder()
+                .success(true)
+                .message("Bank file written for " + batch.getPayoutCount() + " payouts")
+                .data(batch)
+                .build());
+    }
+
+    @Operation(summary = "Get payout bank batch", description = "Get the file details and settlement progress of a bank batch")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Bank batch retrieved successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Bank batch not found"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @GetMapping("/payouts/bank-files/{batchId}")
+    public ResponseEntity<ApiResponse<PayoutBankBatchResponse>> getPayoutBankBatch(
+            @Parameter(description = "Bank batch ID") @PathVariable String batchId) {
+        PayoutBankBatchResponse batch = payoutBankFileService.getBatch(batchId);
+        return ResponseEntity.ok(ApiResponse.<PayoutBankBatchResponse>builder()
+                .success(true)
+                .message("Bank batch retrieved successfully")
+                .data(batch)
+                .build());
+    }
+
+    @Operation(summary = "Download payout bank file", description = "Download the bulk file of a bank batch for upload to the bank")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Bank file streamed"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Bank batch has no file"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Bank batch or file not found"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @GetMapping("/payouts/bank-files/{batchId}/file")
+    public ResponseEntity<Resource> downloadPayoutBankFile(
+            @Parameter(description = "Bank batch ID") @PathVariable String batchId) {
+        Path file = payoutBankFileService.getBatchFile(batchId);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(new FileSystemResource(file));
+    }
+
+    @Operation(summary = "Ingest bank response file",
+            description = "Complete or fail the payouts of a bank batch from the bank's response file (payment_reference,status,utr_number,remarks)")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Response file ingested"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Malformed response file or batch not exported"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Bank batch not found"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    })
+    @PostMapping(value = "/payouts/bank-files/{batchId}/response", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ApiResponse<PayoutBankBatchResponse>> ingestPayoutBankResponse(
+            @Parameter(description = "Bank batch ID") @PathVariable String batchId,
+            @Parameter(description = "Bank response file (CSV)") @RequestParam MultipartFile file) {
+        PayoutBankBatchResponse batch = payoutBankFileService.ingestResponse(batchId, file);
+        return ResponseEntity.ok(ApiResponse.<PayoutBankBatchResponse>builder()
+                .success(true)
+                .message("Bank response ingested")
+                .data(batch)
+                .build());
+    }
+
     @Operation(summary = "Get pending KYC", description = "Get paginated list of pending KYC documents")
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Pending KYC documents retrieved successfully"),
@@ -1,10 +1,14 @@
 package com.realestate.mlm.controller;
 
 import com.realestate.mlm.dto.response.ApiResponse;
+import com.realestate.mlm.dto.response.ArchivedHistoryResponse;
 import com.realestate.mlm.dto.response.CommissionResponse;
 import com.realestate.mlm.dto.response.CommissionSummaryResponse;
+import com.realestate.mlm.dto.response.CursorPageResponse;
 import com.realestate.mlm.dto.response.PageResponse;
+import com.realestate.mlm.repository.PartitionArchiveRepository;
 import com.realestate.mlm.service.CommissionService;
+import com.realestate.mlm.service.HistoryArchiveService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -32,6 +36,7 @@ import java.util.List;
 public class CommissionController {
 
     private final CommissionService commissionService;
+    private final HistoryArchiveService historyArchiveService;
 
     @Operation(summary = "Get commission history", description = "Get paginated list of user's commission earnings with optional filters")
     @ApiResponses(value = {
@@ -51,6 +56,37 @@ public class CommissionController {
         return ResponseEntity.ok(commissions);
     }
 
+    @Operation(summary = "Get commission history by cursor", description = "Keyset-paginated commission earnings, newest first, without a total count. Suited to infinite scroll.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Page retrieved successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/history/cursor")
+    public ResponseEntity<CursorPageResponse<CommissionResponse>> getHistoryByCursor(
+            @Parameter(description = "nextCursor of the previous page, omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 100)") @RequestParam(defaultValue = "20") Integer size,
+            @Parameter(description = "Filter by commission type") @RequestParam(required = false) String type) {
+        return ResponseEntity.ok(commissionService.getCommissionHistoryByCursor(cursor, size, type));
+    }
+
+    @Operation(summary = "Get archived commissions", description = "Commissions of one month moved to the archive after the retention horizon. Slower than the live history.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Archived history retrieved successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid month"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/history/archive")
+    public ResponseEntity<ApiResponse<ArchivedHistoryResponse>> getArchivedHistory(
+            @Parameter(description = "Archived month (yyyy-MM); omit to list archived months") @RequestParam(required = false) String month) {
+        ArchivedHistoryResponse history = historyArchiveService.getArchivedHistory(PartitionArchiveRepository.COMMISSIONS, month);
+        return ResponseEntity.ok(ApiResponse.<ArchivedHistoryResponse>builder()
+                .success(true)
+                .message("Archived history retrieved successfully")
+                .data(history)
+                .build());
+    }
+
     @Operation(summary = "Get commission summary", description = "Get comprehensive summary of user's commission earnings")
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Commission summary retrieved successfully"),
@@ -0,0 +1,58 @@
+package com.realestate.mlm.controller;
+
+import com.realestate.mlm.dto.response.ApiResponse;
+import com.realestate.mlm.dto.response.CursorPageResponse;
+import com.realestate.mlm.dto.response.NotificationResponse;
+import com.realestate.mlm.service.NotificationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller for in-app notifications
+ */
+@RestController
+@RequestMapping("/notifications")
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RequiredArgsConstructor
+@PreAuthorize("isAuthenticated()")
+@SecurityRequirement(name = "bearerAuth")
+@Tag(name = "Notifications", description = "In-app notification endpoints")
+public class NotificationController {
+
+    private final NotificationService notificationService;
+
+    @Operation(summary = "Get notifications", description = "Keyset-paginated notifications, newest first, without a total count. Suited to infinite scroll.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Page retrieved successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping
+    public ResponseEntity<CursorPageResponse<NotificationResponse>> getNotifications(
+            @Parameter(description = "nextCursor of the previous page, omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 100)") @RequestParam(defaultValue = "20") Integer size) {
+        return ResponseEntity.ok(notificationService.getNotifications(cursor, size));
+    }
+
+    @Operation(summary = "Get unread count", description = "Number of unread notifications of the current user")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Unread count retrieved successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/unread-count")
+    public ResponseEntity<ApiResponse<Long>> getUnreadCount() {
+        Long count = notificationService.getUnreadCount();
+        return ResponseEntity.ok(ApiResponse.<Long>builder()
+                .success(true)
+                .message("Unread count retrieved successfully")
+                .data(count)
+                .build());
+    }
+}
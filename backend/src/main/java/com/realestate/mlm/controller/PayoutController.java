@@ -2,6 +2,7 @@ package com.realestate.mlm.controller;
 
 import com.realestate.mlm.dto.request.WithdrawalRequest;
 import com.realestate.mlm.dto.response.ApiResponse;
+import com.realestate.mlm.dto.response.CursorPageResponse;
 import com.realestate.mlm.dto.response.PageResponse;
 import com.realestate.mlm.dto.response.PayoutResponse;
 import com.realestate.mlm.service.PayoutService;
@@ -64,6 +65,19 @@ public class PayoutController {
         return ResponseEntity.ok(payouts);
     }
 
+    @Operation(summary = "Get payout history by cursor", description = "Keyset-paginated payout requests, newest first, without a total count. Suited to infinite scroll.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Page retrieved successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/history/cursor")
+    public ResponseEntity<CursorPageResponse<PayoutResponse>> getHistoryByCursor(
+            @Parameter(description = "nextCursor of the previous page, omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 100)") @RequestParam(defaultValue = "20") Integer size) {
+        return ResponseEntity.ok(payoutService.getPayoutHistoryByCursor(cursor, size));
+    }
+
     @Operation(summary = "Get payout details", description = "Get detailed information about a specific payout request")
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Payout details retrieved successfully"),
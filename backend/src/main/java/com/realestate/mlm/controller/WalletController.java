@@ -1,11 +1,18 @@
 package com.realestate.mlm.controller;
 
 import com.realestate.mlm.dto.response.ApiResponse;
+import com.realestate.mlm.dto.response.ArchivedHistoryResponse;
+import com.realestate.mlm.dto.response.CursorPageResponse;
 import com.realestate.mlm.dto.response.PageResponse;
 import com.realestate.mlm.dto.response.TransactionResponse;
 import com.realestate.mlm.dto.response.WalletResponse;
 import com.realestate.mlm.dto.response.WalletSummaryResponse;
+import com.realestate.mlm.repository.PartitionArchiveRepository;
+import com.realestate.mlm.service.HistoryArchiveService;
+import com.realestate.mlm.service.StatementExportService;
+import com.realestate.mlm.service.StatementExportService.StatementExport;
 import com.realestate.mlm.service.WalletService;
+import com.realestate.mlm.util.SecurityUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -14,9 +21,12 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * REST controller for wallet and transaction operations
@@ -31,6 +41,8 @@ import org.springframework.web.bind.annotation.*;
 public class WalletController {
 
     private final WalletService walletService;
+    private final HistoryArchiveService historyArchiveService;
+    private final StatementExportService statementExportService;
 
     @Operation(summary = "Get wallet balance", description = "Get current user's wallet balance details")
     @ApiResponses(value = {
@@ -66,6 +78,37 @@ public class WalletController {
         return ResponseEntity.ok(transactions);
     }
 
+    @Operation(summary = "Get transactions by cursor", description = "Keyset-paginated transactions, newest first, without a total count. Suited to infinite scroll.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Page retrieved successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/transactions/cursor")
+    public ResponseEntity<CursorPageResponse<TransactionResponse>> getTransactionsByCursor(
+            @Parameter(description = "nextCursor of the previous page, omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 100)") @RequestParam(defaultValue = "20") Integer size,
+            @Parameter(description = "Filter by transaction type (CREDIT/DEBIT)") @RequestParam(required = false) String type) {
+        return ResponseEntity.ok(walletService.getTransactionsByCursor(cursor, size, type));
+    }
+
+    @Operation(summary = "Get archived transactions", description = "Transactions of one month moved to the archive after the retention horizon. Slower than the live history.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Archived history retrieved successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid month"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/transactions/archive")
+    public ResponseEntity<ApiResponse<ArchivedHistoryResponse>> getArchivedTransactions(
+            @Parameter(description = "Archived month (yyyy-MM); omit to list archived months") @RequestParam(required = false) String month) {
+        ArchivedHistoryResponse history = historyArchiveService.getArchivedHistory(PartitionArchiveRepository.TRANSACTIONS, month);
+        return ResponseEntity.ok(ApiResponse.<ArchivedHistoryResponse>builder()
+                .success(true)
+                .message("Archived history retrieved successfully")
+                .data(history)
+                .build());
+    }
+
     @Operation(summary = "Get wallet summary", description = "Get comprehensive wallet summary with statistics")
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Wallet summary retrieved successfully"),
@@ -80,4 +123,24 @@ public class WalletController {
                 .data(summary)
                 .build());
     }
+
+    @Operation(summary = "Export statement", description = "Stream the full wallet statement as CSV, NDJSON or XLSX")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Statement streamed"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid format or date"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/transactions/export")
+    public ResponseEntity<StreamingResponseBody> exportStatement(
+            @Parameter(description = "csv, ndjson or xlsx") @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "Start date (yyyy-MM-dd)") @RequestParam(required = false) String startDate,
+            @Parameter(description = "End date (yyyy-MM-dd)") @RequestParam(required = false) String endDate) {
+
+        StatementExport export = statementExportService.exportStatement(
+                SecurityUtil.getCurrentUser(), format, startDate, endDate);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + export.fileName() + "\"")
+                .contentType(MediaType.parseMediaType(export.contentType()))
+                .body(export.body());
+    }
 }
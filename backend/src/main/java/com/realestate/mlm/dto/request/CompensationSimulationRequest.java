@@ -0,0 +1,70 @@
+package com.realestate.mlm.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Alternate compensation plan to replay history against.
+ * Any field left null keeps the value of the plan currently in force.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompensationSimulationRequest {
+
+    @NotNull(message = "From date is required")
+    private LocalDate fromDate;
+
+    @NotNull(message = "To date is required")
+    private LocalDate toDate;
+
+    @Size(max = 10, message = "At most 10 level percentages are supported")
+    private List<@NotNull @DecimalMin(value = "0.0") @DecimalMax(value = "100.0") BigDecimal> levelPercentages;
+
+    @DecimalMin(value = "0.0", message = "Direct referral percent cannot be negative")
+    @DecimalMax(value = "100.0", message = "Direct referral percent cannot exceed 100")
+    private BigDecimal directReferralPercent;
+
+    @DecimalMin(value = "0.0", inclusive = false, message = "Daily cap must be greater than 0")
+    private BigDecimal dailyCap;
+
+    @DecimalMin(value = "0.0", message = "Pairing bonus cannot be negative")
+    private BigDecimal pairingBonusPerPair;
+
+    @DecimalMin(value = "0.0", inclusive = false, message = "BV per pair must be greater than 0")
+    private BigDecimal bvPerPair;
+
+    @Valid
+    private List<RankThreshold> rankThresholds;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RankThreshold {
+
+        @NotBlank(message = "Rank name is required")
+        private String rankName;
+
+        @Min(value = 0, message = "Required direct referrals cannot be negative")
+        private Integer requiredDirectReferrals;
+
+        @Min(value = 0, message = "Required active legs cannot be negative")
+        private Integer requiredActiveLegs;
+
+        @DecimalMin(value = "0.0", message = "Required personal investment cannot be negative")
+        private BigDecimal requiredPersonalInvestment;
+
+        @DecimalMin(value = "0.0", message = "Required team investment cannot be negative")
+        private BigDecimal requiredTeamInvestment;
+
+        @DecimalMin(value = "0.0", message = "One time bonus cannot be negative")
+        private BigDecimal oneTimeBonus;
+    }
+}
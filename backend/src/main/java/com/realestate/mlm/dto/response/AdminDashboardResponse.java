@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
+import java.util.List;
 
 @Data
 @Builder
@@ -28,4 +29,5 @@ public class AdminDashboardResponse {
     private Long pendingSupportTickets;
     private BigDecimal totalWalletBalance;
     private BigDecimal platformRevenue;
+    private List<String> unavailableWidgets; // left out after failing or timing out; their fields are null
 }
@@ -0,0 +1,20 @@
+package com.realestate.mlm.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedHistoryResponse {
+    private String source;
+    private String month;
+    private Integer rowCount;
+    private List<Map<String, Object>> rows;
+    private List<String> archivedMonths;
+}
@@ -0,0 +1,23 @@
+package com.realestate.mlm.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommissionRecalculationDiffResponse {
+    private String userId;
+    private String fromUserId;
+    private String commissionType;
+    private LocalDate commissionDate;
+    private BigDecimal existingAmount;
+    private BigDecimal expectedAmount;
+    private BigDecimal deltaAmount;
+    private Integer partitionNo;
+}
@@ -0,0 +1,34 @@
+package com.realestate.mlm.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommissionRecalculationRunResponse {
+    private String runId;
+    private String status;
+    private Boolean dryRun;
+    private LocalDateTime asOf;
+    private LocalDateTime historyFrom;
+    private Integer totalPartitions;
+    private Integer completedPartitions;
+    private Long earnersProcessed;
+    private Long differenceCount;
+    private BigDecimal existingAmount;
+    private BigDecimal expectedAmount;
+    private BigDecimal netAdjustment;
+    private Long commissionsWritten;
+    private BigDecimal walletShortfall;
+    private String lastError;
+    private String requestedBy;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,22 @@
+package com.realestate.mlm.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommissionReversalResponse {
+    private String investmentId;
+    private String reason;
+    private Integer commissionsReversed;
+    private Integer usersAffected;
+    private BigDecimal reversedAmount;
+    private BigDecimal walletDebited;
+    private BigDecimal walletShortfall;
+    private String negativeBalancePolicy;
+}
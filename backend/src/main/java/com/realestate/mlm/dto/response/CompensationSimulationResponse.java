@@ -0,0 +1,39 @@
+package com.realestate.mlm.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompensationSimulationResponse {
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private Integer usersInSnapshot;
+    private Integer investmentsReplayed;
+    private BigDecimal baselineTotal;
+    private BigDecimal alternateTotal;
+    private BigDecimal totalDelta;
+    private BigDecimal baselineCappedAmount;
+    private BigDecimal alternateCappedAmount;
+    private List<SimulationDelta> byCommissionType;
+    private List<SimulationDelta> byRank;
+    private Long durationMs;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SimulationDelta {
+        private String key;
+        private BigDecimal baseline;
+        private BigDecimal alternate;
+        private BigDecimal delta;
+    }
+}
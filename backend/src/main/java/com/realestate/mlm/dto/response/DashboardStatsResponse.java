@@ -19,4 +19,5 @@ public class DashboardStatsResponse {
     private DashboardCharts charts;
     private List<ActivityResponse> recentActivities;
     private List<DashboardAnnouncementResponse> announcements;
+    private List<String> unavailableWidgets; // left out after failing or timing out; their fields are null
 }
@@ -0,0 +1,30 @@
+package com.realestate.mlm.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayoutBankBatchResponse {
+    private String batchId;
+    private String status;
+    private String fileFormat;
+    private String transferMode;
+    private String fileName;
+    private Integer payoutCount;
+    private BigDecimal totalAmount;
+    private String checksumSha256;
+    private Integer completedCount;
+    private Integer failedCount;
+    private String lastError;
+    private String createdBy;
+    private LocalDateTime createdAt;
+    private LocalDateTime exportedAt;
+    private LocalDateTime completedAt;
+}
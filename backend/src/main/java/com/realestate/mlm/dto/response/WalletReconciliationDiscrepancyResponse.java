@@ -0,0 +1,20 @@
+package com.realestate.mlm.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletReconciliationDiscrepancyResponse {
+    private String userId;
+    private String checkType;
+    private String walletType;
+    private BigDecimal recordedAmount;
+    private BigDecimal expectedAmount;
+    private BigDecimal deltaAmount;
+}
@@ -0,0 +1,28 @@
+package com.realestate.mlm.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletReconciliationRunResponse {
+    private String runId;
+    private String status;
+    private Integer workers;
+    private Integer chunkSize;
+    private Integer completedRanges;
+    private Long walletsChecked;
+    private Long discrepancyCount;
+    private BigDecimal absoluteDifference;
+    private String lastError;
+    private String requestedBy;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+}
@@ -20,4 +20,5 @@ public class WalletResponse {
     private BigDecimal lockedBalance;
     private BigDecimal totalEarned;
     private BigDecimal totalWithdrawn;
+    private BigDecimal totalInvested;
 }
@@ -0,0 +1,22 @@
+package com.realestate.mlm.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Published when a property investment has been booked
+ */
+@Getter
+@AllArgsConstructor
+public class InvestmentCreatedEvent {
+
+    private final Long userId;
+
+    private final String investmentId;
+
+    private final BigDecimal investmentAmount;
+
+    private final BigDecimal bvAllocated;
+}
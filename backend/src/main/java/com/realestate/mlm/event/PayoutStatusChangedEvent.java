@@ -0,0 +1,22 @@
+package com.realestate.mlm.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Published when a payout request moves from one status to another
+ */
+@Getter
+@AllArgsConstructor
+public class PayoutStatusChangedEvent {
+
+    private final Long payoutId;
+
+    private final BigDecimal requestedAmount;
+
+    private final String previousStatus;
+
+    private final String status;
+}
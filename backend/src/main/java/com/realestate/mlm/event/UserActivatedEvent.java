@@ -0,0 +1,14 @@
+package com.realestate.mlm.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a member's account becomes ACTIVE
+ */
+@Getter
+@AllArgsConstructor
+public class UserActivatedEvent {
+
+    private final Long userId;
+}
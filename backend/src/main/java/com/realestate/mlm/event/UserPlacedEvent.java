@@ -0,0 +1,14 @@
+package com.realestate.mlm.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a new member is placed in the binary tree during registration
+ */
+@Getter
+@AllArgsConstructor
+public class UserPlacedEvent {
+
+    private final Long userId;
+}
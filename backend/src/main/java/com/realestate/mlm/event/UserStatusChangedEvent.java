@@ -0,0 +1,18 @@
+package com.realestate.mlm.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a member's account status changes
+ */
+@Getter
+@AllArgsConstructor
+public class UserStatusChangedEvent {
+
+    private final Long userId;
+
+    private final String previousStatus;
+
+    private final String status;
+}
@@ -0,0 +1,16 @@
+package com.realestate.mlm.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Published when wallet transactions have been posted, with their net effect on balances
+ */
+@Getter
+@AllArgsConstructor
+public class WalletBalanceChangedEvent {
+
+    private final BigDecimal netAmount;
+}
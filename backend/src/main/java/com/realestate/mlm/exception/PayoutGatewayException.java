@@ -0,0 +1,39 @@
+package com.realestate.mlm.exception;
+
+public class PayoutGatewayException extends RuntimeException {
+
+    /**
+     * What a failed call means for the money
+     */
+    public enum Kind {
+        /** The gateway refused the transfer; nothing was paid */
+        REJECTED,
+        /** The call never reached the gateway; nothing was paid */
+        UNAVAILABLE,
+        /** No answer (timeout, dropped connection); the transfer may or may not have been made */
+        UNCERTAIN
+    }
+
+    private final Kind kind;
+
+    public PayoutGatewayException(Kind kind, String message) {
+        super(message);
+        this.kind = kind;
+    }
+
+    public PayoutGatewayException(Kind kind, String message, Throwable cause) {
+        super(message, cause);
+        this.kind = kind;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Whether sending again with the same idempotency key may succeed
+     */
+    public boolean isRetryable() {
+        return kind != Kind.REJECTED;
+    }
+}
@@ -0,0 +1,30 @@
+package com.realestate.mlm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user whose binary volume changed since their last pairing.
+ * Marked in the same transaction as the volume change and removed in the transaction that
+ * pairs the user, so the set never misses a change.
+ */
+@Entity
+@Table(name = "binary_pairing_queue", indexes = {
+    @Index(name = "idx_binary_pairing_queue_marked", columnList = "marked_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BinaryPairingQueueEntry {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "marked_at", nullable = false)
+    private LocalDateTime markedAt;
+}
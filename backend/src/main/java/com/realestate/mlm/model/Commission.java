@@ -10,16 +10,18 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "commissions", indexes = {
-    @Index(name = "idx_commission_id", columnList = "commission_id", unique = true),
+    @Index(name = "idx_commission_id", columnList = "commission_id"),
     @Index(name = "idx_commission_user_id", columnList = "user_id"),
     @Index(name = "idx_commission_from_user_id", columnList = "from_user_id"),
     @Index(name = "idx_commission_type", columnList = "commission_type"),
     @Index(name = "idx_commission_level", columnList = "level"),
     @Index(name = "idx_property_id", columnList = "property_id"),
     @Index(name = "idx_investment_id", columnList = "investment_id"),
+    @Index(name = "idx_commission_idempotency_key", columnList = "idempotency_key"),
     @Index(name = "idx_commission_status", columnList = "status"),
     @Index(name = "idx_commission_created", columnList = "created_at"),
-    @Index(name = "idx_user_status", columnList = "user_id,status")
+    @Index(name = "idx_user_status", columnList = "user_id,status"),
+    @Index(name = "idx_commissions_user_seek", columnList = "user_id,created_at,id")
 })
 @EntityListeners(AuditingEntityListener.class)
 @Data
@@ -31,7 +33,7 @@ public class Commission {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "commission_id", unique = true, nullable = false, length = 50)
+    @Column(name = "commission_id", nullable = false, length = 50)
     private String commissionId;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -63,6 +65,9 @@ public class Commission {
     @Column(name = "investment_id", length = 50)
     private String investmentId; // Associated investment
 
+    @Column(name = "idempotency_key", length = 150)
+    private String idempotencyKey; // investment:beneficiary:type for investment-driven commissions, else null; unique through commission_idempotency_keys
+
     @Column(name = "business_volume", precision = 15, scale = 2)
     private BigDecimal businessVolume; // BV generated
 
@@ -0,0 +1,52 @@
+package com.realestate.mlm.model;
+
+import lombok.*;
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One line of a recalculation's difference report: what was recorded and what the replay
+ * expects for an earner, source user, commission type and day.
+ * Written in JDBC batches by the recalculation job.
+ */
+@Entity
+@Table(name = "commission_recalculation_diffs", indexes = {
+    @Index(name = "idx_recalculation_diff_run", columnList = "run_id,id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommissionRecalculationDiff {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "partition_no", nullable = false)
+    private Integer partitionNo;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "from_user_id")
+    private Long fromUserId;
+
+    @Column(name = "commission_type", nullable = false, length = 50)
+    private String commissionType;
+
+    @Column(name = "commission_date", nullable = false)
+    private LocalDate commissionDate;
+
+    @Column(name = "existing_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal existingAmount;
+
+    @Column(name = "expected_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal expectedAmount;
+
+    @Column(name = "delta_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal deltaAmount;
+}
@@ -0,0 +1,49 @@
+package com.realestate.mlm.model;
+
+import lombok.*;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A sponsor subtree processed as one unit of a recalculation run, and the run's checkpoint:
+ * a partition is marked COMPLETED in the same transaction that writes its results.
+ *
+ * The partition without a root holds the users above every subtree root (the top of the tree).
+ */
+@Entity
+@Table(name = "commission_recalculation_partitions", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_recalculation_partition_run_no", columnNames = {"run_id", "partition_no"})
+}, indexes = {
+    @Index(name = "idx_recalculation_partition_run_status", columnList = "run_id,status")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommissionRecalculationPartition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "run_id", nullable = false)
+    private CommissionRecalculationRun run;
+
+    @Column(name = "partition_no", nullable = false)
+    private Integer partitionNo;
+
+    @Column(name = "root_user_id")
+    private Long rootUserId; // Null for the top-of-tree partition
+
+    @Column(name = "status", nullable = false, length = 30)
+    private String status; // PENDING, COMPLETED
+
+    @Column(name = "earner_count")
+    private Integer earnerCount;
+
+    @Column(name = "difference_count")
+    private Integer differenceCount;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,86 @@
+package com.realestate.mlm.model;
+
+import lombok.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One whole-network commission recalculation, with its progress counters.
+ * Work is split into {@link CommissionRecalculationPartition}s; a run can be paused between
+ * partitions and resumed from the first partition not yet completed.
+ */
+@Entity
+@Table(name = "commission_recalculation_runs", indexes = {
+    @Index(name = "idx_recalculation_run_id", columnList = "run_id", unique = true),
+    @Index(name = "idx_recalculation_run_status", columnList = "status")
+})
+@EntityListeners(AuditingEntityListener.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommissionRecalculationRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", unique = true, nullable = false, length = 50)
+    private String runId;
+
+    @Column(name = "status", nullable = false, length = 30)
+    private String status; // RUNNING, PAUSE_REQUESTED, PAUSED, COMPLETED, FAILED
+
+    @Column(name = "dry_run", nullable = false)
+    private Boolean dryRun = true; // Only record the difference report, write nothing else
+
+    @Column(name = "as_of", nullable = false)
+    private LocalDateTime asOf; // Investments and commissions created before this instant are replayed
+
+    @Column(name = "history_from")
+    private LocalDateTime historyFrom; // ...and not before this one, where the archived history ends; null for all
+
+    @Column(name = "total_partitions", nullable = false)
+    private Integer totalPartitions = 0;
+
+    @Column(name = "completed_partitions", nullable = false)
+    private Integer completedPartitions = 0;
+
+    @Column(name = "earners_processed", nullable = false)
+    private Long earnersProcessed = 0L;
+
+    @Column(name = "difference_count", nullable = false)
+    private Long differenceCount = 0L;
+
+    @Column(name = "existing_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal existingAmount = BigDecimal.ZERO; // Recorded commissions that differ
+
+    @Column(name = "expected_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal expectedAmount = BigDecimal.ZERO; // Replayed commissions for the same keys
+
+    @Column(name = "commissions_written", nullable = false)
+    private Long commissionsWritten = 0L; // Corrected and reversing entries
+
+    @Column(name = "wallet_shortfall", nullable = false, precision = 15, scale = 2)
+    private BigDecimal walletShortfall = BigDecimal.ZERO; // Reversals the commission balance could not cover
+
+    @Column(name = "last_error", columnDefinition = "text")
+    private String lastError;
+
+    @Column(name = "requested_by", length = 100)
+    private String requestedBy;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @CreatedDate
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
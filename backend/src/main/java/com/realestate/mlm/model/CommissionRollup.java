@@ -0,0 +1,60 @@
+package com.realestate.mlm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Per-user, per-type commission totals for a day, a month and the whole lifetime.
+ * Maintained in the same transaction as the commission rows it summarises.
+ */
+@Entity
+@Table(name = "commission_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_commission_rollup_user_type_period_date",
+            columnNames = {"user_id", "commission_type", "period", "rollup_date"})
+}, indexes = {
+    @Index(name = "idx_commission_rollup_user_period_date", columnList = "user_id,period,rollup_date")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommissionRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "commission_type", nullable = false, length = 50)
+    private String commissionType;
+
+    @Column(name = "period", nullable = false, length = 10)
+    private String period; // DAY, MONTH, ALL
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate; // first day of the period, 1970-01-01 for ALL
+
+    @Column(name = "total_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(name = "settled_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal settledAmount; // CREDITED or PAID
+
+    @Column(name = "pending_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal pendingAmount;
+
+    @Column(name = "commission_count", nullable = false)
+    private Integer commissionCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
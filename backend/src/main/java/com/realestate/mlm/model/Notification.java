@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
     @Index(name = "idx_notification_is_broadcast", columnList = "is_broadcast"),
     @Index(name = "idx_notification_created", columnList = "created_at"),
     @Index(name = "idx_notification_user_read", columnList = "user_id,is_read"),
-    @Index(name = "idx_notification_user_created", columnList = "user_id,created_at")
+    @Index(name = "idx_notification_user_created", columnList = "user_id,created_at"),
+    @Index(name = "idx_notifications_user_seek", columnList = "user_id,created_at,id")
 })
 @EntityListeners(AuditingEntityListener.class)
 @Data
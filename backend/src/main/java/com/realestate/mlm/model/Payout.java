@@ -17,7 +17,9 @@ import java.time.LocalDateTime;
     @Index(name = "idx_payout_requested", columnList = "requested_at"),
     @Index(name = "idx_payout_processed", columnList = "processed_at"),
     @Index(name = "idx_user_status", columnList = "user_id,status"),
-    @Index(name = "idx_transaction_id", columnList = "transaction_id")
+    @Index(name = "idx_transaction_id", columnList = "transaction_id"),
+    @Index(name = "idx_payouts_user_seek", columnList = "user_id,created_at,id"),
+    @Index(name = "idx_payouts_bank_batch", columnList = "bank_batch_id,id")
 })
 @EntityListeners(AuditingEntityListener.class)
 @Data
@@ -74,7 +76,7 @@ public class Payout {
 
     // Status
     @Column(name = "status", nullable = false, length = 50)
-    private String status; // REQUESTED, APPROVED, PROCESSED, COMPLETED, REJECTED, CANCELLED
+    private String status; // REQUESTED, APPROVED, PROCESSING, PROCESSED, COMPLETED, FAILED, REJECTED, CANCELLED, CONSOLIDATED
 
     // Remarks and Reasons
     @Column(name = "remarks", columnDefinition = "text")
@@ -93,6 +95,25 @@ public class Payout {
     @Column(name = "utr_number", length = 100)
     private String utrNumber; // Unique Transaction Reference for bank transfers
 
+    // Dispatch
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey; // Sent with every gateway call of the current attempt
+
+    @Column(name = "dispatch_attempts", nullable = false)
+    private Integer dispatchAttempts = 0;
+
+    @Column(name = "claimed_by", length = 100)
+    private String claimedBy; // Dispatcher node holding the payout while PROCESSING
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    @Column(name = "bank_batch_id", length = 50)
+    private String bankBatchId; // Bank bulk file the payout is paid through, instead of the gateway
+
+    @Column(name = "consolidated_payout_id")
+    private Long consolidatedPayoutId; // Payout that pays this CONSOLIDATED one, together with the user's others
+
     // Status Timestamps
     @Column(name = "requested_at", nullable = false)
     private LocalDateTime requestedAt;
@@ -0,0 +1,79 @@
+package com.realestate.mlm.model;
+
+import lombok.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One NEFT/IMPS bulk file of bank transfer payouts, and what the bank's response files have
+ * settled of it so far.
+ */
+@Entity
+@Table(name = "payout_bank_batches", indexes = {
+    @Index(name = "idx_payout_bank_batch_id", columnList = "batch_id", unique = true),
+    @Index(name = "idx_payout_bank_batch_status", columnList = "status")
+})
+@EntityListeners(AuditingEntityListener.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayoutBankBatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "batch_id", unique = true, nullable = false, length = 50)
+    private String batchId;
+
+    @Column(name = "status", nullable = false, length = 30)
+    private String status; // EXPORTING, EXPORTED, COMPLETED, FAILED
+
+    @Column(name = "file_format", nullable = false, length = 20)
+    private String fileFormat; // CSV, FIXED_WIDTH
+
+    @Column(name = "transfer_mode", nullable = false, length = 10)
+    private String transferMode; // NEFT, IMPS
+
+    @Column(name = "file_name", length = 255)
+    private String fileName;
+
+    @Column(name = "payout_count", nullable = false)
+    private Integer payoutCount = 0;
+
+    @Column(name = "total_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO; // Sum of net amounts in the file
+
+    @Column(name = "checksum_sha256", length = 64)
+    private String checksumSha256;
+
+    @Column(name = "completed_count", nullable = false)
+    private Integer completedCount = 0;
+
+    @Column(name = "failed_count", nullable = false)
+    private Integer failedCount = 0;
+
+    @Column(name = "last_error", columnDefinition = "text")
+    private String lastError;
+
+    @Column(name = "created_by", length = 100)
+    private String createdBy;
+
+    @Column(name = "exported_at")
+    private LocalDateTime exportedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @CreatedDate
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -88,7 +88,7 @@ public class PropertyInvestment {
     private BigDecimal commissionsPaid = BigDecimal.ZERO;
 
     @Column(name = "commission_status", length = 50)
-    private String commissionStatus; // PENDING, CREDITED, PAID, WITHHELD
+    private String commissionStatus; // PENDING, CREDITED, PAID, WITHHELD, REVERSED
 
     // Nominee Details
     @Column(name = "nominee_name", length = 255)
@@ -9,7 +9,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "transactions", indexes = {
-        @Index(name = "idx_transaction_id", columnList = "transaction_id", unique = true),
+        @Index(name = "idx_transaction_id", columnList = "transaction_id"),
         @Index(name = "idx_user_id", columnList = "user_id"),
         @Index(name = "idx_transaction_type", columnList = "type"),
         @Index(name = "idx_transaction_category", columnList = "category"),
@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
         @Index(name = "idx_transaction_status", columnList = "status"),
         @Index(name = "idx_reference_id", columnList = "reference_id"),
         @Index(name = "idx_created_at", columnList = "created_at"),
-        @Index(name = "idx_user_created", columnList = "user_id,created_at")
+        @Index(name = "idx_user_created", columnList = "user_id,created_at"),
+        @Index(name = "idx_transactions_user_seek", columnList = "user_id,created_at,id")
 })
 @EntityListeners(AuditingEntityListener.class)
 @Data
@@ -29,7 +30,7 @@ public class Transaction {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "transaction_id", unique = true, nullable = false, length = 50)
+    @Column(name = "transaction_id", nullable = false, length = 50)
     private String transactionId;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,62 @@
+package com.realestate.mlm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Per-user wallet transaction totals for a day, a month and the whole lifetime.
+ * Maintained in the same transaction as the transaction rows it summarises. Each period is spread
+ * over a few stripes so that hot wallets do not serialize on one rollup row; readers add them up.
+ */
+@Entity
+@Table(name = "transaction_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_transaction_rollup_user_period_stripe",
+            columnNames = {"user_id", "period", "period_start", "stripe_no"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "period", nullable = false, length = 10)
+    private String period; // DAY, MONTH, ALL
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart; // 1970-01-01 for ALL
+
+    @Column(name = "stripe_no", nullable = false)
+    private Integer stripeNo;
+
+    @Column(name = "credit_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal creditAmount;
+
+    @Column(name = "debit_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal debitAmount;
+
+    @Column(name = "income_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal incomeAmount; // COMMISSION, RENTAL_INCOME and ROI credits
+
+    @Column(name = "credit_count", nullable = false)
+    private Integer creditCount;
+
+    @Column(name = "debit_count", nullable = false)
+    private Integer debitCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -9,6 +9,7 @@ import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
@@ -51,6 +52,17 @@ public class Wallet {
     @Column(precision = 15, scale = 2, nullable = false)
     private BigDecimal lockedBalance = BigDecimal.ZERO;
 
+    // Hot wallet: credits go to wallet_stripes instead of this row, see WalletService
+    @Column(name = "striped")
+    private Boolean striped = false;
+
+    // Withdrawals requested on dailyWithdrawalDate; a counter of an earlier day counts as zero
+    @Column(name = "daily_withdrawal_amount", precision = 15, scale = 2, nullable = false)
+    private BigDecimal dailyWithdrawalAmount = BigDecimal.ZERO;
+
+    @Column(name = "daily_withdrawal_date")
+    private LocalDate dailyWithdrawalDate;
+
     @CreatedDate
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -66,6 +78,13 @@ public class Wallet {
                 .add(roiBalance);
     }
 
+    /**
+     * Amount requested for withdrawal on the given day
+     */
+    public BigDecimal getDailyWithdrawalAmount(LocalDate day) {
+        return day.equals(dailyWithdrawalDate) && dailyWithdrawalAmount != null ? dailyWithdrawalAmount : BigDecimal.ZERO;
+    }
+
     public BigDecimal getWithdrawableBalance() {
         return commissionBalance
                 .add(rentalIncomeBalance)
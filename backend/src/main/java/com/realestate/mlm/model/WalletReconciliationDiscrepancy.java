@@ -0,0 +1,44 @@
+package com.realestate.mlm.model;
+
+import lombok.*;
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+
+/**
+ * One finding of a wallet reconciliation: a recorded wallet figure and what the ledger says it
+ * should be. Written in JDBC batches by the reconciliation job.
+ */
+@Entity
+@Table(name = "wallet_reconciliation_discrepancies", indexes = {
+    @Index(name = "idx_reconciliation_discrepancy_run", columnList = "run_id,id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletReconciliationDiscrepancy {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "check_type", nullable = false, length = 30)
+    private String checkType; // BALANCE, LOCKED, EARNINGS
+
+    @Column(name = "wallet_type", length = 30)
+    private String walletType; // BALANCE checks only
+
+    @Column(name = "recorded_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal recordedAmount;
+
+    @Column(name = "expected_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal expectedAmount;
+
+    @Column(name = "delta_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal deltaAmount; // recorded minus expected
+}
@@ -0,0 +1,71 @@
+package com.realestate.mlm.model;
+
+import lombok.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One wallet-vs-ledger reconciliation, with its progress counters.
+ * Wallets are checked in user id ranges of chunk_size by parallel workers; every completed
+ * range adds to the counters.
+ */
+@Entity
+@Table(name = "wallet_reconciliation_runs", indexes = {
+    @Index(name = "idx_reconciliation_run_id", columnList = "run_id", unique = true),
+    @Index(name = "idx_reconciliation_run_status", columnList = "status")
+})
+@EntityListeners(AuditingEntityListener.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletReconciliationRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", unique = true, nullable = false, length = 50)
+    private String runId;
+
+    @Column(name = "status", nullable = false, length = 30)
+    private String status; // RUNNING, COMPLETED, FAILED
+
+    @Column(name = "workers", nullable = false)
+    private Integer workers;
+
+    @Column(name = "chunk_size", nullable = false)
+    private Integer chunkSize; // Wallets per user id range
+
+    @Column(name = "completed_ranges", nullable = false)
+    private Integer completedRanges = 0;
+
+    @Column(name = "wallets_checked", nullable = false)
+    private Long walletsChecked = 0L;
+
+    @Column(name = "discrepancy_count", nullable = false)
+    private Long discrepancyCount = 0L;
+
+    @Column(name = "absolute_difference", nullable = false, precision = 15, scale = 2)
+    private BigDecimal absoluteDifference = BigDecimal.ZERO; // Sum of |recorded - expected| over all discrepancies
+
+    @Column(name = "last_error", columnDefinition = "text")
+    private String lastError;
+
+    @Column(name = "requested_by", length = 100)
+    private String requestedBy;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @CreatedDate
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
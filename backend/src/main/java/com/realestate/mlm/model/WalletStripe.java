@@ -0,0 +1,48 @@
+package com.realestate.mlm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Credits to a striped wallet that have not been folded into the wallet row yet.
+ * A credit adds to one of N stripes per user and wallet type instead of locking the wallet row;
+ * balance reads add the stripes, and debits and the compaction job fold them into the wallet.
+ */
+@Entity
+@Table(name = "wallet_stripes", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_wallet_stripe_user_type_no", columnNames = {"user_id", "wallet_type", "stripe_no"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletStripe {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "wallet_type", nullable = false, length = 30)
+    private String walletType; // INVESTMENT, COMMISSION, RENTAL_INCOME, ROI
+
+    @Column(name = "stripe_no", nullable = false)
+    private Integer stripeNo;
+
+    @Column(name = "amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "entry_count", nullable = false)
+    private Integer entryCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
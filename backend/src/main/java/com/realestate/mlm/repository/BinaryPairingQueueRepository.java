@@ -0,0 +1,48 @@
+package com.realestate.mlm.repository;
+
+import com.realestate.mlm.model.BinaryPairingQueueEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for the dirty set of users awaiting binary pairing
+ */
+@Repository
+public interface BinaryPairingQueueRepository extends JpaRepository<BinaryPairingQueueEntry, Long> {
+
+    /**
+     * Add a user to the dirty set; a user already in it keeps their original position
+     */
+    @Modifying
+    @Query(value = "INSERT INTO binary_pairing_queue (user_id, marked_at) VALUES (:userId, NOW()) " +
+            "ON CONFLICT (user_id) DO NOTHING", nativeQuery = true)
+    int markDirty(@Param("userId") Long userId);
+
+    /**
+     * Oldest marks first
+     */
+    @Query("SELECT q FROM BinaryPairingQueueEntry q ORDER BY q.markedAt, q.userId")
+    List<BinaryPairingQueueEntry> findEntriesToPair(Pageable pageable);
+
+    /**
+     * Oldest marks first, strictly after (markedAt, userId)
+     */
+    @Query("SELECT q FROM BinaryPairingQueueEntry q " +
+            "WHERE q.markedAt > :markedAt OR (q.markedAt = :markedAt AND q.userId > :userId) " +
+            "ORDER BY q.markedAt, q.userId")
+    List<BinaryPairingQueueEntry> findEntriesToPairAfter(
+            @Param("markedAt") LocalDateTime markedAt,
+            @Param("userId") Long userId,
+            Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM BinaryPairingQueueEntry q WHERE q.userId = :userId")
+    int removeUser(@Param("userId") Long userId);
+}
@@ -0,0 +1,216 @@
+package com.realestate.mlm.repository;
+
+import com.realestate.mlm.model.Commission;
+import com.realestate.mlm.model.CommissionRecalculationDiff;
+import com.realestate.mlm.model.CommissionRollup;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JDBC batch writes for bulk commission jobs, where saving entity by entity would cost one
+ * round trip per row. Callers own the transaction.
+ */
+@Repository
+public class CommissionBatchRepository {
+
+    private static final String INSERT_COMMISSION = "INSERT INTO commissions " +
+            "(commission_id, user_id, from_user_id, commission_type, level, amount, percentage, base_amount, " +
+            "property_id, investment_id, idempotency_key, business_volume, description, calculation_details, status, " +
+            "cap_applied, capped_amount, created_at, updated_at, created_by) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CAST(? AS jsonb), ?, ?, ?, ?, ?, ?)";
+
+    // One delta goes to its day, month and lifetime buckets in the same statement
+    private static final String ADD_TO_ROLLUP = "INSERT INTO commission_rollups " +
+            "(user_id, commission_type, period, rollup_date, total_amount, settled_amount, pending_amount, commission_count, updated_at) " +
+            "SELECT ?, ?, p.period, p.rollup_date, ?, ?, ?, ?, NOW() " +
+            "FROM (VALUES ('DAY', CAST(? AS DATE)), ('MONTH', CAST(? AS DATE)), ('ALL', CAST(? AS DATE))) AS p(period, rollup_date) " +
+            "ON CONFLICT (user_id, commission_type, period, rollup_date) DO UPDATE SET " +
+            "total_amount = commission_rollups.total_amount + EXCLUDED.total_amount, " +
+            "settled_amount = commission_rollups.settled_amount + EXCLUDED.settled_amount, " +
+            "pending_amount = commission_rollups.pending_amount + EXCLUDED.pending_amount, " +
+            "commission_count = commission_rollups.commission_count + EXCLUDED.commission_count, " +
+            "updated_at = NOW()";
+
+    private static final String INSERT_RECALCULATION_DIFF = "INSERT INTO commission_recalculation_diffs " +
+            "(run_id, partition_no, user_id, from_user_id, commission_type, commission_date, " +
+            "existing_amount, expected_amount, delta_amount) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Locks the rows first so the previous status can be returned alongside the update
+    private static final String MARK_INVESTMENT_COMMISSIONS_REVERSED = "WITH reversible AS (" +
+            "SELECT id, created_at, status FROM commissions " +
+            "WHERE investment_id = ? AND created_at >= ? AND amount > 0 AND status <> 'REVERSED' FOR UPDATE) " +
+            "UPDATE commissions c SET status = 'REVERSED', updated_at = NOW(), updated_by = ? " +
+            "FROM reversible r WHERE c.id = r.id AND c.created_at = r.created_at " +
+            "RETURNING c.id, c.commission_id, c.user_id, c.from_user_id, c.commission_type, c.level, c.amount, " +
+            "c.percentage, c.base_amount, c.property_id, c.idempotency_key, c.created_at, r.status AS previous_status";
+
+    private static final String MARK_RECALCULATED_COMMISSIONS_REVERSED = "UPDATE commissions " +
+            "SET status = 'REVERSED', updated_at = NOW(), updated_by = ? " +
+            "WHERE user_id = ? AND from_user_id IS NOT DISTINCT FROM ? AND commission_type = ? " +
+            "AND created_at >= ? AND created_at < ? AND status IN ('CREDITED', 'PAID') " +
+            "RETURNING amount";
+
+    // Waits for an uncommitted claim of the same key, so the loser sees the winner's commission
+    private static final String CLAIM_IDEMPOTENCY_KEY = "INSERT INTO commission_idempotency_keys " +
+            "(idempotency_key, commission_id, created_at) VALUES (?, ?, ?) " +
+            "ON CONFLICT (idempotency_key) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    /**
+     * A commission as it was before {@link #markInvestmentCommissionsReversed} flipped it to REVERSED
+     */
+    public record ReversedCommission(
+            Long id,
+            String commissionId,
+            Long userId,
+            Long fromUserId,
+            String commissionType,
+            Integer level,
+            BigDecimal amount,
+            BigDecimal percentage,
+            BigDecimal baseAmount,
+            String propertyId,
+            String idempotencyKey,
+            LocalDateTime createdAt,
+            String previousStatus) {
+    }
+
+    public CommissionBatchRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.batch.jdbc-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Insert new commissions. Only the user and from-user ids are read from the associations.
+     */
+    public void insertCommissions(Collection<Commission> commissions) {
+        if (commissions.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_COMMISSION, commissions, batchSize, (ps, commission) -> {
+            LocalDateTime createdAt = commission.getCreatedAt() != null ? commission.getCreatedAt() : now;
+            ps.setString(1, commission.getCommissionId());
+            ps.setLong(2, commission.getUser().getId());
+            ps.setObject(3, commission.getFromUser() != null ? commission.getFromUser().getId() : null, Types.BIGINT);
+            ps.setString(4, commission.getCommissionType());
+            ps.setInt(5, commission.getLevel());
+            ps.setBigDecimal(6, commission.getAmount());
+            ps.setBigDecimal(7, commission.getPercentage());
+            ps.setBigDecimal(8, commission.getBaseAmount());
+            ps.setString(9, commission.getPropertyId());
+            ps.setString(10, commission.getInvestmentId());
+            ps.setString(11, commission.getIdempotencyKey());
+            ps.setBigDecimal(12, commission.getBusinessVolume());
+            ps.setString(13, commission.getDescription());
+            ps.setString(14, commission.getCalculationDetails());
+            ps.setString(15, commission.getStatus());
+            ps.setBoolean(16, Boolean.TRUE.equals(commission.getCapApplied()));
+            ps.setBigDecimal(17, commission.getCappedAmount());
+            ps.setTimestamp(18, Timestamp.valueOf(createdAt));
+            ps.setTimestamp(19, Timestamp.valueOf(now));
+            ps.setString(20, commission.getCreatedBy());
+        });
+    }
+
+    /**
+     * Add pre-aggregated user/type/day deltas to the commission rollups, each to its day, month
+     * and lifetime bucket
+     */
+    public void addToRollups(Collection<CommissionRollup> deltas, LocalDate lifetimeStart) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(ADD_TO_ROLLUP, deltas, batchSize, (ps, delta) -> {
+            ps.setLong(1, delta.getUserId());
+            ps.setString(2, delta.getCommissionType());
+            ps.setBigDecimal(3, delta.getTotalAmount());
+            ps.setBigDecimal(4, delta.getSettledAmount());
+            ps.setBigDecimal(5, delta.getPendingAmount());
+            ps.setInt(6, delta.getCommissionCount());
+            ps.setDate(7, Date.valueOf(delta.getRollupDate()));
+            ps.setDate(8, Date.valueOf(delta.getRollupDate().withDayOfMonth(1)));
+            ps.setDate(9, Date.valueOf(lifetimeStart));
+        });
+    }
+
+    public void insertRecalculationDiffs(Collection<CommissionRecalculationDiff> diffs) {
+        if (diffs.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_RECALCULATION_DIFF, diffs, batchSize, (ps, diff) -> {
+            ps.setLong(1, diff.getRunId());
+            ps.setInt(2, diff.getPartitionNo());
+            ps.setLong(3, diff.getUserId());
+            ps.setObject(4, diff.getFromUserId(), Types.BIGINT);
+            ps.setString(5, diff.getCommissionType());
+            ps.setDate(6, Date.valueOf(diff.getCommissionDate()));
+            ps.setBigDecimal(7, diff.getExistingAmount());
+            ps.setBigDecimal(8, diff.getExpectedAmount());
+            ps.setBigDecimal(9, diff.getDeltaAmount());
+        });
+    }
+
+    /**
+     * Mark every positive, not yet reversed commission of an investment as REVERSED in one
+     * statement, through the investment_id index of the partitions from since on. Returns the rows
+     * that were flipped, so a commission is handed to exactly one caller even when reversals race.
+     */
+    public List<ReversedCommission> markInvestmentCommissionsReversed(String investmentId, LocalDateTime since, String updatedBy) {
+        return jdbcTemplate.query(MARK_INVESTMENT_COMMISSIONS_REVERSED, (rs, rowNum) -> new ReversedCommission(
+                rs.getLong("id"),
+                rs.getString("commission_id"),
+                rs.getLong("user_id"),
+                rs.getObject("from_user_id", Long.class),
+                rs.getString("commission_type"),
+                rs.getInt("level"),
+                rs.getBigDecimal("amount"),
+                rs.getBigDecimal("percentage"),
+                rs.getBigDecimal("base_amount"),
+                rs.getString("property_id"),
+                rs.getString("idempotency_key"),
+                rs.getTimestamp("created_at").toLocalDateTime(),
+                rs.getString("previous_status")), investmentId, Timestamp.valueOf(since), updatedBy);
+    }
+
+    /**
+     * Claim an idempotency key for a commission about to be inserted. False when another
+     * commission already holds it; if that claim is still uncommitted, this waits for it.
+     */
+    public boolean claimIdempotencyKey(String idempotencyKey, String commissionId, LocalDateTime createdAt) {
+        return jdbcTemplate.update(CLAIM_IDEMPOTENCY_KEY, idempotencyKey, commissionId, Timestamp.valueOf(createdAt)) > 0;
+    }
+
+    /**
+     * Mark the settled commissions one earner got from one source user, of one type, in
+     * [from, until) as REVERSED, as a recalculation does before writing the expected amount.
+     * Returns the sum of the amounts flipped.
+     */
+    public BigDecimal markRecalculatedCommissionsReversed(Long userId, Long fromUserId, String commissionType,
+                                                          LocalDateTime from, LocalDateTime until, String updatedBy) {
+        List<BigDecimal> amounts = jdbcTemplate.query(MARK_RECALCULATED_COMMISSIONS_REVERSED, ps -> {
+            ps.setString(1, updatedBy);
+            ps.setLong(2, userId);
+            ps.setObject(3, fromUserId, Types.BIGINT);
+            ps.setString(4, commissionType);
+            ps.setTimestamp(5, Timestamp.valueOf(from));
+            ps.setTimestamp(6, Timestamp.valueOf(until));
+        }, (rs, rowNum) -> rs.getBigDecimal("amount"));
+        return amounts.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -0,0 +1,13 @@
+package com.realestate.mlm.repository;
+
+import com.realestate.mlm.model.CommissionRecalculationDiff;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CommissionRecalculationDiffRepository extends JpaRepository<CommissionRecalculationDiff, Long> {
+
+    Page<CommissionRecalculationDiff> findByRunIdOrderById(Long runId, Pageable pageable);
+}
@@ -0,0 +1,16 @@
+package com.realestate.mlm.repository;
+
+import com.realestate.mlm.model.CommissionRecalculationPartition;
+import com.realestate.mlm.model.CommissionRecalculationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CommissionRecalculationPartitionRepository extends JpaRepository<CommissionRecalculationPartition, Long> {
+
+    List<CommissionRecalculationPartition> findByRunOrderByPartitionNo(CommissionRecalculationRun run);
+
+    List<CommissionRecalculationPartition> findByRunAndStatusOrderByPartitionNo(CommissionRecalculationRun run, String status);
+}
@@ -0,0 +1,67 @@
+package com.realestate.mlm.repository;
+
+import com.realestate.mlm.model.CommissionRecalculationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CommissionRecalculationRunRepository extends JpaRepository<CommissionRecalculationRun, Long> {
+
+    Optional<CommissionRecalculationRun> findByRunId(String runId);
+
+    List<CommissionRecalculationRun> findByStatusIn(Collection<String> statuses);
+
+    boolean existsByStatusIn(Collection<String> statuses);
+
+    /**
+     * Move a run between states only if it is still in the expected one
+     */
+    @Modifying
+    @Query("UPDATE CommissionRecalculationRun r SET r.status = :status, r.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE r.id = :id AND r.status = :expectedStatus")
+    int transitionStatus(
+            @Param("id") Long id,
+            @Param("expectedStatus") String expectedStatus,
+            @Param("status") String status);
+
+    /**
+     * Record a completed partition. Counters are only ever added to, so a concurrent pause
+     * request is never overwritten.
+     */
+    @Modifying
+    @Query("UPDATE CommissionRecalculationRun r SET " +
+            "r.completedPartitions = r.completedPartitions + 1, " +
+            "r.earnersProcessed = r.earnersProcessed + :earners, " +
+            "r.differenceCount = r.differenceCount + :differences, " +
+            "r.existingAmount = r.existingAmount + :existingAmount, " +
+            "r.expectedAmount = r.expectedAmount + :expectedAmount, " +
+            "r.commissionsWritten = r.commissionsWritten + :commissionsWritten, " +
+            "r.walletShortfall = r.walletShortfall + :walletShortfall, " +
+            "r.updatedAt = CURRENT_TIMESTAMP WHERE r.id = :id")
+    int addPartitionProgress(
+            @Param("id") Long id,
+            @Param("earners") long earners,
+            @Param("differences") long differences,
+            @Param("existingAmount") BigDecimal existingAmount,
+            @Param("expectedAmount") BigDecimal expectedAmount,
+            @Param("commissionsWritten") long commissionsWritten,
+            @Param("walletShortfall") BigDecimal walletShortfall);
+
+    @Modifying
+    @Query("UPDATE CommissionRecalculationRun r SET r.status = :status, r.lastError = :lastError, " +
+            "r.completedAt = :completedAt, r.updatedAt = CURRENT_TIMESTAMP WHERE r.id = :id")
+    int finish(
+            @Param("id") Long id,
+            @Param("status") String status,
+            @Param("lastError") String lastError,
+            @Param("completedAt") LocalDateTime completedAt);
+}
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +22,21 @@ public interface CommissionRepository extends JpaRepository<Commission, Long>, J
 
         Optional<Commission> findByCommissionId(String commissionId);
 
+        /**
+         * Commission with the given idempotency key, scanning only the partitions from since on
+         */
+        Optional<Commission> findByIdempotencyKeyAndCreatedAtGreaterThanEqual(String idempotencyKey, LocalDateTime since);
+
+        /**
+         * Idempotency keys already used by the commissions of one investment, scanning only the
+         * partitions from since on
+         */
+        @Query("SELECT c.idempotencyKey FROM Commission c WHERE c.investmentId = :investmentId " +
+                        "AND c.createdAt >= :since AND c.idempotencyKey IS NOT NULL")
+        List<String> findIdempotencyKeysByInvestmentId(
+                        @Param("investmentId") String investmentId,
+                        @Param("since") LocalDateTime since);
+
         Page<Commission> findByUser(User user, Pageable pageable);
 
         Page<Commission> findByUserAndCommissionType(User user, String commissionType, Pageable pageable);
@@ -29,8 +45,8 @@ public interface CommissionRepository extends JpaRepository<Commission, Long>, J
 
         List<Commission> findByStatusAndCreatedAtGreaterThanEqual(String status, LocalDateTime createdAt);
 
-        @Query("SELECT SUM(c.amount) FROM Commission c WHERE c.user = :user AND c.commissionType = :commissionType")
-        Double sumCommissionsByUserAndType(
+        @Query("SELECT COALESCE(SUM(c.amount), 0) FROM Commission c WHERE c.user = :user AND c.commissionType = :commissionType")
+        BigDecimal sumCommissionsByUserAndType(
                         @Param("user") User user,
                         @Param("commissionType") String commissionType);
 
@@ -59,4 +75,47 @@ public interface CommissionRepository extends JpaRepository<Commission, Long>, J
                         @Param("startTime") LocalDateTime startTime,
                         @Param("endTime") LocalDateTime endTime,
                         @Param("status") String status);
+
+        /**
+         * Commissions of the given earners in [from, until), for commission recalculation
+         */
+        @Query("SELECT c.user.id AS userId, f.id AS fromUserId, c.commissionType AS commissionType, " +
+                        "c.amount AS amount, c.status AS status, c.createdAt AS createdAt " +
+                        "FROM Commission c LEFT JOIN c.fromUser f " +
+                        "WHERE c.user.id IN :userIds AND c.createdAt >= :from AND c.createdAt < :until")
+        List<ReplayCommission> findReplayCommissions(
+                        @Param("userIds") Collection<Long> userIds,
+                        @Param("from") LocalDateTime from,
+                        @Param("until") LocalDateTime until);
+
+        /**
+         * Projection of a commission as seen by the commission recalculation job
+         */
+        interface ReplayCommission {
+                Long getUserId();
+
+                Long getFromUserId();
+
+                String getCommissionType();
+
+                BigDecimal getAmount();
+
+                String getStatus();
+
+                LocalDateTime getCreatedAt();
+        }
+
+        /**
+         * Keyset page of a user's commissions, newest first, strictly before (createdAt, id)
+         */
+        @Query("SELECT c FROM Commission c WHERE c.user.id = :userId " +
+                        "AND (:type IS NULL OR c.commissionType = :type) " +
+                        "AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+                        "ORDER BY c.createdAt DESC, c.id DESC")
+        List<Commission> findPageBefore(
+                        @Param("userId") Long userId,
+                        @Param("type") String type,
+                        @Param("createdAt") LocalDateTime createdAt,
+                        @Param("id") Long id,
+                        Pageable limit);
 }
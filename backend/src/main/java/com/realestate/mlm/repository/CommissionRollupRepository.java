@@ -0,0 +1,92 @@
+package com.realestate.mlm.repository;
+
+import com.realestate.mlm.model.CommissionRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository for per-user commission rollups
+ */
+@Repository
+public interface CommissionRollupRepository extends JpaRepository<CommissionRollup, Long> {
+
+    /**
+     * Add to the user/type day, month and lifetime buckets, creating them on first use.
+     * A single atomic statement, so concurrent credits to the same bucket never lose updates.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO commission_rollups " +
+            "(user_id, commission_type, period, rollup_date, total_amount, settled_amount, pending_amount, commission_count, updated_at) VALUES " +
+            "(:userId, :commissionType, 'DAY', :day, :totalAmount, :settledAmount, :pendingAmount, :commissionCount, NOW()), " +
+            "(:userId, :commissionType, 'MONTH', :monthStart, :totalAmount, :settledAmount, :pendingAmount, :commissionCount, NOW()), " +
+            "(:userId, :commissionType, 'ALL', :lifetimeStart, :totalAmount, :settledAmount, :pendingAmount, :commissionCount, NOW()) " +
+            "ON CONFLICT (user_id, commission_type, period, rollup_date) DO UPDATE SET " +
+            "total_amount = commission_rollups.total_amount + EXCLUDED.total_amount, " +
+            "settled_amount = commission_rollups.settled_amount + EXCLUDED.settled_amount, " +
+            "pending_amount = commission_rollups.pending_amount + EXCLUDED.pending_amount, " +
+            "commission_count = commission_rollups.commission_count + EXCLUDED.commission_count, " +
+            "updated_at = NOW()", nativeQuery = true)
+    int addToRollup(
+            @Param("userId") Long userId,
+            @Param("commissionType") String commissionType,
+            @Param("day") LocalDate day,
+            @Param("monthStart") LocalDate monthStart,
+            @Param("lifetimeStart") LocalDate lifetimeStart,
+            @Param("totalAmount") BigDecimal totalAmount,
+            @Param("settledAmount") BigDecimal settledAmount,
+            @Param("pendingAmount") BigDecimal pendingAmount,
+            @Param("commissionCount") int commissionCount);
+
+    /**
+     * Lifetime, month-to-date and today totals per commission type for one user - at most three
+     * rows per type, however long the history
+     */
+    @Query("SELECT r.commissionType AS commissionType, " +
+            "SUM(CASE WHEN r.period = 'ALL' THEN r.totalAmount ELSE 0 END) AS totalAmount, " +
+            "SUM(CASE WHEN r.period = 'ALL' THEN r.settledAmount ELSE 0 END) AS settledAmount, " +
+            "SUM(CASE WHEN r.period = 'ALL' THEN r.pendingAmount ELSE 0 END) AS pendingAmount, " +
+            "SUM(CASE WHEN r.period = 'ALL' THEN r.commissionCount ELSE 0 END) AS commissionCount, " +
+            "SUM(CASE WHEN r.period = 'MONTH' THEN r.totalAmount ELSE 0 END) AS monthAmount, " +
+            "SUM(CASE WHEN r.period = 'DAY' THEN r.totalAmount ELSE 0 END) AS todayAmount " +
+            "FROM CommissionRollup r WHERE r.userId = :userId AND (" +
+            "(r.period = 'DAY' AND r.rollupDate = :today) OR " +
+            "(r.period = 'MONTH' AND r.rollupDate = :monthStart) OR " +
+            "r.period = 'ALL') " +
+            "GROUP BY r.commissionType")
+    List<TypeTotals> summarizeByType(
+            @Param("userId") Long userId,
+            @Param("monthStart") LocalDate monthStart,
+            @Param("today") LocalDate today);
+
+    /**
+     * Lifetime total for one user across all types
+     */
+    @Query("SELECT COALESCE(SUM(r.totalAmount), 0) FROM CommissionRollup r WHERE r.userId = :userId AND r.period = 'ALL'")
+    BigDecimal sumTotalByUser(@Param("userId") Long userId);
+
+    /**
+     * Per-type totals of one user, as returned by {@link #summarizeByType}
+     */
+    interface TypeTotals {
+        String getCommissionType();
+
+        BigDecimal getTotalAmount();
+
+        BigDecimal getSettledAmount();
+
+        BigDecimal getPendingAmount();
+
+        Long getCommissionCount();
+
+        BigDecimal getMonthAmount();
+
+        BigDecimal getTodayAmount();
+    }
+}
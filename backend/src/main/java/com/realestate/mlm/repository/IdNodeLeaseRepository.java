@@ -0,0 +1,63 @@
+package com.realestate.mlm.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Leases of ID generator node ids, one row per node id in use.
+ *
+ * A lease is held while its heartbeat is younger than the lease time to live; an expired lease
+ * can be taken over by another instance. Statements run in their own autocommit transaction.
+ */
+@Repository
+public class IdNodeLeaseRepository {
+
+    // A node id without a live lease; the conflict clause re-checks expiry under the row lock,
+    // so two instances racing for the same id cannot both get it
+    private static final String ACQUIRE = "WITH candidate AS (" +
+            "SELECT n AS node_id FROM generate_series(?, ?) n " +
+            "LEFT JOIN id_node_leases l ON l.node_id = n " +
+            "WHERE l.node_id IS NULL OR l.heartbeat_at < NOW() - make_interval(secs => ?) " +
+            "ORDER BY n LIMIT 1) " +
+            "INSERT INTO id_node_leases (node_id, instance_id, acquired_at, heartbeat_at) " +
+            "SELECT node_id, ?, NOW(), NOW() FROM candidate " +
+            "ON CONFLICT (node_id) DO UPDATE SET instance_id = EXCLUDED.instance_id, " +
+            "acquired_at = NOW(), heartbeat_at = NOW() " +
+            "WHERE id_node_leases.heartbeat_at < NOW() - make_interval(secs => ?) " +
+            "RETURNING node_id";
+
+    private static final String RENEW = "UPDATE id_node_leases SET heartbeat_at = NOW() " +
+            "WHERE node_id = ? AND instance_id = ?";
+
+    private static final String RELEASE = "DELETE FROM id_node_leases WHERE node_id = ? AND instance_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdNodeLeaseRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Lease the lowest free node id in [minNodeId, maxNodeId] for the instance.
+     * Empty when none is free or another instance won the race for it.
+     */
+    public Optional<Long> acquire(long minNodeId, long maxNodeId, String instanceId, long ttlSeconds) {
+        List<Long> nodeIds = jdbcTemplate.queryForList(ACQUIRE, Long.class,
+                minNodeId, maxNodeId, ttlSeconds, instanceId, ttlSeconds);
+        return nodeIds.stream().findFirst();
+    }
+
+    /**
+     * Refresh the instance's lease. False when it no longer holds it.
+     */
+    public boolean renew(long nodeId, String instanceId) {
+        return jdbcTemplate.update(RENEW, nodeId, instanceId) > 0;
+    }
+
+    public void release(long nodeId, String instanceId) {
+        jdbcTemplate.update(RELEASE, nodeId, instanceId);
+    }
+}
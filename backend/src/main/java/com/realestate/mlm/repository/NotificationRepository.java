@@ -5,8 +5,11 @@ import com.realestate.mlm.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -17,4 +20,16 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     Long countByUserAndIsReadFalse(User user);
 
     List<Notification> findByIsBroadcastTrue();
+
+    /**
+     * Keyset page of a user's notifications, newest first, strictly before (createdAt, id)
+     */
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId " +
+            "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findPageBefore(
+            @Param("userId") Long userId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable limit);
 }
@@ -0,0 +1,287 @@
+package com.realestate.mlm.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Monthly partitions of transactions and commissions, and the compressed archive their
+ * expired partitions are moved to. Callers own the transaction.
+ *
+ * Partition names only ever come from the catalog and must match parent_pYYYYMM, so they are
+ * safe to splice into statements.
+ */
+@Repository
+public class PartitionArchiveRepository {
+
+    public static final String TRANSACTIONS = "transactions";
+    public static final String COMMISSIONS = "commissions";
+
+    private static final Pattern MONTHLY_PARTITION = Pattern.compile("^(transactions|commissions)_p(\\d{6})$");
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String FIND_PARTITIONS = "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = ? ORDER BY c.relname";
+
+    private static final String INSERT_ARCHIVE = "INSERT INTO history_archive " +
+            "(source_table, period_start, user_id, row_count, payload, archived_at) VALUES (?, ?, ?, ?, ?, NOW()) " +
+            "ON CONFLICT (source_table, period_start, user_id) DO NOTHING";
+
+    // Late rows merged into an archived month are appended as another gzip member, which
+    // GZIPInputStream reads on as one stream
+    private static final String APPEND_TO_ARCHIVE = "INSERT INTO history_archive " +
+            "(source_table, period_start, user_id, row_count, payload, archived_at) VALUES (?, ?, ?, ?, ?, NOW()) " +
+            "ON CONFLICT (source_table, period_start, user_id) DO UPDATE SET " +
+            "row_count = history_archive.row_count + EXCLUDED.row_count, " +
+            "payload = history_archive.payload || EXCLUDED.payload, archived_at = NOW()";
+
+    private static final String REPLACE_ARCHIVE = "UPDATE history_archive SET row_count = ?, payload = ?, archived_at = NOW() " +
+            "WHERE source_table = ? AND period_start = ? AND user_id = ?";
+
+    private static final String ADD_TO_ARCHIVED_LEDGER_TOTALS = "INSERT INTO ledger_archived_totals " +
+            "(user_id, wallet_type, net_amount, earned_amount, updated_at) " +
+            "SELECT user_id, " + WalletReconciliationRepository.LEDGER_WALLET_TYPE + ", " +
+            WalletReconciliationRepository.LEDGER_NET_AMOUNT + ", " +
+            WalletReconciliationRepository.LEDGER_EARNED_AMOUNT + ", NOW() FROM %s " +
+            "WHERE user_id = ? AND %s AND " + WalletReconciliationRepository.LEDGER_STATUSES + " GROUP BY 1, 2 " +
+            "ON CONFLICT (user_id, wallet_type) DO UPDATE SET " +
+            "net_amount = ledger_archived_totals.net_amount + EXCLUDED.net_amount, " +
+            "earned_amount = ledger_archived_totals.earned_amount + EXCLUDED.earned_amount, updated_at = NOW()";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+
+    public PartitionArchiveRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = Math.max(1, fetchSize);
+    }
+
+    /**
+     * A monthly partition of transactions or commissions
+     */
+    public record MonthlyPartition(String table, String name, YearMonth month) {
+    }
+
+    /**
+     * A user's rows of one month in the default partition: rows dated in a month whose partition
+     * is gone, or never existed
+     */
+    public record LateRows(String table, YearMonth month, Long userId) {
+    }
+
+    /**
+     * Create the partition of the given month if it does not exist yet. Returns its name.
+     */
+    public String createMonthlyPartition(String table, YearMonth month) {
+        return jdbcTemplate.queryForObject("SELECT create_monthly_partition(?, ?)", String.class,
+                checkTable(table), Date.valueOf(month.atDay(1)));
+    }
+
+    /**
+     * Monthly partitions of a table, oldest first. The default partition is not included.
+     */
+    public List<MonthlyPartition> findMonthlyPartitions(String table) {
+        List<MonthlyPartition> partitions = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList(FIND_PARTITIONS, String.class, checkTable(table))) {
+            Matcher matcher = MONTHLY_PARTITION.matcher(name);
+            if (matcher.matches() && matcher.group(1).equals(table)) {
+                partitions.add(new MonthlyPartition(table, name, YearMonth.parse(matcher.group(2), PARTITION_MONTH)));
+            }
+        }
+        return partitions;
+    }
+
+    public List<Long> findUserIds(MonthlyPartition partition) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT user_id FROM " + quote(partition) + " ORDER BY user_id", Long.class);
+    }
+
+    public long countRows(MonthlyPartition partition) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + quote(partition), Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Every column of a user's rows in the partition, in (created_at, id) order
+     */
+    public void streamUserRows(MonthlyPartition partition, Long userId, RowCallbackHandler handler) {
+        String sql = "SELECT * FROM " + quote(partition) + " WHERE user_id = ? ORDER BY created_at, id";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(fetchSize);
+            ps.setLong(1, userId);
+            return ps;
+        }, handler);
+    }
+
+    /**
+     * Store a user's archived month. A month already archived for the user is left as it is.
+     * Returns whether the month was stored by this call.
+     */
+    public boolean saveArchive(String table, YearMonth month, Long userId, int rowCount, byte[] payload) {
+        return jdbcTemplate.update(INSERT_ARCHIVE,
+                checkTable(table), Date.valueOf(month.atDay(1)), userId, rowCount, payload) > 0;
+    }
+
+    /**
+     * Replace a user's archived month with a payload of all its rows
+     */
+    public void replaceArchive(String table, YearMonth month, Long userId, int rowCount, byte[] payload) {
+        jdbcTemplate.update(REPLACE_ARCHIVE, rowCount, payload, checkTable(table), Date.valueOf(month.atDay(1)), userId);
+    }
+
+    /**
+     * Add rows to a user's archived month, archiving the month if it is not yet
+     */
+    public void appendToArchive(String table, YearMonth month, Long userId, int rowCount, byte[] payload) {
+        jdbcTemplate.update(APPEND_TO_ARCHIVE, checkTable(table), Date.valueOf(month.atDay(1)), userId, rowCount, payload);
+    }
+
+    /**
+     * Add the net and earned amounts per wallet type of a user's transactions in the partition to
+     * the archived ledger totals, which stand in for them once the partition is dropped
+     */
+    public void addArchivedLedgerTotals(MonthlyPartition partition, Long userId) {
+        checkLedgerTable(partition.table());
+        jdbcTemplate.update(String.format(ADD_TO_ARCHIVED_LEDGER_TOTALS, quote(partition), "TRUE"), userId);
+    }
+
+    /**
+     * Same for only the given rows of the partition, late rows of a month already archived
+     */
+    public void addArchivedLedgerTotals(MonthlyPartition partition, Long userId, Collection<Long> ids) {
+        checkLedgerTable(partition.table());
+        updateRows(String.format(ADD_TO_ARCHIVED_LEDGER_TOTALS, quote(partition), "id = ANY (?)"), userId, ids);
+    }
+
+    /**
+     * Users and months of the rows in a table's default partition dated before the given month,
+     * oldest month first
+     */
+    public List<LateRows> findLateRows(String table, YearMonth before) {
+        return jdbcTemplate.query("SELECT user_id, date_trunc('month', created_at)::date AS period_start FROM " +
+                        quoteDefault(table) + " WHERE created_at < ? GROUP BY 1, 2 ORDER BY 2, 1",
+                (rs, rowNum) -> new LateRows(table, YearMonth.from(rs.getDate("period_start").toLocalDate()),
+                        rs.getLong("user_id")),
+                Timestamp.valueOf(before.atDay(1).atStartOfDay()));
+    }
+
+    /**
+     * Every column of the late rows, in (created_at, id) order
+     */
+    public void streamLateRows(LateRows late, RowCallbackHandler handler) {
+        String sql = "SELECT * FROM " + quoteDefault(late.table()) +
+                " WHERE user_id = ? AND created_at >= ? AND created_at < ? ORDER BY created_at, id";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(fetchSize);
+            ps.setLong(1, late.userId());
+            ps.setTimestamp(2, Timestamp.valueOf(late.month().atDay(1).atStartOfDay()));
+            ps.setTimestamp(3, Timestamp.valueOf(late.month().plusMonths(1).atDay(1).atStartOfDay()));
+            return ps;
+        }, handler);
+    }
+
+    /**
+     * Add the given late rows to the archived ledger totals, for transactions
+     */
+    public void addArchivedLedgerTotals(LateRows late, Collection<Long> ids) {
+        checkLedgerTable(late.table());
+        updateRows(String.format(ADD_TO_ARCHIVED_LEDGER_TOTALS, quoteDefault(late.table()), "id = ANY (?)"),
+                late.userId(), ids);
+    }
+
+    /**
+     * Delete the given late rows, once archived. Rows that arrived after they were read stay for
+     * the next run.
+     */
+    public int deleteLateRows(LateRows late, Collection<Long> ids) {
+        return updateRows("DELETE FROM " + quoteDefault(late.table()) + " WHERE user_id = ? AND id = ANY (?)",
+                late.userId(), ids);
+    }
+
+    private int updateRows(String sql, Long userId, Collection<Long> ids) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setLong(1, userId);
+            ps.setArray(2, connection.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        });
+    }
+
+    public long sumArchivedRows(String table, YearMonth month) {
+        Long rows = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(row_count), 0) FROM history_archive WHERE source_table = ? AND period_start = ?",
+                Long.class, checkTable(table), Date.valueOf(month.atDay(1)));
+        return rows != null ? rows : 0;
+    }
+
+    public void dropPartition(MonthlyPartition partition) {
+        jdbcTemplate.execute("DROP TABLE " + quote(partition));
+    }
+
+    public Optional<byte[]> findArchivePayload(String table, Long userId, YearMonth month) {
+        List<byte[]> payloads = jdbcTemplate.query(
+                "SELECT payload FROM history_archive WHERE source_table = ? AND user_id = ? AND period_start = ?",
+                (rs, rowNum) -> rs.getBytes("payload"), checkTable(table), userId, Date.valueOf(month.atDay(1)));
+        return payloads.stream().findFirst();
+    }
+
+    /**
+     * Months of a table archived for at least one user, oldest first
+     */
+    public List<YearMonth> findArchivedMonths(String table) {
+        return jdbcTemplate.query(
+                "SELECT DISTINCT period_start FROM history_archive WHERE source_table = ? ORDER BY period_start",
+                (rs, rowNum) -> YearMonth.from(rs.getDate("period_start").toLocalDate()), checkTable(table));
+    }
+
+    /**
+     * Archived months of a user, newest first
+     */
+    public List<YearMonth> findArchivedMonths(String table, Long userId) {
+        return jdbcTemplate.query(
+                "SELECT period_start FROM history_archive WHERE source_table = ? AND user_id = ? ORDER BY period_start DESC",
+                (rs, rowNum) -> YearMonth.from(rs.getDate("period_start").toLocalDate()), checkTable(table), userId);
+    }
+
+    private static void checkLedgerTable(String table) {
+        if (!TRANSACTIONS.equals(table)) {
+            throw new IllegalArgumentException("Ledger totals are kept for transactions only: " + table);
+        }
+    }
+
+    private static String checkTable(String table) {
+        if (!TRANSACTIONS.equals(table) && !COMMISSIONS.equals(table)) {
+            throw new IllegalArgumentException("Not a partitioned history table: " + table);
+        }
+        return table;
+    }
+
+    private static String quoteDefault(String table) {
+        return '"' + checkTable(table) + "_default\"";
+    }
+
+    private static String quote(MonthlyPartition partition) {
+        if (!MONTHLY_PARTITION.matcher(partition.name()).matches()) {
+            throw new IllegalArgumentException("Not a monthly partition: " + partition.name());
+        }
+        return '"' + partition.name() + '"';
+    }
+}
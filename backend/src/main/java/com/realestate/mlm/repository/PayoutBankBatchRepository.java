@@ -0,0 +1,21 @@
+package com.realestate.mlm.repository;
+
+import com.realestate.mlm.model.PayoutBankBatch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface PayoutBankBatchRepository extends JpaRepository<PayoutBankBatch, Long> {
+
+    Optional<PayoutBankBatch> findByBatchId(String batchId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM PayoutBankBatch b WHERE b.batchId = :batchId")
+    Optional<PayoutBankBatch> findByBatchIdForUpdate(@Param("batchId") String batchId);
+}
@@ -0,0 +1,196 @@
+package com.realestate.mlm.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Set-based reads and writes for bank bulk files of payouts. Callers own the transaction.
+ *
+ * A batch is claimed with one statement, read back through a forward-only cursor while its file
+ * is written, and settled from the bank's response in JDBC batches. Every payout in a file is
+ * referenced by its idempotency key, which is new for each attempt, so a response line for an
+ * earlier attempt never settles a later one.
+ */
+@Repository
+public class PayoutBankFileRepository {
+
+    /**
+     * claimed_by of payouts held by a bank file rather than a dispatcher node
+     */
+    public static final String BANK_FILE_CLAIM = "bank-file";
+
+    private static final String CLAIM_BATCH = "WITH claimable AS (" +
+            "SELECT id FROM payouts WHERE status = 'APPROVED' AND payment_method = 'BANK_TRANSFER' " +
+            "AND account_number IS NOT NULL AND ifsc_code IS NOT NULL " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED), " +
+            "claimed AS (UPDATE payouts p SET " +
+            "idempotency_key = p.payout_id || '-' || (p.dispatch_attempts + 1), " +
+            "dispatch_attempts = p.dispatch_attempts + 1, " +
+            "status = 'PROCESSING', bank_batch_id = ?, claimed_by = '" + BANK_FILE_CLAIM + "', " +
+            "claimed_at = NOW(), updated_at = NOW() " +
+            "FROM claimable c WHERE p.id = c.id RETURNING p.net_amount) " +
+            "SELECT COUNT(*), COALESCE(SUM(net_amount), 0) FROM claimed";
+
+    private static final String SELECT_BATCH = "SELECT idempotency_key, payout_id, account_holder_name, " +
+            "account_number, ifsc_code, bank_name, net_amount " +
+            "FROM payouts WHERE bank_batch_id = ? AND status = 'PROCESSING' ORDER BY id";
+
+    private static final String RELEASE_BATCH = "UPDATE payouts SET status = 'APPROVED', bank_batch_id = NULL, " +
+            "claimed_by = NULL, claimed_at = NULL, updated_at = NOW() " +
+            "WHERE bank_batch_id = ? AND status = 'PROCESSING'";
+
+    private static final String LOCK_SETTLEABLE = "SELECT id, payout_id, idempotency_key, user_id, " +
+            "requested_amount, net_amount FROM payouts " +
+            "WHERE bank_batch_id = ? AND status = 'PROCESSING' AND idempotency_key = ANY(?) " +
+            "ORDER BY id FOR UPDATE";
+
+    private static final String MARK_COMPLETED = "UPDATE payouts SET status = 'COMPLETED', utr_number = ?, " +
+            "processed_at = NOW(), completed_at = NOW(), claimed_by = NULL, claimed_at = NULL, updated_at = NOW() " +
+            "WHERE id = ?";
+
+    private static final String MARK_FAILED = "UPDATE payouts SET status = 'FAILED', rejection_reason = ?, " +
+            "claimed_by = NULL, claimed_at = NULL, updated_at = NOW() " +
+            "WHERE id = ?";
+
+    private static final String COUNT_UNSETTLED = "SELECT COUNT(*) FROM payouts " +
+            "WHERE bank_batch_id = ? AND status = 'PROCESSING'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+    private final int batchSize;
+
+    public PayoutBankFileRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.export.fetch-size:1000}") int fetchSize,
+            @Value("${app.batch.jdbc-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = Math.max(1, fetchSize);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Number and net total of the payouts claimed for a batch
+     */
+    public record ClaimedBatch(int payoutCount, BigDecimal totalAmount) {
+    }
+
+    /**
+     * One line of a bank file
+     */
+    public record BankTransferRow(
+            String reference,
+            String payoutId,
+            String accountHolderName,
+            String accountNumber,
+            String ifscCode,
+            String bankName,
+            BigDecimal netAmount) {
+    }
+
+    /**
+     * A payout of the batch still waiting for the bank, locked for settlement
+     */
+    public record SettleablePayout(
+            Long id,
+            String payoutId,
+            String reference,
+            Long userId,
+            BigDecimal requestedAmount,
+            BigDecimal netAmount) {
+    }
+
+    /**
+     * Outcome of one payout: the UTR when paid, the bank's reason when not
+     */
+    public record Settlement(Long id, String detail) {
+    }
+
+    /**
+     * Move up to limit APPROVED bank transfer payouts into the batch, with a new idempotency key
+     * each. Rows claimed by a concurrent dispatch are skipped.
+     */
+    public ClaimedBatch claimBatch(String batchId, int limit) {
+        return jdbcTemplate.queryForObject(CLAIM_BATCH,
+                (rs, rowNum) -> new ClaimedBatch(rs.getInt(1), rs.getBigDecimal(2)), limit, batchId);
+    }
+
+    /**
+     * Stream the unsettled payouts of a batch in id order. The Postgres driver only uses a
+     * server-side cursor when autocommit is off, so callers must run inside a transaction.
+     */
+    public void streamBatch(String batchId, Consumer<BankTransferRow> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    SELECT_BATCH, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setString(1, batchId);
+            return ps;
+        }, rs -> {
+            consumer.accept(new BankTransferRow(
+                    rs.getString("idempotency_key"),
+                    rs.getString("payout_id"),
+                    rs.getString("account_holder_name"),
+                    rs.getString("account_number"),
+                    rs.getString("ifsc_code"),
+                    rs.getString("bank_name"),
+                    rs.getBigDecimal("net_amount")));
+        });
+    }
+
+    /**
+     * Hand the unsettled payouts of a batch back to APPROVED, for a batch whose file was never
+     * sent
+     */
+    public int releaseBatch(String batchId) {
+        return jdbcTemplate.update(RELEASE_BATCH, batchId);
+    }
+
+    /**
+     * Lock the payouts of the batch with the given references that are still waiting for the bank
+     */
+    public List<SettleablePayout> lockSettleable(String batchId, Collection<String> references) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(LOCK_SETTLEABLE);
+            ps.setString(1, batchId);
+            ps.setArray(2, connection.createArrayOf("varchar", references.toArray()));
+            return ps;
+        }, (rs, rowNum) -> new SettleablePayout(
+                rs.getLong("id"),
+                rs.getString("payout_id"),
+                rs.getString("idempotency_key"),
+                rs.getLong("user_id"),
+                rs.getBigDecimal("requested_amount"),
+                rs.getBigDecimal("net_amount")));
+    }
+
+    public void markCompleted(Collection<Settlement> settlements) {
+        update(MARK_COMPLETED, settlements);
+    }
+
+    public void markFailed(Collection<Settlement> settlements) {
+        update(MARK_FAILED, settlements);
+    }
+
+    public long countUnsettled(String batchId) {
+        Long count = jdbcTemplate.queryForObject(COUNT_UNSETTLED, Long.class, batchId);
+        return count != null ? count : 0;
+    }
+
+    private void update(String sql, Collection<Settlement> settlements) {
+        if (settlements.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, settlements, batchSize, (ps, settlement) -> {
+            ps.setString(1, settlement.detail());
+            ps.setLong(2, settlement.id());
+        });
+    }
+}
@@ -4,9 +4,16 @@ import com.realestate.mlm.model.Payout;
 import com.realestate.mlm.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,4 +35,80 @@ public interface PayoutRepository extends JpaRepository<Payout, Long>, JpaSpecif
     List<Payout> findByStatusIn(List<String> statuses);
 
     Long countByStatus(String status);
+
+    @EntityGraph(attributePaths = "user")
+    Optional<Payout> findWithUserById(Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payout p JOIN FETCH p.user WHERE p.id = :id")
+    Optional<Payout> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Claim up to limit payouts for dispatch by this node, in one statement: APPROVED payouts, and
+     * PROCESSING ones that were released (the gateway could not be reached) or whose claim went
+     * stale (their node died mid-dispatch). Payouts in a bank bulk file are settled by the bank's
+     * response and never taken over. Rows locked by another node's claim are skipped, not
+     * waited for. A new attempt gets a new idempotency key; a PROCESSING payout keeps its key, so
+     * the gateway recognises a payment it already made.
+     * Returns the claimed payout ids.
+     */
+    @Query(value = "WITH claimable AS (" +
+            "SELECT id FROM payouts WHERE status = 'APPROVED' " +
+            "OR (status = 'PROCESSING' AND bank_batch_id IS NULL AND (claimed_by IS NULL OR claimed_at < :staleBefore)) " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "UPDATE payouts p SET " +
+            "idempotency_key = CASE WHEN p.status = 'APPROVED' THEN p.payout_id || '-' || (p.dispatch_attempts + 1) ELSE p.idempotency_key END, " +
+            "dispatch_attempts = CASE WHEN p.status = 'APPROVED' THEN p.dispatch_attempts + 1 ELSE p.dispatch_attempts END, " +
+            "status = 'PROCESSING', claimed_by = :node, claimed_at = NOW(), updated_at = NOW() " +
+            "FROM claimable c WHERE p.id = c.id RETURNING p.id", nativeQuery = true)
+    List<Long> claimForDispatch(
+            @Param("node") String node,
+            @Param("staleBefore") LocalDateTime staleBefore,
+            @Param("limit") int limit);
+
+    /**
+     * Claim the given payouts for dispatch by this node, if they are APPROVED or released.
+     * Returns the claimed payout ids.
+     */
+    @Query(value = "WITH claimable AS (" +
+            "SELECT id FROM payouts WHERE id IN (:ids) " +
+            "AND (status = 'APPROVED' OR (status = 'PROCESSING' AND bank_batch_id IS NULL AND claimed_by IS NULL)) " +
+            "ORDER BY id FOR UPDATE SKIP LOCKED) " +
+            "UPDATE payouts p SET " +
+            "idempotency_key = CASE WHEN p.status = 'APPROVED' THEN p.payout_id || '-' || (p.dispatch_attempts + 1) ELSE p.idempotency_key END, " +
+            "dispatch_attempts = CASE WHEN p.status = 'APPROVED' THEN p.dispatch_attempts + 1 ELSE p.dispatch_attempts END, " +
+            "status = 'PROCESSING', claimed_by = :node, claimed_at = NOW(), updated_at = NOW() " +
+            "FROM claimable c WHERE p.id = c.id RETURNING p.id", nativeQuery = true)
+    List<Long> claimForDispatch(
+            @Param("node") String node,
+            @Param("ids") Collection<Long> ids);
+
+    /**
+     * Users after afterUserId with more than one APPROVED payout waiting for dispatch, in id order
+     */
+    @Query(value = "SELECT user_id FROM payouts WHERE status = 'APPROVED' AND bank_batch_id IS NULL " +
+            "AND user_id > :afterUserId GROUP BY user_id HAVING COUNT(*) > 1 ORDER BY user_id LIMIT :limit",
+            nativeQuery = true)
+    List<Long> findUsersWithApprovedPayouts(
+            @Param("afterUserId") long afterUserId,
+            @Param("limit") int limit);
+
+    /**
+     * Lock the APPROVED payouts of the given users, skipping rows a concurrent dispatch holds
+     */
+    @Query(value = "SELECT * FROM payouts WHERE user_id IN (:userIds) AND status = 'APPROVED' " +
+            "AND bank_batch_id IS NULL ORDER BY id FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Payout> lockApprovedByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Keyset page of a user's payouts, newest first, strictly before (createdAt, id)
+     */
+    @Query("SELECT p FROM Payout p WHERE p.user.id = :userId " +
+            "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Payout> findPageBefore(
+            @Param("userId") Long userId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable limit);
 }
@@ -0,0 +1,178 @@
+package com.realestate.mlm.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes the platform_metrics counters, and computes their exact values from the
+ * tables they summarise. Callers own the transaction.
+ *
+ * Metrics are the dashboard's own definitions: every user, ACTIVE users, every property
+ * investment, PAID commissions, PENDING payouts and the balance columns of every wallet plus
+ * its unfolded stripe credits.
+ */
+@Repository
+public class PlatformMetricsRepository {
+
+    public static final String USERS = "USERS";
+    public static final String ACTIVE_USERS = "ACTIVE_USERS";
+    public static final String INVESTMENTS = "INVESTMENTS";
+    public static final String COMMISSIONS_PAID = "COMMISSIONS_PAID";
+    public static final String PENDING_PAYOUTS = "PENDING_PAYOUTS";
+    public static final String WALLET_BALANCE = "WALLET_BALANCE";
+
+    public static final String PERIOD_DAY = "DAY";
+    public static final String PERIOD_MONTH = "MONTH";
+    public static final String PERIOD_ALL = "ALL";
+    public static final LocalDate LIFETIME_START = LocalDate.of(1970, 1, 1);
+
+    private static final String ADD_TO_METRIC = "INSERT INTO platform_metrics " +
+            "(metric, period, period_start, stripe_no, item_count, amount, updated_at) VALUES (?, ?, ?, ?, ?, ?, NOW()) " +
+            "ON CONFLICT (metric, period, period_start, stripe_no) DO UPDATE SET " +
+            "item_count = platform_metrics.item_count + EXCLUDED.item_count, " +
+            "amount = platform_metrics.amount + EXCLUDED.amount, " +
+            "updated_at = NOW()";
+
+    private static final String FIND_CURRENT = "SELECT metric, period, period_start, " +
+            "SUM(item_count) AS item_count, SUM(amount) AS amount FROM platform_metrics " +
+            "WHERE period = 'ALL' OR (period = 'MONTH' AND period_start = ?) OR (period = 'DAY' AND period_start = ?) " +
+            "GROUP BY metric, period, period_start";
+
+    private static final String DELETE_DAYS_BEFORE = "DELETE FROM platform_metrics WHERE period = 'DAY' AND period_start < ?";
+
+    private static final String COUNT_USERS = "SELECT COUNT(*) AS total, " +
+            "COUNT(*) FILTER (WHERE created_at >= ?) AS this_month, " +
+            "COUNT(*) FILTER (WHERE created_at >= ?) AS today, " +
+            "COUNT(*) FILTER (WHERE status = 'ACTIVE') AS active " +
+            "FROM users";
+
+    private static final String SUM_INVESTMENTS = "SELECT COUNT(*) AS total_count, " +
+            "COALESCE(SUM(investment_amount), 0) AS total_amount, " +
+            "COUNT(*) FILTER (WHERE created_at >= ?) AS month_count, " +
+            "COALESCE(SUM(investment_amount) FILTER (WHERE created_at >= ?), 0) AS month_amount, " +
+            "COUNT(*) FILTER (WHERE created_at >= ?) AS day_count, " +
+            "COALESCE(SUM(investment_amount) FILTER (WHERE created_at >= ?), 0) AS day_amount " +
+            "FROM property_investments";
+
+    private static final String SUM_COMMISSIONS_PAID = "SELECT COUNT(*) AS total_count, " +
+            "COALESCE(SUM(amount), 0) AS total_amount, " +
+            "COUNT(*) FILTER (WHERE created_at >= ?) AS month_count, " +
+            "COALESCE(SUM(amount) FILTER (WHERE created_at >= ?), 0) AS month_amount " +
+            "FROM commissions WHERE status = 'PAID'";
+
+    private static final String SUM_PENDING_PAYOUTS = "SELECT COUNT(*) AS total_count, " +
+            "COALESCE(SUM(requested_amount), 0) AS total_amount " +
+            "FROM payouts WHERE status = 'PENDING'";
+
+    private static final String SUM_WALLET_BALANCES = "SELECT " +
+            "COALESCE((SELECT SUM(COALESCE(investment_balance, 0) + COALESCE(commission_balance, 0) + " +
+            "COALESCE(rental_income_balance, 0) + COALESCE(roi_balance, 0)) FROM wallets), 0) + " +
+            "COALESCE((SELECT SUM(amount) FROM wallet_stripes), 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public PlatformMetricsRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.batch.jdbc-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Value of one metric bucket, or a change to it
+     */
+    public record MetricValue(String metric, String period, LocalDate periodStart, long count, BigDecimal amount) {
+
+        public MetricValue {
+            amount = amount != null ? amount : BigDecimal.ZERO;
+        }
+    }
+
+    /**
+     * Add each change to its bucket's row for the given stripe, creating it on first use
+     */
+    public void add(Collection<MetricValue> changes, int stripeNo) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(ADD_TO_METRIC, changes, batchSize, (ps, change) -> {
+            ps.setString(1, change.metric());
+            ps.setString(2, change.period());
+            ps.setDate(3, Date.valueOf(change.periodStart()));
+            ps.setInt(4, stripeNo);
+            ps.setLong(5, change.count());
+            ps.setBigDecimal(6, change.amount());
+        });
+    }
+
+    /**
+     * Lifetime, this month and today values of every metric, summed over stripes
+     */
+    public List<MetricValue> findCurrent(LocalDate today, LocalDate monthStart) {
+        return jdbcTemplate.query(FIND_CURRENT, (rs, rowNum) -> new MetricValue(
+                rs.getString("metric"),
+                rs.getString("period"),
+                rs.getDate("period_start").toLocalDate(),
+                rs.getLong("item_count"),
+                rs.getBigDecimal("amount")), Date.valueOf(monthStart), Date.valueOf(today));
+    }
+
+    /**
+     * The values {@link #findCurrent} should return, aggregated from the source tables with one
+     * scan each
+     */
+    public List<MetricValue> computeExact(LocalDate today, LocalDate monthStart) {
+        Timestamp dayFrom = Timestamp.valueOf(today.atStartOfDay());
+        Timestamp monthFrom = Timestamp.valueOf(monthStart.atStartOfDay());
+        List<MetricValue> values = new ArrayList<>();
+
+        jdbcTemplate.query(COUNT_USERS, rs -> {
+            values.add(new MetricValue(USERS, PERIOD_ALL, LIFETIME_START, rs.getLong("total"), null));
+            values.add(new MetricValue(USERS, PERIOD_MONTH, monthStart, rs.getLong("this_month"), null));
+            values.add(new MetricValue(USERS, PERIOD_DAY, today, rs.getLong("today"), null));
+            values.add(new MetricValue(ACTIVE_USERS, PERIOD_ALL, LIFETIME_START, rs.getLong("active"), null));
+        }, monthFrom, dayFrom);
+
+        jdbcTemplate.query(SUM_INVESTMENTS, rs -> {
+            values.add(new MetricValue(INVESTMENTS, PERIOD_ALL, LIFETIME_START,
+                    rs.getLong("total_count"), rs.getBigDecimal("total_amount")));
+            values.add(new MetricValue(INVESTMENTS, PERIOD_MONTH, monthStart,
+                    rs.getLong("month_count"), rs.getBigDecimal("month_amount")));
+            values.add(new MetricValue(INVESTMENTS, PERIOD_DAY, today,
+                    rs.getLong("day_count"), rs.getBigDecimal("day_amount")));
+        }, monthFrom, monthFrom, dayFrom, dayFrom);
+
+        jdbcTemplate.query(SUM_COMMISSIONS_PAID, rs -> {
+            values.add(new MetricValue(COMMISSIONS_PAID, PERIOD_ALL, LIFETIME_START,
+                    rs.getLong("total_count"), rs.getBigDecimal("total_amount")));
+            values.add(new MetricValue(COMMISSIONS_PAID, PERIOD_MONTH, monthStart,
+                    rs.getLong("month_count"), rs.getBigDecimal("month_amount")));
+        }, monthFrom, monthFrom);
+
+        jdbcTemplate.query(SUM_PENDING_PAYOUTS, rs -> {
+            values.add(new MetricValue(PENDING_PAYOUTS, PERIOD_ALL, LIFETIME_START,
+                    rs.getLong("total_count"), rs.getBigDecimal("total_amount")));
+        });
+
+        values.add(new MetricValue(WALLET_BALANCE, PERIOD_ALL, LIFETIME_START, 0,
+                jdbcTemplate.queryForObject(SUM_WALLET_BALANCES, BigDecimal.class)));
+        return values;
+    }
+
+    /**
+     * Drop day buckets older than the given day; lifetime and month buckets are kept
+     */
+    public int deleteDaysBefore(LocalDate day) {
+        return jdbcTemplate.update(DELETE_DAYS_BEFORE, Date.valueOf(day));
+    }
+}
@@ -10,7 +10,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,6 +31,64 @@ public interface PropertyInvestmentRepository extends JpaRepository<PropertyInve
 
     List<PropertyInvestment> findByCreatedAtGreaterThanEqual(LocalDateTime createdAt);
 
-    @Query("SELECT SUM(pi.investmentAmount) FROM PropertyInvestment pi WHERE pi.user = :user")
-    Double calculateTotalInvestmentByUser(@Param("user") User user);
+    @Query("SELECT COALESCE(SUM(pi.investmentAmount), 0) FROM PropertyInvestment pi WHERE pi.user = :user")
+    BigDecimal calculateTotalInvestmentByUser(@Param("user") User user);
+
+    /**
+     * Investment history up to the given instant, in booking order, for compensation plan simulations
+     */
+    @Query("SELECT pi.user.id AS userId, pi.investmentAmount AS investmentAmount, " +
+            "pi.bvAllocated AS bvAllocated, pi.createdAt AS createdAt " +
+            "FROM PropertyInvestment pi WHERE pi.createdAt < :until " +
+            "AND (pi.bookingStatus IS NULL OR pi.bookingStatus <> 'CANCELLED') " +
+            "AND (pi.commissionStatus IS NULL OR pi.commissionStatus <> 'REVERSED') " +
+            "ORDER BY pi.createdAt, pi.id")
+    List<SimulationInvestment> findSimulationInvestments(@Param("until") LocalDateTime until);
+
+    /**
+     * Projection of an investment as seen by the compensation plan simulator
+     */
+    interface SimulationInvestment {
+        Long getUserId();
+
+        BigDecimal getInvestmentAmount();
+
+        BigDecimal getBvAllocated();
+
+        LocalDateTime getCreatedAt();
+    }
+
+    /**
+     * Investments of the given investors in [from, until), in booking order, for commission
+     * recalculation. Cancelled investments and investments whose commissions were
+     * clawed back (exit or cancellation) owe no commissions and are not replayed.
+     */
+    @Query("SELECT pi.id AS id, pi.investmentId AS investmentId, pi.property.propertyId AS propertyId, " +
+            "pi.user.id AS userId, pi.investmentAmount AS investmentAmount, pi.createdAt AS createdAt " +
+            "FROM PropertyInvestment pi WHERE pi.user.id IN :userIds " +
+            "AND pi.createdAt >= :from AND pi.createdAt < :until " +
+            "AND (pi.bookingStatus IS NULL OR pi.bookingStatus <> 'CANCELLED') " +
+            "AND (pi.commissionStatus IS NULL OR pi.commissionStatus <> 'REVERSED') " +
+            "ORDER BY pi.createdAt, pi.id")
+    List<ReplayInvestment> findReplayInvestments(
+            @Param("userIds") Collection<Long> userIds,
+            @Param("from") LocalDateTime from,
+            @Param("until") LocalDateTime until);
+
+    /**
+     * Projection of an investment as replayed by the commission recalculation job
+     */
+    interface ReplayInvestment {
+        Long getId();
+
+        String getInvestmentId();
+
+        String getPropertyId();
+
+        Long getUserId();
+
+        BigDecimal getInvestmentAmount();
+
+        LocalDateTime getCreatedAt();
+    }
 }
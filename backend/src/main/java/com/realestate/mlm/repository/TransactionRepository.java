@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -30,4 +31,19 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
             @Param("endDate") LocalDateTime endDate,
             Pageable pageable
     );
+
+    /**
+     * Keyset page of a user's transactions, newest first, strictly before (createdAt, id)
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.user.id = :userId " +
+            "AND (:type IS NULL OR t.type = :type) " +
+            "AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.id < :id)) " +
+            "ORDER BY t.createdAt DESC, t.id DESC")
+    List<Transaction> findPageBefore(
+            @Param("userId") Long userId,
+            @Param("type") String type,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable limit
+    );
 }
@@ -0,0 +1,82 @@
+package com.realestate.mlm.repository;
+
+import com.realestate.mlm.model.TransactionRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository for per-user wallet transaction rollups
+ */
+@Repository
+public interface TransactionRollupRepository extends JpaRepository<TransactionRollup, Long> {
+
+    /**
+     * Add to the day, month and lifetime buckets of one stripe in a single statement,
+     * creating them on first use
+     */
+    @Modifying
+    @Query(value = "INSERT INTO transaction_rollups " +
+            "(user_id, period, period_start, stripe_no, credit_amount, debit_amount, income_amount, " +
+            "credit_count, debit_count, updated_at) VALUES " +
+            "(:userId, 'DAY', :day, :stripeNo, :creditAmount, :debitAmount, :incomeAmount, :creditCount, :debitCount, NOW()), " +
+            "(:userId, 'MONTH', :monthStart, :stripeNo, :creditAmount, :debitAmount, :incomeAmount, :creditCount, :debitCount, NOW()), " +
+            "(:userId, 'ALL', :lifetimeStart, :stripeNo, :creditAmount, :debitAmount, :incomeAmount, :creditCount, :debitCount, NOW()) " +
+            "ON CONFLICT (user_id, period, period_start, stripe_no) DO UPDATE SET " +
+            "credit_amount = transaction_rollups.credit_amount + EXCLUDED.credit_amount, " +
+            "debit_amount = transaction_rollups.debit_amount + EXCLUDED.debit_amount, " +
+            "income_amount = transaction_rollups.income_amount + EXCLUDED.income_amount, " +
+            "credit_count = transaction_rollups.credit_count + EXCLUDED.credit_count, " +
+            "debit_count = transaction_rollups.debit_count + EXCLUDED.debit_count, " +
+            "updated_at = NOW()", nativeQuery = true)
+    int addToRollups(
+            @Param("userId") Long userId,
+            @Param("day") LocalDate day,
+            @Param("monthStart") LocalDate monthStart,
+            @Param("lifetimeStart") LocalDate lifetimeStart,
+            @Param("stripeNo") int stripeNo,
+            @Param("creditAmount") BigDecimal creditAmount,
+            @Param("debitAmount") BigDecimal debitAmount,
+            @Param("incomeAmount") BigDecimal incomeAmount,
+            @Param("creditCount") int creditCount,
+            @Param("debitCount") int debitCount);
+
+    /**
+     * Today, this month and lifetime totals for one user - at most three rows per stripe
+     */
+    @Query("SELECT r.period AS period, " +
+            "SUM(r.creditAmount) AS creditAmount, " +
+            "SUM(r.debitAmount) AS debitAmount, " +
+            "SUM(r.incomeAmount) AS incomeAmount, " +
+            "SUM(r.creditCount) AS creditCount, " +
+            "SUM(r.debitCount) AS debitCount " +
+            "FROM TransactionRollup r WHERE r.userId = :userId AND (" +
+            "(r.period = 'DAY' AND r.periodStart = :today) OR " +
+            "(r.period = 'MONTH' AND r.periodStart = :monthStart) OR " +
+            "r.period = 'ALL') " +
+            "GROUP BY r.period")
+    List<PeriodTotals> findCurrentTotals(
+            @Param("userId") Long userId,
+            @Param("today") LocalDate today,
+            @Param("monthStart") LocalDate monthStart);
+
+    interface PeriodTotals {
+        String getPeriod();
+
+        BigDecimal getCreditAmount();
+
+        BigDecimal getDebitAmount();
+
+        BigDecimal getIncomeAmount();
+
+        Long getCreditCount();
+
+        Long getDebitCount();
+    }
+}
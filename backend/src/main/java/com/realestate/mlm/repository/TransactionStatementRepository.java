@@ -0,0 +1,99 @@
+package com.realestate.mlm.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Forward-only cursor over a user's wallet transactions for statement exports.
+ *
+ * Rows are handed to the consumer as they are fetched, fetch-size rows at a time, so a statement
+ * of any length is read in constant memory. The Postgres driver only uses a server-side cursor
+ * when autocommit is off, so callers must run inside a (read-only) transaction.
+ */
+@Repository
+public class TransactionStatementRepository {
+
+    private static final String SELECT_STATEMENT = "SELECT transaction_id, created_at, type, category, wallet_type, " +
+            "amount, balance_before, balance_after, description, reference_id, reference_type, status " +
+            "FROM transactions WHERE user_id = ?%s ORDER BY created_at, id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+
+    public TransactionStatementRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = Math.max(1, fetchSize);
+    }
+
+    /**
+     * One statement line
+     */
+    public record StatementRow(
+            String transactionId,
+            LocalDateTime createdAt,
+            String type,
+            String category,
+            String walletType,
+            BigDecimal amount,
+            BigDecimal balanceBefore,
+            BigDecimal balanceAfter,
+            String description,
+            String referenceId,
+            String referenceType,
+            String status) {
+    }
+
+    /**
+     * Stream the user's transactions in (created_at, id) order, optionally limited to [from, to)
+     */
+    public void streamStatement(Long userId, LocalDateTime from, LocalDateTime to, Consumer<StatementRow> consumer) {
+        StringBuilder range = new StringBuilder();
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        if (from != null) {
+            range.append(" AND created_at >= ?");
+            params.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            range.append(" AND created_at < ?");
+            params.add(Timestamp.valueOf(to));
+        }
+        String sql = String.format(SELECT_STATEMENT, range);
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, rs -> {
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            consumer.accept(new StatementRow(
+                    rs.getString("transaction_id"),
+                    createdAt != null ? createdAt.toLocalDateTime() : null,
+                    rs.getString("type"),
+                    rs.getString("category"),
+                    rs.getString("wallet_type"),
+                    rs.getBigDecimal("amount"),
+                    rs.getBigDecimal("balance_before"),
+                    rs.getBigDecimal("balance_after"),
+                    rs.getString("description"),
+                    rs.getString("reference_id"),
+                    rs.getString("reference_type"),
+                    rs.getString("status")));
+        });
+    }
+}
@@ -1,12 +1,16 @@
 package com.realestate.mlm.repository;
 
 import com.realestate.mlm.model.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +31,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     List<User> findByStatus(String status);
 
+    /**
+     * Find user by id with pessimistic write lock, serialising with concurrent BV updates
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findByIdWithLock(@Param("id") Long id);
+
     @Query("SELECT u FROM User u WHERE u.level = :level")
     List<User> findByLevel(@Param("level") Integer level);
 
@@ -35,4 +46,106 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Long countByCreatedAtGreaterThanEqual(LocalDateTime createdAt);
 
     Long countBySponsorId(String sponsorId);
+
+    /**
+     * Shared body of the rank evaluation queries.
+     * Joins per-user direct referral counts, number of binary legs headed by an ACTIVE member
+     * and personal/team volume, and keeps only users who meet every requirement of at least
+     * one active rank above their current one.
+     */
+    String RANK_CANDIDATE_SELECT =
+            "SELECT c.id AS id, c.current_order AS currentOrder, c.direct_referrals AS directReferrals, " +
+            "c.active_legs AS activeLegs, c.total_investment AS totalInvestment, c.team_bv AS teamBv " +
+            "FROM (SELECT u.id, COALESCE(cur.display_order, 0) AS current_order, " +
+            "COALESCE(d.direct_referrals, 0) AS direct_referrals, COALESCE(l.active_legs, 0) AS active_legs, " +
+            "COALESCE(u.total_investment, 0) AS total_investment, COALESCE(u.team_bv, 0) AS team_bv " +
+            "FROM users u " +
+            "LEFT JOIN rank_settings cur ON cur.is_active = TRUE AND LOWER(cur.rank_name) = LOWER(u.rank) " +
+            "LEFT JOIN direct_counts d ON d.sponsor_id = u.user_id " +
+            "LEFT JOIN leg_counts l ON l.parent_id = u.id " +
+            "WHERE u.status = 'ACTIVE' AND u.id IN (SELECT id FROM scope)) c " +
+            "WHERE EXISTS (SELECT 1 FROM rank_settings r WHERE r.is_active = TRUE " +
+            "AND COALESCE(r.display_order, 0) > c.current_order " +
+            "AND c.direct_referrals >= COALESCE(r.required_direct_referrals, 0) " +
+            "AND c.active_legs >= COALESCE(r.required_active_legs, 0) " +
+            "AND c.total_investment >= COALESCE(r.required_personal_investment, 0) " +
+            "AND c.team_bv >= COALESCE(r.required_team_investment, 0))";
+
+    /**
+     * Evaluate rank eligibility for every active user in one set-based pass
+     */
+    @Query(value = "WITH scope AS (SELECT id FROM users WHERE status = 'ACTIVE'), " +
+            "direct_counts AS (SELECT sponsor_id, COUNT(*) AS direct_referrals FROM users " +
+            "WHERE sponsor_id IS NOT NULL GROUP BY sponsor_id), " +
+            "leg_counts AS (SELECT placement_user_id AS parent_id, COUNT(DISTINCT placement) AS active_legs " +
+            "FROM users WHERE status = 'ACTIVE' AND placement IN ('LEFT', 'RIGHT') " +
+            "AND placement_user_id IS NOT NULL GROUP BY placement_user_id) " +
+            RANK_CANDIDATE_SELECT, nativeQuery = true)
+    List<RankCandidate> findRankPromotionCandidates();
+
+    /**
+     * Evaluate rank eligibility only for users whose inputs may have changed because of the given
+     * users: the users themselves, their sponsors (direct referral count) and their placement
+     * upline (team volume and leg activity)
+     */
+    @Query(value = "WITH RECURSIVE upline(id, placement_user_id) AS (" +
+            "SELECT id, placement_user_id FROM users WHERE id IN (:userIds) " +
+            "UNION SELECT p.id, p.placement_user_id FROM users p JOIN upline a ON p.id = a.placement_user_id), " +
+            "scope AS (SELECT id FROM upline UNION " +
+            "SELECT sponsor_user_id FROM users WHERE id IN (:userIds) AND sponsor_user_id IS NOT NULL), " +
+            "direct_counts AS (SELECT sponsor_id, COUNT(*) AS direct_referrals FROM users " +
+            "WHERE sponsor_id IN (SELECT s.user_id FROM users s WHERE s.id IN (SELECT id FROM scope)) " +
+            "GROUP BY sponsor_id), " +
+            "leg_counts AS (SELECT placement_user_id AS parent_id, COUNT(DISTINCT placement) AS active_legs " +
+            "FROM users WHERE status = 'ACTIVE' AND placement IN ('LEFT', 'RIGHT') " +
+            "AND placement_user_id IN (SELECT id FROM scope) GROUP BY placement_user_id) " +
+            RANK_CANDIDATE_SELECT, nativeQuery = true)
+    List<RankCandidate> findRankPromotionCandidates(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Projection of the inputs used for rank evaluation
+     */
+    interface RankCandidate {
+        Long getId();
+
+        Integer getCurrentOrder();
+
+        Long getDirectReferrals();
+
+        Long getActiveLegs();
+
+        BigDecimal getTotalInvestment();
+
+        BigDecimal getTeamBv();
+    }
+
+    /**
+     * Lightweight tree snapshot (sponsor and placement links) for compensation plan simulations
+     * and commission recalculation
+     */
+    @Query("SELECT u.id AS id, s.id AS sponsorId, p.id AS placementId, u.placement AS placement, " +
+            "u.status AS status, u.rank AS rank, u.createdAt AS createdAt, u.activationDate AS activationDate " +
+            "FROM User u LEFT JOIN u.sponsor s LEFT JOIN u.placementUser p")
+    List<SimulationNode> findSimulationNodes();
+
+    /**
+     * Projection of a user as seen by the compensation plan simulator
+     */
+    interface SimulationNode {
+        Long getId();
+
+        Long getSponsorId();
+
+        Long getPlacementId();
+
+        String getPlacement();
+
+        String getStatus();
+
+        String getRank();
+
+        LocalDateTime getCreatedAt();
+
+        LocalDateTime getActivationDate();
+    }
 }
@@ -0,0 +1,181 @@
+package com.realestate.mlm.repository;
+
+import com.realestate.mlm.model.Transaction;
+import com.realestate.mlm.model.TransactionRollup;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * JDBC batch reads and writes for bulk wallet adjustments, where locking and saving wallet by
+ * wallet would cost one round trip per user. Callers own the transaction.
+ *
+ * Wallets are always locked in ascending user id order so two bulk jobs, or a bulk job and a
+ * single-wallet update, cannot deadlock on each other.
+ */
+@Repository
+public class WalletBatchRepository {
+
+    // Striped wallets hold part of their balance in wallet_stripes, which is added but not folded
+    private static final String LOCK_COMMISSION_BALANCES = "SELECT w.user_id, w.commission_balance + COALESCE(" +
+            "(SELECT SUM(s.amount) FROM wallet_stripes s WHERE s.user_id = w.user_id AND s.wallet_type = 'COMMISSION'), 0) " +
+            "AS commission_balance " +
+            "FROM wallets w WHERE w.user_id IN (%s) ORDER BY w.user_id FOR UPDATE OF w";
+
+    private static final String ADD_TO_COMMISSION_BALANCE = "UPDATE wallets " +
+            "SET commission_balance = commission_balance + ?, total_earned = total_earned + ?, updated_at = NOW() " +
+            "WHERE user_id = ?";
+
+    private static final String ADD_TO_STRIPE = "INSERT INTO wallet_stripes " +
+            "(user_id, wallet_type, stripe_no, amount, entry_count, updated_at) VALUES (?, ?, ?, ?, 1, NOW()) " +
+            "ON CONFLICT (user_id, wallet_type, stripe_no) DO UPDATE SET " +
+            "amount = wallet_stripes.amount + EXCLUDED.amount, " +
+            "entry_count = wallet_stripes.entry_count + 1, " +
+            "updated_at = NOW()";
+
+    private static final String INSERT_TRANSACTION = "INSERT INTO transactions " +
+            "(transaction_id, user_id, type, category, wallet_type, amount, balance_before, balance_after, " +
+            "description, reference_id, reference_type, status, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String ADD_TO_TRANSACTION_ROLLUP = "INSERT INTO transaction_rollups " +
+            "(user_id, period, period_start, stripe_no, credit_amount, debit_amount, income_amount, " +
+            "credit_count, debit_count, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, NOW()) " +
+            "ON CONFLICT (user_id, period, period_start, stripe_no) DO UPDATE SET " +
+            "credit_amount = transaction_rollups.credit_amount + EXCLUDED.credit_amount, " +
+            "debit_amount = transaction_rollups.debit_amount + EXCLUDED.debit_amount, " +
+            "income_amount = transaction_rollups.income_amount + EXCLUDED.income_amount, " +
+            "credit_count = transaction_rollups.credit_count + EXCLUDED.credit_count, " +
+            "debit_count = transaction_rollups.debit_count + EXCLUDED.debit_count, " +
+            "updated_at = NOW()";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public WalletBatchRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.batch.jdbc-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Commission balance of a wallet including unfolded stripes, as locked by {@link #lockCommissionBalances}
+     */
+    public record CommissionBalance(Long userId, BigDecimal commissionBalance) {
+    }
+
+    /**
+     * Lock the wallets of the given users with SELECT ... FOR UPDATE, in ascending user id order.
+     * Users without a wallet are missing from the result.
+     */
+    public Map<Long, CommissionBalance> lockCommissionBalances(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Long> sortedIds = userIds.stream().distinct().sorted().toList();
+        Map<Long, CommissionBalance> balances = new LinkedHashMap<>();
+        for (int from = 0; from < sortedIds.size(); from += batchSize) {
+            List<Long> chunk = sortedIds.subList(from, Math.min(sortedIds.size(), from + batchSize));
+            String sql = String.format(LOCK_COMMISSION_BALANCES, String.join(",", Collections.nCopies(chunk.size(), "?")));
+            jdbcTemplate.query(sql, rs -> {
+                long userId = rs.getLong("user_id");
+                balances.put(userId, new CommissionBalance(userId, rs.getBigDecimal("commission_balance")));
+            }, chunk.toArray());
+        }
+        return balances;
+    }
+
+    /**
+     * Add signed amounts to commission balances and totals earned, in ascending user id order.
+     * Relative updates leave any unfolded stripes where they are.
+     */
+    public void addToCommissionBalances(Map<Long, BigDecimal> amounts) {
+        if (amounts.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, BigDecimal>> sorted = amounts.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .toList();
+        jdbcTemplate.batchUpdate(ADD_TO_COMMISSION_BALANCE, sorted, batchSize, (ps, amount) -> {
+            ps.setBigDecimal(1, amount.getValue());
+            ps.setBigDecimal(2, amount.getValue());
+            ps.setLong(3, amount.getKey());
+        });
+    }
+
+    /**
+     * Add credits to one random stripe per user, in ascending user id order
+     */
+    public void addToStripes(Map<Long, BigDecimal> amounts, String walletType, int stripeCount) {
+        if (amounts.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, BigDecimal>> sorted = amounts.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .toList();
+        jdbcTemplate.batchUpdate(ADD_TO_STRIPE, sorted, batchSize, (ps, amount) -> {
+            ps.setLong(1, amount.getKey());
+            ps.setString(2, walletType);
+            ps.setInt(3, ThreadLocalRandom.current().nextInt(Math.max(1, stripeCount)));
+            ps.setBigDecimal(4, amount.getValue());
+        });
+    }
+
+    /**
+     * Insert wallet transaction records. Only the user id is read from the association.
+     */
+    public void insertTransactions(Collection<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION, transactions, batchSize, (ps, transaction) -> {
+            ps.setString(1, transaction.getTransactionId());
+            ps.setLong(2, transaction.getUser().getId());
+            ps.setString(3, transaction.getType());
+            ps.setString(4, transaction.getCategory());
+            ps.setString(5, transaction.getWalletType());
+            ps.setBigDecimal(6, transaction.getAmount());
+            ps.setBigDecimal(7, transaction.getBalanceBefore());
+            ps.setBigDecimal(8, transaction.getBalanceAfter());
+            ps.setString(9, transaction.getDescription());
+            ps.setString(10, transaction.getReferenceId());
+            ps.setString(11, transaction.getReferenceType());
+            ps.setString(12, transaction.getStatus());
+            ps.setTimestamp(13, Timestamp.valueOf(
+                    transaction.getCreatedAt() != null ? transaction.getCreatedAt() : now));
+        });
+    }
+
+    /**
+     * Add pre-aggregated user/period/stripe deltas to the transaction rollups
+     */
+    public void addToTransactionRollups(Collection<TransactionRollup> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(ADD_TO_TRANSACTION_ROLLUP, deltas, batchSize, (ps, delta) -> {
+            ps.setLong(1, delta.getUserId());
+            ps.setString(2, delta.getPeriod());
+            ps.setDate(3, Date.valueOf(delta.getPeriodStart()));
+            ps.setInt(4, delta.getStripeNo());
+            ps.setBigDecimal(5, delta.getCreditAmount());
+            ps.setBigDecimal(6, delta.getDebitAmount());
+            ps.setBigDecimal(7, delta.getIncomeAmount());
+            ps.setInt(8, delta.getCreditCount());
+            ps.setInt(9, delta.getDebitCount());
+        });
+    }
+}
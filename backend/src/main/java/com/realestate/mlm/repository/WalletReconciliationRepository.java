@@ -0,0 +1,181 @@
+package com.realestate.mlm.repository;
+
+import com.realestate.mlm.model.WalletReconciliationDiscrepancy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based reads for the wallet reconciliation job: wallets side by side with the ledger they
+ * should agree with, one user id range at a time. Callers own the transaction.
+ *
+ * A range is read with a single statement, so wallets, stripes, transactions and payouts come
+ * from one snapshot: a credit or debit commits its balance change and its transaction row
+ * together and can never be seen half done.
+ */
+@Repository
+public class WalletReconciliationRepository {
+
+    /**
+     * Wallet types with a balance column, in report order
+     */
+    public static final List<String> WALLET_TYPES = List.of("INVESTMENT", "COMMISSION", "RENTAL_INCOME", "ROI");
+
+    /**
+     * Ledger rows that moved money: transactions are written as SUCCESS, older rows carry the
+     * column default COMPLETED
+     */
+    static final String LEDGER_STATUSES = "status IN ('SUCCESS', 'COMPLETED')";
+
+    /**
+     * Transaction wallet type as a balance: RENTAL and RENTAL_INCOME share one
+     */
+    static final String LEDGER_WALLET_TYPE =
+            "CASE UPPER(wallet_type) WHEN 'RENTAL' THEN 'RENTAL_INCOME' ELSE UPPER(wallet_type) END";
+
+    static final String LEDGER_NET_AMOUNT =
+            "SUM(CASE type WHEN 'CREDIT' THEN amount WHEN 'DEBIT' THEN -amount ELSE 0 END)";
+
+    /**
+     * Balances whose credits count towards Wallet.totalEarned
+     */
+    static final String INCOME_WALLET_TYPES = "('COMMISSION', 'RENTAL_INCOME', 'ROI')";
+
+    /**
+     * What the transactions did to Wallet.totalEarned: income credits add to it, commission
+     * reversals (clawbacks and recalculation debits) take it back, withdrawals leave it alone
+     */
+    static final String LEDGER_EARNED_AMOUNT = "SUM(CASE " +
+            "WHEN type = 'CREDIT' AND " + LEDGER_WALLET_TYPE + " IN " + INCOME_WALLET_TYPES + " THEN amount " +
+            "WHEN type = 'DEBIT' AND category = 'COMMISSION_REVERSAL' THEN -amount ELSE 0 END)";
+
+    /**
+     * Payouts whose amount is held in locked_balance until they are paid or rejected
+     */
+    private static final String LOCKED_PAYOUT_STATUSES = "('REQUESTED', 'PENDING', 'APPROVED', 'PROCESSING', 'FAILED')";
+
+    private static final String FIND_RANGE_END = "SELECT MAX(user_id) FROM " +
+            "(SELECT user_id FROM wallets WHERE user_id > ? ORDER BY user_id LIMIT ?) r";
+
+    private static final String FIND_WALLET_LEDGERS = "WITH entries AS (" +
+            "SELECT user_id, " + LEDGER_WALLET_TYPE + " AS wallet_type, 0 AS stripe_amount, " +
+            LEDGER_NET_AMOUNT + " AS ledger_amount, " + LEDGER_EARNED_AMOUNT + " AS earned_amount " +
+            "FROM transactions WHERE user_id > ? AND user_id <= ? AND " + LEDGER_STATUSES + " GROUP BY 1, 2 " +
+            "UNION ALL " +
+            "SELECT user_id, wallet_type, 0, net_amount, earned_amount FROM ledger_archived_totals " +
+            "WHERE user_id > ? AND user_id <= ? " +
+            "UNION ALL " +
+            "SELECT user_id, wallet_type, SUM(amount), 0, 0 FROM wallet_stripes WHERE user_id > ? AND user_id <= ? GROUP BY 1, 2) " +
+            "SELECT w.user_id, " +
+            balanceColumns("INVESTMENT", "investment_balance") +
+            balanceColumns("COMMISSION", "commission_balance") +
+            balanceColumns("RENTAL_INCOME", "rental_income_balance") +
+            balanceColumns("ROI", "roi_balance") +
+            "COALESCE(w.locked_balance, 0) AS locked_balance, " +
+            "COALESCE((SELECT SUM(p.requested_amount) FROM payouts p WHERE p.user_id = w.user_id " +
+            "AND p.status IN " + LOCKED_PAYOUT_STATUSES + "), 0) AS locked_payouts, " +
+            "COALESCE(w.total_earned, 0) + COALESCE(SUM(e.stripe_amount) FILTER (WHERE e.wallet_type IN " +
+            INCOME_WALLET_TYPES + "), 0) AS earned_recorded, " +
+            "COALESCE(SUM(e.earned_amount), 0) AS earned_ledger " +
+            "FROM wallets w " +
+            "LEFT JOIN entries e ON e.user_id = w.user_id " +
+            "WHERE w.user_id > ? AND w.user_id <= ? " +
+            "GROUP BY w.user_id, w.investment_balance, w.commission_balance, w.rental_income_balance, w.roi_balance, " +
+            "w.locked_balance, w.total_earned " +
+            "ORDER BY w.user_id";
+
+    private static final String INSERT_DISCREPANCY = "INSERT INTO wallet_reconciliation_discrepancies " +
+            "(run_id, user_id, check_type, wallet_type, recorded_amount, expected_amount, delta_amount) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public WalletReconciliationRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.batch.jdbc-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * A wallet next to its ledger. Balances and total earned include unfolded stripe credits; the
+     * ledger is credits minus debits of the live transactions plus the archived net totals, and
+     * the earned ledger their income credits less commission reversals.
+     */
+    public record WalletLedger(
+            Long userId,
+            Map<String, BigDecimal> balances,
+            Map<String, BigDecimal> ledger,
+            BigDecimal lockedBalance,
+            BigDecimal lockedPayouts,
+            BigDecimal totalEarned,
+            BigDecimal earnedLedger) {
+    }
+
+    /**
+     * Upper user id of the range of up to chunkSize wallets after afterUserId, or null when no
+     * wallets are left. Walks the wallets user_id index only.
+     */
+    public Long findRangeEnd(long afterUserId, int chunkSize) {
+        return jdbcTemplate.queryForObject(FIND_RANGE_END, Long.class, afterUserId, chunkSize);
+    }
+
+    /**
+     * Wallets with user_id in (fromUserId, toUserId] and their ledger, by user id
+     */
+    public List<WalletLedger> findWalletLedgers(long fromUserId, long toUserId) {
+        return jdbcTemplate.query(FIND_WALLET_LEDGERS, (rs, rowNum) -> mapWalletLedger(rs),
+                fromUserId, toUserId, fromUserId, toUserId, fromUserId, toUserId, fromUserId, toUserId);
+    }
+
+    public void insertDiscrepancies(Collection<WalletReconciliationDiscrepancy> discrepancies) {
+        if (discrepancies.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_DISCREPANCY, discrepancies, batchSize, (ps, discrepancy) -> {
+            ps.setLong(1, discrepancy.getRunId());
+            ps.setLong(2, discrepancy.getUserId());
+            ps.setString(3, discrepancy.getCheckType());
+            ps.setObject(4, discrepancy.getWalletType(), Types.VARCHAR);
+            ps.setBigDecimal(5, discrepancy.getRecordedAmount());
+            ps.setBigDecimal(6, discrepancy.getExpectedAmount());
+            ps.setBigDecimal(7, discrepancy.getDeltaAmount());
+        });
+    }
+
+    private static String balanceColumns(String walletType, String column) {
+        String alias = column.substring(0, column.length() - "_balance".length());
+        return "COALESCE(w." + column + ", 0) + COALESCE(SUM(e.stripe_amount) FILTER (WHERE e.wallet_type = '" +
+                walletType + "'), 0) AS " + alias + "_recorded, " +
+                "COALESCE(SUM(e.ledger_amount) FILTER (WHERE e.wallet_type = '" + walletType + "'), 0) AS " +
+                alias + "_ledger, ";
+    }
+
+    private static WalletLedger mapWalletLedger(ResultSet rs) throws SQLException {
+        Map<String, BigDecimal> balances = new LinkedHashMap<>();
+        Map<String, BigDecimal> ledger = new LinkedHashMap<>();
+        for (String walletType : WALLET_TYPES) {
+            String alias = walletType.toLowerCase();
+            balances.put(walletType, rs.getBigDecimal(alias + "_recorded"));
+            ledger.put(walletType, rs.getBigDecimal(alias + "_ledger"));
+        }
+        return new WalletLedger(
+                rs.getLong("user_id"),
+                balances,
+                ledger,
+                rs.getBigDecimal("locked_balance"),
+                rs.getBigDecimal("locked_payouts"),
+                rs.getBigDecimal("earned_recorded"),
+                rs.getBigDecimal("earned_ledger"));
+    }
+}
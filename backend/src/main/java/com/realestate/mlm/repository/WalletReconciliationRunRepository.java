@@ -0,0 +1,50 @@
+package com.realestate.mlm.repository;
+
+import com.realestate.mlm.model.WalletReconciliationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WalletReconciliationRunRepository extends JpaRepository<WalletReconciliationRun, Long> {
+
+    Optional<WalletReconciliationRun> findByRunId(String runId);
+
+    List<WalletReconciliationRun> findByStatusIn(Collection<String> statuses);
+
+    boolean existsByStatusIn(Collection<String> statuses);
+
+    /**
+     * Record a completed range. Workers finish ranges concurrently, so counters are only ever
+     * added to.
+     */
+    @Modifying
+    @Query("UPDATE WalletReconciliationRun r SET " +
+            "r.completedRanges = r.completedRanges + 1, " +
+            "r.walletsChecked = r.walletsChecked + :wallets, " +
+            "r.discrepancyCount = r.discrepancyCount + :discrepancies, " +
+            "r.absoluteDifference = r.absoluteDifference + :absoluteDifference, " +
+            "r.updatedAt = CURRENT_TIMESTAMP WHERE r.id = :id")
+    int addRangeProgress(
+            @Param("id") Long id,
+            @Param("wallets") long wallets,
+            @Param("discrepancies") long discrepancies,
+            @Param("absoluteDifference") BigDecimal absoluteDifference);
+
+    @Modifying
+    @Query("UPDATE WalletReconciliationRun r SET r.status = :status, r.lastError = :lastError, " +
+            "r.completedAt = :completedAt, r.updatedAt = CURRENT_TIMESTAMP WHERE r.id = :id")
+    int finish(
+            @Param("id") Long id,
+            @Param("status") String status,
+            @Param("lastError") String lastError,
+            @Param("completedAt") LocalDateTime completedAt);
+}
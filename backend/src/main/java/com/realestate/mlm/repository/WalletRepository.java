@@ -9,6 +9,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -33,4 +36,59 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT w FROM Wallet w WHERE w.user.id = :userId")
     Optional<Wallet> findByUserIdWithLock(@Param("userId") Long userId);
+
+    /**
+     * Lock the wallets of many users with one SELECT ... FOR UPDATE. Rows are locked in ascending
+     * user id order, so concurrent bulk credits always take their locks in the same order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.user.id IN :userIds ORDER BY w.user.id")
+    List<Wallet> findAllByUserIdsWithLock(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Conditional debits: one UPDATE that only matches when the balance covers the amount, so an
+     * empty result means insufficient funds and no row lock is held across application code.
+     * An income debit must also leave the locked (pending withdrawal) amount covered by the three
+     * income balances together, the same rule as {@code WalletService.availableToDebit}.
+     */
+    @Query(value = "UPDATE wallets SET investment_balance = investment_balance - :amount, updated_at = NOW() " +
+            "WHERE user_id = :userId AND investment_balance >= :amount " +
+            "RETURNING id AS \"walletId\", investment_balance AS \"balanceAfter\"", nativeQuery = true)
+    Optional<ConditionalDebit> debitInvestmentBalance(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    @Query(value = "UPDATE wallets SET commission_balance = commission_balance - :amount, total_withdrawn = total_withdrawn + :amount, updated_at = NOW() " +
+            "WHERE user_id = :userId AND commission_balance >= :amount " +
+            "AND commission_balance + rental_income_balance + roi_balance - locked_balance >= :amount " +
+            "RETURNING id AS \"walletId\", commission_balance AS \"balanceAfter\"", nativeQuery = true)
+    Optional<ConditionalDebit> debitCommissionBalance(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    @Query(value = "UPDATE wallets SET rental_income_balance = rental_income_balance - :amount, total_withdrawn = total_withdrawn + :amount, updated_at = NOW() " +
+            "WHERE user_id = :userId AND rental_income_balance >= :amount " +
+            "AND commission_balance + rental_income_balance + roi_balance - locked_balance >= :amount " +
+            "RETURNING id AS \"walletId\", rental_income_balance AS \"balanceAfter\"", nativeQuery = true)
+    Optional<ConditionalDebit> debitRentalIncomeBalance(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    @Query(value = "UPDATE wallets SET roi_balance = roi_balance - :amount, total_withdrawn = total_withdrawn + :amount, updated_at = NOW() " +
+            "WHERE user_id = :userId AND roi_balance >= :amount " +
+            "AND commission_balance + rental_income_balance + roi_balance - locked_balance >= :amount " +
+            "RETURNING id AS \"walletId\", roi_balance AS \"balanceAfter\"", nativeQuery = true)
+    Optional<ConditionalDebit> debitRoiBalance(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    interface ConditionalDebit {
+        Long getWalletId();
+
+        BigDecimal getBalanceAfter();
+    }
+
+    /**
+     * The striped wallets among the given users. A plain read, no lock.
+     */
+    @Query("SELECT w.user.id FROM Wallet w WHERE w.user.id IN :userIds AND w.striped = true")
+    List<Long> findStripedUserIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Whether credits to the user's wallet go to stripes. A plain read, no lock.
+     */
+    @Query("SELECT COALESCE(w.striped, false) FROM Wallet w WHERE w.user.id = :userId")
+    Optional<Boolean> findStripedByUserId(@Param("userId") Long userId);
 }
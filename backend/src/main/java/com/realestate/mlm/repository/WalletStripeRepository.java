@@ -0,0 +1,64 @@
+package com.realestate.mlm.repository;
+
+import com.realestate.mlm.model.WalletStripe;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Repository for striped wallet sub-balances
+ */
+@Repository
+public interface WalletStripeRepository extends JpaRepository<WalletStripe, Long> {
+
+    /**
+     * Add a credit to one stripe, creating it on first use.
+     * Only that stripe row is locked, so concurrent credits to the same wallet spread over the stripes.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO wallet_stripes (user_id, wallet_type, stripe_no, amount, entry_count, updated_at) " +
+            "VALUES (:userId, :walletType, :stripeNo, :amount, 1, NOW()) " +
+            "ON CONFLICT (user_id, wallet_type, stripe_no) DO UPDATE SET " +
+            "amount = wallet_stripes.amount + EXCLUDED.amount, " +
+            "entry_count = wallet_stripes.entry_count + 1, " +
+            "updated_at = NOW()", nativeQuery = true)
+    int addToStripe(
+            @Param("userId") Long userId,
+            @Param("walletType") String walletType,
+            @Param("stripeNo") int stripeNo,
+            @Param("amount") BigDecimal amount);
+
+    /**
+     * Unfolded credits per wallet type, for balance reads
+     */
+    @Query("SELECT s.walletType AS walletType, SUM(s.amount) AS amount FROM WalletStripe s " +
+            "WHERE s.userId = :userId GROUP BY s.walletType")
+    List<StripeTotal> sumByUserId(@Param("userId") Long userId);
+
+    /**
+     * Lock every stripe of a user for folding into the wallet row
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM WalletStripe s WHERE s.userId = :userId ORDER BY s.id")
+    List<WalletStripe> findByUserIdForUpdate(@Param("userId") Long userId);
+
+    /**
+     * Users with unfolded credits, for the compaction job
+     */
+    @Query("SELECT DISTINCT s.userId FROM WalletStripe s ORDER BY s.userId")
+    List<Long> findUserIdsWithStripes(Pageable pageable);
+
+    interface StripeTotal {
+        String getWalletType();
+
+        BigDecimal getAmount();
+    }
+}
@@ -2,9 +2,11 @@ package com.realestate.mlm.scheduler;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import com.realestate.mlm.service.CommissionService;
+import com.realestate.mlm.service.BinaryPairingService;
+import com.realestate.mlm.service.RankPromotionService;
 
 /**
  * Scheduled job for calculating commissions and processing rank promotions.
@@ -14,10 +16,16 @@ import com.realestate.mlm.service.CommissionService;
 public class CommissionCalculatorJob {
 
     @Autowired
-    private CommissionService commissionService;
+    private BinaryPairingService binaryPairingService;
+
+    @Autowired
+    private RankPromotionService rankPromotionService;
+
+    @Value("${app.binary.realtime-pairing:false}")
+    private boolean realtimePairing;
 
     /**
-     * Calculate daily commissions - Process all pending binary matching at 2 AM daily.
+     * Calculate daily commissions - Pair every user whose BV changed since their last pairing at 2 AM daily.
      * Cron: "0 0 2 * * *" = Every day at 2:00 AM
      */
     @Scheduled(cron = "0 0 2 * * *")
@@ -26,8 +34,8 @@ public class CommissionCalculatorJob {
         try {
             long startTime = System.currentTimeMillis();
 
-            // Process all pending binary matching
-            int commissionsProcessed = commissionService.processAllPendingMatching();
+            // Process the binary pairing dirty set
+            int commissionsProcessed = binaryPairingService.processDirtyUsers();
 
             long duration = System.currentTimeMillis() - startTime;
             log.info("Daily commission calculation completed successfully. Processed: {}, Duration: {}ms",
@@ -37,6 +45,26 @@ public class CommissionCalculatorJob {
         }
     }
 
+    /**
+     * Near-real-time binary pairing - Drain the dirty set every few minutes when
+     * app.binary.realtime-pairing is enabled; otherwise pairing only runs nightly.
+     * Interval: app.binary.pairing-interval-ms (default 5 minutes)
+     */
+    @Scheduled(fixedDelayString = "${app.binary.pairing-interval-ms:300000}")
+    public void processDirtyBinaryPairing() {
+        if (!realtimePairing) {
+            return;
+        }
+        try {
+            int commissionsProcessed = binaryPairingService.processDirtyUsers();
+            if (commissionsProcessed > 0) {
+                log.info("Near-real-time binary pairing completed. Processed: {}", commissionsProcessed);
+            }
+        } catch (Exception e) {
+            log.error("Error occurred during near-real-time binary pairing", e);
+        }
+    }
+
     /**
      * Process rank promotions - Check rank eligibility and promote users at 3 AM.
      * Cron: "0 0 3 * * *" = Every day at 3:00 AM
@@ -48,7 +76,7 @@ public class CommissionCalculatorJob {
             long startTime = System.currentTimeMillis();
 
             // Check rank eligibility and promote users
-            int usersPromoted = commissionService.processRankPromotions();
+            int usersPromoted = rankPromotionService.processRankPromotions();
 
             long duration = System.currentTimeMillis() - startTime;
             log.info("Rank promotion processing completed successfully. Users promoted: {}, Duration: {}ms",
@@ -57,4 +85,21 @@ public class CommissionCalculatorJob {
             log.error("Error occurred during rank promotion processing", e);
         }
     }
+
+    /**
+     * Incremental rank promotions - Re-evaluate only users touched by placements,
+     * activations and investments since the last run.
+     * Interval: app.rank.incremental-interval-ms (default 5 minutes)
+     */
+    @Scheduled(fixedDelayString = "${app.rank.incremental-interval-ms:300000}")
+    public void processChangedRankPromotions() {
+        try {
+            int usersPromoted = rankPromotionService.processChangedRankPromotions();
+            if (usersPromoted > 0) {
+                log.info("Incremental rank promotion completed. Users promoted: {}", usersPromoted);
+            }
+        } catch (Exception e) {
+            log.error("Error occurred during incremental rank promotion processing", e);
+        }
+    }
 }
@@ -0,0 +1,40 @@
+package com.realestate.mlm.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import com.realestate.mlm.service.HistoryArchiveService;
+
+/**
+ * Scheduled job for creating upcoming monthly partitions of transactions and commissions and
+ * archiving the ones past the horizon.
+ */
+@Slf4j
+@Component
+public class PartitionMaintenanceJob {
+
+    @Autowired
+    private HistoryArchiveService historyArchiveService;
+
+    /**
+     * Maintain partitions - Runs daily at 3:30 AM. Both steps are idempotent, so a missed or
+     * failed run is caught up by the next one.
+     * Cron: app.archive.cron
+     */
+    @Scheduled(cron = "${app.archive.cron:0 30 3 * * *}")
+    public void maintainPartitions() {
+        log.info("Starting partition maintenance job");
+        try {
+            long startTime = System.currentTimeMillis();
+
+            historyArchiveService.ensurePartitions();
+            int archived = historyArchiveService.archiveExpiredPartitions();
+
+            long duration = System.currentTimeMillis() - startTime;
+            log.info("Partition maintenance completed. Partitions archived: {}, Duration: {}ms", archived, duration);
+        } catch (Exception e) {
+            log.error("Error occurred during partition maintenance", e);
+        }
+    }
+}
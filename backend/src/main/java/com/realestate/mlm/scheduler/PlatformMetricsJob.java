@@ -0,0 +1,33 @@
+package com.realestate.mlm.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import com.realestate.mlm.service.PlatformMetricsService;
+
+/**
+ * Scheduled job for correcting the admin dashboard's platform metrics against the data.
+ */
+@Slf4j
+@Component
+public class PlatformMetricsJob {
+
+    @Autowired
+    private PlatformMetricsService platformMetricsService;
+
+    /**
+     * Recompute platform metrics - Runs every 15 minutes. Also rolls the day and month buckets
+     * over for metrics that only the recompute maintains.
+     * Cron: app.metrics.recompute-cron
+     */
+    @Scheduled(cron = "${app.metrics.recompute-cron:0 */15 * * * *}")
+    public void recomputePlatformMetrics() {
+        log.info("Starting platform metrics recompute job");
+        try {
+            platformMetricsService.recompute();
+        } catch (Exception e) {
+            log.error("Error occurred while recomputing platform metrics", e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.realestate.mlm.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import com.realestate.mlm.service.WalletReconciliationService;
+
+/**
+ * Scheduled job for reconciling wallets against the transaction ledger.
+ */
+@Slf4j
+@Component
+public class WalletReconciliationJob {
+
+    @Autowired
+    private WalletReconciliationService walletReconciliationService;
+
+    /**
+     * Reconcile wallets - Runs daily at 1 AM. The run itself happens on the reconciliation
+     * workers, so the scheduler thread is free again right away.
+     * Cron: app.reconciliation.cron
+     */
+    @Scheduled(cron = "${app.reconciliation.cron:0 0 1 * * *}")
+    public void reconcileWallets() {
+        log.info("Starting wallet reconciliation job");
+        try {
+            walletReconciliationService.startScheduledReconciliation();
+        } catch (Exception e) {
+            log.error("Error occurred while starting wallet reconciliation", e);
+        }
+    }
+}
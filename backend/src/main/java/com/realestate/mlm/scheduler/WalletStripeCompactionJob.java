@@ -0,0 +1,71 @@
+package com.realestate.mlm.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import com.realestate.mlm.repository.WalletStripeRepository;
+import com.realestate.mlm.service.WalletService;
+
+import java.util.List;
+
+/**
+ * Scheduled job for folding striped wallet credits into their wallet rows.
+ */
+@Slf4j
+@Component
+public class WalletStripeCompactionJob {
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletStripeRepository walletStripeRepository;
+
+    @Value("${app.wallet.stripe-compaction-batch-size:200}")
+    private int batchSize;
+
+    /**
+     * Compact wallet stripes - Fold every user's stripes, one wallet lock per user.
+     * Interval: app.wallet.stripe-compaction-interval-ms (default 1 minute)
+     */
+    @Scheduled(fixedDelayString = "${app.wallet.stripe-compaction-interval-ms:60000}")
+    public void compactWalletStripes() {
+        try {
+            long startTime = System.currentTimeMillis();
+            int walletsCompacted = 0;
+            int stripesFolded = 0;
+
+            // Folded stripes are deleted, so the first page always holds the next users
+            while (true) {
+                List<Long> userIds = walletStripeRepository.findUserIdsWithStripes(PageRequest.of(0, Math.max(1, batchSize)));
+                if (userIds.isEmpty()) {
+                    break;
+                }
+                int folded = 0;
+                for (Long userId : userIds) {
+                    try {
+                        folded += walletService.compactStripes(userId);
+                        walletsCompacted++;
+                    } catch (Exception e) {
+                        log.error("Error compacting wallet stripes for user id: {}", userId, e);
+                    }
+                }
+                stripesFolded += folded;
+                if (folded == 0) {
+                    break;
+                }
+            }
+
+            if (stripesFolded > 0) {
+                long duration = System.currentTimeMillis() - startTime;
+                log.info("Wallet stripe compaction completed. Wallets: {}, Stripes: {}, Duration: {}ms",
+                        walletsCompacted, stripesFolded, duration);
+            }
+        } catch (Exception e) {
+            log.error("Error occurred during wallet stripe compaction", e);
+        }
+    }
+}
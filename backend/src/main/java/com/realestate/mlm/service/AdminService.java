@@ -1,5 +1,8 @@
 package com.realestate.mlm.service;
 
+import com.realestate.mlm.event.PayoutStatusChangedEvent;
+import com.realestate.mlm.event.UserActivatedEvent;
+import com.realestate.mlm.event.UserStatusChangedEvent;
 import com.realestate.mlm.dto.response.*;
 import com.realestate.mlm.exception.BadRequestException;
 import com.realestate.mlm.exception.ResourceNotFoundException;
@@ -7,15 +10,15 @@ import com.realestate.mlm.model.*;
 import com.realestate.mlm.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,11 +30,12 @@ public class AdminService {
         private final PayoutRepository payoutRepository;
         private final KycDocumentRepository kycDocumentRepository;
         private final PropertyRepository propertyRepository;
-        private final PropertyInvestmentRepository propertyInvestmentRepository;
-        private final CommissionRepository commissionRepository;
-        private final WalletRepository walletRepository;
         private final SupportTicketRepository supportTicketRepository;
         private final NotificationService notificationService;
+        private final WalletService walletService;
+        private final PlatformMetricsService platformMetricsService;
+        private final DashboardComposer dashboardComposer;
+        private final ApplicationEventPublisher eventPublisher;
 
         /**
          * Get all users with pagination
@@ -63,8 +67,11 @@ public class AdminService {
                 User user = userRepository.findById(userId)
                                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
 
+                String previousStatus = user.getStatus();
                 user.setStatus("ACTIVE");
                 userRepository.save(user);
+                eventPublisher.publishEvent(new UserStatusChangedEvent(user.getId(), previousStatus, user.getStatus()));
+                eventPublisher.publishEvent(new UserActivatedEvent(user.getId()));
 
                 // Send notification to user
                 notificationService.sendNotification(
@@ -87,8 +94,10 @@ public class AdminService {
                 User user = userRepository.findById(userId)
                                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
 
+                String previousStatus = user.getStatus();
                 user.setStatus("BLOCKED");
                 userRepository.save(user);
+                eventPublisher.publishEvent(new UserStatusChangedEvent(user.getId(), previousStatus, user.getStatus()));
 
                 // Send notification to user
                 notificationService.sendNotification(
@@ -102,87 +111,74 @@ public class AdminService {
         }
 
         /**
-         * Get admin dashboard statistics
+         * Get admin dashboard statistics. Users, investments, commissions, pending payouts and
+         * wallet balances come from the platform metrics counters; the rest are counts over small
+         * status-indexed work queues. The queries run concurrently; any that fail or time out
+         * are listed in unavailableWidgets and their fields left null.
          */
         public AdminDashboardResponse getAdminDashboard() {
                 log.info("Fetching admin dashboard statistics");
 
-                LocalDateTime today = LocalDateTime.of(LocalDate.now(), LocalTime.MIN);
-                LocalDateTime thisMonthStart = LocalDateTime.of(LocalDate.now().withDayOfMonth(1), LocalTime.MIN);
+                DashboardComposer.Composition composition = dashboardComposer.compose();
+                DashboardComposer.Widget<PlatformMetricsService.Snapshot> metricsWidget =
+                                composition.add("platformMetrics", platformMetricsService::getCurrent);
+                DashboardComposer.Widget<Long> totalPropertiesWidget =
+                                composition.add("totalProperties", propertyRepository::count);
+                DashboardComposer.Widget<Long> activePropertiesWidget =
+                                composition.add("activeProperties", () -> propertyRepository.countByStatus("ACTIVE"));
+                DashboardComposer.Widget<Long> pendingKycWidget =
+                                composition.add("pendingKycDocuments", () -> kycDocumentRepository.countByStatus("PENDING"));
+                DashboardComposer.Widget<Long> pendingTicketsWidget =
+                                composition.add("pendingSupportTickets", () -> supportTicketRepository.countByStatus("OPEN") +
+                                                supportTicketRepository.countByStatus("IN_PROGRESS"));
+                List<String> unavailableWidgets = composition.await();
+
+                AdminDashboardResponse.AdminDashboardResponseBuilder response = AdminDashboardResponse.builder()
+                                .totalProperties(totalPropertiesWidget.get())
+                                .activeProperties(activePropertiesWidget.get())
+                                .pendingKycDocuments(pendingKycWidget.get())
+                                .pendingSupportTickets(pendingTicketsWidget.get())
+                                .unavailableWidgets(unavailableWidgets);
+
+                PlatformMetricsService.Snapshot metrics = metricsWidget.get();
+                if (metrics == null) {
+                        return response.build();
+                }
 
                 // User statistics
-                Long totalUsers = userRepository.count();
-                Long activeUsers = userRepository.countByStatus("ACTIVE");
-                Long inactiveUsers = totalUsers - activeUsers;
-                Long newUsersToday = userRepository.countByCreatedAtGreaterThanEqual(today);
-                Long newUsersThisMonth = userRepository.countByCreatedAtGreaterThanEqual(thisMonthStart);
-
-                // Investment statistics
-                BigDecimal totalInvestments = propertyInvestmentRepository.findAll().stream()
-                                .map(PropertyInvestment::getInvestmentAmount)
-                                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                BigDecimal totalInvestmentsThisMonth = propertyInvestmentRepository
-                                .findByCreatedAtGreaterThanEqual(thisMonthStart).stream()
-                                .map(PropertyInvestment::getInvestmentAmount)
-                                .reduce(BigDecimal.ZERO, BigDecimal::add);
+                Long totalUsers = metrics.count(PlatformMetricsRepository.USERS, PlatformMetricsRepository.PERIOD_ALL);
+                Long activeUsers = metrics.count(PlatformMetricsRepository.ACTIVE_USERS, PlatformMetricsRepository.PERIOD_ALL);
 
                 // Commission statistics
-                BigDecimal totalCommissionsPaid = commissionRepository.findByStatus("PAID").stream()
-                                .map(Commission::getAmount)
-                                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                BigDecimal totalCommissionsThisMonth = commissionRepository
-                                .findByStatusAndCreatedAtGreaterThanEqual("PAID", thisMonthStart).stream()
-                                .map(Commission::getAmount)
-                                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                // Property statistics
-                Long totalProperties = propertyRepository.count();
-                Long activeProperties = propertyRepository.countByStatus("ACTIVE");
-
-                // Payout statistics
-                Long pendingPayouts = payoutRepository.countByStatus("PENDING");
-                BigDecimal pendingPayoutAmount = payoutRepository.findByStatus("PENDING").stream()
-                                .map(Payout::getRequestedAmount)
-                                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                // KYC statistics
-                Long pendingKycDocuments = kycDocumentRepository.countByStatus("PENDING");
-
-                // Support ticket statistics
-                Long pendingSupportTickets = supportTicketRepository.countByStatus("OPEN") +
-                                supportTicketRepository.countByStatus("IN_PROGRESS");
-
-                // Wallet balance
-                BigDecimal totalWalletBalance = walletRepository.findAll().stream()
-                                .map(w -> w.getCommissionBalance()
-                                                .add(w.getInvestmentBalance())
-                                                .add(w.getRentalIncomeBalance())
-                                                .add(w.getRoiBalance()))
-                                .reduce(BigDecimal.ZERO, BigDecimal::add);
+                BigDecimal totalCommissionsPaid = metrics.amount(
+                                PlatformMetricsRepository.COMMISSIONS_PAID, PlatformMetricsRepository.PERIOD_ALL);
 
                 // Platform revenue (example calculation - adjust based on business logic)
                 BigDecimal platformRevenue = totalCommissionsPaid.multiply(new BigDecimal("0.1")); // Assuming 10%
                                                                                                    // platform fee
 
-                return AdminDashboardResponse.builder()
+                return response
                                 .totalUsers(totalUsers)
                                 .activeUsers(activeUsers)
-                                .inactiveUsers(inactiveUsers)
-                                .newUsersToday(newUsersToday)
-                                .newUsersThisMonth(newUsersThisMonth)
-                                .totalInvestments(totalInvestments)
-                                .totalInvestmentsThisMonth(totalInvestmentsThisMonth)
+                                .inactiveUsers(totalUsers - activeUsers)
+                                .newUsersToday(metrics.count(
+                                                PlatformMetricsRepository.USERS, PlatformMetricsRepository.PERIOD_DAY))
+                                .newUsersThisMonth(metrics.count(
+                                                PlatformMetricsRepository.USERS, PlatformMetricsRepository.PERIOD_MONTH))
+                                .totalInvestments(metrics.amount(
+                                                PlatformMetricsRepository.INVESTMENTS, PlatformMetricsRepository.PERIOD_ALL))
+                                .totalInvestmentsThisMonth(metrics.amount(
+                                                PlatformMetricsRepository.INVESTMENTS, PlatformMetricsRepository.PERIOD_MONTH))
                                 .totalCommissionsPaid(totalCommissionsPaid)
-                                .totalCommissionsThisMonth(totalCommissionsThisMonth)
-                                .totalProperties(totalProperties)
-                                .activeProperties(activeProperties)
-                                .pendingPayouts(pendingPayouts)
-                                .pendingPayoutAmount(pendingPayoutAmount)
-                                .pendingKycDocuments(pendingKycDocuments)
-                                .pendingSupportTickets(pendingSupportTickets)
-                                .totalWalletBalance(totalWalletBalance)
+                                .totalCommissionsThisMonth(metrics.amount(
+                                                PlatformMetricsRepository.COMMISSIONS_PAID, PlatformMetricsRepository.PERIOD_MONTH))
+                                .pendingPayouts(metrics.count(
+                                                PlatformMetricsRepository.PENDING_PAYOUTS, PlatformMetricsRepository.PERIOD_ALL))
+                                .pendingPayoutAmount(metrics.amount(
+                                                PlatformMetricsRepository.PENDING_PAYOUTS, PlatformMetricsRepository.PERIOD_ALL))
+                                // Wallet balance, including stripe credits not yet folded into their wallets
+                                .totalWalletBalance(metrics.amount(
+                                                PlatformMetricsRepository.WALLET_BALANCE, PlatformMetricsRepository.PERIOD_ALL))
                                 .platformRevenue(platformRevenue)
                                 .build();
         }
@@ -222,9 +218,12 @@ public class AdminService {
                         throw new BadRequestException("Payout is already processed");
                 }
 
+                String previousStatus = payout.getStatus();
                 payout.setStatus("APPROVED");
                 payout.setApprovedAt(LocalDateTime.now());
                 payoutRepository.save(payout);
+                eventPublisher.publishEvent(new PayoutStatusChangedEvent(
+                                payout.getId(), payout.getRequestedAmount(), previousStatus, payout.getStatus()));
 
                 // Send notification to user
                 notificationService.sendNotification(
@@ -252,16 +251,15 @@ public class AdminService {
                         throw new BadRequestException("Payout is already processed");
                 }
 
+                String previousStatus = payout.getStatus();
                 payout.setStatus("REJECTED");
                 payout.setRejectionReason(reason);
                 payoutRepository.save(payout);
+                eventPublisher.publishEvent(new PayoutStatusChangedEvent(
+                                payout.getId(), payout.getRequestedAmount(), previousStatus, payout.getStatus()));
 
-                // Refund amount to user's wallet
-                Wallet wallet = walletRepository.findByUser(payout.getUser())
-                                .orElseThrow(() -> new ResourceNotFoundException(
-                                                "Wallet not found for user ID: " + payout.getUser().getId()));
-                wallet.setCommissionBalance(wallet.getCommissionBalance().add(payout.getRequestedAmount()));
-                walletRepository.save(wallet);
+                // The requested amount was only locked, never debited, so release it
+                walletService.unlockBalance(payout.getUser(), payout.getRequestedAmount());
 
                 // Send notification to user
                 notificationService.sendNotification(
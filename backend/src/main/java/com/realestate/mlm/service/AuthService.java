@@ -6,6 +6,9 @@ import com.realestate.mlm.dto.request.RegisterRequest;
 import com.realestate.mlm.dto.request.ResetPasswordRequest;
 import com.realestate.mlm.dto.response.AuthResponse;
 import com.realestate.mlm.dto.response.UserResponse;
+import com.realestate.mlm.event.UserActivatedEvent;
+import com.realestate.mlm.event.UserPlacedEvent;
+import com.realestate.mlm.event.UserStatusChangedEvent;
 import com.realestate.mlm.exception.BadRequestException;
 import com.realestate.mlm.exception.InvalidSponsorException;
 import com.realestate.mlm.exception.ResourceNotFoundException;
@@ -19,6 +22,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -41,9 +45,11 @@ public class AuthService {
     private final WalletService walletService;
     private final TreeService treeService;
     private final NotificationService notificationService;
+    private final IdGeneratorService idGeneratorService;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
     private final AuthenticationManager authenticationManager;
+    private final ApplicationEventPublisher eventPublisher;
 
     // In-memory storage for OTP and reset tokens (use Redis in production)
     private final ConcurrentHashMap<String, String> otpCache = new ConcurrentHashMap<>();
@@ -78,8 +84,8 @@ public class AuthService {
             sponsor = validateSponsorId(request.getSponsorId());
         }
 
-        // Generate unique userId
-        String userId = generateUserId();
+        // Generate unique userId (block-allocated, no COUNT(*) or sequence row lock per registration)
+        String userId = idGeneratorService.nextUserId();
 
         // Create new user
         User newUser = new User();
@@ -124,6 +130,9 @@ public class AuthService {
         walletService.createWallet(savedUser);
         log.info("Wallet created for user: {}", savedUser.getUserId());
 
+        // Sponsor and placement upline need rank re-evaluation once this commits
+        eventPublisher.publishEvent(new UserPlacedEvent(savedUser.getId()));
+
         // Generate and send OTP
         String otp = generateOtp();
         otpCache.put(savedUser.getEmail(), otp);
@@ -218,10 +227,13 @@ public class AuthService {
         }
 
         // Activate user
+        String previousStatus = user.getStatus();
         user.setStatus("ACTIVE");
         user.setEmailVerified(true);
         user.setActivationDate(LocalDateTime.now());
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserStatusChangedEvent(user.getId(), previousStatus, user.getStatus()));
+        eventPublisher.publishEvent(new UserActivatedEvent(user.getId()));
 
         // Remove OTP from cache
         otpCache.remove(user.getEmail());
@@ -359,14 +371,6 @@ public class AuthService {
         return sponsor;
     }
 
-    /**
-     * Generate unique user ID (MLM001, MLM002, ...)
-     */
-    private String generateUserId() {
-        long count = userRepository.count();
-        return String.format("MLM%03d", count + 1);
-    }
-
     /**
      * Generate unique referral code
      */
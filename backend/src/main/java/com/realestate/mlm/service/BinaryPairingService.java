@@ -0,0 +1,154 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.event.UserActivatedEvent;
+import com.realestate.mlm.model.BinaryPairingQueueEntry;
+import com.realestate.mlm.model.Commission;
+import com.realestate.mlm.model.User;
+import com.realestate.mlm.repository.BinaryPairingQueueRepository;
+import com.realestate.mlm.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Incremental binary pairing.
+ *
+ * BV propagation adds every upline whose left or right volume changed to a narrow dirty-set
+ * table in the same transaction, and only those users are paired. Each user is paired in its own
+ * transaction that first locks the user row and then removes the mark, so a concurrent BV update
+ * either lands before the pairing (and is paired) or waits for it and marks the user again.
+ * Cost follows the day's activity instead of the member count.
+ *
+ * {@link CommissionService#processAllPendingMatching()} remains available as a full sweep.
+ */
+@Service
+@Slf4j
+public class BinaryPairingService {
+
+    private final BinaryPairingQueueRepository binaryPairingQueueRepository;
+    private final UserRepository userRepository;
+    private final CommissionService commissionService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    /**
+     * The nightly and the near-real-time schedules must not drain the queue at the same time
+     */
+    private final ReentrantLock draining = new ReentrantLock();
+
+    public BinaryPairingService(
+            BinaryPairingQueueRepository binaryPairingQueueRepository,
+            UserRepository userRepository,
+            CommissionService commissionService,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.binary.pairing-batch-size:500}") int batchSize) {
+        this.binaryPairingQueueRepository = binaryPairingQueueRepository;
+        this.userRepository = userRepository;
+        this.commissionService = commissionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Queue a user for pairing
+     */
+    @Transactional
+    public void markDirty(Long userId) {
+        if (userId != null) {
+            binaryPairingQueueRepository.markDirty(userId);
+        }
+    }
+
+    /**
+     * Volume held while inactive becomes payable on activation
+     */
+    @EventListener
+    public void onUserActivated(UserActivatedEvent event) {
+        markDirty(event.getUserId());
+    }
+
+    /**
+     * Pair every queued user, oldest mark first.
+     * The queue is read with a keyset cursor, so users that fail stay queued for the next run
+     * without being fetched again in this one; users marked again while the run is going are
+     * further back in the queue and are paired before it ends.
+     * Returns the number of pairing commissions created
+     */
+    public int processDirtyUsers() {
+        if (!draining.tryLock()) {
+            log.info("Binary pairing queue is already being processed, skipping");
+            return 0;
+        }
+        try {
+            int processed = 0;
+            int paired = 0;
+            int failed = 0;
+
+            BinaryPairingQueueEntry last = null;
+            while (true) {
+                List<BinaryPairingQueueEntry> entries = last == null
+                        ? binaryPairingQueueRepository.findEntriesToPair(PageRequest.of(0, batchSize))
+                        : binaryPairingQueueRepository.findEntriesToPairAfter(
+                                last.getMarkedAt(), last.getUserId(), PageRequest.of(0, batchSize));
+                if (entries.isEmpty()) {
+                    break;
+                }
+
+                for (BinaryPairingQueueEntry entry : entries) {
+                    Long userId = entry.getUserId();
+                    try {
+                        Boolean created = transactionTemplate.execute(status -> pairUser(userId));
+                        processed++;
+                        if (Boolean.TRUE.equals(created)) {
+                            paired++;
+                        }
+                    } catch (Exception e) {
+                        failed++;
+                        log.error("Error processing binary pairing for user id: {}", userId, e);
+                    }
+                }
+                last = entries.get(entries.size() - 1);
+            }
+
+            if (processed > 0 || failed > 0) {
+                log.info("Binary pairing queue processed. Users: {}, Commissions: {}, Failed: {}",
+                        processed, paired, failed);
+            }
+            return paired;
+        } finally {
+            draining.unlock();
+        }
+    }
+
+    /**
+     * Lock the user, take them off the queue and pair them.
+     * Returns whether a pairing commission was created.
+     */
+    private boolean pairUser(Long userId) {
+        Optional<User> locked = userRepository.findByIdWithLock(userId);
+        if (binaryPairingQueueRepository.removeUser(userId) == 0 || locked.isEmpty()) {
+            // Already paired by another node, or the user no longer exists
+            return false;
+        }
+
+        User user = locked.get();
+        if (!"ACTIVE".equals(user.getStatus())) {
+            // Re-queued by activation
+            return false;
+        }
+
+        Commission commission = commissionService.calculateBinaryPairing(user);
+        return commission != null;
+    }
+}
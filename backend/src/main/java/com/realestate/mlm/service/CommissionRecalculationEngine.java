@@ -0,0 +1,481 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.repository.CommissionRepository.ReplayCommission;
+import com.realestate.mlm.repository.PropertyInvestmentRepository.ReplayInvestment;
+import com.realestate.mlm.repository.UserRepository.SimulationNode;
+import com.realestate.mlm.util.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tree snapshot and replay rules behind {@link CommissionRecalculationService}.
+ *
+ * Investment-driven commissions (direct referral and level commissions) only ever flow up the
+ * sponsor chain, and the daily cap is per earner, so the expected commissions of any set of
+ * earners depend only on the investments of their sponsor downline and on their own other
+ * commissions. The sponsor tree is therefore cut into subtrees of bounded size, each replayed on
+ * its own; the few users above every cut form one extra partition.
+ *
+ * For each earner the replay walks investments in booking order, applies the live rules
+ * (direct referral to the sponsor whatever their status, levels to active sponsors only, all
+ * through the shared daily cap that also counts the earner's other credited commissions), and
+ * compares the result with what was recorded per earner, source user, type and day.
+ *
+ * Only the current status and the latest activation date of a user are known, not their status
+ * history. A sponsor is active at an investment's time when they are ACTIVE now and were
+ * activated at or before it (activation resets the date, so they have been active since). For
+ * any other sponsor it is unknown whether the level commission was due: the key is left as
+ * recorded, and its recorded commissions stand in for the replayed ones in the daily cap, so a
+ * status change is never clawed back or back-paid.
+ * Nothing here touches the database.
+ */
+class CommissionRecalculationEngine {
+
+    static final int MAX_LEVELS = 10;
+    static final String DIRECT_REFERRAL = "DIRECT_REFERRAL";
+    static final String LEVEL_PREFIX = "LEVEL_";
+
+    /**
+     * Rules of the plan as the live services apply them
+     */
+    record Plan(BigDecimal directPercent, List<BigDecimal> levelPercentages, BigDecimal dailyCap) {
+    }
+
+    /**
+     * Recorded and expected totals for one earner, source user, commission type and day that
+     * do not match
+     */
+    record Difference(Long userId, Long fromUserId, String commissionType, int level, LocalDate day,
+                      Money existing, Money expected, Money capped, BigDecimal percentage,
+                      String investmentId, String propertyId, LocalDateTime eventTime) {
+
+        Money delta() {
+            return expected.minus(existing);
+        }
+    }
+
+    private final Long[] ids;
+    private final Map<Long, Integer> indexById;
+    private final int[] sponsor;
+    private final boolean[] active;
+    private final LocalDateTime[] activatedAt;
+
+    // Sponsor tree preorder: order[position] is a node, subtree of position p is [p, p + subtreeSize[p])
+    private final int[] order;
+    private final int[] position;
+    private final int[] subtreeSize;
+
+    CommissionRecalculationEngine(List<SimulationNode> nodes) {
+        int size = nodes.size();
+        this.ids = new Long[size];
+        this.indexById = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            ids[i] = nodes.get(i).getId();
+            indexById.put(ids[i], i);
+        }
+
+        this.sponsor = new int[size];
+        this.active = new boolean[size];
+        this.activatedAt = new LocalDateTime[size];
+        int[] childCount = new int[size];
+        for (int i = 0; i < size; i++) {
+            SimulationNode node = nodes.get(i);
+            Integer parent = node.getSponsorId() != null ? indexById.get(node.getSponsorId()) : null;
+            sponsor[i] = parent != null && parent != i ? parent : -1;
+            active[i] = "ACTIVE".equals(node.getStatus());
+            activatedAt[i] = node.getActivationDate();
+            if (sponsor[i] >= 0) {
+                childCount[sponsor[i]]++;
+            }
+        }
+        int[] childStart = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            childStart[i + 1] = childStart[i] + childCount[i];
+        }
+        int[] children = new int[childStart[size]];
+        int[] fill = Arrays.copyOf(childStart, size);
+        for (int i = 0; i < size; i++) {
+            if (sponsor[i] >= 0) {
+                children[fill[sponsor[i]]++] = i;
+            }
+        }
+
+        // Iterative preorder; nodes caught in a sponsor cycle become roots of their own
+        this.order = new int[size];
+        this.position = new int[size];
+        this.subtreeSize = new int[size];
+        Arrays.fill(position, -1);
+        int[] stack = new int[size];
+        int next = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int root = 0; root < size; root++) {
+                if (position[root] >= 0 || (pass == 0 && sponsor[root] >= 0)) {
+                    continue;
+                }
+                int depth = 0;
+                stack[depth++] = root;
+                while (depth > 0) {
+                    int node = stack[--depth];
+                    position[node] = next;
+                    order[next++] = node;
+                    for (int c = childStart[node + 1] - 1; c >= childStart[node]; c--) {
+                        if (position[children[c]] < 0) {
+                            stack[depth++] = children[c];
+                        }
+                    }
+                }
+            }
+        }
+        for (int p = size - 1; p >= 0; p--) {
+            int node = order[p];
+            subtreeSize[p] += 1;
+            if (sponsor[node] >= 0 && position[sponsor[node]] < p) {
+                subtreeSize[position[sponsor[node]]] += subtreeSize[p];
+            }
+        }
+    }
+
+    int getSize() {
+        return ids.length;
+    }
+
+    /**
+     * Roots of the largest subtrees holding at most targetSize users, in preorder
+     */
+    List<Long> partitionRoots(int targetSize) {
+        List<Long> roots = new ArrayList<>();
+        int p = 0;
+        while (p < order.length) {
+            int node = order[p];
+            int parent = sponsor[node];
+            boolean parentTooLarge = parent < 0 || position[parent] > p
+                    || subtreeSize[position[parent]] > targetSize;
+            if (subtreeSize[p] <= targetSize && parentTooLarge) {
+                roots.add(ids[node]);
+                p += subtreeSize[p];
+            } else {
+                p++;
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * Users of one partition: the subtree of rootId, or for a null root every user not inside
+     * the subtree of any of allRoots
+     */
+    int[] earners(Long rootId, Collection<Long> allRoots) {
+        if (rootId != null) {
+            Integer root = indexById.get(rootId);
+            if (root == null) {
+                return new int[0];
+            }
+            int start = position[root];
+            return Arrays.copyOfRange(order, start, start + subtreeSize[start]);
+        }
+
+        boolean[] covered = new boolean[order.length];
+        for (Long id : allRoots) {
+            Integer root = indexById.get(id);
+            if (root != null) {
+                int start = position[root];
+                Arrays.fill(covered, start, start + subtreeSize[start], true);
+            }
+        }
+        int count = 0;
+        int[] earners = new int[order.length];
+        for (int p = 0; p < order.length; p++) {
+            if (!covered[p]) {
+                earners[count++] = order[p];
+            }
+        }
+        return Arrays.copyOf(earners, count);
+    }
+
+    /**
+     * Users whose investments can pay the given earners: their sponsor downline within
+     * {@link #MAX_LEVELS} levels
+     */
+    List<Long> investorsOf(int[] earners, boolean subtree) {
+        List<Long> investors = new ArrayList<>();
+        if (subtree) {
+            for (int earner : earners) {
+                investors.add(ids[earner]);
+            }
+            return investors;
+        }
+
+        boolean[] earning = earnerMask(earners);
+        for (int node = 0; node < ids.length; node++) {
+            int upline = sponsor[node];
+            for (int level = 1; level <= MAX_LEVELS && upline >= 0; level++) {
+                if (earning[upline]) {
+                    investors.add(ids[node]);
+                    break;
+                }
+                upline = sponsor[upline];
+            }
+        }
+        return investors;
+    }
+
+    Long idOf(int node) {
+        return ids[node];
+    }
+
+    /**
+     * Replay the investments for the given earners and return every key where the recorded
+     * and the expected amounts differ.
+     *
+     * @param investments investments of {@link #investorsOf}, in booking order
+     * @param commissions every commission of the earners up to the same instant
+     */
+    List<Difference> replay(int[] earners, List<ReplayInvestment> investments,
+                            List<ReplayCommission> commissions, Plan plan) {
+        boolean[] earning = earnerMask(earners);
+        Money.Rate directRate = Money.Rate.of(plan.directPercent());
+        int levels = Math.min(MAX_LEVELS, plan.levelPercentages().size());
+        Money.Rate[] levelRates = new Money.Rate[levels];
+        for (int i = 0; i < levels; i++) {
+            levelRates[i] = Money.Rate.of(plan.levelPercentages().get(i));
+        }
+        Money dailyCap = Money.of(plan.dailyCap());
+
+        Map<Integer, List<Credit>> creditsByEarner = new HashMap<>();
+        Map<Key, Line> lines = new LinkedHashMap<>();
+        long sequence = 0;
+
+        // Recorded side: replayed types are compared, everything else only counts towards the cap
+        List<ReplayCommission> recordedReplayed = new ArrayList<>();
+        for (ReplayCommission commission : commissions) {
+            Integer earner = indexById.get(commission.getUserId());
+            if (earner == null || !earning[earner]) {
+                continue;
+            }
+            Money amount = Money.of(commission.getAmount());
+            if (isReplayed(commission.getCommissionType())) {
+                if (isSettled(commission.getStatus())) {
+                    recordedReplayed.add(commission);
+                    Line line = lines.computeIfAbsent(new Key(earner, commission.getFromUserId(),
+                            commission.getCommissionType(), commission.getCreatedAt().toLocalDate()), Line::new);
+                    line.existing = line.existing.plus(amount);
+                    line.touch(commission.getCreatedAt());
+                }
+            } else if ("CREDITED".equals(commission.getStatus())) {
+                creditsByEarner.computeIfAbsent(earner, key -> new ArrayList<>())
+                        .add(Credit.recorded(commission.getCreatedAt(), sequence++, amount));
+            }
+        }
+
+        // Expected side: what each investment pays each earner before the cap
+        Set<Key> undecided = new HashSet<>();
+        for (ReplayInvestment investment : investments) {
+            Integer investor = indexById.get(investment.getUserId());
+            if (investor == null) {
+                continue;
+            }
+            Money amount = Money.of(investment.getInvestmentAmount());
+
+            int directSponsor = sponsor[investor];
+            if (directSponsor >= 0 && earning[directSponsor]) {
+                creditsByEarner.computeIfAbsent(directSponsor, key -> new ArrayList<>())
+                        .add(Credit.replayed(investment, sequence++, DIRECT_REFERRAL, 1,
+                                plan.directPercent(), amount.percent(directRate)));
+            }
+
+            int upline = directSponsor;
+            for (int level = 1; level <= levels && upline >= 0; level++) {
+                if (earning[upline] && !wasActive(upline, investment.getCreatedAt())) {
+                    if (!active[upline] && activatedAt[upline] == null) {
+                        // Never activated, so never paid levels
+                    } else {
+                        undecided.add(new Key(upline, investment.getUserId(), LEVEL_PREFIX + level,
+                                investment.getCreatedAt().toLocalDate()));
+                    }
+                } else if (earning[upline]) {
+                    creditsByEarner.computeIfAbsent(upline, key -> new ArrayList<>())
+                            .add(Credit.replayed(investment, sequence++, LEVEL_PREFIX + level, level,
+                                    plan.levelPercentages().get(level - 1), amount.percent(levelRates[level - 1])));
+                }
+                upline = sponsor[upline];
+            }
+        }
+
+        // Undecided keys keep what was paid, so their recorded commissions count towards the cap
+        for (ReplayCommission commission : recordedReplayed) {
+            Key key = new Key(indexById.get(commission.getUserId()), commission.getFromUserId(),
+                    commission.getCommissionType(), commission.getCreatedAt().toLocalDate());
+            if (undecided.contains(key)) {
+                creditsByEarner.computeIfAbsent(key.earner(), k -> new ArrayList<>())
+                        .add(Credit.recorded(commission.getCreatedAt(), sequence++, Money.of(commission.getAmount())));
+            }
+        }
+
+        // Per earner, in time order, through the daily cap
+        Comparator<Credit> chronological = Comparator.comparing((Credit credit) -> credit.time)
+                .thenComparingLong(credit -> credit.sequence);
+        for (Map.Entry<Integer, List<Credit>> entry : creditsByEarner.entrySet()) {
+            int earner = entry.getKey();
+            List<Credit> credits = entry.getValue();
+            credits.sort(chronological);
+
+            LocalDate day = null;
+            Money dayTotal = Money.ZERO;
+            for (Credit credit : credits) {
+                LocalDate creditDay = credit.time.toLocalDate();
+                if (!creditDay.equals(day)) {
+                    day = creditDay;
+                    dayTotal = Money.ZERO;
+                }
+                if (credit.investment == null) {
+                    dayTotal = dayTotal.plus(credit.amount);
+                    continue;
+                }
+                Key key = new Key(earner, credit.investment.getUserId(), credit.type, day);
+                if (undecided.contains(key)) {
+                    continue;
+                }
+
+                Money remaining = dayTotal.isLessThan(dailyCap) ? dailyCap.minus(dayTotal) : Money.ZERO;
+                Money paid = credit.amount.min(remaining);
+                dayTotal = dayTotal.plus(paid);
+                if (!paid.isPositive() && !DIRECT_REFERRAL.equals(credit.type)) {
+                    // The live level commission records nothing when the cap leaves zero
+                    continue;
+                }
+
+                Line line = lines.computeIfAbsent(key, Line::new);
+                line.expected = line.expected.plus(paid);
+                line.capped = line.capped.plus(credit.amount.minus(paid));
+                line.level = credit.level;
+                line.percentage = credit.percentage;
+                line.investments++;
+                line.investmentId = credit.investment.getInvestmentId();
+                line.propertyId = credit.investment.getPropertyId();
+                line.touch(credit.time);
+            }
+        }
+
+        List<Difference> differences = new ArrayList<>();
+        for (Line line : lines.values()) {
+            if (line.existing.equals(line.expected) || undecided.contains(line.key)) {
+                continue;
+            }
+            boolean single = line.investments == 1;
+            differences.add(new Difference(ids[line.key.earner()], line.key.fromUserId(), line.key.type(),
+                    line.level > 0 ? line.level : levelOf(line.key.type()), line.key.day(),
+                    line.existing, line.expected, line.capped, line.percentage,
+                    single ? line.investmentId : null, single ? line.propertyId : null, line.lastTime));
+        }
+        return differences;
+    }
+
+    /**
+     * Commission types produced by an investment, and therefore recomputed by a replay
+     */
+    static boolean isReplayed(String commissionType) {
+        return DIRECT_REFERRAL.equals(commissionType)
+                || (commissionType != null && commissionType.startsWith(LEVEL_PREFIX));
+    }
+
+    private static boolean isSettled(String status) {
+        return CommissionRollupService.isSettled(status);
+    }
+
+    private static int levelOf(String commissionType) {
+        if (commissionType.startsWith(LEVEL_PREFIX)) {
+            try {
+                return Integer.parseInt(commissionType.substring(LEVEL_PREFIX.length()));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Whether a sponsor is known to have been active at the given time
+     */
+    private boolean wasActive(int node, LocalDateTime time) {
+        return active[node] && activatedAt[node] != null && !activatedAt[node].isAfter(time);
+    }
+
+    private boolean[] earnerMask(int[] earners) {
+        boolean[] earning = new boolean[ids.length];
+        for (int earner : earners) {
+            earning[earner] = true;
+        }
+        return earning;
+    }
+
+    private record Key(int earner, Long fromUserId, String type, LocalDate day) {
+    }
+
+    /**
+     * One credit in an earner's day: a recorded commission of another type, or a replayed one
+     */
+    private static final class Credit {
+        final LocalDateTime time;
+        final long sequence;
+        final ReplayInvestment investment;
+        final String type;
+        final int level;
+        final BigDecimal percentage;
+        final Money amount;
+
+        private Credit(LocalDateTime time, long sequence, ReplayInvestment investment, String type,
+                       int level, BigDecimal percentage, Money amount) {
+            this.time = time;
+            this.sequence = sequence;
+            this.investment = investment;
+            this.type = type;
+            this.level = level;
+            this.percentage = percentage;
+            this.amount = amount;
+        }
+
+        static Credit recorded(LocalDateTime time, long sequence, Money amount) {
+            return new Credit(time, sequence, null, null, 0, null, amount);
+        }
+
+        static Credit replayed(ReplayInvestment investment, long sequence, String type, int level,
+                               BigDecimal percentage, Money amount) {
+            return new Credit(investment.getCreatedAt(), sequence, investment, type, level, percentage, amount);
+        }
+    }
+
+    private static final class Line {
+        final Key key;
+        Money existing = Money.ZERO;
+        Money expected = Money.ZERO;
+        Money capped = Money.ZERO;
+        int level;
+        BigDecimal percentage;
+        int investments;
+        String investmentId;
+        String propertyId;
+        LocalDateTime lastTime;
+
+        Line(Key key) {
+            this.key = key;
+        }
+
+        void touch(LocalDateTime time) {
+            if (lastTime == null || time.isAfter(lastTime)) {
+                lastTime = time;
+            }
+        }
+    }
+}
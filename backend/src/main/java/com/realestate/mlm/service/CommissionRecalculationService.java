@@ -0,0 +1,566 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.dto.response.CommissionRecalculationDiffResponse;
+import com.realestate.mlm.dto.response.CommissionRecalculationRunResponse;
+import com.realestate.mlm.dto.response.PageResponse;
+import com.realestate.mlm.exception.BadRequestException;
+import com.realestate.mlm.exception.ResourceNotFoundException;
+import com.realestate.mlm.model.Commission;
+import com.realestate.mlm.model.CommissionRecalculationDiff;
+import com.realestate.mlm.model.CommissionRecalculationPartition;
+import com.realestate.mlm.model.CommissionRecalculationRun;
+import com.realestate.mlm.model.User;
+import com.realestate.mlm.repository.CommissionBatchRepository;
+import com.realestate.mlm.repository.CommissionRecalculationDiffRepository;
+import com.realestate.mlm.repository.CommissionRecalculationPartitionRepository;
+import com.realestate.mlm.repository.CommissionRecalculationRunRepository;
+import com.realestate.mlm.repository.CommissionRepository;
+import com.realestate.mlm.repository.CommissionRepository.ReplayCommission;
+import com.realestate.mlm.repository.PartitionArchiveRepository;
+import com.realestate.mlm.repository.PropertyInvestmentRepository;
+import com.realestate.mlm.repository.PropertyInvestmentRepository.ReplayInvestment;
+import com.realestate.mlm.repository.UserRepository;
+import com.realestate.mlm.util.Money;
+import com.realestate.mlm.util.SecurityUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Whole-network commission recalculation, for use after a plan bug or a data repair.
+ *
+ * A run replays the investment history booked before it started, in booking order, and
+ * compares the direct referral and level commissions it should have produced with the ones
+ * recorded. The sponsor tree is split into subtree partitions (see
+ * {@link CommissionRecalculationEngine}); each partition is replayed and written in its own
+ * transaction together with its checkpoint, so a run can be paused between partitions, survives
+ * a restart as paused, and resumes with the first partition not yet completed.
+ *
+ * Every run records a difference report. Unless it is a dry run, each difference is also
+ * corrected the way a clawback reverses a commission: the recorded commissions are flipped to
+ * REVERSED with a negative REVERSED entry for their total, the expected amount is written as a
+ * new CREDITED commission, all dated on the original day, and the net change is credited to or
+ * reversed from the earner's commission wallet. Partitions always compare against the current
+ * commissions, so corrections are never applied twice, even across runs.
+ *
+ * Months already archived past app.archive.horizon-months are no longer in the commissions table
+ * and cannot be compared, so a run starts where the live history starts (historyFrom) and
+ * leaves older months as they are.
+ *
+ * Binary pairing and rank bonuses depend on volume history that is not recorded and are left as
+ * they are; they still count towards the daily cap during the replay.
+ */
+@Service
+@Slf4j
+public class CommissionRecalculationService {
+
+    static final String STATUS_RUNNING = "RUNNING";
+    static final String STATUS_PAUSE_REQUESTED = "PAUSE_REQUESTED";
+    static final String STATUS_PAUSED = "PAUSED";
+    static final String STATUS_COMPLETED = "COMPLETED";
+    static final String STATUS_FAILED = "FAILED";
+
+    private static final String PARTITION_PENDING = "PENDING";
+    private static final String PARTITION_COMPLETED = "COMPLETED";
+
+    /**
+     * Ids per IN list when loading a partition's investments and commissions
+     */
+    private static final int QUERY_CHUNK_SIZE = 1000;
+
+    /**
+     * Lower bound of a run that replays the whole history
+     */
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final CommissionRecalculationRunRepository runRepository;
+    private final CommissionRecalculationPartitionRepository partitionRepository;
+    private final CommissionRecalculationDiffRepository diffRepository;
+    private final CommissionBatchRepository commissionBatchRepository;
+    private final CommissionRepository commissionRepository;
+    private final PropertyInvestmentRepository investmentRepository;
+    private final UserRepository userRepository;
+    private final CommissionService commissionService;
+    private final CommissionRollupService commissionRollupService;
+    private final WalletService walletService;
+    private final IdGeneratorService idGeneratorService;
+    private final HistoryArchiveService historyArchiveService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final int partitionSize;
+
+    public CommissionRecalculationService(
+            CommissionRecalculationRunRepository runRepository,
+            CommissionRecalculationPartitionRepository partitionRepository,
+            CommissionRecalculationDiffRepository diffRepository,
+            CommissionBatchRepository commissionBatchRepository,
+            CommissionRepository commissionRepository,
+            PropertyInvestmentRepository investmentRepository,
+            UserRepository userRepository,
+            CommissionService commissionService,
+            CommissionRollupService commissionRollupService,
+            WalletService walletService,
+            IdGeneratorService idGeneratorService,
+            HistoryArchiveService historyArchiveService,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.recalculation.partition-size:5000}") int partitionSize) {
+        this.runRepository = runRepository;
+        this.partitionRepository = partitionRepository;
+        this.diffRepository = diffRepository;
+        this.commissionBatchRepository = commissionBatchRepository;
+        this.commissionRepository = commissionRepository;
+        this.investmentRepository = investmentRepository;
+        this.userRepository = userRepository;
+        this.commissionService = commissionService;
+        this.commissionRollupService = commissionRollupService;
+        this.walletService = walletService;
+        this.idGeneratorService = idGeneratorService;
+        this.historyArchiveService = historyArchiveService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "commission-recalculation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.partitionSize = Math.max(1, partitionSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs still marked active were interrupted by a restart; keep them resumable
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void pauseInterruptedRuns() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (CommissionRecalculationRun run : runRepository.findByStatusIn(
+                    List.of(STATUS_RUNNING, STATUS_PAUSE_REQUESTED))) {
+                log.warn("Commission recalculation {} was interrupted by a restart, marking it paused", run.getRunId());
+                runRepository.finish(run.getId(), STATUS_PAUSED, "Interrupted by application restart", null);
+            }
+        });
+    }
+
+    /**
+     * Plan the partitions of a new run and start it in the background
+     */
+    public synchronized CommissionRecalculationRunResponse startRecalculation(boolean dryRun) {
+        String requestedBy = SecurityUtil.getCurrentUserMlmId();
+
+        CommissionRecalculationRun run = transactionTemplate.execute(status -> {
+            if (runRepository.existsByStatusIn(List.of(STATUS_RUNNING, STATUS_PAUSE_REQUESTED))) {
+                throw new BadRequestException("A commission recalculation is already running. Pause it or wait for it to finish.");
+            }
+
+            CommissionRecalculationEngine engine = new CommissionRecalculationEngine(userRepository.findSimulationNodes());
+            List<Long> roots = engine.partitionRoots(partitionSize);
+
+            CommissionRecalculationRun newRun = new CommissionRecalculationRun();
+            newRun.setRunId(idGeneratorService.nextRecalculationRunId());
+            newRun.setStatus(STATUS_RUNNING);
+            newRun.setDryRun(dryRun);
+            newRun.setAsOf(LocalDateTime.now());
+            newRun.setHistoryFrom(historyFrom());
+            newRun.setTotalPartitions(roots.size() + 1);
+            newRun.setRequestedBy(requestedBy);
+            CommissionRecalculationRun savedRun = runRepository.save(newRun);
+
+            // Subtrees first, then the users above them
+            List<CommissionRecalculationPartition> partitions = new ArrayList<>(roots.size() + 1);
+            for (int i = 0; i <= roots.size(); i++) {
+                CommissionRecalculationPartition partition = new CommissionRecalculationPartition();
+                partition.setRun(savedRun);
+                partition.setPartitionNo(i);
+                partition.setRootUserId(i < roots.size() ? roots.get(i) : null);
+                partition.setStatus(PARTITION_PENDING);
+                partitions.add(partition);
+            }
+            partitionRepository.saveAll(partitions);
+
+            log.info("Commission recalculation {} planned. Users: {}, Partitions: {}, Dry run: {}",
+                    savedRun.getRunId(), engine.getSize(), partitions.size(), dryRun);
+            return savedRun;
+        });
+
+        executor.submit(() -> execute(run.getId()));
+        return mapToResponse(run);
+    }
+
+    /**
+     * Ask a running recalculation to stop after the partition in progress
+     */
+    public CommissionRecalculationRunResponse pauseRecalculation(String runId) {
+        CommissionRecalculationRun run = getRunEntity(runId);
+        Integer updated = transactionTemplate.execute(status ->
+                runRepository.transitionStatus(run.getId(), STATUS_RUNNING, STATUS_PAUSE_REQUESTED));
+        if (updated == null || updated == 0) {
+            throw new BadRequestException("Commission recalculation " + runId + " is not running");
+        }
+        log.info("Pause requested for commission recalculation {}", runId);
+        return getRecalculation(runId);
+    }
+
+    /**
+     * Continue a paused or failed recalculation from its first pending partition
+     */
+    public synchronized CommissionRecalculationRunResponse resumeRecalculation(String runId) {
+        CommissionRecalculationRun run = getRunEntity(runId);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (runRepository.existsByStatusIn(List.of(STATUS_RUNNING, STATUS_PAUSE_REQUESTED))) {
+                throw new BadRequestException("A commission recalculation is already running");
+            }
+            if (!STATUS_PAUSED.equals(run.getStatus()) && !STATUS_FAILED.equals(run.getStatus())) {
+                throw new BadRequestException("Only a paused or failed recalculation can be resumed");
+            }
+            runRepository.finish(run.getId(), STATUS_RUNNING, null, null);
+        });
+
+        log.info("Resuming commission recalculation {} at partition {} of {}",
+                runId, run.getCompletedPartitions(), run.getTotalPartitions());
+        executor.submit(() -> execute(run.getId()));
+        return getRecalculation(runId);
+    }
+
+    public CommissionRecalculationRunResponse getRecalculation(String runId) {
+        return mapToResponse(getRunEntity(runId));
+    }
+
+    /**
+     * Difference report of a run, in the order it was produced
+     */
+    public PageResponse<CommissionRecalculationDiffResponse> getDifferenceReport(String runId, Pageable pageable) {
+        CommissionRecalculationRun run = getRunEntity(runId);
+        Page<CommissionRecalculationDiff> diffs = diffRepository.findByRunIdOrderById(run.getId(), pageable);
+
+        // Resolve MLM user IDs for the page in one query
+        List<Long> userIds = diffs.getContent().stream()
+                .flatMap(diff -> Stream.of(diff.getUserId(), diff.getFromUserId()))
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Map<Long, String> mlmIds = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, User::getUserId));
+
+        List<CommissionRecalculationDiffResponse> content = diffs.getContent().stream()
+                .map(diff -> CommissionRecalculationDiffResponse.builder()
+                        .userId(mlmIds.get(diff.getUserId()))
+                        .fromUserId(diff.getFromUserId() != null ? mlmIds.get(diff.getFromUserId()) : null)
+                        .commissionType(diff.getCommissionType())
+                        .commissionDate(diff.getCommissionDate())
+                        .existingAmount(diff.getExistingAmount())
+                        .expectedAmount(diff.getExpectedAmount())
+                        .deltaAmount(diff.getDeltaAmount())
+                        .partitionNo(diff.getPartitionNo())
+                        .build())
+                .toList();
+
+        return PageResponse.<CommissionRecalculationDiffResponse>builder()
+                .content(content)
+                .page(diffs.getNumber())
+                .size(diffs.getSize())
+                .totalElements(diffs.getTotalElements())
+                .totalPages(diffs.getTotalPages())
+                .first(diffs.isFirst())
+                .last(diffs.isLast())
+                .build();
+    }
+
+    /**
+     * Work through the pending partitions of a run, checking for a pause request between them
+     */
+    void execute(Long id) {
+        try {
+            CommissionRecalculationRun run = runRepository.findById(id).orElseThrow();
+            long startTime = System.currentTimeMillis();
+
+            CommissionRecalculationEngine engine = new CommissionRecalculationEngine(userRepository.findSimulationNodes());
+            CommissionRecalculationEngine.Plan plan = new CommissionRecalculationEngine.Plan(
+                    CommissionService.DIRECT_REFERRAL_PERCENTAGE,
+                    commissionService.getLevelPercentages(),
+                    CommissionService.DAILY_CAP);
+
+            List<CommissionRecalculationPartition> partitions = partitionRepository.findByRunOrderByPartitionNo(run);
+            List<Long> roots = partitions.stream()
+                    .map(CommissionRecalculationPartition::getRootUserId)
+                    .filter(Objects::nonNull)
+                    .toList();
+
+            for (CommissionRecalculationPartition partition : partitions) {
+                if (PARTITION_COMPLETED.equals(partition.getStatus())) {
+                    continue;
+                }
+
+                String status = runRepository.findById(id).map(CommissionRecalculationRun::getStatus).orElse(null);
+                if (STATUS_PAUSE_REQUESTED.equals(status)) {
+                    transactionTemplate.executeWithoutResult(tx ->
+                            runRepository.transitionStatus(id, STATUS_PAUSE_REQUESTED, STATUS_PAUSED));
+                    log.info("Commission recalculation {} paused before partition {}", run.getRunId(), partition.getPartitionNo());
+                    return;
+                }
+                if (!STATUS_RUNNING.equals(status)) {
+                    return;
+                }
+
+                transactionTemplate.executeWithoutResult(tx -> processPartition(run, partition, engine, roots, plan));
+            }
+
+            transactionTemplate.executeWithoutResult(tx ->
+                    runRepository.finish(id, STATUS_COMPLETED, null, LocalDateTime.now()));
+            log.info("Commission recalculation {} completed in {}ms", run.getRunId(), System.currentTimeMillis() - startTime);
+        } catch (RuntimeException e) {
+            log.error("Commission recalculation {} failed", id, e);
+            transactionTemplate.executeWithoutResult(tx -> runRepository.finish(id, STATUS_FAILED, e.toString(), null));
+        }
+    }
+
+    /**
+     * Replay one partition, write its report and corrections, and checkpoint it - all in the
+     * caller's transaction
+     */
+    private void processPartition(CommissionRecalculationRun run, CommissionRecalculationPartition partition,
+                                  CommissionRecalculationEngine engine, List<Long> roots,
+                                  CommissionRecalculationEngine.Plan plan) {
+        boolean subtree = partition.getRootUserId() != null;
+        int[] earners = engine.earners(partition.getRootUserId(), roots);
+
+        List<Long> earnerIds = new ArrayList<>(earners.length);
+        for (int earner : earners) {
+            earnerIds.add(engine.idOf(earner));
+        }
+        LocalDateTime from = Objects.requireNonNullElse(run.getHistoryFrom(), HISTORY_START);
+        LocalDateTime liveFrom = historyFrom();
+        if (liveFrom != null && liveFrom.isAfter(from)) {
+            // Months this run compares have been archived since it started
+            throw new IllegalStateException("Commission history before " + liveFrom
+                    + " was archived after the run started; start a new run");
+        }
+        List<ReplayInvestment> investments = loadInvestments(engine.investorsOf(earners, subtree), from, run.getAsOf());
+        List<ReplayCommission> commissions = loadCommissions(earnerIds, from, run.getAsOf());
+
+        List<CommissionRecalculationEngine.Difference> differences =
+                engine.replay(earners, investments, commissions, plan);
+
+        Money existingTotal = Money.ZERO;
+        Money expectedTotal = Money.ZERO;
+        List<CommissionRecalculationDiff> report = new ArrayList<>(differences.size());
+        for (CommissionRecalculationEngine.Difference difference : differences) {
+            existingTotal = existingTotal.plus(difference.existing());
+            expectedTotal = expectedTotal.plus(difference.expected());
+            report.add(new CommissionRecalculationDiff(null, run.getId(), partition.getPartitionNo(),
+                    difference.userId(), difference.fromUserId(), difference.commissionType(), difference.day(),
+                    difference.existing().toBigDecimal(), difference.expected().toBigDecimal(),
+                    difference.delta().toBigDecimal()));
+        }
+        commissionBatchRepository.insertRecalculationDiffs(report);
+
+        long written = 0;
+        Money shortfall = Money.ZERO;
+        if (!Boolean.TRUE.equals(run.getDryRun()) && !differences.isEmpty()) {
+            Map<Long, Money> netByUser = new LinkedHashMap<>();
+            written = writeCorrections(run, differences, netByUser);
+            shortfall = adjustWallets(run, netByUser);
+        }
+
+        partition.setStatus(PARTITION_COMPLETED);
+        partition.setEarnerCount(earners.length);
+        partition.setDifferenceCount(differences.size());
+        partition.setCompletedAt(LocalDateTime.now());
+        partitionRepository.save(partition);
+        runRepository.addPartitionProgress(run.getId(), earners.length, differences.size(),
+                existingTotal.toBigDecimal(), expectedTotal.toBigDecimal(), written, shortfall.toBigDecimal());
+
+        log.info("Commission recalculation {} partition {} done. Earners: {}, Investments: {}, Differences: {}",
+                run.getRunId(), partition.getPartitionNo(), earners.length, investments.size(), differences.size());
+    }
+
+    /**
+     * Reverse each recorded amount and write the expected one, dated on the original day so
+     * neither touches today's daily cap; days past the archive horizon go to its first month
+     * instead, see {@link HistoryArchiveService#liveTime}. Adds each earner's net change (expected
+     * minus the amount actually reversed) to netByUser, so the wallet moves with the ledger entries.
+     */
+    private long writeCorrections(CommissionRecalculationRun run, List<CommissionRecalculationEngine.Difference> differences,
+                                  Map<Long, Money> netByUser) {
+        List<Commission> entries = new ArrayList<>();
+        int redated = 0;
+        for (CommissionRecalculationEngine.Difference difference : differences) {
+            if (!Objects.equals(historyArchiveService.liveTime(difference.eventTime()), difference.eventTime())) {
+                redated++;
+            }
+            Money flipped = Money.ZERO;
+            if (!difference.existing().isZero()) {
+                LocalDateTime dayStart = difference.day().atStartOfDay();
+                LocalDateTime dayEnd = dayStart.plusDays(1);
+                flipped = Money.of(commissionBatchRepository.markRecalculatedCommissionsReversed(
+                        difference.userId(), difference.fromUserId(), difference.commissionType(), dayStart,
+                        dayEnd.isAfter(run.getAsOf()) ? run.getAsOf() : dayEnd, run.getRequestedBy()));
+                if (!flipped.equals(difference.existing())) {
+                    log.warn("Commission recalculation {} reversed {} for user id {} {} of {}, replay recorded {}",
+                            run.getRunId(), flipped, difference.userId(), difference.commissionType(),
+                            difference.day(), difference.existing());
+                }
+
+                Commission reversal = newEntry(run, difference);
+                reversal.setStatus("REVERSED");
+                reversal.setAmount(flipped.negate().toBigDecimal());
+                reversal.setCappedAmount(BigDecimal.ZERO);
+                reversal.setDescription(String.format("Reversal of %s commission of %s (recalculation %s)",
+                        difference.commissionType(), difference.day(), run.getRunId()));
+                reversal.setCalculationDetails(String.format(
+                        "{\"recalculationRunId\": \"%s\", \"reversal\": true}", run.getRunId()));
+                entries.add(reversal);
+            }
+            if (!difference.expected().isZero()) {
+                Commission corrected = newEntry(run, difference);
+                corrected.setAmount(difference.expected().toBigDecimal());
+                corrected.setPercentage(difference.percentage());
+                corrected.setInvestmentId(difference.investmentId());
+                corrected.setPropertyId(difference.propertyId());
+                corrected.setCapApplied(difference.capped().isPositive());
+                corrected.setCappedAmount(difference.capped().toBigDecimal());
+                corrected.setDescription(String.format("Recalculated %s commission of %s (recalculation %s)",
+                        difference.commissionType(), difference.day(), run.getRunId()));
+                corrected.setCalculationDetails(String.format(
+                        "{\"recalculationRunId\": \"%s\", \"reversal\": false}", run.getRunId()));
+                entries.add(corrected);
+            }
+            netByUser.merge(difference.userId(), difference.expected().minus(flipped), Money::plus);
+        }
+        if (redated > 0) {
+            log.warn("Commission recalculation {}: {} corrections dated past the archive horizon moved into it",
+                    run.getRunId(), redated);
+        }
+        // Only settled commissions are compared, so reversal entries come off the settled amounts
+        commissionRollupService.saveAll(entries, entry -> true);
+        return entries.size();
+    }
+
+    private Commission newEntry(CommissionRecalculationRun run, CommissionRecalculationEngine.Difference difference) {
+        Commission commission = new Commission();
+        commission.setCommissionId(idGeneratorService.nextCommissionId());
+        commission.setUser(userRepository.getReferenceById(difference.userId()));
+        commission.setFromUser(difference.fromUserId() != null
+                ? userRepository.getReferenceById(difference.fromUserId()) : null);
+        commission.setCommissionType(difference.commissionType());
+        commission.setLevel(difference.level());
+        commission.setStatus("CREDITED");
+        commission.setCapApplied(false);
+        commission.setCreatedAt(historyArchiveService.liveTime(difference.eventTime()));
+        commission.setCreatedBy(run.getRequestedBy());
+        return commission;
+    }
+
+    /**
+     * Apply each earner's net change to their commission wallet.
+     * Returns the part of the reversals the commission balance could not cover.
+     */
+    private Money adjustWallets(CommissionRecalculationRun run, Map<Long, Money> netByUser) {
+        netByUser.values().removeIf(Money::isZero);
+        if (netByUser.isEmpty()) {
+            return Money.ZERO;
+        }
+
+        // Lock wallets in a fixed order so concurrent credits cannot deadlock with the job
+        Map<Long, User> users = userRepository.findAllById(netByUser.keySet()).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        String description = "Commission recalculation adjustment (" + run.getRunId() + ")";
+        Money shortfall = Money.ZERO;
+        for (Long userId : netByUser.keySet().stream().sorted().toList()) {
+            Money net = netByUser.get(userId);
+            User user = users.get(userId);
+            if (net.isPositive()) {
+                walletService.creditWallet(user, net.toBigDecimal(), "COMMISSION", description);
+            } else {
+                Money reversed = Money.of(walletService.reverseCommission(user, net.negate().toBigDecimal(), description));
+                shortfall = shortfall.plus(net.negate().minus(reversed));
+            }
+        }
+        return shortfall;
+    }
+
+    /**
+     * Start of the commissions still in the live partitions, or null when none were archived.
+     * Archived months have no rows to compare against, so replaying them would re-credit every
+     * commission they paid.
+     */
+    private LocalDateTime historyFrom() {
+        LocalDate liveStart = historyArchiveService.getLiveHistoryStart(PartitionArchiveRepository.COMMISSIONS);
+        return liveStart != null ? liveStart.atStartOfDay() : null;
+    }
+
+    private List<ReplayInvestment> loadInvestments(List<Long> investorIds, LocalDateTime from, LocalDateTime asOf) {
+        List<ReplayInvestment> investments = new ArrayList<>();
+        for (int i = 0; i < investorIds.size(); i += QUERY_CHUNK_SIZE) {
+            investments.addAll(investmentRepository.findReplayInvestments(
+                    investorIds.subList(i, Math.min(investorIds.size(), i + QUERY_CHUNK_SIZE)), from, asOf));
+        }
+        investments.sort(Comparator.comparing(ReplayInvestment::getCreatedAt).thenComparing(ReplayInvestment::getId));
+        return investments;
+    }
+
+    private List<ReplayCommission> loadCommissions(List<Long> earnerIds, LocalDateTime from, LocalDateTime asOf) {
+        List<ReplayCommission> commissions = new ArrayList<>();
+        for (int i = 0; i < earnerIds.size(); i += QUERY_CHUNK_SIZE) {
+            commissions.addAll(commissionRepository.findReplayCommissions(
+                    earnerIds.subList(i, Math.min(earnerIds.size(), i + QUERY_CHUNK_SIZE)), from, asOf));
+        }
+        return commissions;
+    }
+
+    private CommissionRecalculationRun getRunEntity(String runId) {
+        return runRepository.findByRunId(runId)
+                .orElseThrow(() -> new ResourceNotFoundException("Commission recalculation not found: " + runId));
+    }
+
+    private CommissionRecalculationRunResponse mapToResponse(CommissionRecalculationRun run) {
+        return CommissionRecalculationRunResponse.builder()
+                .runId(run.getRunId())
+                .status(run.getStatus())
+                .dryRun(run.getDryRun())
+                .asOf(run.getAsOf())
+                .historyFrom(run.getHistoryFrom())
+                .totalPartitions(run.getTotalPartitions())
+                .completedPartitions(run.getCompletedPartitions())
+                .earnersProcessed(run.getEarnersProcessed())
+                .differenceCount(run.getDifferenceCount())
+                .existingAmount(run.getExistingAmount())
+                .expectedAmount(run.getExpectedAmount())
+                .netAdjustment(run.getExpectedAmount().subtract(run.getExistingAmount()))
+                .commissionsWritten(run.getCommissionsWritten())
+                .walletShortfall(run.getWalletShortfall())
+                .lastError(run.getLastError())
+                .requestedBy(run.getRequestedBy())
+                .createdAt(run.getCreatedAt())
+                .updatedAt(run.getUpdatedAt())
+                .completedAt(run.getCompletedAt())
+                .build();
+    }
+}
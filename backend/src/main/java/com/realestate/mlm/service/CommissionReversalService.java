@@ -0,0 +1,251 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.dto.response.CommissionReversalResponse;
+import com.realestate.mlm.model.Commission;
+import com.realestate.mlm.model.PropertyInvestment;
+import com.realestate.mlm.model.Transaction;
+import com.realestate.mlm.repository.CommissionBatchRepository;
+import com.realestate.mlm.repository.CommissionBatchRepository.ReversedCommission;
+import com.realestate.mlm.repository.UserRepository;
+import com.realestate.mlm.repository.WalletBatchRepository;
+import com.realestate.mlm.repository.WalletBatchRepository.CommissionBalance;
+import com.realestate.mlm.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Claws back the commissions paid on an investment when it is exited or cancelled.
+ *
+ * All commissions of the investment are flipped to REVERSED with one statement through the
+ * investment_id index, a negative REVERSED entry per commission is batch inserted (dated on the
+ * original day, like recalculation corrections, so neither the daily cap nor the rollup buckets
+ * shift; days past the archive horizon go to its first month), and the wallet debits are netted per beneficiary and applied with one sorted lock and
+ * one batched update instead of a locked debit per row.
+ *
+ * Commission balances that cannot cover the debit are handled by
+ * app.commission.clawback.negative-balance-policy: CAP debits what is there and reports the
+ * shortfall, ALLOW_NEGATIVE takes the full amount and leaves the balance negative until later
+ * earnings cover it.
+ */
+@Service
+@Slf4j
+public class CommissionReversalService {
+
+    static final String POLICY_CAP = "CAP";
+    static final String POLICY_ALLOW_NEGATIVE = "ALLOW_NEGATIVE";
+
+    private final CommissionBatchRepository commissionBatchRepository;
+    private final CommissionRollupService commissionRollupService;
+    private final WalletBatchRepository walletBatchRepository;
+    private final TransactionRollupService transactionRollupService;
+    private final UserRepository userRepository;
+    private final IdGeneratorService idGeneratorService;
+    private final WalletBalanceCache walletBalanceCache;
+    private final HistoryArchiveService historyArchiveService;
+    private final String negativeBalancePolicy;
+    private final boolean clawbackOnExit;
+
+    public CommissionReversalService(
+            CommissionBatchRepository commissionBatchRepository,
+            CommissionRollupService commissionRollupService,
+            WalletBatchRepository walletBatchRepository,
+            TransactionRollupService transactionRollupService,
+            UserRepository userRepository,
+            IdGeneratorService idGeneratorService,
+            WalletBalanceCache walletBalanceCache,
+            HistoryArchiveService historyArchiveService,
+            @Value("${app.commission.clawback.negative-balance-policy:CAP}") String negativeBalancePolicy,
+            @Value("${app.commission.clawback.on-exit:true}") boolean clawbackOnExit) {
+        this.commissionBatchRepository = commissionBatchRepository;
+        this.commissionRollupService = commissionRollupService;
+        this.walletBatchRepository = walletBatchRepository;
+        this.transactionRollupService = transactionRollupService;
+        this.userRepository = userRepository;
+        this.idGeneratorService = idGeneratorService;
+        this.walletBalanceCache = walletBalanceCache;
+        this.historyArchiveService = historyArchiveService;
+        this.negativeBalancePolicy = negativeBalancePolicy.trim().toUpperCase();
+        if (!POLICY_CAP.equals(this.negativeBalancePolicy) && !POLICY_ALLOW_NEGATIVE.equals(this.negativeBalancePolicy)) {
+            throw new IllegalArgumentException("Invalid clawback negative balance policy: " + negativeBalancePolicy);
+        }
+        this.clawbackOnExit = clawbackOnExit;
+    }
+
+    /**
+     * Reverse the commissions of an investment whose exit was requested, unless clawback on exit
+     * is switched off. Returns null when nothing was attempted.
+     */
+    @Transactional
+    public CommissionReversalResponse reverseForExit(PropertyInvestment investment, String requestedBy) {
+        if (!clawbackOnExit) {
+            return null;
+        }
+        return reverseInvestmentCommissions(investment, "Investment exit", requestedBy);
+    }
+
+    /**
+     * Reverse every commission paid on an investment and debit the beneficiaries' commission
+     * wallets. Safe to call again: commissions already reversed are skipped.
+     */
+    @Transactional
+    public CommissionReversalResponse reverseInvestmentCommissions(PropertyInvestment investment, String reason, String requestedBy) {
+        String investmentId = investment.getInvestmentId();
+        log.info("Reversing commissions of investment: {}, reason: {}", investmentId, reason);
+
+        List<ReversedCommission> reversed = commissionBatchRepository.markInvestmentCommissionsReversed(
+                investmentId, CommissionService.commissionsSince(investment), requestedBy);
+
+        List<Commission> entries = new ArrayList<>(reversed.size());
+        Set<String> settledEntries = new HashSet<>();
+        Map<Long, Money> debitByUser = new TreeMap<>();
+        Money reversedTotal = Money.ZERO;
+        int redated = 0;
+        for (ReversedCommission original : reversed) {
+            Commission entry = reversalEntry(original, investmentId, reason, requestedBy);
+            entries.add(entry);
+            if (!entry.getCreatedAt().equals(original.createdAt())) {
+                redated++;
+            }
+            Money amount = Money.of(original.amount());
+            reversedTotal = reversedTotal.plus(amount);
+            // Only settled commissions reached the wallet
+            if (CommissionRollupService.isSettled(original.previousStatus())) {
+                settledEntries.add(entry.getCommissionId());
+                debitByUser.merge(original.userId(), amount, Money::plus);
+            }
+        }
+        if (redated > 0) {
+            log.warn("Reversal entries of investment {}: {} dated past the archive horizon moved into it",
+                    investmentId, redated);
+        }
+        commissionRollupService.saveAll(entries, entry -> settledEntries.contains(entry.getCommissionId()));
+
+        WalletDebit debited = debitWallets(debitByUser, investmentId, reason);
+
+        investment.setCommissionStatus("REVERSED");
+
+        CommissionReversalResponse response = CommissionReversalResponse.builder()
+                .investmentId(investmentId)
+                .reason(reason)
+                .commissionsReversed(reversed.size())
+                .usersAffected(debitByUser.size())
+                .reversedAmount(reversedTotal.toBigDecimal())
+                .walletDebited(debited.debited().toBigDecimal())
+                .walletShortfall(debited.shortfall().toBigDecimal())
+                .negativeBalancePolicy(negativeBalancePolicy)
+                .build();
+
+        log.info("Reversed {} commissions of investment {}: amount {}, debited {}, shortfall {}",
+                reversed.size(), investmentId, response.getReversedAmount(),
+                response.getWalletDebited(), response.getWalletShortfall());
+        return response;
+    }
+
+    private Commission reversalEntry(ReversedCommission original, String investmentId, String reason, String requestedBy) {
+        Commission entry = new Commission();
+        entry.setCommissionId(idGeneratorService.nextCommissionId());
+        entry.setUser(userRepository.getReferenceById(original.userId()));
+        entry.setFromUser(original.fromUserId() != null ? userRepository.getReferenceById(original.fromUserId()) : null);
+        entry.setCommissionType(original.commissionType());
+        entry.setLevel(original.level());
+        entry.setAmount(original.amount().negate());
+        entry.setPercentage(original.percentage());
+        entry.setBaseAmount(original.baseAmount());
+        entry.setPropertyId(original.propertyId());
+        entry.setInvestmentId(investmentId);
+        entry.setIdempotencyKey("REVERSAL:" + original.commissionId());
+        entry.setDescription(String.format("Reversal of %s commission %s (%s)",
+                original.commissionType(), original.commissionId(), reason));
+        entry.setCalculationDetails(String.format(
+                "{\"reversalOf\": \"%s\", \"previousStatus\": \"%s\"}", original.commissionId(), original.previousStatus()));
+        entry.setStatus("REVERSED");
+        entry.setCapApplied(false);
+        entry.setCappedAmount(null);
+        entry.setCreatedAt(historyArchiveService.liveTime(original.createdAt()));
+        entry.setCreatedBy(requestedBy);
+        return entry;
+    }
+
+    /**
+     * Lock the beneficiaries' wallets in user id order, apply the negative balance policy and write
+     * all balances and transactions in batches.
+     */
+    private WalletDebit debitWallets(Map<Long, Money> debitByUser, String investmentId, String reason) {
+        Money debitedTotal = Money.ZERO;
+        Money shortfall = Money.ZERO;
+        if (debitByUser.isEmpty()) {
+            return new WalletDebit(debitedTotal, shortfall);
+        }
+
+        Map<Long, CommissionBalance> balances = walletBatchRepository.lockCommissionBalances(debitByUser.keySet());
+        Map<Long, BigDecimal> updated = new TreeMap<>();
+        List<Transaction> transactions = new ArrayList<>(balances.size());
+        LocalDateTime now = LocalDateTime.now();
+        String description = "Commission clawback for investment " + investmentId + " (" + reason + ")";
+
+        for (Map.Entry<Long, Money> debit : debitByUser.entrySet()) {
+            CommissionBalance balance = balances.get(debit.getKey());
+            if (balance == null) {
+                log.warn("No wallet for user id {}, commission clawback of {} not applied", debit.getKey(), debit.getValue());
+                shortfall = shortfall.plus(debit.getValue());
+                continue;
+            }
+
+            Money before = Money.of(balance.commissionBalance());
+            Money amount = POLICY_ALLOW_NEGATIVE.equals(negativeBalancePolicy)
+                    ? debit.getValue()
+                    : debit.getValue().min(before.max(Money.ZERO));
+            shortfall = shortfall.plus(debit.getValue().minus(amount));
+            if (!amount.isPositive()) {
+                continue;
+            }
+
+            Money after = before.minus(amount);
+            updated.put(balance.userId(), amount.negate().toBigDecimal());
+            debitedTotal = debitedTotal.plus(amount);
+
+            Transaction transaction = new Transaction();
+            transaction.setTransactionId(idGeneratorService.nextTransactionId());
+            transaction.setUser(userRepository.getReferenceById(balance.userId()));
+            transaction.setType("DEBIT");
+            transaction.setCategory(TransactionRollupService.COMMISSION_REVERSAL_CATEGORY);
+            transaction.setWalletType("COMMISSION");
+            transaction.setAmount(amount.toBigDecimal());
+            transaction.setBalanceBefore(before.toBigDecimal());
+            transaction.setBalanceAfter(after.toBigDecimal());
+            transaction.setDescription(description);
+            transaction.setReferenceId(investmentId);
+            transaction.setReferenceType("INVESTMENT");
+            transaction.setStatus("SUCCESS");
+            transaction.setCreatedAt(now);
+            transactions.add(transaction);
+        }
+
+        walletBatchRepository.addToCommissionBalances(updated);
+        walletBalanceCache.evictAfterCommit(updated.keySet());
+        transactionRollupService.saveAll(transactions);
+
+        if (shortfall.isPositive()) {
+            log.warn("Commission clawback for investment {} short by {} under policy {}",
+                    investmentId, shortfall, negativeBalancePolicy);
+        }
+        return new WalletDebit(debitedTotal, shortfall);
+    }
+
+    /**
+     * Amount taken from the wallets, and the part of the clawback they could not cover
+     */
+    private record WalletDebit(Money debited, Money shortfall) {
+    }
+}
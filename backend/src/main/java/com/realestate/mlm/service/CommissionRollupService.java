@@ -0,0 +1,143 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.model.Commission;
+import com.realestate.mlm.model.CommissionRollup;
+import com.realestate.mlm.repository.CommissionBatchRepository;
+import com.realestate.mlm.repository.CommissionRepository;
+import com.realestate.mlm.repository.CommissionRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the commission_rollups table in step with the commissions table.
+ *
+ * Every commission insert goes through {@link #save(Commission)} or {@link #saveAll(Collection)},
+ * which write the rows and add them to their user/type day, month and lifetime buckets in the
+ * caller's transaction, so summaries never see one without the other and read a few rows per type
+ * however long the history.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CommissionRollupService {
+
+    static final String PERIOD_DAY = "DAY";
+    static final LocalDate LIFETIME_START = LocalDate.of(1970, 1, 1);
+
+    private final CommissionRepository commissionRepository;
+    private final CommissionRollupRepository commissionRollupRepository;
+    private final CommissionBatchRepository commissionBatchRepository;
+
+    /**
+     * Save a new commission and add it to the rollup
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Commission save(Commission commission) {
+        Commission savedCommission = commissionRepository.save(commission);
+        record(savedCommission);
+        return savedCommission;
+    }
+
+    /**
+     * Insert many new commissions with JDBC batches and add them to the rollup, one upsert per
+     * user/type/day touched
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void saveAll(Collection<Commission> commissions) {
+        saveAll(commissions, commission -> isSettled(commission.getStatus()));
+    }
+
+    /**
+     * Same as {@link #saveAll(Collection)}, with the settled/pending split decided by the caller.
+     * Reversal entries are REVERSED themselves but must come off the bucket of the commission they
+     * reverse. They take their amount off and leave the count alone: the count is the number of
+     * commissions paid, and the commission they reverse is already in it.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void saveAll(Collection<Commission> commissions, Predicate<Commission> settled) {
+        if (commissions.isEmpty()) {
+            return;
+        }
+        commissionBatchRepository.insertCommissions(commissions);
+
+        Map<List<Object>, CommissionRollup> buckets = new LinkedHashMap<>();
+        for (Commission commission : commissions) {
+            Long userId = commission.getUser().getId();
+            LocalDate rollupDate = rollupDate(commission);
+            CommissionRollup bucket = buckets.computeIfAbsent(
+                    List.of(userId, commission.getCommissionType(), rollupDate),
+                    key -> CommissionRollup.builder()
+                            .userId(userId)
+                            .commissionType(commission.getCommissionType())
+                            .period(PERIOD_DAY)
+                            .rollupDate(rollupDate)
+                            .totalAmount(BigDecimal.ZERO)
+                            .settledAmount(BigDecimal.ZERO)
+                            .pendingAmount(BigDecimal.ZERO)
+                            .commissionCount(0)
+                            .build());
+
+            BigDecimal amount = valueOrZero(commission.getAmount());
+            bucket.setTotalAmount(bucket.getTotalAmount().add(amount));
+            if (settled.test(commission)) {
+                bucket.setSettledAmount(bucket.getSettledAmount().add(amount));
+            } else {
+                bucket.setPendingAmount(bucket.getPendingAmount().add(amount));
+            }
+            bucket.setCommissionCount(bucket.getCommissionCount() + countOf(commission));
+        }
+        commissionBatchRepository.addToRollups(buckets.values(), LIFETIME_START);
+    }
+
+    private void record(Commission commission) {
+        BigDecimal amount = valueOrZero(commission.getAmount());
+        boolean settled = isSettled(commission.getStatus());
+        LocalDate day = rollupDate(commission);
+        commissionRollupRepository.addToRollup(
+                commission.getUser().getId(),
+                commission.getCommissionType(),
+                day,
+                day.withDayOfMonth(1),
+                LIFETIME_START,
+                amount,
+                settled ? amount : BigDecimal.ZERO,
+                settled ? BigDecimal.ZERO : amount,
+                countOf(commission));
+    }
+
+    /**
+     * A reversal entry (a negative REVERSED row) is not another commission
+     */
+    static int countOf(Commission commission) {
+        boolean reversal = "REVERSED".equals(commission.getStatus()) && valueOrZero(commission.getAmount()).signum() < 0;
+        return reversal ? 0 : 1;
+    }
+
+    /**
+     * Same split as the commission summary: CREDITED and PAID are settled, anything else pending
+     */
+    static boolean isSettled(String status) {
+        return "CREDITED".equals(status) || "PAID".equals(status);
+    }
+
+    private static LocalDate rollupDate(Commission commission) {
+        LocalDateTime createdAt = commission.getCreatedAt() != null ? commission.getCreatedAt() : LocalDateTime.now();
+        return createdAt.toLocalDate();
+    }
+
+    private static BigDecimal valueOrZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
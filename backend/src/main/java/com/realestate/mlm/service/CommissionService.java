@@ -3,11 +3,12 @@ package com.realestate.mlm.service;
 import com.realestate.mlm.dto.response.CommissionResponse;
 import com.realestate.mlm.exception.ResourceNotFoundException;
 import com.realestate.mlm.model.Commission;
-import com.realestate.mlm.model.RankSetting;
+import com.realestate.mlm.model.PropertyInvestment;
 import com.realestate.mlm.model.SystemSetting;
 import com.realestate.mlm.model.User;
+import com.realestate.mlm.repository.CommissionBatchRepository;
 import com.realestate.mlm.repository.CommissionRepository;
-import com.realestate.mlm.repository.RankSettingRepository;
+import com.realestate.mlm.repository.CommissionRollupRepository;
 import com.realestate.mlm.repository.SystemSettingRepository;
 import com.realestate.mlm.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -17,8 +18,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import com.realestate.mlm.util.Money;
 import com.realestate.mlm.util.SecurityUtil;
+import com.realestate.mlm.util.SeekCursor;
 import com.realestate.mlm.dto.response.CommissionSummaryResponse;
+import com.realestate.mlm.dto.response.CursorPageResponse;
 import com.realestate.mlm.dto.response.PageResponse;
 import jakarta.persistence.criteria.Predicate;
 import java.util.stream.Collectors;
@@ -36,58 +40,84 @@ import java.util.*;
 public class CommissionService {
 
     private final CommissionRepository commissionRepository;
+    private final CommissionRollupService commissionRollupService;
+    private final CommissionRollupRepository commissionRollupRepository;
     private final UserRepository userRepository;
     private final SystemSettingRepository systemSettingRepository;
-    private final RankSettingRepository rankSettingRepository;
     private final WalletService walletService;
     private final TreeService treeService;
+    private final IdGeneratorService idGeneratorService;
+    private final CommissionBatchRepository commissionBatchRepository;
 
     // Commission constants
-    private static final BigDecimal DIRECT_REFERRAL_PERCENTAGE = new BigDecimal("2.00"); // 2%
-    private static final BigDecimal PAIRING_BONUS_PER_PAIR = new BigDecimal("100.00"); // Rs 100 per pair
-    private static final BigDecimal BV_PER_PAIR = new BigDecimal("10000.00"); // 10,000 BV = 1 pair
-    private static final BigDecimal DAILY_CAP = new BigDecimal("25000.00"); // Max Rs 25,000 per day
+    static final BigDecimal DIRECT_REFERRAL_PERCENTAGE = new BigDecimal("2.00"); // 2%
+    static final BigDecimal PAIRING_BONUS_PER_PAIR = new BigDecimal("100.00"); // Rs 100 per pair
+    static final BigDecimal BV_PER_PAIR = new BigDecimal("10000.00"); // 10,000 BV = 1 pair
+    static final BigDecimal DAILY_CAP = new BigDecimal("25000.00"); // Max Rs 25,000 per day
     private static final int MAX_LEVEL_COMMISSION_LEVELS = 10;
 
+    // Fixed-point forms of the constants used by the calculations
+    private static final Money.Rate DIRECT_REFERRAL_RATE = Money.Rate.of(DIRECT_REFERRAL_PERCENTAGE);
+    private static final Money PAIRING_BONUS = Money.of(PAIRING_BONUS_PER_PAIR);
+    private static final Money PAIR_VOLUME = Money.of(BV_PER_PAIR);
+    private static final Money DAILY_CAP_AMOUNT = Money.of(DAILY_CAP);
+
     /**
-     * Calculate and credit direct referral bonus
+     * Calculate and credit direct referral bonus.
+     * Idempotent per investment: a retry or replay returns the commission already recorded, and
+     * a concurrent duplicate loses the key claim and returns the winner's commission.
      */
     @Transactional
-    public Commission calculateDirectReferralBonus(User sponsor, User newMember, BigDecimal investment) {
+    public Commission calculateDirectReferralBonus(User sponsor, User newMember, PropertyInvestment sourceInvestment) {
+        BigDecimal investment = sourceInvestment.getInvestmentAmount();
         log.info("Calculating direct referral bonus for sponsor: {}, newMember: {}, investment: {}",
                 sponsor.getUserId(), newMember.getUserId(), investment);
 
+        String idempotencyKey = idempotencyKey(sourceInvestment, sponsor, "DIRECT_REFERRAL");
+        Optional<Commission> recorded = commissionRepository.findByIdempotencyKeyAndCreatedAtGreaterThanEqual(
+                idempotencyKey, commissionsSince(sourceInvestment));
+        if (recorded.isPresent()) {
+            log.info("Direct referral bonus for investment {} already recorded, skipping",
+                    sourceInvestment.getInvestmentId());
+            return recorded.get();
+        }
+
         // Calculate 2% of investment
-        BigDecimal commissionAmount = investment
-                .multiply(DIRECT_REFERRAL_PERCENTAGE)
-                .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
+        Money commissionAmount = Money.of(investment).percent(DIRECT_REFERRAL_RATE);
 
         // Apply daily capping
-        BigDecimal finalAmount = applyDailyCapping(sponsor, commissionAmount);
+        Money finalAmount = applyDailyCapping(sponsor, commissionAmount);
 
         // Create commission record
-        Commission commission = new Commission();
-        commission.setCommissionId(generateCommissionId());
+        Commission commission = claimedCommission(idempotencyKey);
+        if (commission == null) {
+            log.info("Direct referral bonus for investment {} recorded concurrently, skipping",
+                    sourceInvestment.getInvestmentId());
+            return commissionRepository.findByIdempotencyKeyAndCreatedAtGreaterThanEqual(
+                    idempotencyKey, commissionsSince(sourceInvestment)).orElse(null);
+        }
         commission.setUser(sponsor);
         commission.setFromUser(newMember);
         commission.setCommissionType("DIRECT_REFERRAL");
         commission.setLevel(1);
-        commission.setAmount(finalAmount);
+        commission.setAmount(finalAmount.toBigDecimal());
         commission.setPercentage(DIRECT_REFERRAL_PERCENTAGE);
         commission.setBaseAmount(investment);
+        commission.setInvestmentId(sourceInvestment.getInvestmentId());
+        commission.setPropertyId(propertyIdOf(sourceInvestment));
+        commission.setIdempotencyKey(idempotencyKey);
         commission.setDescription(String.format("Direct referral bonus from %s", newMember.getFullName()));
         commission.setStatus("CREDITED");
-        commission.setCapApplied(finalAmount.compareTo(commissionAmount) < 0);
-        commission.setCappedAmount(commissionAmount.subtract(finalAmount));
-        commission.setCreatedAt(LocalDateTime.now());
+        commission.setCapApplied(finalAmount.isLessThan(commissionAmount));
+        commission.setCappedAmount(commissionAmount.minus(finalAmount).toBigDecimal());
 
-        Commission savedCommission = commissionRepository.save(commission);
+        Commission savedCommission = commissionRollupService.save(commission);
 
         // Credit to sponsor's wallet
-        if (finalAmount.compareTo(BigDecimal.ZERO) > 0) {
+        if (finalAmount.isPositive()) {
             walletService.creditWallet(
                     sponsor,
-                    finalAmount,
+                    savedCommission.getAmount(),
                     "COMMISSION",
                     String.format("Direct referral bonus from %s", newMember.getUserId()));
         }
@@ -105,41 +135,41 @@ public class CommissionService {
         log.info("Calculating binary pairing commission for user: {}", user.getUserId());
 
         // Get current BV values
-        BigDecimal leftBV = user.getLeftBv().add(user.getCarryForwardLeft());
-        BigDecimal rightBV = user.getRightBv().add(user.getCarryForwardRight());
+        Money leftBV = Money.of(user.getLeftBv()).plus(Money.of(user.getCarryForwardLeft()));
+        Money rightBV = Money.of(user.getRightBv()).plus(Money.of(user.getCarryForwardRight()));
 
         log.debug("User: {}, Left BV: {}, Right BV: {}", user.getUserId(), leftBV, rightBV);
 
         // Calculate matched BV
-        BigDecimal matchedBV = leftBV.min(rightBV);
+        Money matchedBV = leftBV.min(rightBV);
 
-        if (matchedBV.compareTo(BigDecimal.ZERO) <= 0) {
+        if (!matchedBV.isPositive()) {
             log.info("No BV to match for user: {}", user.getUserId());
             return null;
         }
 
         // Calculate number of pairs
-        BigDecimal pairs = matchedBV.divide(BV_PER_PAIR, 0, RoundingMode.DOWN);
+        long pairs = matchedBV.wholeMultiplesOf(PAIR_VOLUME);
 
-        if (pairs.compareTo(BigDecimal.ZERO) <= 0) {
+        if (pairs <= 0) {
             log.info("No complete pairs for user: {}", user.getUserId());
             return null;
         }
 
         // Calculate commission
-        BigDecimal commissionAmount = pairs.multiply(PAIRING_BONUS_PER_PAIR);
+        Money commissionAmount = PAIRING_BONUS.times(pairs);
 
         // Apply daily capping
-        BigDecimal finalAmount = applyDailyCapping(user, commissionAmount);
+        Money finalAmount = applyDailyCapping(user, commissionAmount);
 
         // Calculate carry forward
-        BigDecimal usedBV = pairs.multiply(BV_PER_PAIR);
-        BigDecimal newCarryForwardLeft = leftBV.subtract(usedBV);
-        BigDecimal newCarryForwardRight = rightBV.subtract(usedBV);
+        Money usedBV = PAIR_VOLUME.times(pairs);
+        Money newCarryForwardLeft = leftBV.minus(usedBV);
+        Money newCarryForwardRight = rightBV.minus(usedBV);
 
         // Update user's carry forward values
-        user.setCarryForwardLeft(newCarryForwardLeft);
-        user.setCarryForwardRight(newCarryForwardRight);
+        user.setCarryForwardLeft(newCarryForwardLeft.toBigDecimal());
+        user.setCarryForwardRight(newCarryForwardRight.toBigDecimal());
 
         // Reset current BV (already moved to carry forward)
         user.setLeftBv(BigDecimal.ZERO);
@@ -149,32 +179,32 @@ public class CommissionService {
 
         // Create commission record
         Commission commission = new Commission();
-        commission.setCommissionId(generateCommissionId());
+        commission.setCommissionId(idGeneratorService.nextCommissionId());
         commission.setUser(user);
         commission.setFromUser(null);
         commission.setCommissionType("BINARY_PAIRING");
         commission.setLevel(0);
-        commission.setAmount(finalAmount);
-        commission.setBaseAmount(usedBV);
-        commission.setBusinessVolume(usedBV);
-        commission.setDescription(String.format("Binary pairing bonus - %s pairs matched", pairs.intValue()));
+        commission.setAmount(finalAmount.toBigDecimal());
+        commission.setBaseAmount(usedBV.toBigDecimal());
+        commission.setBusinessVolume(usedBV.toBigDecimal());
+        commission.setDescription(String.format("Binary pairing bonus - %s pairs matched", pairs));
         commission.setCalculationDetails(String.format(
                 "{\"pairs\": %s, \"leftBV\": %s, \"rightBV\": %s, \"matchedBV\": %s, \"usedBV\": %s, \"carryForwardLeft\": %s, \"carryForwardRight\": %s}",
                 pairs, leftBV, rightBV, matchedBV, usedBV, newCarryForwardLeft, newCarryForwardRight));
         commission.setStatus("CREDITED");
-        commission.setCapApplied(finalAmount.compareTo(commissionAmount) < 0);
-        commission.setCappedAmount(commissionAmount.subtract(finalAmount));
+        commission.setCapApplied(finalAmount.isLessThan(commissionAmount));
+        commission.setCappedAmount(commissionAmount.minus(finalAmount).toBigDecimal());
         commission.setCreatedAt(LocalDateTime.now());
 
-        Commission savedCommission = commissionRepository.save(commission);
+        Commission savedCommission = commissionRollupService.save(commission);
 
         // Credit to user's wallet
-        if (finalAmount.compareTo(BigDecimal.ZERO) > 0) {
+        if (finalAmount.isPositive()) {
             walletService.creditWallet(
                     user,
-                    finalAmount,
+                    savedCommission.getAmount(),
                     "COMMISSION",
-                    String.format("Binary pairing bonus - %s pairs", pairs.intValue()));
+                    String.format("Binary pairing bonus - %s pairs", pairs));
         }
 
         log.info("Binary pairing commission credited: {} to user: {}, pairs: {}",
@@ -184,62 +214,78 @@ public class CommissionService {
     }
 
     /**
-     * Calculate level commission (distributed to upline sponsors)
+     * Calculate level commission (distributed to upline sponsors).
+     * Idempotent per investment: levels already recorded for it are skipped, so a retry only
+     * fills in what is missing, and a level whose key a concurrent attempt claimed first is
+     * skipped as well.
      */
     @Transactional
-    public List<Commission> calculateLevelCommission(User fromUser, BigDecimal amount, int maxLevel) {
+    public List<Commission> calculateLevelCommission(User fromUser, PropertyInvestment investment, int maxLevel) {
+        BigDecimal amount = investment.getInvestmentAmount();
         log.info("Calculating level commission from user: {}, amount: {}, maxLevel: {}",
                 fromUser.getUserId(), amount, maxLevel);
 
         List<Commission> commissions = new ArrayList<>();
+        Map<Long, BigDecimal> credits = new LinkedHashMap<>();
+
+        // One read for every level this investment has already paid
+        Set<String> recordedKeys = new HashSet<>(
+                commissionRepository.findIdempotencyKeysByInvestmentId(
+                        investment.getInvestmentId(), commissionsSince(investment)));
 
         // Get level percentages from system settings or use default
         List<BigDecimal> levelPercentages = getLevelPercentages();
 
+        Money baseAmount = Money.of(amount);
+
         // Traverse up the sponsor chain
         User currentSponsor = fromUser.getSponsor();
         int level = 1;
 
         while (currentSponsor != null && level <= maxLevel && level <= levelPercentages.size()) {
-            // Check if sponsor is active
-            if ("ACTIVE".equals(currentSponsor.getStatus())) {
+            String commissionType = String.format("LEVEL_%d", level);
+            String idempotencyKey = idempotencyKey(investment, currentSponsor, commissionType);
+
+            if (recordedKeys.contains(idempotencyKey)) {
+                // Already paid by an earlier attempt for this investment
+                log.debug("Level {} commission for investment {} already recorded, skipping",
+                        level, investment.getInvestmentId());
+            } else if ("ACTIVE".equals(currentSponsor.getStatus())) { // Check if sponsor is active
                 BigDecimal percentage = levelPercentages.get(level - 1);
-                BigDecimal commissionAmount = amount
-                        .multiply(percentage)
-                        .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
+                Money commissionAmount = baseAmount.percent(Money.Rate.of(percentage));
 
                 // Apply daily capping
-                BigDecimal finalAmount = applyDailyCapping(currentSponsor, commissionAmount);
+                Money finalAmount = applyDailyCapping(currentSponsor, commissionAmount);
 
-                if (finalAmount.compareTo(BigDecimal.ZERO) > 0) {
+                Commission commission = finalAmount.isPositive() ? claimedCommission(idempotencyKey) : null;
+                if (finalAmount.isPositive() && commission == null) {
+                    log.info("Level {} commission for investment {} recorded concurrently, skipping",
+                            level, investment.getInvestmentId());
+                } else if (commission != null) {
                     // Create commission record
-                    Commission commission = new Commission();
-                    commission.setCommissionId(generateCommissionId());
                     commission.setUser(currentSponsor);
                     commission.setFromUser(fromUser);
-                    commission.setCommissionType(String.format("LEVEL_%d", level));
+                    commission.setCommissionType(commissionType);
                     commission.setLevel(level);
-                    commission.setAmount(finalAmount);
+                    commission.setAmount(finalAmount.toBigDecimal());
                     commission.setPercentage(percentage);
                     commission.setBaseAmount(amount);
+                    commission.setInvestmentId(investment.getInvestmentId());
+                    commission.setPropertyId(propertyIdOf(investment));
+                    commission.setIdempotencyKey(idempotencyKey);
                     commission.setDescription(
                             String.format("Level %d commission from %s", level, fromUser.getFullName()));
                     commission.setStatus("CREDITED");
-                    commission.setCapApplied(finalAmount.compareTo(commissionAmount) < 0);
-                    commission.setCappedAmount(commissionAmount.subtract(finalAmount));
-                    commission.setCreatedAt(LocalDateTime.now());
+                    commission.setCapApplied(finalAmount.isLessThan(commissionAmount));
+                    commission.setCappedAmount(commissionAmount.minus(finalAmount).toBigDecimal());
 
-                    Commission savedCommission = commissionRepository.save(commission);
+                    Commission savedCommission = commissionRollupService.save(commission);
                     commissions.add(savedCommission);
 
-                    // Credit to sponsor's wallet
-                    walletService.creditWallet(
-                            currentSponsor,
-                            finalAmount,
-                            "COMMISSION",
-                            String.format("Level %d commission from %s", level, fromUser.getUserId()));
+                    // Credited to the sponsor's wallet with the other levels below
+                    credits.put(currentSponsor.getId(), savedCommission.getAmount());
 
-                    log.info("Level {} commission credited: {} to sponsor: {}",
+                    log.info("Level {} commission recorded: {} for sponsor: {}",
                             level, finalAmount, currentSponsor.getUserId());
                 }
             } else {
@@ -251,33 +297,69 @@ public class CommissionService {
             level++;
         }
 
+        // All upline wallets in one locked batch, in user id order
+        walletService.creditWallets(credits, "COMMISSION",
+                String.format("Level commission from %s (investment %s)", fromUser.getUserId(), investment.getInvestmentId()));
+
         log.info("Level commission calculation completed. Total commissions: {}", commissions.size());
 
         return commissions;
     }
 
+    /**
+     * New commission holding the claim on the idempotency key, or null when a concurrent attempt
+     * claimed it first. Only the id and creation time are set.
+     */
+    private Commission claimedCommission(String idempotencyKey) {
+        Commission commission = new Commission();
+        commission.setCommissionId(idGeneratorService.nextCommissionId());
+        commission.setCreatedAt(LocalDateTime.now());
+        return commissionBatchRepository.claimIdempotencyKey(
+                idempotencyKey, commission.getCommissionId(), commission.getCreatedAt()) ? commission : null;
+    }
+
+    /**
+     * Idempotency key of an investment-driven commission: investment x beneficiary x type
+     */
+    static String idempotencyKey(PropertyInvestment investment, User beneficiary, String commissionType) {
+        return investment.getInvestmentId() + ":" + beneficiary.getId() + ":" + commissionType;
+    }
+
+    /**
+     * No commission of an investment predates the investment's day, so lookups by investment
+     * only need the partitions from that month on
+     */
+    static LocalDateTime commissionsSince(PropertyInvestment investment) {
+        LocalDateTime createdAt = investment.getCreatedAt();
+        return createdAt != null ? createdAt.toLocalDate().atStartOfDay() : LocalDateTime.of(1970, 1, 1, 0, 0);
+    }
+
+    private static String propertyIdOf(PropertyInvestment investment) {
+        return investment.getProperty() != null ? investment.getProperty().getPropertyId() : null;
+    }
+
     /**
      * Apply daily capping to commission
      */
-    private BigDecimal applyDailyCapping(User user, BigDecimal commission) {
+    private Money applyDailyCapping(User user, Money commission) {
         log.debug("Applying daily capping for user: {}, commission: {}", user.getUserId(), commission);
 
         // Get today's total commissions
-        BigDecimal todayTotal = getTodayCommissions(user);
+        Money todayTotal = Money.of(getTodayCommissions(user));
 
         // Check if user has reached daily cap
-        if (todayTotal.compareTo(DAILY_CAP) >= 0) {
+        if (todayTotal.compareTo(DAILY_CAP_AMOUNT) >= 0) {
             log.warn("User {} has reached daily cap. No commission credited.", user.getUserId());
-            return BigDecimal.ZERO;
+            return Money.ZERO;
         }
 
         // Calculate remaining cap
-        BigDecimal remainingCap = DAILY_CAP.subtract(todayTotal);
+        Money remainingCap = DAILY_CAP_AMOUNT.minus(todayTotal);
 
         // Return minimum of commission and remaining cap
-        BigDecimal finalAmount = commission.min(remainingCap);
+        Money finalAmount = commission.min(remainingCap);
 
-        if (finalAmount.compareTo(commission) < 0) {
+        if (finalAmount.isLessThan(commission)) {
             log.info("Commission capped for user: {}. Original: {}, Capped: {}",
                     user.getUserId(), commission, finalAmount);
         }
@@ -313,26 +395,27 @@ public class CommissionService {
         log.info("Crediting commission to user: {}, amount: {}, type: {}", user.getUserId(), amount, type);
 
         // Apply daily capping
-        BigDecimal finalAmount = applyDailyCapping(user, amount);
+        Money requested = Money.of(amount);
+        Money finalAmount = applyDailyCapping(user, requested);
 
         // Create commission record
         Commission commission = new Commission();
-        commission.setCommissionId(generateCommissionId());
+        commission.setCommissionId(idGeneratorService.nextCommissionId());
         commission.setUser(user);
         commission.setCommissionType(type);
         commission.setLevel(0);
-        commission.setAmount(finalAmount);
+        commission.setAmount(finalAmount.toBigDecimal());
         commission.setDescription(description);
         commission.setStatus("CREDITED");
-        commission.setCapApplied(finalAmount.compareTo(amount) < 0);
-        commission.setCappedAmount(amount.subtract(finalAmount));
+        commission.setCapApplied(finalAmount.isLessThan(requested));
+        commission.setCappedAmount(requested.minus(finalAmount).toBigDecimal());
         commission.setCreatedAt(LocalDateTime.now());
 
-        Commission savedCommission = commissionRepository.save(commission);
+        Commission savedCommission = commissionRollupService.save(commission);
 
         // Credit to wallet
-        if (finalAmount.compareTo(BigDecimal.ZERO) > 0) {
-            walletService.creditWallet(user, finalAmount, "COMMISSION", description);
+        if (finalAmount.isPositive()) {
+            walletService.creditWallet(user, savedCommission.getAmount(), "COMMISSION", description);
         }
 
         log.info("Commission credited successfully: {} to user: {}", finalAmount, user.getUserId());
@@ -343,7 +426,7 @@ public class CommissionService {
     /**
      * Get level commission percentages from system settings
      */
-    private List<BigDecimal> getLevelPercentages() {
+    List<BigDecimal> getLevelPercentages() {
         // Try to get from system settings
         Optional<SystemSetting> setting = systemSettingRepository.findBySettingKey("level_commission_percentages");
 
@@ -371,13 +454,6 @@ public class CommissionService {
         );
     }
 
-    /**
-     * Generate unique commission ID
-     */
-    private String generateCommissionId() {
-        return "COM" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-    }
-
     /**
      * Get commission history for user
      */
@@ -418,9 +494,7 @@ public class CommissionService {
         User user = userRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with userId: " + userId));
 
-        Double total = commissionRepository.sumCommissionsByUserAndType(user, null);
-
-        return total != null ? BigDecimal.valueOf(total) : BigDecimal.ZERO;
+        return commissionRollupRepository.sumTotalByUser(user.getId());
     }
 
     /**
@@ -441,15 +515,22 @@ public class CommissionService {
                 "LEVEL_1", "LEVEL_2", "LEVEL_3", "LEVEL_4", "LEVEL_5");
 
         for (String type : types) {
-            Double total = commissionRepository.sumCommissionsByUserAndType(user, type);
-            summary.put(type, total != null ? BigDecimal.valueOf(total) : BigDecimal.ZERO);
+            summary.put(type, BigDecimal.ZERO);
+        }
+
+        // One grouped read of the rollup instead of one SUM per type
+        LocalDate today = LocalDate.now();
+        for (CommissionRollupRepository.TypeTotals totals
+                : commissionRollupRepository.summarizeByType(user.getId(), today.withDayOfMonth(1), today)) {
+            summary.put(totals.getCommissionType(), totals.getTotalAmount());
         }
 
         return summary;
     }
 
     /**
-     * Process binary pairing for all active users (scheduled task)
+     * Process binary pairing for all active users (full sweep).
+     * The scheduled jobs only pair users whose BV changed, see BinaryPairingService.
      * Returns the number of commissions processed
      */
     @Transactional
@@ -474,110 +555,6 @@ public class CommissionService {
         return processed;
     }
 
-    /**
-     * Process rank promotions for all active users
-     * Returns the number of users promoted
-     */
-    @Transactional
-    public int processRankPromotions() {
-        log.info("Processing rank promotions for all active users");
-
-        List<User> activeUsers = userRepository.findByStatus("ACTIVE");
-        List<RankSetting> ranks = rankSettingRepository.findByIsActiveTrueOrderByDisplayOrder();
-
-        int promotedCount = 0;
-
-        for (User user : activeUsers) {
-            try {
-                if (checkAndPromoteUser(user, ranks)) {
-                    promotedCount++;
-                }
-            } catch (Exception e) {
-                log.error("Error processing rank promotion for user: {}", user.getUserId(), e);
-            }
-        }
-
-        log.info("Rank promotion processing completed. Promoted: {} users", promotedCount);
-        return promotedCount;
-    }
-
-    /**
-     * Check if user is eligible for rank promotion and promote if yes
-     */
-    private boolean checkAndPromoteUser(User user, List<RankSetting> ranks) {
-        String currentRankName = user.getRank();
-        RankSetting currentRank = ranks.stream()
-                .filter(r -> r.getRankName().equalsIgnoreCase(currentRankName))
-                .findFirst()
-                .orElse(null);
-
-        int currentOrder = currentRank != null ? currentRank.getDisplayOrder() : 0;
-
-        // Check next ranks
-        for (RankSetting rank : ranks) {
-            if (rank.getDisplayOrder() > currentOrder) {
-                // Check eligibility
-                boolean eligible = true;
-
-                // 1. Check direct referrals
-                if (rank.getRequiredDirectReferrals() > 0) {
-                    long directReferrals = userRepository.countBySponsorId(user.getUserId());
-                    if (directReferrals < rank.getRequiredDirectReferrals()) {
-                        eligible = false;
-                    }
-                }
-
-                // 2. Check personal investment
-                if (eligible && rank.getRequiredPersonalInvestment().compareTo(BigDecimal.ZERO) > 0) {
-                    if (user.getTotalInvestment().compareTo(rank.getRequiredPersonalInvestment()) < 0) {
-                        eligible = false;
-                    }
-                }
-
-                // 3. Check team investment (Team BV)
-                if (eligible && rank.getRequiredTeamInvestment().compareTo(BigDecimal.ZERO) > 0) {
-                    if (user.getTeamBv().compareTo(rank.getRequiredTeamInvestment()) < 0) {
-                        eligible = false;
-                    }
-                }
-
-                if (eligible) {
-                    // Promote user
-                    log.info("Promoting user {} from {} to {}", user.getUserId(), currentRankName, rank.getRankName());
-
-                    user.setRank(rank.getRankName());
-                    user.setRankAchievedDate(LocalDateTime.now());
-                    userRepository.save(user);
-
-                    // Credit one-time bonus if applicable
-                    if (rank.getOneTimeBonus() != null && rank.getOneTimeBonus().compareTo(BigDecimal.ZERO) > 0) {
-                        walletService.creditWallet(
-                                user,
-                                rank.getOneTimeBonus(),
-                                "RANK_BONUS",
-                                "Rank achievement bonus for " + rank.getRankName());
-
-                        // Create commission record for reporting
-                        Commission commission = new Commission();
-                        commission.setCommissionId(generateCommissionId());
-                        commission.setUser(user);
-                        commission.setCommissionType("RANK_BONUS");
-                        commission.setAmount(rank.getOneTimeBonus());
-                        commission.setDescription("Rank achievement bonus for " + rank.getRankName());
-                        commission.setStatus("CREDITED");
-                        commission.setCreatedAt(LocalDateTime.now());
-                        commissionRepository.save(commission);
-                    }
-
-                    return true; // Promoted to next level, stop checking higher levels for now (one promotion
-                                 // per run)
-                }
-            }
-        }
-
-        return false;
-    }
-
     /**
      * Map Commission to CommissionResponse
      */
@@ -669,6 +646,21 @@ public class CommissionService {
                 .build();
     }
 
+    /**
+     * Keyset page of the current user's commissions, newest first, without a count query
+     */
+    public CursorPageResponse<CommissionResponse> getCommissionHistoryByCursor(String cursor, Integer size, String type) {
+        Long userId = SecurityUtil.getCurrentUserId();
+        SeekCursor position = SeekCursor.decode(cursor);
+
+        List<Commission> commissions = commissionRepository.findPageBefore(
+                userId, type != null && !type.isEmpty() ? type : null,
+                position.createdAt(), position.id(), SeekCursor.limit(size));
+
+        return SeekCursor.page(commissions, size, Commission::getCreatedAt, Commission::getId,
+                this::mapToCommissionResponse);
+    }
+
     /**
      * Get commission summary for current user
      */
@@ -679,64 +671,39 @@ public class CommissionService {
         User user = userRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with userId: " + userId));
 
-        // Get all commissions for user
-        List<Commission> allCommissions = commissionRepository.findByUser(user, Pageable.unpaged()).getContent();
+        // Per-type totals come from the rollup: a few rows per type regardless of history size
+        LocalDate today = LocalDate.now();
+        List<CommissionRollupRepository.TypeTotals> typeTotals =
+                commissionRollupRepository.summarizeByType(user.getId(), today.withDayOfMonth(1), today);
 
         BigDecimal totalEarnings = BigDecimal.ZERO;
         BigDecimal pendingCommissions = BigDecimal.ZERO;
         BigDecimal paidCommissions = BigDecimal.ZERO;
-
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime startOfMonth = now.withDayOfMonth(1).with(LocalTime.MIN);
-        LocalDateTime startOfDay = now.with(LocalTime.MIN);
-
         BigDecimal thisMonthEarnings = BigDecimal.ZERO;
         BigDecimal todayEarnings = BigDecimal.ZERO;
+        long totalCommissionCount = 0;
 
         // Calculate totals
-        for (Commission c : allCommissions) {
-            totalEarnings = totalEarnings.add(c.getAmount());
-
-            if ("CREDITED".equals(c.getStatus()) || "PAID".equals(c.getStatus())) {
-                paidCommissions = paidCommissions.add(c.getAmount());
-            } else {
-                pendingCommissions = pendingCommissions.add(c.getAmount());
-            }
-
-            if (c.getCreatedAt().isAfter(startOfMonth)) {
-                thisMonthEarnings = thisMonthEarnings.add(c.getAmount());
-            }
-
-            if (c.getCreatedAt().isAfter(startOfDay)) {
-                todayEarnings = todayEarnings.add(c.getAmount());
-            }
+        for (CommissionRollupRepository.TypeTotals totals : typeTotals) {
+            totalEarnings = totalEarnings.add(totals.getTotalAmount());
+            paidCommissions = paidCommissions.add(totals.getSettledAmount());
+            pendingCommissions = pendingCommissions.add(totals.getPendingAmount());
+            thisMonthEarnings = thisMonthEarnings.add(totals.getMonthAmount());
+            todayEarnings = todayEarnings.add(totals.getTodayAmount());
+            totalCommissionCount += totals.getCommissionCount();
         }
 
-        // Group by type
-        Map<String, List<Commission>> byTypeMap = allCommissions.stream()
-                .collect(Collectors.groupingBy(Commission::getCommissionType));
-
         List<CommissionSummaryResponse.CommissionByType> byTypeList = new ArrayList<>();
 
-        for (Map.Entry<String, List<Commission>> entry : byTypeMap.entrySet()) {
-            String type = entry.getKey();
-            List<Commission> typeCommissions = entry.getValue();
-
-            BigDecimal typeTotal = typeCommissions.stream()
-                    .map(Commission::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            BigDecimal typeMonth = typeCommissions.stream()
-                    .filter(c -> c.getCreatedAt().isAfter(startOfMonth))
-                    .map(Commission::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+        for (CommissionRollupRepository.TypeTotals totals : typeTotals) {
+            BigDecimal typeTotal = totals.getTotalAmount();
 
             byTypeList.add(CommissionSummaryResponse.CommissionByType.builder()
-                    .type(type)
-                    .typeName(type) // You might want to format this
+                    .type(totals.getCommissionType())
+                    .typeName(totals.getCommissionType()) // You might want to format this
                     .totalEarned(typeTotal)
-                    .thisMonth(typeMonth)
-                    .count(typeCommissions.size())
+                    .thisMonth(totals.getMonthAmount())
+                    .count(totals.getCommissionCount().intValue())
                     .percentage(totalEarnings.compareTo(BigDecimal.ZERO) > 0
                             ? typeTotal.divide(totalEarnings, 4, RoundingMode.HALF_UP).multiply(new BigDecimal("100"))
                             : BigDecimal.ZERO)
@@ -749,7 +716,7 @@ public class CommissionService {
                 .todayEarnings(todayEarnings)
                 .pendingCommissions(pendingCommissions)
                 .paidCommissions(paidCommissions)
-                .totalCommissionCount(allCommissions.size())
+                .totalCommissionCount((int) totalCommissionCount)
                 .byType(byTypeList)
                 .build();
     }
@@ -0,0 +1,692 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.model.RankSetting;
+import com.realestate.mlm.repository.PropertyInvestmentRepository.SimulationInvestment;
+import com.realestate.mlm.repository.UserRepository.SimulationNode;
+import com.realestate.mlm.util.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * In-memory replay engine behind {@link CompensationSimulationService}.
+ *
+ * The tree is renumbered in placement-tree preorder so every subtree is a contiguous index
+ * range. A replay runs in two fork-join phases:
+ * <ol>
+ *   <li>investment-driven credits (direct referral and level commissions) are generated in
+ *   parallel over chronological slices of the history and grouped per earner;</li>
+ *   <li>the range is then replayed day by day, each day in parallel over preorder ranges:
+ *   binary pairing with carry forward at 2 AM, rank promotions at 3 AM, then that day's
+ *   investment credits, all through the shared daily cap exactly as the live services apply it.
+ *   Each earner's running volumes and rank are carried from day to day in arrays.</li>
+ * </ol>
+ * A day's investments are summed into prefix sums over preorder positions once, so the volume
+ * any subtree brought in that day is one subtraction. A replay therefore costs
+ * O(users x days + investments), however deep the tree, instead of rescanning every earner's
+ * downline investments.
+ * Amounts are held in paise as longs. Nothing here touches the database.
+ */
+class CompensationSimulationEngine {
+
+    static final int MAX_LEVELS = 10;
+    static final int TYPE_DIRECT = 0;
+    static final int TYPE_BINARY = MAX_LEVELS + 1;
+    static final int TYPE_RANK = MAX_LEVELS + 2;
+    static final int TYPE_COUNT = MAX_LEVELS + 3;
+
+    private static final int NODE_SLICE = 256;
+    private static final int INVESTMENT_SLICE = 4096;
+
+    private static final int BUCKET_SHIFT = 48;
+    private static final int TYPE_SHIFT = 40;
+    private static final long AMOUNT_MASK = (1L << TYPE_SHIFT) - 1;
+    private static final long TYPE_MASK = (1L << (BUCKET_SHIFT - TYPE_SHIFT)) - 1;
+
+    /**
+     * Compensation plan reduced to the numbers the replay needs
+     */
+    static final class Plan {
+        final long directPercentMicros;
+        final long[] levelPercentMicros;
+        final long dailyCapPaise;
+        final long pairingBonusPaise;
+        final long bvPerPairPaise;
+        final int[] rankDirectReferrals;
+        final int[] rankActiveLegs;
+        final long[] rankPersonalPaise;
+        final long[] rankTeamPaise;
+        final long[] rankBonusPaise;
+
+        /**
+         * @param ranks active ranks in display order
+         */
+        Plan(BigDecimal directPercent, List<BigDecimal> levelPercentages, BigDecimal dailyCap,
+             BigDecimal pairingBonus, BigDecimal bvPerPair, List<RankSetting> ranks) {
+            this.directPercentMicros = micros(directPercent);
+            int levels = Math.min(MAX_LEVELS, levelPercentages.size());
+            this.levelPercentMicros = new long[levels];
+            for (int i = 0; i < levels; i++) {
+                levelPercentMicros[i] = micros(levelPercentages.get(i));
+            }
+            this.dailyCapPaise = paise(dailyCap);
+            this.pairingBonusPaise = paise(pairingBonus);
+            this.bvPerPairPaise = Math.max(1, paise(bvPerPair));
+
+            int count = ranks.size();
+            this.rankDirectReferrals = new int[count];
+            this.rankActiveLegs = new int[count];
+            this.rankPersonalPaise = new long[count];
+            this.rankTeamPaise = new long[count];
+            this.rankBonusPaise = new long[count];
+            for (int i = 0; i < count; i++) {
+                RankSetting rank = ranks.get(i);
+                rankDirectReferrals[i] = rank.getRequiredDirectReferrals() != null ? rank.getRequiredDirectReferrals() : 0;
+                rankActiveLegs[i] = rank.getRequiredActiveLegs() != null ? rank.getRequiredActiveLegs() : 0;
+                rankPersonalPaise[i] = paise(rank.getRequiredPersonalInvestment());
+                rankTeamPaise[i] = paise(rank.getRequiredTeamInvestment());
+                rankBonusPaise[i] = paise(rank.getOneTimeBonus());
+            }
+        }
+    }
+
+    /**
+     * Totals produced by one replay, in paise
+     */
+    static final class Result {
+        final long[] byType = new long[TYPE_COUNT];
+        final long[] byRank;
+        long capped;
+
+        Result(int rankKeys) {
+            this.byRank = new long[rankKeys];
+        }
+
+        long total() {
+            return Arrays.stream(byType).sum();
+        }
+
+        Result merge(Result other) {
+            for (int i = 0; i < byType.length; i++) {
+                byType[i] += other.byType[i];
+            }
+            for (int i = 0; i < byRank.length; i++) {
+                byRank[i] += other.byRank[i];
+            }
+            capped += other.capped;
+            return this;
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    // Tree, indexed by preorder position
+    private final int size;
+    private final int[] subtreeEnd;
+    private final int[] sponsor;
+    private final int[] leg;
+    private final boolean[] active;
+    private final int[] activeLegs;
+    private final int[] rankKey;
+    private final int[][] sponsoredJoinBuckets;
+    private final List<String> rankKeys;
+
+    // Investments, sorted by investor preorder position then booking time
+    private final int[] investor;
+    private final int[] investmentBucket;
+    private final long[] investmentPaise;
+    private final long[] bvPaise;
+    private final int[] chronological;
+    private final int replayedInvestments;
+
+    // Investment slots grouped by day bucket: byDay[dayOffset[b] .. dayOffset[b + 1]) is bucket b
+    private final int[] byDay;
+    private final int[] dayOffset;
+
+    /**
+     * Day buckets: 0 holds everything before fromDate, bucket k + 1 is day k of the range
+     */
+    private final int days;
+
+    CompensationSimulationEngine(ForkJoinPool pool, List<SimulationNode> nodes,
+                                 List<SimulationInvestment> investments, LocalDate fromDate, LocalDate toDate) {
+        this.pool = pool;
+        this.days = (int) ChronoUnit.DAYS.between(fromDate, toDate) + 1;
+        this.size = nodes.size();
+
+        // Index snapshot rows and placement children
+        Map<Long, Integer> indexById = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            indexById.put(nodes.get(i).getId(), i);
+        }
+        int[] parentOf = new int[size];
+        int[] childCount = new int[size];
+        for (int i = 0; i < size; i++) {
+            Integer parent = lookup(indexById, nodes.get(i).getPlacementId());
+            parentOf[i] = parent != null && parent != i ? parent : -1;
+            if (parentOf[i] >= 0) {
+                childCount[parentOf[i]]++;
+            }
+        }
+        int[] childStart = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            childStart[i + 1] = childStart[i] + childCount[i];
+        }
+        int[] children = new int[childStart[size]];
+        int[] fill = Arrays.copyOf(childStart, size);
+        for (int i = 0; i < size; i++) {
+            if (parentOf[i] >= 0) {
+                children[fill[parentOf[i]]++] = i;
+            }
+        }
+
+        // Preorder numbering; nodes caught in a placement cycle become roots of their own
+        int[] preorder = new int[size];
+        Arrays.fill(preorder, -1);
+        this.subtreeEnd = new int[size];
+        int[] stack = new int[size];
+        int next = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int root = 0; root < size; root++) {
+                if (preorder[root] >= 0 || (pass == 0 && parentOf[root] >= 0)) {
+                    continue;
+                }
+                next = number(root, children, childStart, preorder, stack, next);
+            }
+        }
+
+        this.sponsor = new int[size];
+        this.leg = new int[size];
+        this.active = new boolean[size];
+        this.activeLegs = new int[size];
+        this.rankKey = new int[size];
+        this.rankKeys = new ArrayList<>();
+        Map<String, Integer> rankKeyIndex = new HashMap<>();
+        List<List<Integer>> sponsored = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sponsored.add(null);
+        }
+
+        for (int i = 0; i < size; i++) {
+            SimulationNode node = nodes.get(i);
+            int position = preorder[i];
+            Integer sponsorIndex = lookup(indexById, node.getSponsorId());
+            sponsor[position] = sponsorIndex != null && sponsorIndex != i ? preorder[sponsorIndex] : -1;
+            leg[position] = "LEFT".equals(node.getPlacement()) ? 0 : "RIGHT".equals(node.getPlacement()) ? 1 : -1;
+            active[position] = "ACTIVE".equals(node.getStatus());
+            String rank = node.getRank() != null ? node.getRank() : "UNRANKED";
+            rankKey[position] = rankKeyIndex.computeIfAbsent(rank, key -> {
+                rankKeys.add(key);
+                return rankKeys.size() - 1;
+            });
+            if (sponsor[position] >= 0) {
+                if (sponsored.get(sponsor[position]) == null) {
+                    sponsored.set(sponsor[position], new ArrayList<>());
+                }
+                sponsored.get(sponsor[position]).add(bucketOf(fromDate, node.getCreatedAt() != null
+                        ? node.getCreatedAt().toLocalDate() : fromDate));
+            }
+        }
+
+        this.sponsoredJoinBuckets = new int[size][];
+        for (int position = 0; position < size; position++) {
+            List<Integer> joins = sponsored.get(position);
+            sponsoredJoinBuckets[position] = joins == null ? new int[0]
+                    : joins.stream().mapToInt(Integer::intValue).sorted().toArray();
+
+            // Distinct binary legs headed by an active member
+            int legsMask = 0;
+            for (int child = position + 1; child < subtreeEnd[position]; child = subtreeEnd[child]) {
+                if (active[child] && leg[child] >= 0) {
+                    legsMask |= 1 << leg[child];
+                }
+            }
+            activeLegs[position] = Integer.bitCount(legsMask);
+        }
+
+        // Investments: stable sort by investor preorder keeps each investor's history chronological
+        int count = 0;
+        int[] investorOf = new int[investments.size()];
+        for (int i = 0; i < investments.size(); i++) {
+            Integer index = lookup(indexById, investments.get(i).getUserId());
+            investorOf[i] = index != null ? preorder[index] : -1;
+            if (investorOf[i] >= 0) {
+                count++;
+            }
+        }
+        int[] offsets = new int[size + 1];
+        for (int i = 0; i < investments.size(); i++) {
+            if (investorOf[i] >= 0) {
+                offsets[investorOf[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        this.investor = new int[count];
+        this.investmentBucket = new int[count];
+        this.investmentPaise = new long[count];
+        this.bvPaise = new long[count];
+        this.chronological = new int[count];
+        int[] cursor = Arrays.copyOf(offsets, size);
+        int replayed = 0;
+        int order = 0;
+        for (int i = 0; i < investments.size(); i++) {
+            if (investorOf[i] < 0) {
+                continue;
+            }
+            SimulationInvestment investment = investments.get(i);
+            int slot = cursor[investorOf[i]]++;
+            investor[slot] = investorOf[i];
+            investmentBucket[slot] = bucketOf(fromDate, investment.getCreatedAt().toLocalDate());
+            investmentPaise[slot] = paise(investment.getInvestmentAmount());
+            bvPaise[slot] = paise(investment.getBvAllocated());
+            chronological[order++] = slot;
+            if (investmentBucket[slot] > 0) {
+                replayed++;
+            }
+        }
+        this.replayedInvestments = replayed;
+
+        this.dayOffset = new int[days + 3];
+        for (int slot = 0; slot < count; slot++) {
+            dayOffset[investmentBucket[slot] + 1]++;
+        }
+        for (int bucket = 0; bucket < days + 2; bucket++) {
+            dayOffset[bucket + 1] += dayOffset[bucket];
+        }
+        this.byDay = new int[count];
+        int[] dayCursor = Arrays.copyOf(dayOffset, days + 2);
+        for (int slot = 0; slot < count; slot++) {
+            byDay[dayCursor[investmentBucket[slot]]++] = slot;
+        }
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    int getReplayedInvestments() {
+        return replayedInvestments;
+    }
+
+    List<String> getRankKeys() {
+        return rankKeys;
+    }
+
+    /**
+     * Replay the whole history against one plan
+     */
+    Result replay(Plan plan) {
+        Map<Integer, LongList> credits = pool.invoke(new InvestmentCreditTask(plan, 0, chronological.length));
+        long[][] creditsByEarner = new long[size][];
+        credits.forEach((earner, list) -> creditsByEarner[earner] = list.toArray());
+
+        EarnerState state = new EarnerState(size);
+        DayInflow inflow = new DayInflow(size);
+        Result result = new Result(rankKeys.size());
+        for (int day = 0; day < days; day++) {
+            inflow.load(day);
+            result.merge(pool.invoke(new EarnerDayTask(plan, creditsByEarner, state, inflow, day, 0, size)));
+        }
+        return result;
+    }
+
+    /**
+     * Running state of every earner between days, indexed by preorder position
+     */
+    private static final class EarnerState {
+        final int[] creditIndex;
+        final int[] joinIndex;
+        final int[] currentRank;
+        final long[] teamVolume;
+        final long[] personalInvestment;
+        final long[] leftVolume;
+        final long[] rightVolume;
+
+        EarnerState(int size) {
+            this.creditIndex = new int[size];
+            this.joinIndex = new int[size];
+            this.currentRank = new int[size];
+            Arrays.fill(currentRank, -1);
+            this.teamVolume = new long[size];
+            this.personalInvestment = new long[size];
+            this.leftVolume = new long[size];
+            this.rightVolume = new long[size];
+        }
+    }
+
+    /**
+     * One day's investments as prefix sums over preorder positions: bv[p] and amount[p] sum the
+     * investments of positions before p, so any subtree's inflow is a difference of two entries
+     */
+    private final class DayInflow {
+        final long[] bv;
+        final long[] amount;
+        boolean empty;
+
+        DayInflow(int size) {
+            this.bv = new long[size + 1];
+            this.amount = new long[size + 1];
+        }
+
+        void load(int bucket) {
+            empty = dayOffset[bucket] == dayOffset[bucket + 1];
+            if (empty) {
+                return;
+            }
+            Arrays.fill(bv, 0);
+            Arrays.fill(amount, 0);
+            for (int i = dayOffset[bucket]; i < dayOffset[bucket + 1]; i++) {
+                int slot = byDay[i];
+                bv[investor[slot] + 1] += bvPaise[slot];
+                amount[investor[slot] + 1] += investmentPaise[slot];
+            }
+            for (int position = 0; position < size; position++) {
+                bv[position + 1] += bv[position];
+                amount[position + 1] += amount[position];
+            }
+        }
+
+        /**
+         * Volume the investors in preorder positions [from, to) brought in
+         */
+        long bv(int from, int to) {
+            return empty ? 0 : bv[to] - bv[from];
+        }
+
+        long amount(int from, int to) {
+            return empty ? 0 : amount[to] - amount[from];
+        }
+    }
+
+    /**
+     * Phase 1: uncapped direct referral and level credits, grouped per earner in booking order
+     */
+    private final class InvestmentCreditTask extends RecursiveTask<Map<Integer, LongList>> {
+        private final Plan plan;
+        private final int from;
+        private final int to;
+
+        InvestmentCreditTask(Plan plan, int from, int to) {
+            this.plan = plan;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<Integer, LongList> compute() {
+            if (to - from > INVESTMENT_SLICE) {
+                int middle = (from + to) >>> 1;
+                InvestmentCreditTask later = new InvestmentCreditTask(plan, middle, to);
+                later.fork();
+                Map<Integer, LongList> earlier = new InvestmentCreditTask(plan, from, middle).compute();
+                // Appending the later slice keeps each earner's credits in booking order
+                later.join().forEach((earner, list) -> earlier.merge(earner, list, LongList::append));
+                return earlier;
+            }
+
+            Map<Integer, LongList> credits = new HashMap<>();
+            for (int i = from; i < to; i++) {
+                int slot = chronological[i];
+                int bucket = investmentBucket[slot];
+                if (bucket == 0) {
+                    continue; // before the simulated range - contributes volume only
+                }
+                long amount = investmentPaise[slot];
+                int upline = sponsor[investor[slot]];
+
+                // Direct referral bonus to the sponsor
+                if (upline >= 0) {
+                    addCredit(credits, upline, bucket, TYPE_DIRECT, percentOf(amount, plan.directPercentMicros));
+                }
+
+                // Level commission to active upline sponsors
+                for (int level = 1; upline >= 0 && level <= plan.levelPercentMicros.length; level++) {
+                    if (active[upline]) {
+                        addCredit(credits, upline, bucket, level, percentOf(amount, plan.levelPercentMicros[level - 1]));
+                    }
+                    upline = sponsor[upline];
+                }
+            }
+            return credits;
+        }
+
+        private void addCredit(Map<Integer, LongList> credits, int earner, int bucket, int type, long amount) {
+            if (amount > 0) {
+                credits.computeIfAbsent(earner, key -> new LongList())
+                        .add(((long) bucket << BUCKET_SHIFT) | ((long) type << TYPE_SHIFT) | Math.min(amount, AMOUNT_MASK));
+            }
+        }
+    }
+
+    /**
+     * Phase 2: one day of the replay for every earner in a preorder range
+     */
+    private final class EarnerDayTask extends RecursiveTask<Result> {
+        private final Plan plan;
+        private final long[][] creditsByEarner;
+        private final EarnerState state;
+        private final DayInflow inflow;
+        private final int day;
+        private final int from;
+        private final int to;
+
+        EarnerDayTask(Plan plan, long[][] creditsByEarner, EarnerState state, DayInflow inflow,
+                      int day, int from, int to) {
+            this.plan = plan;
+            this.creditsByEarner = creditsByEarner;
+            this.state = state;
+            this.inflow = inflow;
+            this.day = day;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from > NODE_SLICE) {
+                int middle = (from + to) >>> 1;
+                EarnerDayTask right = new EarnerDayTask(plan, creditsByEarner, state, inflow, day, middle, to);
+                right.fork();
+                Result left = new EarnerDayTask(plan, creditsByEarner, state, inflow, day, from, middle).compute();
+                return left.merge(right.join());
+            }
+
+            Result result = new Result(rankKeys.size());
+            for (int node = from; node < to; node++) {
+                replayDay(node, result);
+            }
+            return result;
+        }
+
+        private void replayDay(int node, Result result) {
+            // State as of the end of the previous day (bucket 0 is everything before the range)
+            long teamInflow = inflow.bv(node + 1, subtreeEnd[node]);
+            long personalInflow = inflow.amount(node, node + 1);
+            boolean changed = day == 0 || teamInflow != 0 || personalInflow != 0;
+            state.teamVolume[node] += teamInflow;
+            state.personalInvestment[node] += personalInflow;
+            int[] joins = sponsoredJoinBuckets[node];
+            while (state.joinIndex[node] < joins.length && joins[state.joinIndex[node]] <= day) {
+                state.joinIndex[node]++;
+                changed = true;
+            }
+            long creditedToday = 0;
+
+            // 2 AM: binary pairing on the previous day's volume; earlier volume is assumed already paired
+            if (day > 0 && active[node]) {
+                if (teamInflow != 0) {
+                    for (int child = node + 1; child < subtreeEnd[node]; child = subtreeEnd[child]) {
+                        if (leg[child] == 0) {
+                            state.leftVolume[node] += inflow.bv(child, subtreeEnd[child]);
+                        } else if (leg[child] == 1) {
+                            state.rightVolume[node] += inflow.bv(child, subtreeEnd[child]);
+                        }
+                    }
+                }
+                long pairs = Math.min(state.leftVolume[node], state.rightVolume[node]) / plan.bvPerPairPaise;
+                if (pairs > 0) {
+                    state.leftVolume[node] -= pairs * plan.bvPerPairPaise;
+                    state.rightVolume[node] -= pairs * plan.bvPerPairPaise;
+                    creditedToday = credit(result, node, TYPE_BINARY, pairs * plan.pairingBonusPaise, creditedToday);
+                }
+            }
+
+            // 3 AM: rank promotion, straight to the highest rank qualified for
+            int currentRank = state.currentRank[node];
+            if (changed && active[node]) {
+                int joinIndex = state.joinIndex[node];
+                long personalInvestment = state.personalInvestment[node];
+                long teamVolume = state.teamVolume[node];
+                int newRank = currentRank;
+                for (int rank = plan.rankBonusPaise.length - 1; rank > currentRank; rank--) {
+                    if (qualifies(plan, rank, joinIndex, node, personalInvestment, teamVolume)) {
+                        newRank = rank;
+                        break;
+                    }
+                }
+                if (newRank > currentRank) {
+                    // Ranks held before the range started were awarded before it, so no bonus on day 0
+                    for (int rank = currentRank + 1; day > 0 && rank <= newRank; rank++) {
+                        if (plan.rankBonusPaise[rank] > 0
+                                && qualifies(plan, rank, joinIndex, node, personalInvestment, teamVolume)) {
+                            // Rank bonuses are not capped but count towards the day's total
+                            result.byType[TYPE_RANK] += plan.rankBonusPaise[rank];
+                            result.byRank[rankKey[node]] += plan.rankBonusPaise[rank];
+                            creditedToday += plan.rankBonusPaise[rank];
+                        }
+                    }
+                    state.currentRank[node] = newRank;
+                }
+            }
+
+            // Investment-driven credits booked during the day
+            long[] credits = creditsByEarner[node];
+            int creditIndex = state.creditIndex[node];
+            while (credits != null && creditIndex < credits.length
+                    && (int) (credits[creditIndex] >>> BUCKET_SHIFT) == day + 1) {
+                long packed = credits[creditIndex++];
+                creditedToday = credit(result, node, (int) ((packed >>> TYPE_SHIFT) & TYPE_MASK),
+                        packed & AMOUNT_MASK, creditedToday);
+            }
+            state.creditIndex[node] = creditIndex;
+        }
+
+        /**
+         * Same rule as CommissionService.applyDailyCapping: nothing once the cap is reached,
+         * otherwise at most the remaining headroom
+         */
+        private long credit(Result result, int node, int type, long amount, long creditedToday) {
+            long paid = creditedToday >= plan.dailyCapPaise ? 0 : Math.min(amount, plan.dailyCapPaise - creditedToday);
+            result.byType[type] += paid;
+            result.byRank[rankKey[node]] += paid;
+            result.capped += amount - paid;
+            return creditedToday + paid;
+        }
+
+        private boolean qualifies(Plan plan, int rank, int directReferrals, int node,
+                                  long personalInvestment, long teamVolume) {
+            return directReferrals >= plan.rankDirectReferrals[rank]
+                    && activeLegs[node] >= plan.rankActiveLegs[rank]
+                    && personalInvestment >= plan.rankPersonalPaise[rank]
+                    && teamVolume >= plan.rankTeamPaise[rank];
+        }
+    }
+
+    /**
+     * Iterative preorder numbering of one placement subtree
+     */
+    private int number(int root, int[] children, int[] childStart, int[] preorder, int[] stack, int next) {
+        int depth = 0;
+        stack[depth++] = root;
+        List<Integer> visited = new ArrayList<>();
+        while (depth > 0) {
+            int current = stack[--depth];
+            preorder[current] = next++;
+            visited.add(current);
+            for (int i = childStart[current + 1] - 1; i >= childStart[current]; i--) {
+                if (preorder[children[i]] < 0) {
+                    stack[depth++] = children[i];
+                }
+            }
+        }
+        // Subtree ends, children before parents
+        for (int i = visited.size() - 1; i >= 0; i--) {
+            int current = visited.get(i);
+            int end = preorder[current] + 1;
+            for (int c = childStart[current]; c < childStart[current + 1]; c++) {
+                int child = preorder[children[c]];
+                if (child > preorder[current]) {
+                    end = Math.max(end, subtreeEnd[child]);
+                }
+            }
+            subtreeEnd[preorder[current]] = end;
+        }
+        return next;
+    }
+
+    private int bucketOf(LocalDate fromDate, LocalDate date) {
+        long day = ChronoUnit.DAYS.between(fromDate, date);
+        return day < 0 ? 0 : (int) Math.min(day + 1, days + 1L);
+    }
+
+    private static Integer lookup(Map<Long, Integer> indexById, Long id) {
+        return id != null ? indexById.get(id) : null;
+    }
+
+    static long paise(BigDecimal amount) {
+        return Money.of(amount).paise();
+    }
+
+    static BigDecimal rupees(long paise) {
+        return Money.ofPaise(paise).toBigDecimal();
+    }
+
+    private static long micros(BigDecimal percent) {
+        return Money.Rate.of(percent).micros();
+    }
+
+    /**
+     * amount * percent / 100 rounded half up to the paisa, as CommissionService computes it
+     */
+    private static long percentOf(long amountPaise, long percentMicros) {
+        return Money.percentOf(amountPaise, percentMicros);
+    }
+
+    /**
+     * Growable primitive list, avoids boxing millions of packed credits
+     */
+    static final class LongList {
+        private long[] values = new long[8];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        LongList append(LongList other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + other.size));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+            return this;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
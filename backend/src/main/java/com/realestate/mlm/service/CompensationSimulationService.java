@@ -0,0 +1,253 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.dto.request.CompensationSimulationRequest;
+import com.realestate.mlm.dto.response.CompensationSimulationResponse;
+import com.realestate.mlm.dto.response.CompensationSimulationResponse.SimulationDelta;
+import com.realestate.mlm.exception.BadRequestException;
+import com.realestate.mlm.model.RankSetting;
+import com.realestate.mlm.repository.PropertyInvestmentRepository;
+import com.realestate.mlm.repository.PropertyInvestmentRepository.SimulationInvestment;
+import com.realestate.mlm.repository.RankSettingRepository;
+import com.realestate.mlm.repository.UserRepository;
+import com.realestate.mlm.repository.UserRepository.SimulationNode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * What-if simulator for compensation plan changes.
+ *
+ * Loads a consistent snapshot of the tree and the investment history, then replays the history
+ * in memory twice - once against the plan currently in force and once against the alternate
+ * plan - on a dedicated fork-join pool, and reports the payout difference by commission type
+ * and by the earner's current rank. Both plans go through the same replay model, so the delta
+ * isolates the plan change. No live table is written.
+ */
+@Service
+@Slf4j
+public class CompensationSimulationService {
+
+    private final UserRepository userRepository;
+    private final PropertyInvestmentRepository investmentRepository;
+    private final RankSettingRepository rankSettingRepository;
+    private final CommissionService commissionService;
+    private final TransactionTemplate snapshotTransaction;
+    private final ForkJoinPool simulationPool;
+    private final int maxRangeDays;
+
+    /**
+     * One simulation at a time - a replay keeps every core of the pool busy
+     */
+    private final Semaphore running = new Semaphore(1);
+
+    public CompensationSimulationService(
+            UserRepository userRepository,
+            PropertyInvestmentRepository investmentRepository,
+            RankSettingRepository rankSettingRepository,
+            CommissionService commissionService,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.simulation.parallelism:0}") int parallelism,
+            @Value("${app.simulation.max-range-days:400}") int maxRangeDays) {
+        this.userRepository = userRepository;
+        this.investmentRepository = investmentRepository;
+        this.rankSettingRepository = rankSettingRepository;
+        this.commissionService = commissionService;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.simulationPool = new ForkJoinPool(
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.maxRangeDays = maxRangeDays;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        simulationPool.shutdownNow();
+    }
+
+    /**
+     * Replay investments booked between fromDate and toDate against the current and the
+     * alternate plan and report the difference
+     */
+    public CompensationSimulationResponse simulate(CompensationSimulationRequest request) {
+        validateRange(request.getFromDate(), request.getToDate());
+
+        if (!running.tryAcquire()) {
+            throw new BadRequestException("A compensation simulation is already running. Please try again later.");
+        }
+        try {
+            long startTime = System.currentTimeMillis();
+            log.info("Starting compensation simulation from {} to {}", request.getFromDate(), request.getToDate());
+
+            // Snapshot in one repeatable-read transaction; the replay itself holds no connection
+            Snapshot snapshot = snapshotTransaction.execute(status -> new Snapshot(
+                    userRepository.findSimulationNodes(),
+                    investmentRepository.findSimulationInvestments(request.getToDate().plusDays(1).atStartOfDay()),
+                    rankSettingRepository.findByIsActiveTrueOrderByDisplayOrder(),
+                    commissionService.getLevelPercentages()));
+
+            CompensationSimulationEngine engine = new CompensationSimulationEngine(
+                    simulationPool, snapshot.nodes(), snapshot.investments(),
+                    request.getFromDate(), request.getToDate());
+
+            CompensationSimulationEngine.Plan baselinePlan = new CompensationSimulationEngine.Plan(
+                    CommissionService.DIRECT_REFERRAL_PERCENTAGE,
+                    snapshot.levelPercentages(),
+                    CommissionService.DAILY_CAP,
+                    CommissionService.PAIRING_BONUS_PER_PAIR,
+                    CommissionService.BV_PER_PAIR,
+                    snapshot.ranks());
+            CompensationSimulationEngine.Plan alternatePlan = new CompensationSimulationEngine.Plan(
+                    valueOr(request.getDirectReferralPercent(), CommissionService.DIRECT_REFERRAL_PERCENTAGE),
+                    request.getLevelPercentages() != null ? request.getLevelPercentages() : snapshot.levelPercentages(),
+                    valueOr(request.getDailyCap(), CommissionService.DAILY_CAP),
+                    valueOr(request.getPairingBonusPerPair(), CommissionService.PAIRING_BONUS_PER_PAIR),
+                    valueOr(request.getBvPerPair(), CommissionService.BV_PER_PAIR),
+                    applyRankThresholds(snapshot.ranks(), request.getRankThresholds()));
+
+            CompensationSimulationEngine.Result baseline = engine.replay(baselinePlan);
+            CompensationSimulationEngine.Result alternate = engine.replay(alternatePlan);
+
+            long duration = System.currentTimeMillis() - startTime;
+            log.info("Compensation simulation completed. Users: {}, Investments: {}, Delta: {}, Duration: {}ms",
+                    engine.getSize(), engine.getReplayedInvestments(),
+                    CompensationSimulationEngine.rupees(alternate.total() - baseline.total()), duration);
+
+            return buildResponse(request, engine, baseline, alternate, duration);
+        } finally {
+            running.release();
+        }
+    }
+
+    private void validateRange(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate.isAfter(toDate)) {
+            throw new BadRequestException("From date must not be after to date");
+        }
+        if (ChronoUnit.DAYS.between(fromDate, toDate) + 1 > maxRangeDays) {
+            throw new BadRequestException("Simulation range cannot exceed " + maxRangeDays + " days");
+        }
+    }
+
+    /**
+     * Copy the active ranks, overriding the thresholds given in the request
+     */
+    private List<RankSetting> applyRankThresholds(List<RankSetting> ranks,
+                                                  List<CompensationSimulationRequest.RankThreshold> thresholds) {
+        Map<String, RankSetting> byName = ranks.stream()
+                .map(this::copyRank)
+                .collect(Collectors.toMap(rank -> rank.getRankName().toLowerCase(), Function.identity(),
+                        (first, second) -> first, LinkedHashMap::new));
+
+        if (thresholds != null) {
+            for (CompensationSimulationRequest.RankThreshold threshold : thresholds) {
+                RankSetting rank = byName.get(threshold.getRankName().toLowerCase());
+                if (rank == null) {
+                    throw new BadRequestException("Unknown or inactive rank: " + threshold.getRankName());
+                }
+                rank.setRequiredDirectReferrals(valueOr(threshold.getRequiredDirectReferrals(), rank.getRequiredDirectReferrals()));
+                rank.setRequiredActiveLegs(valueOr(threshold.getRequiredActiveLegs(), rank.getRequiredActiveLegs()));
+                rank.setRequiredPersonalInvestment(valueOr(threshold.getRequiredPersonalInvestment(), rank.getRequiredPersonalInvestment()));
+                rank.setRequiredTeamInvestment(valueOr(threshold.getRequiredTeamInvestment(), rank.getRequiredTeamInvestment()));
+                rank.setOneTimeBonus(valueOr(threshold.getOneTimeBonus(), rank.getOneTimeBonus()));
+            }
+        }
+
+        return new ArrayList<>(byName.values());
+    }
+
+    private RankSetting copyRank(RankSetting source) {
+        RankSetting copy = new RankSetting();
+        copy.setRankName(source.getRankName());
+        copy.setRequiredDirectReferrals(source.getRequiredDirectReferrals());
+        copy.setRequiredActiveLegs(source.getRequiredActiveLegs());
+        copy.setRequiredPersonalInvestment(source.getRequiredPersonalInvestment());
+        copy.setRequiredTeamInvestment(source.getRequiredTeamInvestment());
+        copy.setOneTimeBonus(source.getOneTimeBonus());
+        copy.setDisplayOrder(source.getDisplayOrder());
+        return copy;
+    }
+
+    private CompensationSimulationResponse buildResponse(
+            CompensationSimulationRequest request,
+            CompensationSimulationEngine engine,
+            CompensationSimulationEngine.Result baseline,
+            CompensationSimulationEngine.Result alternate,
+            long duration) {
+        List<SimulationDelta> byType = new ArrayList<>();
+        for (int type = 0; type < CompensationSimulationEngine.TYPE_COUNT; type++) {
+            if (baseline.byType[type] != 0 || alternate.byType[type] != 0) {
+                byType.add(toDelta(commissionType(type), baseline.byType[type], alternate.byType[type]));
+            }
+        }
+
+        List<SimulationDelta> byRank = new ArrayList<>();
+        List<String> rankKeys = engine.getRankKeys();
+        for (int i = 0; i < rankKeys.size(); i++) {
+            if (baseline.byRank[i] != 0 || alternate.byRank[i] != 0) {
+                byRank.add(toDelta(rankKeys.get(i), baseline.byRank[i], alternate.byRank[i]));
+            }
+        }
+
+        return CompensationSimulationResponse.builder()
+                .fromDate(request.getFromDate())
+                .toDate(request.getToDate())
+                .usersInSnapshot(engine.getSize())
+                .investmentsReplayed(engine.getReplayedInvestments())
+                .baselineTotal(CompensationSimulationEngine.rupees(baseline.total()))
+                .alternateTotal(CompensationSimulationEngine.rupees(alternate.total()))
+                .totalDelta(CompensationSimulationEngine.rupees(alternate.total() - baseline.total()))
+                .baselineCappedAmount(CompensationSimulationEngine.rupees(baseline.capped))
+                .alternateCappedAmount(CompensationSimulationEngine.rupees(alternate.capped))
+                .byCommissionType(byType)
+                .byRank(byRank)
+                .durationMs(duration)
+                .build();
+    }
+
+    private SimulationDelta toDelta(String key, long baselinePaise, long alternatePaise) {
+        return SimulationDelta.builder()
+                .key(key)
+                .baseline(CompensationSimulationEngine.rupees(baselinePaise))
+                .alternate(CompensationSimulationEngine.rupees(alternatePaise))
+                .delta(CompensationSimulationEngine.rupees(alternatePaise - baselinePaise))
+                .build();
+    }
+
+    /**
+     * Commission type names as recorded by CommissionService
+     */
+    private static String commissionType(int type) {
+        if (type == CompensationSimulationEngine.TYPE_DIRECT) {
+            return "DIRECT_REFERRAL";
+        } else if (type == CompensationSimulationEngine.TYPE_BINARY) {
+            return "BINARY_PAIRING";
+        } else if (type == CompensationSimulationEngine.TYPE_RANK) {
+            return "RANK_BONUS";
+        }
+        return "LEVEL_" + type;
+    }
+
+    private static <T> T valueOr(T value, T fallback) {
+        return value != null ? value : fallback;
+    }
+
+    private record Snapshot(List<SimulationNode> nodes, List<SimulationInvestment> investments,
+                            List<RankSetting> ranks, List<BigDecimal> levelPercentages) {
+    }
+}
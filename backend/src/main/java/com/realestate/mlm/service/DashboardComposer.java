@@ -0,0 +1,159 @@
+package com.realestate.mlm.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the independent queries behind a dashboard concurrently, so a dashboard takes as long as
+ * its slowest widget instead of the sum of all of them.
+ *
+ * Widgets run on a bounded pool shared by all dashboards (app.dashboard.parallelism threads,
+ * app.dashboard.queue-capacity waiting). Each has app.dashboard.widget-timeout-ms from being
+ * added to produce its value. A widget that fails, times out or finds the queue full is left
+ * out: its value is null and its name is reported, and the rest of the dashboard is served.
+ * A widget still queued when its time is up is skipped; one already running finishes in the
+ * background and its result is dropped.
+ *
+ * Widgets run outside the caller's transaction and security context, so they must only use
+ * ids and values resolved before they were added, not lazy associations of the caller's
+ * entities or the current user.
+ */
+@Component
+@Slf4j
+public class DashboardComposer {
+
+    private final ThreadPoolExecutor widgetPool;
+    private final long widgetTimeoutMillis;
+
+    public DashboardComposer(
+            @Value("${app.dashboard.parallelism:8}") int parallelism,
+            @Value("${app.dashboard.queue-capacity:256}") int queueCapacity,
+            @Value("${app.dashboard.widget-timeout-ms:2000}") long widgetTimeoutMillis) {
+        int threads = Math.max(1, parallelism);
+        AtomicInteger threadNo = new AtomicInteger();
+        this.widgetPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "dashboard-widget-" + threadNo.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.widgetPool.allowCoreThreadTimeOut(true);
+        this.widgetTimeoutMillis = Math.max(1, widgetTimeoutMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        widgetPool.shutdownNow();
+    }
+
+    /**
+     * Start composing a dashboard
+     */
+    public Composition compose() {
+        return new Composition();
+    }
+
+    /**
+     * The value of one widget, available once {@link Composition#await()} has returned
+     */
+    public static final class Widget<T> {
+
+        private final CompletableFuture<T> result;
+
+        private Widget(CompletableFuture<T> result) {
+            this.result = result;
+        }
+
+        /**
+         * The widget's value, or null if it was left out
+         */
+        public T get() {
+            return result.getNow(null);
+        }
+    }
+
+    /**
+     * The widgets of one dashboard request
+     */
+    public final class Composition {
+
+        private final List<CompletableFuture<?>> results = new ArrayList<>();
+        private final Queue<String> unavailable = new ConcurrentLinkedQueue<>();
+
+        private Composition() {
+        }
+
+        /**
+         * Start a widget's query on the pool
+         */
+        public <T> Widget<T> add(String name, Supplier<T> query) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            try {
+                widgetPool.execute(() -> {
+                    if (future.isDone()) {
+                        // Timed out while queued
+                        return;
+                    }
+                    try {
+                        future.complete(query.get());
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+
+            CompletableFuture<T> result = future
+                    .orTimeout(widgetTimeoutMillis, TimeUnit.MILLISECONDS)
+                    .handle((value, error) -> {
+                        if (error == null) {
+                            return value;
+                        }
+                        leaveOut(name, error);
+                        return null;
+                    });
+            results.add(result);
+            return new Widget<>(result);
+        }
+
+        /**
+         * Wait for every widget to produce its value or be left out.
+         * Returns the names of the widgets left out, in the order they were.
+         */
+        public List<String> await() {
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+            return List.copyOf(unavailable);
+        }
+
+        private void leaveOut(String name, Throwable error) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+            if (cause instanceof TimeoutException) {
+                log.warn("Dashboard widget {} timed out after {} ms", name, widgetTimeoutMillis);
+            } else if (cause instanceof RejectedExecutionException) {
+                log.warn("Dashboard widget {} skipped, widget pool is saturated", name);
+            } else {
+                log.warn("Dashboard widget {} failed: {}", name, cause.getMessage(), cause);
+            }
+            unavailable.add(name);
+        }
+    }
+}
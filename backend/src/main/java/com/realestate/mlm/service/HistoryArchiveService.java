@@ -0,0 +1,357 @@
+package com.realestate.mlm.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.realestate.mlm.dto.response.ArchivedHistoryResponse;
+import com.realestate.mlm.exception.BadRequestException;
+import com.realestate.mlm.repository.PartitionArchiveRepository;
+import com.realestate.mlm.repository.PartitionArchiveRepository.LateRows;
+import com.realestate.mlm.repository.PartitionArchiveRepository.MonthlyPartition;
+import com.realestate.mlm.util.SecurityUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the monthly partitions of transactions and commissions in shape.
+ *
+ * Partitions are created app.archive.partitions-ahead months in advance so new rows never land
+ * in the default partition. Partitions older than app.archive.horizon-months are copied into
+ * history_archive as one gzip NDJSON payload per user and month, each user in its own
+ * transaction, and the partition is dropped only once the archived row count matches. A run
+ * that stops halfway picks up where it left off. Archived months stay readable through
+ * {@link #getArchivedHistory} and {@link #streamArchivedRows}, slower paths that decompress one
+ * user-month at a time; {@link #getLiveHistoryStart} tells readers of the live tables where
+ * their history begins.
+ * Archiving transactions also adds their net amounts to ledger_archived_totals, so wallet
+ * reconciliation still balances without the dropped rows.
+ *
+ * Reversals and recalculation corrections are dated on the day they correct; {@link #liveTime}
+ * moves the ones older than the horizon into its first month, so they are not written into a
+ * month that is archived. Rows that still turn up late - in a partition already archived for
+ * their user, or in the default partition for a month whose partition is gone - are merged into
+ * the user's archived month and logged.
+ */
+@Service
+@Slf4j
+public class HistoryArchiveService {
+
+    private static final List<String> TABLES = List.of(
+            PartitionArchiveRepository.TRANSACTIONS, PartitionArchiveRepository.COMMISSIONS);
+
+    private static final TypeReference<Map<String, Object>> ROW = new TypeReference<>() {
+    };
+
+    private final PartitionArchiveRepository partitionArchiveRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int horizonMonths;
+    private final int partitionsAhead;
+
+    public HistoryArchiveService(
+            PartitionArchiveRepository partitionArchiveRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.archive.horizon-months:24}") int horizonMonths,
+            @Value("${app.archive.partitions-ahead:3}") int partitionsAhead) {
+        this.partitionArchiveRepository = partitionArchiveRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.horizonMonths = Math.max(1, horizonMonths);
+        this.partitionsAhead = Math.max(1, partitionsAhead);
+    }
+
+    /**
+     * Create the partitions of the current month and the next few, if missing
+     */
+    public void ensurePartitions() {
+        YearMonth current = YearMonth.now();
+        for (String table : TABLES) {
+            for (int i = 0; i <= partitionsAhead; i++) {
+                partitionArchiveRepository.createMonthlyPartition(table, current.plusMonths(i));
+            }
+        }
+    }
+
+    /**
+     * Archive and drop every partition past the horizon.
+     * Returns the number of partitions dropped.
+     */
+    public int archiveExpiredPartitions() {
+        YearMonth cutoff = YearMonth.now().minusMonths(horizonMonths);
+        int dropped = 0;
+        for (String table : TABLES) {
+            for (MonthlyPartition partition : partitionArchiveRepository.findMonthlyPartitions(table)) {
+                if (!partition.month().isBefore(cutoff)) {
+                    break;
+                }
+                if (archivePartition(partition)) {
+                    dropped++;
+                }
+            }
+            archiveLateRows(table, cutoff);
+        }
+        return dropped;
+    }
+
+    /**
+     * Time to write a row dated at the given time with: the time itself, or the start of the
+     * oldest month inside the archive horizon when it is older
+     */
+    public LocalDateTime liveTime(LocalDateTime time) {
+        LocalDateTime horizonStart = YearMonth.now().minusMonths(horizonMonths).atDay(1).atStartOfDay();
+        return time != null && time.isBefore(horizonStart) ? horizonStart : time;
+    }
+
+    /**
+     * Copy a partition into the archive user by user, then drop it if every row made it
+     */
+    private boolean archivePartition(MonthlyPartition partition) {
+        long started = System.currentTimeMillis();
+        List<Long> userIds = partitionArchiveRepository.findUserIds(partition);
+        for (Long userId : userIds) {
+            transactionTemplate.executeWithoutResult(status -> archiveUserMonth(partition, userId));
+        }
+
+        Boolean dropped = transactionTemplate.execute(status -> {
+            long rows = partitionArchiveRepository.countRows(partition);
+            long archived = partitionArchiveRepository.sumArchivedRows(partition.table(), partition.month());
+            if (rows != archived) {
+                log.error("Partition {} not dropped: {} rows but {} archived; rows written while its users "
+                        + "were archived are merged in by the next run", partition.name(), rows, archived);
+                return false;
+            }
+            partitionArchiveRepository.dropPartition(partition);
+            return true;
+        });
+
+        if (Boolean.TRUE.equals(dropped)) {
+            log.info("Archived partition {}: {} users in {} ms",
+                    partition.name(), userIds.size(), System.currentTimeMillis() - started);
+        }
+        return Boolean.TRUE.equals(dropped);
+    }
+
+    private void archiveUserMonth(MonthlyPartition partition, Long userId) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Set<Long> ids = new HashSet<>();
+        int rows = writePayload(handler -> partitionArchiveRepository.streamUserRows(partition, userId, handler), bytes, ids);
+        boolean saved = partitionArchiveRepository.saveArchive(
+                partition.table(), partition.month(), userId, rows, bytes.toByteArray());
+        // Only once per user-month, so a run resumed after a crash never counts a month twice
+        if (saved) {
+            if (PartitionArchiveRepository.TRANSACTIONS.equals(partition.table())) {
+                partitionArchiveRepository.addArchivedLedgerTotals(partition, userId);
+            }
+            return;
+        }
+
+        // Archived by an earlier run: rows written since then are merged in
+        partitionArchiveRepository.findArchivePayload(partition.table(), userId, partition.month())
+                .ifPresent(payload -> readRows(payload, row -> ids.remove(Long.valueOf(String.valueOf(row.get("id"))))));
+        if (ids.isEmpty()) {
+            return;
+        }
+        partitionArchiveRepository.replaceArchive(partition.table(), partition.month(), userId, rows, bytes.toByteArray());
+        if (PartitionArchiveRepository.TRANSACTIONS.equals(partition.table())) {
+            partitionArchiveRepository.addArchivedLedgerTotals(partition, userId, ids);
+        }
+        log.warn("Merged {} late rows of user {} into archived {} {}", ids.size(), userId, partition.table(), partition.month());
+    }
+
+    /**
+     * Move the rows of the default partition dated before the cutoff into the archive. They
+     * belong to months whose partition is gone, so nothing else would ever archive or report them.
+     */
+    private void archiveLateRows(String table, YearMonth cutoff) {
+        for (LateRows late : partitionArchiveRepository.findLateRows(table, cutoff)) {
+            transactionTemplate.executeWithoutResult(status -> {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                Set<Long> ids = new HashSet<>();
+                int rows = writePayload(handler -> partitionArchiveRepository.streamLateRows(late, handler), bytes, ids);
+                if (rows == 0) {
+                    return;
+                }
+                partitionArchiveRepository.appendToArchive(table, late.month(), late.userId(), rows, bytes.toByteArray());
+                if (PartitionArchiveRepository.TRANSACTIONS.equals(table)) {
+                    partitionArchiveRepository.addArchivedLedgerTotals(late, ids);
+                }
+                partitionArchiveRepository.deleteLateRows(late, ids);
+                log.warn("Merged {} late rows of user {} from {}_default into archived {} {}",
+                        rows, late.userId(), table, table, late.month());
+            });
+        }
+    }
+
+    /**
+     * Write the streamed rows as gzip NDJSON and collect their ids.
+     * Returns the number of rows written.
+     */
+    private int writePayload(Consumer<RowCallbackHandler> source, ByteArrayOutputStream bytes, Set<Long> ids) {
+        int[] rows = {0};
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(new GZIPOutputStream(bytes))) {
+            // One object per line, without Jackson's default space between root values
+            generator.setRootValueSeparator(null);
+            source.accept(rs -> {
+                try {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    generator.writeStartObject();
+                    for (int column = 1; column <= meta.getColumnCount(); column++) {
+                        writeColumn(generator, meta.getColumnLabel(column), rs.getObject(column));
+                    }
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                    ids.add(rs.getLong("id"));
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows[0];
+    }
+
+    private static void writeColumn(JsonGenerator generator, String name, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(name);
+        } else if (value instanceof Timestamp timestamp) {
+            generator.writeStringField(name, timestamp.toLocalDateTime().toString());
+        } else if (value instanceof BigDecimal decimal) {
+            generator.writeNumberField(name, decimal);
+        } else if (value instanceof Number number) {
+            generator.writeNumberField(name, new BigDecimal(number.toString()));
+        } else if (value instanceof Boolean bool) {
+            generator.writeBooleanField(name, bool);
+        } else {
+            // Strings, and jsonb or other driver objects as their text
+            generator.writeStringField(name, value.toString());
+        }
+    }
+
+    /**
+     * Archived transactions or commissions of the current user for one month, or just the list
+     * of archived months when no month is given
+     */
+    public ArchivedHistoryResponse getArchivedHistory(String table, String month) {
+        Long userId = SecurityUtil.getCurrentUserId();
+        List<String> archivedMonths = partitionArchiveRepository.findArchivedMonths(table, userId).stream()
+                .map(YearMonth::toString)
+                .toList();
+
+        ArchivedHistoryResponse.ArchivedHistoryResponseBuilder response = ArchivedHistoryResponse.builder()
+                .source(table)
+                .archivedMonths(archivedMonths);
+        if (month == null || month.isBlank()) {
+            return response.rowCount(0).rows(List.of()).build();
+        }
+
+        YearMonth period;
+        try {
+            period = YearMonth.parse(month.trim());
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Invalid month, expected yyyy-MM: " + month);
+        }
+
+        List<Map<String, Object>> rows = partitionArchiveRepository.findArchivePayload(table, userId, period)
+                .map(this::readRows)
+                .orElse(List.of());
+        return response.month(period.toString()).rowCount(rows.size()).rows(rows).build();
+    }
+
+    /**
+     * First day of the history still held in the live partitions of a table: the day after the
+     * newest month that has been archived and dropped, or null when none has. Anything older
+     * is only in history_archive.
+     */
+    public LocalDate getLiveHistoryStart(String table) {
+        Set<YearMonth> live = liveMonths(table);
+        YearMonth newestDropped = null;
+        for (YearMonth month : partitionArchiveRepository.findArchivedMonths(table)) {
+            if (!live.contains(month)) {
+                newestDropped = month;
+            }
+        }
+        return newestDropped != null ? newestDropped.plusMonths(1).atDay(1) : null;
+    }
+
+    /**
+     * Archived rows of a user in months whose partition has been dropped, oldest month first,
+     * limited to the months from..to (either may be null). One month is decompressed at a time;
+     * each row is handed over as column name to value, decimals as BigDecimal.
+     */
+    public void streamArchivedRows(String table, Long userId, YearMonth from, YearMonth to,
+                                   Consumer<Map<String, Object>> consumer) {
+        Set<YearMonth> live = liveMonths(table);
+        List<YearMonth> months = new ArrayList<>(partitionArchiveRepository.findArchivedMonths(table, userId));
+        Collections.reverse(months);
+        for (YearMonth month : months) {
+            // Months still live are read from their partition
+            if (live.contains(month) || (from != null && month.isBefore(from)) || (to != null && month.isAfter(to))) {
+                continue;
+            }
+            partitionArchiveRepository.findArchivePayload(table, userId, month)
+                    .ifPresent(payload -> readRows(payload, consumer));
+        }
+    }
+
+    private Set<YearMonth> liveMonths(String table) {
+        Set<YearMonth> months = new HashSet<>();
+        for (MonthlyPartition partition : partitionArchiveRepository.findMonthlyPartitions(table)) {
+            months.add(partition.month());
+        }
+        return months;
+    }
+
+    private List<Map<String, Object>> readRows(byte[] payload) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        readRows(payload, rows::add);
+        return rows;
+    }
+
+    private void readRows(byte[] payload, Consumer<Map<String, Object>> consumer) {
+        ObjectReader rowReader = objectMapper.readerFor(ROW).with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(payload)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    consumer.accept(rowReader.readValue(line));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.model.UserSequence;
+import com.realestate.mlm.repository.IdNodeLeaseRepository;
+import com.realestate.mlm.repository.UserRepository;
+import com.realestate.mlm.repository.UserSequenceRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Single source of business IDs for the platform.
+ *
+ * Transaction, commission, payout, investment, property, ticket and installment IDs are
+ * 64-bit time-ordered values (41 bits of milliseconds since {@link #EPOCH_MILLIS}, 10 bits of
+ * node id, 12 bits of per-millisecond sequence) rendered as a prefix plus 19 zero-padded digits,
+ * so they sort by creation time both numerically and lexically and never collide across nodes.
+ *
+ * The node id is leased from {@code id_node_leases}: the lowest free one, or app.id.node-id when
+ * set, which must not be leased by a live instance. Startup fails when no node id can be leased.
+ * The lease is renewed every app.id.lease-heartbeat-ms and expires app.id.lease-ttl-seconds after
+ * the last renewal, when another instance may take it over; IDs are only issued while the last
+ * renewal is younger than that, so a node that cannot renew stops issuing before its node id can
+ * be reused.
+ *
+ * MLM user IDs (MLM001, MLM002, ...) are handed out from blocks reserved on the
+ * {@code user_sequences} row (hi/lo). The row is locked only while a block is reserved, in its
+ * own short transaction, so registrations never serialize on it or on a COUNT(*). IDs left in a
+ * block when a node stops are skipped, which leaves gaps but never duplicates.
+ */
+@Service
+@Slf4j
+public class IdGeneratorService {
+
+    /** 2024-01-01T00:00:00Z - keeps the 41-bit timestamp valid until 2093 */
+    private static final long EPOCH_MILLIS = 1704067200000L;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int ID_DIGITS = 19;
+
+    private static final String USER_SEQUENCE_NAME = "user_id_sequence";
+    private static final String USER_ID_PREFIX = "MLM";
+
+    private final UserSequenceRepository userSequenceRepository;
+    private final UserRepository userRepository;
+    private final IdNodeLeaseRepository idNodeLeaseRepository;
+    private final TransactionTemplate requiresNewTransaction;
+    private final String instanceId;
+    private final long leaseTtlSeconds;
+    private final long nodeId;
+    private final ScheduledExecutorService leaseHeartbeat;
+
+    /**
+     * System.nanoTime() until which the node id lease is known to be held
+     */
+    private volatile long leaseValidUntilNanos;
+    private final int userIdBlockSize;
+
+    /**
+     * Packed (timestamp << SEQUENCE_BITS | sequence) of the last issued ID on this node
+     */
+    private final AtomicLong lastState = new AtomicLong();
+
+    private final ReentrantLock userBlockLock = new ReentrantLock();
+    private long nextUserSequence;
+    private long userBlockEnd;
+
+    public IdGeneratorService(
+            UserSequenceRepository userSequenceRepository,
+            UserRepository userRepository,
+            IdNodeLeaseRepository idNodeLeaseRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.id.node-id:-1}") long configuredNodeId,
+            @Value("${app.id.lease-ttl-seconds:60}") long leaseTtlSeconds,
+            @Value("${app.id.lease-heartbeat-ms:10000}") long leaseHeartbeatMillis,
+            @Value("${app.id.user-id-block-size:50}") int userIdBlockSize) {
+        this.userSequenceRepository = userSequenceRepository;
+        this.userRepository = userRepository;
+        this.idNodeLeaseRepository = idNodeLeaseRepository;
+        this.requiresNewTransaction = new TransactionTemplate(transactionManager);
+        this.requiresNewTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        if (configuredNodeId > MAX_NODE_ID) {
+            throw new IllegalStateException("app.id.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        if (leaseHeartbeatMillis <= 0 || leaseHeartbeatMillis * 2 > TimeUnit.SECONDS.toMillis(leaseTtlSeconds)) {
+            throw new IllegalStateException("app.id.lease-heartbeat-ms must be positive and at most half of app.id.lease-ttl-seconds");
+        }
+        this.instanceId = resolveInstanceId();
+        this.leaseTtlSeconds = leaseTtlSeconds;
+        this.nodeId = leaseNodeId(configuredNodeId);
+        this.userIdBlockSize = Math.max(1, userIdBlockSize);
+
+        this.leaseHeartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "id-node-lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.leaseHeartbeat.scheduleWithFixedDelay(this::renewLease,
+                leaseHeartbeatMillis, leaseHeartbeatMillis, TimeUnit.MILLISECONDS);
+        log.info("ID generator initialised with node id: {} (leased by {}), user ID block size: {}",
+                nodeId, instanceId, this.userIdBlockSize);
+    }
+
+    @PreDestroy
+    public void releaseNodeId() {
+        leaseHeartbeat.shutdownNow();
+        leaseValidUntilNanos = System.nanoTime();
+        try {
+            idNodeLeaseRepository.release(nodeId, instanceId);
+            log.info("Released ID generator node id {}", nodeId);
+        } catch (Exception e) {
+            log.warn("Could not release ID generator node id {}, it expires with its lease", nodeId, e);
+        }
+    }
+
+    /**
+     * Generate transaction ID - TXN{19 digits}
+     */
+    public String nextTransactionId() {
+        return format("TXN", nextId());
+    }
+
+    /**
+     * Generate commission ID - COM{19 digits}
+     */
+    public String nextCommissionId() {
+        return format("COM", nextId());
+    }
+
+    /**
+     * Node id of this instance, leased so it is unique among the running instances
+     */
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Generate payout ID - PAYOUT{19 digits}
+     */
+    public String nextPayoutId() {
+        return format("PAYOUT", nextId());
+    }
+
+    /**
+     * Generate payout bank batch ID - PBF{19 digits}
+     */
+    public String nextBankBatchId() {
+        return format("PBF", nextId());
+    }
+
+    /**
+     * Generate investment ID - INV{19 digits}
+     */
+    public String nextInvestmentId() {
+        return format("INV", nextId());
+    }
+
+    /**
+     * Generate installment payment ID - PAY{19 digits}
+     */
+    public String nextInstallmentPaymentId() {
+        return format("PAY", nextId());
+    }
+
+    /**
+     * Generate property ID - PROP{19 digits}
+     */
+    public String nextPropertyId() {
+        return format("PROP", nextId());
+    }
+
+    /**
+     * Generate support ticket ID - TKT{19 digits}
+     */
+    public String nextTicketId() {
+        return format("TKT", nextId());
+    }
+
+    /**
+     * Generate commission recalculation run ID - RCL{19 digits}
+     */
+    public String nextRecalculationRunId() {
+        return format("RCL", nextId());
+    }
+
+    /**
+     * Generate wallet reconciliation run ID - WRC{19 digits}
+     */
+    public String nextReconciliationRunId() {
+        return format("WRC", nextId());
+    }
+
+    /**
+     * Next raw 64-bit time-ordered ID.
+     * Lock-free: a single CAS on the packed (timestamp, sequence) state. When the clock goes
+     * backwards or the 4096 per-millisecond sequence is exhausted, the logical timestamp is
+     * advanced instead of waiting, so callers never block.
+     * Fails while the node id lease is not known to be held.
+     */
+    public long nextId() {
+        if (System.nanoTime() - leaseValidUntilNanos >= 0) {
+            throw new IllegalStateException("ID generator node id " + nodeId + " lease has expired");
+        }
+        while (true) {
+            long last = lastState.get();
+            long lastTimestamp = last >>> SEQUENCE_BITS;
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+
+            long next;
+            if (now > lastTimestamp) {
+                next = now << SEQUENCE_BITS;
+            } else if ((last & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                next = last + 1;
+            } else {
+                next = (lastTimestamp + 1) << SEQUENCE_BITS;
+            }
+
+            if (lastState.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                long sequence = next & SEQUENCE_MASK;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    /**
+     * Generate MLM user ID - MLM001, MLM002, etc.
+     * Served from the in-memory block; only a block refill touches the database.
+     */
+    public String nextUserId() {
+        long sequence;
+        userBlockLock.lock();
+        try {
+            if (nextUserSequence >= userBlockEnd) {
+                long blockEnd = reserveUserIdBlock();
+                nextUserSequence = blockEnd - userIdBlockSize;
+                userBlockEnd = blockEnd;
+            }
+            sequence = ++nextUserSequence;
+        } finally {
+            userBlockLock.unlock();
+        }
+        return String.format("%s%03d", USER_ID_PREFIX, sequence);
+    }
+
+    /**
+     * Reserve the next block of user sequence values in its own transaction.
+     * Returns the last value of the reserved block.
+     */
+    private long reserveUserIdBlock() {
+        try {
+            return requiresNewTransaction.execute(status -> advanceUserSequence());
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the sequence row concurrently - retry against the existing row
+            log.debug("User sequence row created concurrently, retrying block reservation");
+            return requiresNewTransaction.execute(status -> advanceUserSequence());
+        }
+    }
+
+    private long advanceUserSequence() {
+        UserSequence sequence = userSequenceRepository.findBySequenceNameForUpdate(USER_SEQUENCE_NAME)
+                .orElseGet(() -> UserSequence.builder()
+                        .sequenceName(USER_SEQUENCE_NAME)
+                        // One-time seed so new IDs continue after the legacy count-based ones
+                        .currentValue(userRepository.count())
+                        .build());
+
+        long blockEnd = sequence.getCurrentValue() + userIdBlockSize;
+        sequence.setCurrentValue(blockEnd);
+        userSequenceRepository.saveAndFlush(sequence);
+
+        log.debug("Reserved user ID block ending at {}", blockEnd);
+        return blockEnd;
+    }
+
+    private static String format(String prefix, long id) {
+        String digits = Long.toString(id);
+        StringBuilder builder = new StringBuilder(prefix.length() + ID_DIGITS).append(prefix);
+        for (int i = digits.length(); i < ID_DIGITS; i++) {
+            builder.append('0');
+        }
+        return builder.append(digits).toString();
+    }
+
+    /**
+     * Lease the configured node id, or the lowest free one when unset
+     */
+    private long leaseNodeId(long configuredNodeId) {
+        long minNodeId = configuredNodeId >= 0 ? configuredNodeId : 0;
+        long maxNodeId = configuredNodeId >= 0 ? configuredNodeId : MAX_NODE_ID;
+        // Retried because another instance may win the race for the node id we picked
+        for (int attempt = 0; attempt < 3; attempt++) {
+            long startedAt = System.nanoTime();
+            Long leased = idNodeLeaseRepository.acquire(minNodeId, maxNodeId, instanceId, leaseTtlSeconds).orElse(null);
+            if (leased != null) {
+                leaseValidUntilNanos = startedAt + TimeUnit.SECONDS.toNanos(leaseTtlSeconds);
+                return leased;
+            }
+        }
+        throw new IllegalStateException(configuredNodeId >= 0
+                ? "app.id.node-id " + configuredNodeId + " is leased by another running instance"
+                : "No free ID generator node id, all " + (MAX_NODE_ID + 1) + " are leased");
+    }
+
+    /**
+     * Heartbeat of the node id lease. A lease taken over by another instance is taken back only
+     * if it has expired again; until then nextId() refuses to issue IDs.
+     */
+    private void renewLease() {
+        long startedAt = System.nanoTime();
+        try {
+            boolean held = idNodeLeaseRepository.renew(nodeId, instanceId)
+                    || idNodeLeaseRepository.acquire(nodeId, nodeId, instanceId, leaseTtlSeconds).isPresent();
+            if (held) {
+                leaseValidUntilNanos = startedAt + TimeUnit.SECONDS.toNanos(leaseTtlSeconds);
+            } else {
+                leaseValidUntilNanos = startedAt;
+                log.error("ID generator node id {} is leased by another instance, no IDs are issued until it is free", nodeId);
+            }
+        } catch (Exception e) {
+            log.error("Failed to renew ID generator node id {} lease", nodeId, e);
+        }
+    }
+
+    private static String resolveInstanceId() {
+        String hostName;
+        try {
+            hostName = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            hostName = "unknown";
+        }
+        if (hostName.length() > 100) {
+            hostName = hostName.substring(0, 100);
+        }
+        return hostName + "/" + UUID.randomUUID();
+    }
+}
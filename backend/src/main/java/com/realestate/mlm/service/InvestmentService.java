@@ -2,9 +2,11 @@ package com.realestate.mlm.service;
 
 import com.realestate.mlm.dto.request.InstallmentPaymentRequest;
 import com.realestate.mlm.dto.request.PropertyInvestmentRequest;
+import com.realestate.mlm.dto.response.CommissionReversalResponse;
 import com.realestate.mlm.dto.response.PropertyInvestmentResponse;
 import com.realestate.mlm.dto.response.PropertyResponse;
 import com.realestate.mlm.dto.response.PortfolioSummaryResponse;
+import com.realestate.mlm.event.InvestmentCreatedEvent;
 import com.realestate.mlm.exception.BadRequestException;
 import com.realestate.mlm.exception.InsufficientBalanceException;
 import com.realestate.mlm.exception.ResourceNotFoundException;
@@ -12,6 +14,7 @@ import com.realestate.mlm.model.*;
 import com.realestate.mlm.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -25,7 +28,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -38,7 +40,10 @@ public class InvestmentService {
     private final InstallmentPaymentRepository installmentPaymentRepository;
     private final WalletService walletService;
     private final CommissionService commissionService;
+    private final CommissionReversalService commissionReversalService;
     private final NotificationService notificationService;
+    private final IdGeneratorService idGeneratorService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Create investment with complete flow
@@ -114,7 +119,7 @@ public class InvestmentService {
 
         // Create investment record
         PropertyInvestment investment = new PropertyInvestment();
-        investment.setInvestmentId(generateInvestmentId());
+        investment.setInvestmentId(idGeneratorService.nextInvestmentId());
         investment.setProperty(property);
         investment.setUser(user);
         investment.setInvestmentAmount(totalInvestmentAmount);
@@ -174,6 +179,9 @@ public class InvestmentService {
         // Calculate and credit commissions
         calculateInvestmentCommissions(user, savedInvestment);
 
+        eventPublisher.publishEvent(new InvestmentCreatedEvent(
+                user.getId(), savedInvestment.getInvestmentId(), totalInvestmentAmount, bvAllocated));
+
         // Send confirmation email
         notificationService.sendInvestmentConfirmation(
                 user.getEmail(),
@@ -199,7 +207,7 @@ public class InvestmentService {
         // First installment already paid during investment creation
         for (int i = 2; i <= totalInstallments; i++) {
             InstallmentPayment installment = new InstallmentPayment();
-            installment.setPaymentId(generatePaymentId());
+            installment.setPaymentId(idGeneratorService.nextInstallmentPaymentId());
             installment.setInvestment(investment);
             installment.setInstallmentNumber(i);
             installment.setInstallmentAmount(installmentAmount);
@@ -407,6 +415,9 @@ public class InvestmentService {
         BigDecimal capitalGains = exitAmount.subtract(investment.getInvestmentAmount());
         investment.setCapitalGains(capitalGains);
 
+        // Claw back the commissions paid on this investment
+        commissionReversalService.reverseForExit(investment, userId);
+
         investmentRepository.save(investment);
 
         log.info("Exit request submitted for investment: {}", investment.getInvestmentId());
@@ -414,6 +425,34 @@ public class InvestmentService {
         return "Exit request submitted successfully. Our team will process it shortly.";
     }
 
+    /**
+     * Cancel an investment (admin) and claw back the commissions paid on it
+     */
+    @Transactional
+    public CommissionReversalResponse cancelInvestment(Long investmentId, String reason, String cancelledBy) {
+        log.info("Cancelling investment ID: {} by: {}", investmentId, cancelledBy);
+
+        PropertyInvestment investment = investmentRepository.findById(investmentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Investment not found with ID: " + investmentId));
+
+        if ("CANCELLED".equals(investment.getInvestmentStatus()) || "EXITED".equals(investment.getInvestmentStatus())) {
+            throw new BadRequestException("Investment is already " + investment.getInvestmentStatus().toLowerCase());
+        }
+
+        investment.setInvestmentStatus("CANCELLED");
+        investment.setBookingStatus("CANCELLED");
+        investment.setRemarks(reason);
+
+        CommissionReversalResponse reversal = commissionReversalService.reverseInvestmentCommissions(
+                investment, "Investment cancelled: " + reason, cancelledBy);
+
+        investmentRepository.save(investment);
+
+        log.info("Investment cancelled: {}", investment.getInvestmentId());
+
+        return reversal;
+    }
+
     /**
      * Get investment details
      */
@@ -513,38 +552,22 @@ public class InvestmentService {
     private void calculateInvestmentCommissions(User investor, PropertyInvestment investment) {
         log.info("Calculating commissions for investment: {}", investment.getInvestmentId());
 
-        BigDecimal investmentAmount = investment.getInvestmentAmount();
-
         // 1. Direct referral bonus to sponsor
         if (investor.getSponsor() != null) {
             commissionService.calculateDirectReferralBonus(
                     investor.getSponsor(),
                     investor,
-                    investmentAmount);
+                    investment);
         }
 
         // 2. Level commission to upline sponsors
-        commissionService.calculateLevelCommission(investor, investmentAmount, 10);
+        commissionService.calculateLevelCommission(investor, investment, 10);
 
         // 3. Binary pairing will be calculated in scheduled task
 
         log.info("Commissions calculated for investment: {}", investment.getInvestmentId());
     }
 
-    /**
-     * Generate unique investment ID
-     */
-    private String generateInvestmentId() {
-        return "INV" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-    }
-
-    /**
-     * Generate unique payment ID
-     */
-    private String generatePaymentId() {
-        return "PAY" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-    }
-
     /**
      * Map PropertyInvestment to PropertyInvestmentResponse
      */
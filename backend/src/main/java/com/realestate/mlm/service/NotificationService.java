@@ -1,9 +1,13 @@
 package com.realestate.mlm.service;
 
+import com.realestate.mlm.dto.response.CursorPageResponse;
+import com.realestate.mlm.dto.response.NotificationResponse;
 import com.realestate.mlm.model.Notification;
 import com.realestate.mlm.model.User;
 import com.realestate.mlm.repository.NotificationRepository;
 import com.realestate.mlm.repository.UserRepository;
+import com.realestate.mlm.util.SecurityUtil;
+import com.realestate.mlm.util.SeekCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -472,6 +476,39 @@ public class NotificationService {
         }
     }
 
+    /**
+     * Keyset page of the current user's notifications, newest first, without a count query
+     */
+    public CursorPageResponse<NotificationResponse> getNotifications(String cursor, Integer size) {
+        Long userId = SecurityUtil.getCurrentUserId();
+        SeekCursor position = SeekCursor.decode(cursor);
+
+        List<Notification> notifications = notificationRepository.findPageBefore(
+                userId, position.createdAt(), position.id(), SeekCursor.limit(size));
+
+        return SeekCursor.page(notifications, size, Notification::getCreatedAt, Notification::getId,
+                this::mapToNotificationResponse);
+    }
+
+    /**
+     * Unread notifications of the current user
+     */
+    public Long getUnreadCount() {
+        return notificationRepository.countByUserAndIsReadFalse(SecurityUtil.getCurrentUser());
+    }
+
+    private NotificationResponse mapToNotificationResponse(Notification notification) {
+        return NotificationResponse.builder()
+                .id(notification.getId())
+                .title(notification.getTitle())
+                .message(notification.getMessage())
+                .type(notification.getType())
+                .link(notification.getLink())
+                .isRead(notification.getIsRead())
+                .createdAt(notification.getCreatedAt())
+                .build();
+    }
+
     /**
      * Save notification to database
      */
@@ -0,0 +1,568 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.dto.response.PayoutBankBatchResponse;
+import com.realestate.mlm.exception.BadRequestException;
+import com.realestate.mlm.exception.ResourceNotFoundException;
+import com.realestate.mlm.model.PayoutBankBatch;
+import com.realestate.mlm.model.User;
+import com.realestate.mlm.repository.PayoutBankBatchRepository;
+import com.realestate.mlm.repository.PayoutBankFileRepository;
+import com.realestate.mlm.repository.PayoutBankFileRepository.BankTransferRow;
+import com.realestate.mlm.repository.PayoutBankFileRepository.ClaimedBatch;
+import com.realestate.mlm.repository.PayoutBankFileRepository.SettleablePayout;
+import com.realestate.mlm.repository.PayoutBankFileRepository.Settlement;
+import com.realestate.mlm.repository.UserRepository;
+import com.realestate.mlm.util.SecurityUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * NEFT/IMPS bulk files for large payout cycles: the bank pays a whole batch from one uploaded
+ * file instead of one gateway call per payout.
+ *
+ * Exporting claims up to app.payout.bank-file.max-payouts APPROVED bank transfer payouts into a
+ * batch (PROCESSING, new idempotency key, which is the payment reference in the file), then
+ * streams them through a cursor into the file with a direct FileChannel write, hashing as it
+ * goes. The file and a manifest with its SHA-256, record count and total are written under
+ * .part names and moved into place once complete, so a half-written file is never picked up.
+ * If writing fails the payouts go back to APPROVED.
+ *
+ * The bank's response file (payment_reference,status,utr_number,remarks) is read line by line
+ * and settled in chunks of app.payout.bank-file.response-chunk-size, each in one transaction
+ * with batched payout updates: paid lines complete the payout and debit the wallet, failed
+ * lines fail it and keep the balance locked for a retry. Lines already settled or for another
+ * attempt are skipped, so a response file can be ingested again safely; several partial
+ * response files can settle one batch.
+ */
+@Service
+@Slf4j
+public class PayoutBankFileService {
+
+    static final String STATUS_EXPORTING = "EXPORTING";
+    static final String STATUS_EXPORTED = "EXPORTED";
+    static final String STATUS_COMPLETED = "COMPLETED";
+    static final String STATUS_FAILED = "FAILED";
+
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    /**
+     * Supported bulk file layouts
+     */
+    public enum BankFileFormat {
+        CSV("csv"),
+        FIXED_WIDTH("txt");
+
+        private final String extension;
+
+        BankFileFormat(String extension) {
+            this.extension = extension;
+        }
+
+        public static BankFileFormat of(String format) {
+            if (format == null || format.isBlank()) {
+                return CSV;
+            }
+            try {
+                return valueOf(format.trim().toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Unsupported bank file format: " + format + " (use csv or fixed_width)");
+            }
+        }
+    }
+
+    private final PayoutBankBatchRepository batchRepository;
+    private final PayoutBankFileRepository bankFileRepository;
+    private final UserRepository userRepository;
+    private final WalletService walletService;
+    private final NotificationService notificationService;
+    private final IdGeneratorService idGeneratorService;
+    private final PayoutConsolidationService payoutConsolidationService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Path directory;
+    private final int maxPayouts;
+    private final int responseChunkSize;
+
+    public PayoutBankFileService(
+            PayoutBankBatchRepository batchRepository,
+            PayoutBankFileRepository bankFileRepository,
+            UserRepository userRepository,
+            WalletService walletService,
+            NotificationService notificationService,
+            IdGeneratorService idGeneratorService,
+            PayoutConsolidationService payoutConsolidationService,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.payout.bank-file.directory:bank-files}") String directory,
+            @Value("${app.payout.bank-file.max-payouts:100000}") int maxPayouts,
+            @Value("${app.payout.bank-file.response-chunk-size:500}") int responseChunkSize) {
+        this.batchRepository = batchRepository;
+        this.bankFileRepository = bankFileRepository;
+        this.userRepository = userRepository;
+        this.walletService = walletService;
+        this.notificationService = notificationService;
+        this.idGeneratorService = idGeneratorService;
+        this.payoutConsolidationService = payoutConsolidationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.directory = Paths.get(directory);
+        this.maxPayouts = Math.max(1, maxPayouts);
+        this.responseChunkSize = Math.max(1, responseChunkSize);
+    }
+
+    /**
+     * Consolidate the approved payouts, then claim the bank transfer ones into a new batch and
+     * write its bulk file
+     */
+    public PayoutBankBatchResponse exportBatch(String format, String mode) {
+        BankFileFormat fileFormat = BankFileFormat.of(format);
+        String transferMode = transferMode(mode);
+        String createdBy = SecurityUtil.getCurrentUserMlmId();
+
+        payoutConsolidationService.consolidateApprovedPayouts();
+
+        PayoutBankBatch batch = transactionTemplate.execute(status -> {
+            PayoutBankBatch created = new PayoutBankBatch();
+            created.setBatchId(idGeneratorService.nextBankBatchId());
+            created.setStatus(STATUS_EXPORTING);
+            created.setFileFormat(fileFormat.name());
+            created.setTransferMode(transferMode);
+            created.setCreatedBy(createdBy);
+
+            ClaimedBatch claimed = bankFileRepository.claimBatch(created.getBatchId(), maxPayouts);
+            if (claimed.payoutCount() == 0) {
+                throw new BadRequestException("No approved bank transfer payouts to export");
+            }
+            created.setPayoutCount(claimed.payoutCount());
+            created.setTotalAmount(claimed.totalAmount());
+            return batchRepository.save(created);
+        });
+        log.info("Bank batch {} claimed {} payouts, total Rs {}",
+                batch.getBatchId(), batch.getPayoutCount(), batch.getTotalAmount());
+
+        String fileName = batch.getBatchId() + "_" + transferMode + "_" + LocalDate.now().format(FILE_DATE)
+                + "." + fileFormat.extension;
+        try {
+            String checksum = writeBankFile(batch, fileFormat, fileName);
+            batch.setFileName(fileName);
+            batch.setChecksumSha256(checksum);
+            batch.setStatus(STATUS_EXPORTED);
+            batch.setExportedAt(LocalDateTime.now());
+            PayoutBankBatch exported = transactionTemplate.execute(status -> batchRepository.save(batch));
+            log.info("Bank file {} written for batch {}, sha256 {}", fileName, batch.getBatchId(), checksum);
+            return mapToResponse(exported);
+        } catch (RuntimeException e) {
+            log.error("Failed to write bank file for batch {}, releasing its payouts", batch.getBatchId(), e);
+            transactionTemplate.executeWithoutResult(status -> {
+                bankFileRepository.releaseBatch(batch.getBatchId());
+                batch.setStatus(STATUS_FAILED);
+                batch.setLastError(e.getMessage());
+                batchRepository.save(batch);
+            });
+            throw new RuntimeException("Failed to write bank file: " + e.getMessage());
+        }
+    }
+
+    public PayoutBankBatchResponse getBatch(String batchId) {
+        return mapToResponse(findBatch(batchId));
+    }
+
+    /**
+     * Path of an exported batch's bulk file
+     */
+    public Path getBatchFile(String batchId) {
+        PayoutBankBatch batch = findBatch(batchId);
+        if (batch.getFileName() == null || STATUS_FAILED.equals(batch.getStatus())) {
+            throw new BadRequestException("Bank batch " + batchId + " has no file");
+        }
+        Path file = directory.resolve(batch.getFileName());
+        if (!Files.isReadable(file)) {
+            throw new ResourceNotFoundException("Bank file not found: " + batch.getFileName());
+        }
+        return file;
+    }
+
+    /**
+     * Settle the batch's payouts from the bank's response file
+     */
+    public PayoutBankBatchResponse ingestResponse(String batchId, MultipartFile responseFile) {
+        PayoutBankBatch batch = findBatch(batchId);
+        if (!STATUS_EXPORTED.equals(batch.getStatus())) {
+            throw new BadRequestException("Only EXPORTED bank batches can take a response file");
+        }
+        if (responseFile == null || responseFile.isEmpty()) {
+            throw new BadRequestException("Response file is empty");
+        }
+
+        int[] totals = new int[3]; // completed, failed, skipped
+        Map<String, ResponseLine> chunk = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(responseFile.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                ResponseLine response = ResponseLine.parse(line, lineNo);
+                if (response == null) {
+                    continue;
+                }
+                chunk.put(response.reference(), response);
+                if (chunk.size() >= responseChunkSize) {
+                    settleChunk(batchId, chunk, totals);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read bank response file", e);
+        }
+        if (!chunk.isEmpty()) {
+            settleChunk(batchId, chunk, totals);
+        }
+
+        PayoutBankBatch settled = transactionTemplate.execute(status -> {
+            PayoutBankBatch locked = batchRepository.findByBatchIdForUpdate(batchId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Bank batch not found: " + batchId));
+            if (STATUS_EXPORTED.equals(locked.getStatus()) && bankFileRepository.countUnsettled(batchId) == 0) {
+                locked.setStatus(STATUS_COMPLETED);
+                locked.setCompletedAt(LocalDateTime.now());
+                return batchRepository.save(locked);
+            }
+            return locked;
+        });
+        log.info("Bank response for batch {} ingested. Completed: {}, failed: {}, skipped: {}",
+                batchId, totals[0], totals[1], totals[2]);
+        return mapToResponse(settled);
+    }
+
+    /**
+     * One line of the bank's response
+     */
+    private record ResponseLine(String reference, boolean paid, String detail) {
+
+        static ResponseLine parse(String line, int lineNo) {
+            String[] cells = line.split(",", -1);
+            String reference = cells[0].trim();
+            if (reference.isEmpty() || (lineNo == 1 && reference.equalsIgnoreCase("payment_reference"))) {
+                return null;
+            }
+            if (cells.length < 2) {
+                throw new BadRequestException("Malformed response line " + lineNo + ": " + line);
+            }
+            String status = cells[1].trim().toUpperCase();
+            String utrNumber = cells.length > 2 ? cells[2].trim() : "";
+            String remarks = cells.length > 3 ? cells[3].trim() : "";
+            return switch (status) {
+                case "SUCCESS", "PAID", "COMPLETED" -> {
+                    if (utrNumber.isEmpty()) {
+                        throw new BadRequestException("Paid response line " + lineNo + " has no UTR number");
+                    }
+                    yield new ResponseLine(reference, true, utrNumber);
+                }
+                case "FAILED", "REJECTED", "RETURNED" -> new ResponseLine(reference, false,
+                        "Bank transfer " + status.toLowerCase() + (remarks.isEmpty() ? "" : ": " + remarks));
+                default -> throw new BadRequestException("Unknown status '" + cells[1].trim() + "' on response line " + lineNo);
+            };
+        }
+    }
+
+    private record CompletedNotice(String email, String fullName, BigDecimal netAmount, String utrNumber) {
+    }
+
+    private void settleChunk(String batchId, Map<String, ResponseLine> chunk, int[] totals) {
+        List<CompletedNotice> notices = transactionTemplate.execute(status -> {
+            // Serialises response files of the same batch
+            PayoutBankBatch batch = batchRepository.findByBatchIdForUpdate(batchId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Bank batch not found: " + batchId));
+
+            List<SettleablePayout> payouts = bankFileRepository.lockSettleable(batchId, chunk.keySet());
+            Map<Long, User> users = userRepository.findAllById(
+                            payouts.stream().map(SettleablePayout::userId).distinct().toList())
+                    .stream().collect(Collectors.toMap(User::getId, Function.identity()));
+
+            List<Settlement> completed = new ArrayList<>();
+            List<Settlement> failed = new ArrayList<>();
+            List<CompletedNotice> completedNotices = new ArrayList<>();
+            for (SettleablePayout payout : payouts) {
+                ResponseLine response = chunk.get(payout.reference());
+                if (response.paid()) {
+                    User user = users.get(payout.userId());
+                    // Deduct from wallet (unlock and deduct)
+                    walletService.unlockBalance(user, payout.requestedAmount());
+                    walletService.debitWallet(
+                            user,
+                            payout.requestedAmount(),
+                            "COMMISSION",
+                            "Withdrawal processed - " + payout.payoutId());
+                    completed.add(new Settlement(payout.id(), response.detail()));
+                    completedNotices.add(new CompletedNotice(
+                            user.getEmail(), user.getFullName(), payout.netAmount(), response.detail()));
+                } else {
+                    // The balance stays locked until the payout is retried or rejected
+                    failed.add(new Settlement(payout.id(), response.detail()));
+                }
+            }
+            bankFileRepository.markCompleted(completed);
+            bankFileRepository.markFailed(failed);
+
+            batch.setCompletedCount(batch.getCompletedCount() + completed.size());
+            batch.setFailedCount(batch.getFailedCount() + failed.size());
+            batchRepository.save(batch);
+
+            totals[0] += completed.size();
+            totals[1] += failed.size();
+            totals[2] += chunk.size() - payouts.size();
+            return completedNotices;
+        });
+
+        for (CompletedNotice notice : notices) {
+            notificationService.sendPayoutCompletedNotification(
+                    notice.email(), notice.fullName(), notice.netAmount(), notice.utrNumber());
+        }
+    }
+
+    /**
+     * Write the batch's file and manifest, returning the file's SHA-256
+     */
+    private String writeBankFile(PayoutBankBatch batch, BankFileFormat format, String fileName) {
+        Path file = directory.resolve(fileName);
+        Path partFile = directory.resolve(fileName + ".part");
+        Path manifest = directory.resolve(fileName + ".manifest");
+        Path partManifest = directory.resolve(fileName + ".manifest.part");
+        try {
+            Files.createDirectories(directory);
+            String checksum;
+            try (ChecksumChannelWriter writer = new ChecksumChannelWriter(partFile)) {
+                int[] written = new int[1];
+                if (format == BankFileFormat.FIXED_WIDTH) {
+                    writer.writeLine(fixedWidthHeader(batch));
+                } else {
+                    writer.writeLine("Payment Reference,Beneficiary Name,Account Number,IFSC Code,Bank Name,Amount,Mode,Remarks");
+                }
+                readOnlyTransaction.executeWithoutResult(status ->
+                        bankFileRepository.streamBatch(batch.getBatchId(), row -> {
+                            writer.writeLine(format == BankFileFormat.FIXED_WIDTH
+                                    ? fixedWidthDetail(row, batch.getTransferMode())
+                                    : csvDetail(row, batch.getTransferMode()));
+                            written[0]++;
+                        }));
+                if (written[0] != batch.getPayoutCount()) {
+                    throw new IllegalStateException("Wrote " + written[0] + " payouts, claimed " + batch.getPayoutCount());
+                }
+                if (format == BankFileFormat.FIXED_WIDTH) {
+                    writer.writeLine(fixedWidthTrailer(batch));
+                }
+                checksum = writer.finish();
+            }
+
+            String manifestContent = "file=" + fileName + "\n" +
+                    "batch=" + batch.getBatchId() + "\n" +
+                    "format=" + format.name() + "\n" +
+                    "mode=" + batch.getTransferMode() + "\n" +
+                    "records=" + batch.getPayoutCount() + "\n" +
+                    "total=" + batch.getTotalAmount().toPlainString() + "\n" +
+                    "sha256=" + checksum + "\n";
+            try (ChecksumChannelWriter writer = new ChecksumChannelWriter(partManifest)) {
+                writer.writeLine(manifestContent.stripTrailing());
+                writer.finish();
+            }
+
+            Files.move(partFile, file, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(partManifest, manifest, StandardCopyOption.ATOMIC_MOVE);
+            return checksum;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteQuietly(partFile);
+            deleteQuietly(partManifest);
+        }
+    }
+
+    /**
+     * Appends lines to a new file through a FileChannel and a reused direct buffer, hashing every
+     * byte written
+     */
+    private static final class ChecksumChannelWriter implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+        private final MessageDigest digest;
+
+        ChecksumChannelWriter(Path path) throws IOException {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+
+        void writeLine(String line) {
+            byte[] bytes = (line + "\r\n").getBytes(StandardCharsets.US_ASCII);
+            try {
+                if (bytes.length > buffer.remaining()) {
+                    flush();
+                }
+                if (bytes.length > buffer.capacity()) {
+                    digest.update(bytes);
+                    ByteBuffer large = ByteBuffer.wrap(bytes);
+                    while (large.hasRemaining()) {
+                        channel.write(large);
+                    }
+                    return;
+                }
+                buffer.put(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Flush and sync to disk, returning the hex SHA-256 of the content
+         */
+        String finish() throws IOException {
+            flush();
+            channel.force(true);
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            digest.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // Fixed-width layout: H header, one D line per payout, T trailer; amounts in paise
+
+    private static String fixedWidthHeader(PayoutBankBatch batch) {
+        return "H" + pad(batch.getBatchId(), 25) + LocalDate.now().format(FILE_DATE)
+                + pad(batch.getTransferMode(), 4)
+                + zeroPad(batch.getPayoutCount(), 9) + zeroPad(paise(batch.getTotalAmount()), 17);
+    }
+
+    private static String fixedWidthDetail(BankTransferRow row, String mode) {
+        return "D" + pad(row.reference(), 40) + pad(clean(row.accountHolderName()), 35)
+                + pad(clean(row.accountNumber()), 20) + pad(clean(row.ifscCode()), 11)
+                + zeroPad(paise(row.netAmount()), 15) + pad(mode, 4) + pad(clean(row.payoutId()), 30);
+    }
+
+    private static String fixedWidthTrailer(PayoutBankBatch batch) {
+        return "T" + zeroPad(batch.getPayoutCount(), 9) + zeroPad(paise(batch.getTotalAmount()), 17);
+    }
+
+    private static String csvDetail(BankTransferRow row, String mode) {
+        return String.join(",",
+                row.reference(),
+                clean(row.accountHolderName()),
+                clean(row.accountNumber()),
+                clean(row.ifscCode()),
+                clean(row.bankName()),
+                row.netAmount().setScale(2).toPlainString(),
+                mode,
+                clean(row.payoutId()));
+    }
+
+    /**
+     * Bank files take plain ASCII only; anything else, including the separator, becomes a space
+     */
+    private static String clean(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replaceAll("[^A-Za-z0-9 ./-]", " ").trim().toUpperCase();
+    }
+
+    private static String pad(String value, int width) {
+        String text = value.length() > width ? value.substring(0, width) : value;
+        return text + " ".repeat(width - text.length());
+    }
+
+    private static String zeroPad(long value, int width) {
+        return String.format("%0" + width + "d", value);
+    }
+
+    private static long paise(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    private static String transferMode(String mode) {
+        String transferMode = mode == null || mode.isBlank() ? "NEFT" : mode.trim().toUpperCase();
+        if (!"NEFT".equals(transferMode) && !"IMPS".equals(transferMode)) {
+            throw new BadRequestException("Unsupported transfer mode: " + mode + " (use NEFT or IMPS)");
+        }
+        return transferMode;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", path, e);
+        }
+    }
+
+    private PayoutBankBatch findBatch(String batchId) {
+        return batchRepository.findByBatchId(batchId)
+                .orElseThrow(() -> new ResourceNotFoundException("Bank batch not found: " + batchId));
+    }
+
+    private PayoutBankBatchResponse mapToResponse(PayoutBankBatch batch) {
+        return PayoutBankBatchResponse.builder()
+                .batchId(batch.getBatchId())
+                .status(batch.getStatus())
+                .fileFormat(batch.getFileFormat())
+                .transferMode(batch.getTransferMode())
+                .fileName(batch.getFileName())
+                .payoutCount(batch.getPayoutCount())
+                .totalAmount(batch.getTotalAmount())
+                .checksumSha256(batch.getChecksumSha256())
+                .completedCount(batch.getCompletedCount())
+                .failedCount(batch.getFailedCount())
+                .lastError(batch.getLastError())
+                .createdBy(batch.getCreatedBy())
+                .createdAt(batch.getCreatedAt())
+                .exportedAt(batch.getExportedAt())
+                .completedAt(batch.getCompletedAt())
+                .build();
+    }
+}
@@ -0,0 +1,181 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.model.Payout;
+import com.realestate.mlm.repository.PayoutRepository;
+import com.realestate.mlm.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Nets a user's APPROVED payouts to the same destination into one transfer before each payout
+ * cycle, so a week of small withdrawals costs one gateway call or bank file line, one wallet
+ * unlock and debit, and one email instead of one each.
+ *
+ * Payouts are grouped by user, payment method and destination (bank account and IFSC, or UPI
+ * id). Each group of two or more is replaced by a new APPROVED payout for the total requested
+ * amount, with TDS and admin charge computed on that total; the originals become CONSOLIDATED
+ * and point at it. Their amounts are already locked in the wallet and the new payout requests
+ * exactly their sum, so the wallet is not touched here.
+ *
+ * Users are taken app.payout.consolidation.chunk-size at a time, each chunk in one transaction
+ * that locks their payouts with SKIP LOCKED, so it can run on several nodes and next to a
+ * dispatch without either waiting on the other.
+ */
+@Service
+@Slf4j
+public class PayoutConsolidationService {
+
+    static final String STATUS_APPROVED = "APPROVED";
+    static final String STATUS_CONSOLIDATED = "CONSOLIDATED";
+
+    private static final String CONSOLIDATED_BY = "CONSOLIDATION";
+
+    private final PayoutRepository payoutRepository;
+    private final IdGeneratorService idGeneratorService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+
+    public PayoutConsolidationService(
+            PayoutRepository payoutRepository,
+            IdGeneratorService idGeneratorService,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.payout.consolidation.enabled:true}") boolean enabled,
+            @Value("${app.payout.consolidation.chunk-size:500}") int chunkSize) {
+        this.payoutRepository = payoutRepository;
+        this.idGeneratorService = idGeneratorService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Consolidate every user's APPROVED payouts per destination.
+     * Returns the number of payouts created.
+     */
+    public int consolidateApprovedPayouts() {
+        if (!enabled) {
+            return 0;
+        }
+
+        long afterUserId = 0;
+        int created = 0;
+        int replaced = 0;
+        List<Long> userIds;
+        while (!(userIds = payoutRepository.findUsersWithApprovedPayouts(afterUserId, chunkSize)).isEmpty()) {
+            List<Long> chunk = userIds;
+            int[] counts = transactionTemplate.execute(status -> consolidate(chunk));
+            created += counts[0];
+            replaced += counts[1];
+            afterUserId = userIds.get(userIds.size() - 1);
+        }
+
+        if (created > 0) {
+            log.info("Consolidated {} approved payouts into {}", replaced, created);
+        }
+        return created;
+    }
+
+    private record Destination(Long userId, String paymentMethod, String accountNumber, String ifscCode, String upiId) {
+
+        static Destination of(Payout payout) {
+            return new Destination(
+                    payout.getUser().getId(),
+                    payout.getPaymentMethod(),
+                    normalise(payout.getAccountNumber()),
+                    normalise(payout.getIfscCode()),
+                    normalise(payout.getUpiId()));
+        }
+
+        private static String normalise(String value) {
+            return value == null ? null : value.trim().toUpperCase();
+        }
+    }
+
+    /**
+     * Returns {payouts created, payouts consolidated}
+     */
+    private int[] consolidate(List<Long> userIds) {
+        Map<Destination, List<Payout>> groups = payoutRepository.lockApprovedByUserIds(userIds).stream()
+                .collect(Collectors.groupingBy(Destination::of, LinkedHashMap::new, Collectors.toList()));
+
+        List<Payout> originals = new ArrayList<>();
+        List<List<Payout>> merged = new ArrayList<>();
+        List<Payout> consolidated = new ArrayList<>();
+        for (List<Payout> group : groups.values()) {
+            if (group.size() < 2) {
+                continue;
+            }
+            merged.add(group);
+            consolidated.add(combine(group));
+        }
+        if (consolidated.isEmpty()) {
+            return new int[] {0, 0};
+        }
+
+        List<Payout> saved = payoutRepository.saveAll(consolidated);
+        for (int i = 0; i < saved.size(); i++) {
+            Payout payout = saved.get(i);
+            for (Payout original : merged.get(i)) {
+                original.setStatus(STATUS_CONSOLIDATED);
+                original.setConsolidatedPayoutId(payout.getId());
+                originals.add(original);
+            }
+        }
+        payoutRepository.saveAll(originals);
+        return new int[] {saved.size(), originals.size()};
+    }
+
+    private Payout combine(List<Payout> group) {
+        Payout first = group.get(0);
+
+        Money requestedAmount = Money.ZERO;
+        for (Payout payout : group) {
+            requestedAmount = requestedAmount.plus(Money.of(payout.getRequestedAmount()));
+        }
+        Money tdsAmount = requestedAmount.percent(PayoutService.TDS_RATE);
+        Money adminCharge = requestedAmount.percent(PayoutService.ADMIN_CHARGE_RATE);
+        Money netAmount = requestedAmount.minus(tdsAmount).minus(adminCharge);
+
+        Payout payout = new Payout();
+        payout.setPayoutId(idGeneratorService.nextPayoutId());
+        payout.setUser(first.getUser());
+        payout.setRequestedAmount(requestedAmount.toBigDecimal());
+        payout.setTdsAmount(tdsAmount.toBigDecimal());
+        payout.setAdminCharge(adminCharge.toBigDecimal());
+        payout.setNetAmount(netAmount.toBigDecimal());
+        payout.setPaymentMethod(first.getPaymentMethod());
+        payout.setBankName(first.getBankName());
+        payout.setAccountNumber(first.getAccountNumber());
+        payout.setIfscCode(first.getIfscCode());
+        payout.setAccountHolderName(first.getAccountHolderName());
+        payout.setBranchName(first.getBranchName());
+        payout.setUpiId(first.getUpiId());
+        payout.setStatus(STATUS_APPROVED);
+        payout.setRemarks("Consolidates " + group.stream()
+                .map(Payout::getPayoutId)
+                .collect(Collectors.joining(", ")));
+        payout.setRequestedAt(group.stream()
+                .map(Payout::getRequestedAt)
+                .filter(Objects::nonNull)
+                .min(Comparator.naturalOrder())
+                .orElse(LocalDateTime.now()));
+        payout.setApprovedAt(LocalDateTime.now());
+        payout.setApprovedBy(CONSOLIDATED_BY);
+        return payout;
+    }
+}
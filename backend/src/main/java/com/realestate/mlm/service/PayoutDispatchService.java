@@ -0,0 +1,317 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.exception.BadRequestException;
+import com.realestate.mlm.exception.PayoutGatewayException;
+import com.realestate.mlm.exception.ResourceNotFoundException;
+import com.realestate.mlm.model.Payout;
+import com.realestate.mlm.repository.PayoutRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends approved payouts to the payout gateway, several at a time, from any number of nodes.
+ *
+ * Payouts are claimed in chunks of app.payout.dispatch.chunk-size with one SKIP LOCKED statement
+ * that moves them to PROCESSING under this node's name, so nodes dispatching at the same time
+ * split the work instead of queueing on each other's rows. Up to app.payout.dispatch.parallelism
+ * gateway calls are in flight at once, outside any transaction and without holding a thread;
+ * each payout is then completed or failed in its own short transaction, so one bad payout never
+ * rolls back another.
+ *
+ * Every attempt carries an idempotency key. When the gateway rejects a payout it is FAILED. When
+ * the gateway cannot be reached or does not answer, the payout is released: it stays PROCESSING
+ * with its key, the run stops, and the next dispatch sends it again, so the gateway returns the
+ * transfer it may already have made instead of paying twice. A claim older than
+ * app.payout.dispatch.claim-timeout-minutes belongs to a node that died mid-dispatch and is taken
+ * over the same way.
+ */
+@Service
+@Slf4j
+public class PayoutDispatchService {
+
+    static final String STATUS_APPROVED = "APPROVED";
+    static final String STATUS_PROCESSING = "PROCESSING";
+    static final String STATUS_PROCESSED = "PROCESSED";
+    static final String STATUS_COMPLETED = "COMPLETED";
+    static final String STATUS_FAILED = "FAILED";
+
+    private final PayoutRepository payoutRepository;
+    private final WalletService walletService;
+    private final NotificationService notificationService;
+    private final PayoutGatewayClient payoutGatewayClient;
+    private final PayoutConsolidationService payoutConsolidationService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService dispatchPool;
+    private final int parallelism;
+    private final String nodeName;
+    private final int chunkSize;
+    private final int claimTimeoutMinutes;
+
+    public PayoutDispatchService(
+            PayoutRepository payoutRepository,
+            WalletService walletService,
+            NotificationService notificationService,
+            PayoutGatewayClient payoutGatewayClient,
+            PayoutConsolidationService payoutConsolidationService,
+            IdGeneratorService idGeneratorService,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.payout.dispatch.parallelism:8}") int parallelism,
+            @Value("${app.payout.dispatch.chunk-size:200}") int chunkSize,
+            @Value("${app.payout.dispatch.claim-timeout-minutes:30}") int claimTimeoutMinutes) {
+        this.payoutRepository = payoutRepository;
+        this.walletService = walletService;
+        this.notificationService = notificationService;
+        this.payoutGatewayClient = payoutGatewayClient;
+        this.payoutConsolidationService = payoutConsolidationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Claims and results must be committed whatever transaction the caller is in
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.nodeName = "node-" + idGeneratorService.getNodeId();
+        this.parallelism = Math.max(1, parallelism);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.claimTimeoutMinutes = Math.max(1, claimTimeoutMinutes);
+        // Threads only load and record payouts; gateway calls wait without one
+        AtomicInteger threadNo = new AtomicInteger();
+        this.dispatchPool = Executors.newFixedThreadPool(Math.min(this.parallelism, 8), runnable -> {
+            Thread thread = new Thread(runnable, "payout-dispatch-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatchPool.shutdownNow();
+    }
+
+    /**
+     * Consolidate the approved payouts per user and destination, then dispatch every approved
+     * payout, and every released or stale one, chunk by chunk, until none are left or the gateway
+     * stops answering. Returns the number of payouts completed.
+     */
+    public int dispatchApprovedPayouts() {
+        payoutConsolidationService.consolidateApprovedPayouts();
+
+        int claimed = 0;
+        int completed = 0;
+        List<Long> chunk;
+        while (!payoutGatewayClient.isCircuitOpen() && !(chunk = claim()).isEmpty()) {
+            claimed += chunk.size();
+            List<Payout> dispatched = dispatch(chunk);
+            for (Payout payout : dispatched) {
+                if (STATUS_COMPLETED.equals(payout.getStatus())) {
+                    completed++;
+                }
+            }
+            if (dispatched.stream().anyMatch(payout -> STATUS_PROCESSING.equals(payout.getStatus()))) {
+                log.warn("Payout gateway unavailable, leaving the remaining payouts for the next dispatch");
+                break;
+            }
+        }
+        log.info("Payout dispatch on {} finished. Completed: {}/{}", nodeName, completed, claimed);
+        return completed;
+    }
+
+    /**
+     * Dispatch the given payouts, skipping any that are not APPROVED or released, or are claimed
+     * by another dispatch. Returns the dispatched payouts: COMPLETED, FAILED, or PROCESSING when
+     * released for a later dispatch.
+     */
+    public List<Payout> dispatchPayouts(Collection<Long> payoutIds) {
+        if (payoutIds.isEmpty()) {
+            return List.of();
+        }
+        List<Long> claimed = transactionTemplate.execute(status ->
+                payoutRepository.claimForDispatch(nodeName, payoutIds));
+        return dispatch(claimed);
+    }
+
+    /**
+     * Send a FAILED payout again, as a new attempt with a new idempotency key
+     */
+    public Payout retryFailedPayout(Long payoutId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Payout payout = payoutRepository.findByIdForUpdate(payoutId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Payout not found with ID: " + payoutId));
+            if (!STATUS_FAILED.equals(payout.getStatus())) {
+                throw new BadRequestException("Only FAILED payouts can be retried");
+            }
+            payout.setStatus(STATUS_APPROVED);
+            payout.setRejectionReason(null);
+            payout.setBankBatchId(null);
+            payoutRepository.save(payout);
+        });
+
+        List<Payout> dispatched = dispatchPayouts(List.of(payoutId));
+        if (dispatched.isEmpty()) {
+            throw new BadRequestException("Payout is already being processed");
+        }
+        return dispatched.get(0);
+    }
+
+    private List<Long> claim() {
+        LocalDateTime staleBefore = LocalDateTime.now().minusMinutes(claimTimeoutMinutes);
+        return transactionTemplate.execute(status ->
+                payoutRepository.claimForDispatch(nodeName, staleBefore, chunkSize));
+    }
+
+    private List<Payout> dispatch(List<Long> payoutIds) {
+        Semaphore inFlight = new Semaphore(parallelism);
+        List<CompletableFuture<Payout>> futures = new ArrayList<>(payoutIds.size());
+        try {
+            for (Long payoutId : payoutIds) {
+                inFlight.acquire();
+                CompletableFuture<Payout> future = dispatchOne(payoutId);
+                future.whenComplete((payout, error) -> inFlight.release());
+                futures.add(future);
+            }
+        } catch (InterruptedException e) {
+            // Unsent payouts stay claimed and are taken over once the claim goes stale
+            Thread.currentThread().interrupt();
+        }
+
+        List<Payout> dispatched = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                Payout payout = futures.get(i).join();
+                if (payout != null) {
+                    dispatched.add(payout);
+                }
+            } catch (CompletionException e) {
+                // Left PROCESSING; taken over once its claim goes stale
+                log.error("Failed to dispatch payout id {}", payoutIds.get(i), e.getCause());
+            }
+        }
+        return dispatched;
+    }
+
+    /**
+     * Call the gateway for one claimed payout and record the result in its own transaction.
+     * Completes with the payout as recorded, or null when the claim was lost to another node.
+     */
+    private CompletableFuture<Payout> dispatchOne(Long payoutId) {
+        return CompletableFuture
+                .supplyAsync(() -> payoutRepository.findWithUserById(payoutId)
+                        .filter(this::isClaimed)
+                        .orElse(null), dispatchPool)
+                .thenCompose(payout -> {
+                    if (payout == null) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return payoutGatewayClient.transfer(payout, payout.getIdempotencyKey())
+                            .handleAsync((transfer, error) -> record(payout, transfer, error), dispatchPool);
+                });
+    }
+
+    private Payout record(Payout payout, PayoutGateway.Result transfer, Throwable error) {
+        Long payoutId = payout.getId();
+        Payout recorded;
+        if (error == null) {
+            recorded = transactionTemplate.execute(status -> complete(payoutId, transfer));
+        } else {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof PayoutGatewayException failure && !failure.isRetryable()) {
+                log.error("Payment gateway rejected payout {}: {}", payout.getPayoutId(), failure.getMessage());
+                recorded = transactionTemplate.execute(status -> fail(payoutId, failure.getMessage()));
+            } else {
+                log.warn("Payment gateway did not complete payout {}, releasing it: {}",
+                        payout.getPayoutId(), cause.getMessage());
+                recorded = transactionTemplate.execute(status -> release(payoutId));
+            }
+        }
+
+        if (recorded != null && STATUS_COMPLETED.equals(recorded.getStatus())) {
+            notificationService.sendPayoutCompletedNotification(
+                    recorded.getUser().getEmail(),
+                    recorded.getUser().getFullName(),
+                    recorded.getNetAmount(),
+                    recorded.getUtrNumber());
+            log.info("Payout processed successfully: {}", recorded.getPayoutId());
+        }
+        return recorded;
+    }
+
+    private Payout complete(Long payoutId, PayoutGateway.Result transfer) {
+        Payout payout = lockClaimed(payoutId);
+        if (payout == null) {
+            return null;
+        }
+
+        payout.setStatus(STATUS_PROCESSED);
+        payout.setProcessedAt(LocalDateTime.now());
+        payout.setPaymentGatewayRef(transfer.gatewayRef());
+        payout.setUtrNumber(transfer.utrNumber());
+
+        // Deduct from wallet (unlock and deduct)
+        walletService.unlockBalance(payout.getUser(), payout.getRequestedAmount());
+        walletService.debitWallet(
+                payout.getUser(),
+                payout.getRequestedAmount(),
+                "COMMISSION",
+                "Withdrawal processed - " + payout.getPayoutId());
+
+        payout.setStatus(STATUS_COMPLETED);
+        payout.setCompletedAt(LocalDateTime.now());
+        payout.setClaimedBy(null);
+        payout.setClaimedAt(null);
+        return payoutRepository.save(payout);
+    }
+
+    private Payout fail(Long payoutId, String reason) {
+        Payout payout = lockClaimed(payoutId);
+        if (payout == null) {
+            return null;
+        }
+
+        // The balance stays locked until the payout is retried or rejected
+        payout.setStatus(STATUS_FAILED);
+        payout.setRejectionReason("Payment gateway error: " + reason);
+        payout.setClaimedBy(null);
+        payout.setClaimedAt(null);
+        return payoutRepository.save(payout);
+    }
+
+    /**
+     * Give up the claim but keep the payout PROCESSING with its idempotency key: the transfer may
+     * have been made, so it must only ever be sent again with the same key
+     */
+    private Payout release(Long payoutId) {
+        Payout payout = lockClaimed(payoutId);
+        if (payout == null) {
+            return null;
+        }
+
+        payout.setClaimedBy(null);
+        payout.setClaimedAt(null);
+        return payoutRepository.save(payout);
+    }
+
+    private Payout lockClaimed(Long payoutId) {
+        Payout payout = payoutRepository.findByIdForUpdate(payoutId).orElse(null);
+        if (payout == null || !isClaimed(payout)) {
+            log.warn("Payout id {} was taken over by another dispatcher, leaving its result to it", payoutId);
+            return null;
+        }
+        return payout;
+    }
+
+    private boolean isClaimed(Payout payout) {
+        return STATUS_PROCESSING.equals(payout.getStatus()) && nodeName.equals(payout.getClaimedBy());
+    }
+}
@@ -0,0 +1,30 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.model.Payout;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends money for a payout to the user's bank account or UPI id.
+ *
+ * A transfer is identified by its idempotency key: calling again with a key the gateway has
+ * already accepted must not pay twice, it returns the original transfer. Calls never block the
+ * caller; failures complete the future with a
+ * {@link com.realestate.mlm.exception.PayoutGatewayException} saying whether money may have moved.
+ *
+ * Implementations make a single attempt. Use {@link PayoutGatewayClient}, which adds timeouts,
+ * retries and a circuit breaker.
+ */
+public interface PayoutGateway {
+
+    /**
+     * Reference of an accepted transfer
+     */
+    record Result(String gatewayRef, String utrNumber) {
+    }
+
+    /**
+     * Transfer the payout's net amount
+     */
+    CompletableFuture<Result> transfer(Payout payout, String idempotencyKey);
+}
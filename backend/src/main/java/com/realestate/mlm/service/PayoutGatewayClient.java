@@ -0,0 +1,205 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.exception.PayoutGatewayException;
+import com.realestate.mlm.exception.PayoutGatewayException.Kind;
+import com.realestate.mlm.model.Payout;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking calls to the {@link PayoutGateway}, with a timeout per attempt, retries with
+ * backoff and a circuit breaker.
+ *
+ * An attempt that does not answer within app.payout.gateway.timeout-ms is abandoned as
+ * UNCERTAIN. Retryable failures are sent again with the same idempotency key, up to
+ * app.payout.gateway.max-attempts in all, after an exponential backoff with jitter starting at
+ * backoff-initial-ms and capped at backoff-max-ms. Waiting between attempts holds no thread.
+ *
+ * After circuit-failure-threshold consecutive UNAVAILABLE or UNCERTAIN failures the circuit opens
+ * and calls fail at once as UNAVAILABLE for circuit-open-ms; then a single trial call is let
+ * through, and its success closes the circuit again. Rejections mean the gateway is up and do not
+ * count.
+ */
+@Component
+@Slf4j
+public class PayoutGatewayClient {
+
+    private final PayoutGateway gateway;
+    private final long timeoutMillis;
+    private final int maxAttempts;
+    private final long backoffInitialMillis;
+    private final long backoffMaxMillis;
+    private final CircuitBreaker circuitBreaker;
+
+    public PayoutGatewayClient(
+            PayoutGateway gateway,
+            @Value("${app.payout.gateway.timeout-ms:10000}") long timeoutMillis,
+            @Value("${app.payout.gateway.max-attempts:3}") int maxAttempts,
+            @Value("${app.payout.gateway.backoff-initial-ms:500}") long backoffInitialMillis,
+            @Value("${app.payout.gateway.backoff-max-ms:8000}") long backoffMaxMillis,
+            @Value("${app.payout.gateway.circuit-failure-threshold:5}") int circuitFailureThreshold,
+            @Value("${app.payout.gateway.circuit-open-ms:30000}") long circuitOpenMillis) {
+        this.gateway = gateway;
+        this.timeoutMillis = Math.max(1, timeoutMillis);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffInitialMillis = Math.max(1, backoffInitialMillis);
+        this.backoffMaxMillis = Math.max(this.backoffInitialMillis, backoffMaxMillis);
+        this.circuitBreaker = new CircuitBreaker(Math.max(1, circuitFailureThreshold), Math.max(0, circuitOpenMillis));
+    }
+
+    /**
+     * Transfer the payout's net amount. The future fails with a PayoutGatewayException once the
+     * transfer was rejected, the attempts are used up or the circuit is open.
+     */
+    public CompletableFuture<PayoutGateway.Result> transfer(Payout payout, String idempotencyKey) {
+        CompletableFuture<PayoutGateway.Result> result = new CompletableFuture<>();
+        attempt(payout, idempotencyKey, 1, false, result);
+        return result;
+    }
+
+    /**
+     * Whether calls are currently failing fast
+     */
+    public boolean isCircuitOpen() {
+        return circuitBreaker.isOpen();
+    }
+
+    /**
+     * @param sent whether an earlier attempt may have reached the gateway; a later UNAVAILABLE
+     *             then still leaves the outcome uncertain
+     */
+    private void attempt(Payout payout, String idempotencyKey, int attemptNo, boolean sent,
+                         CompletableFuture<PayoutGateway.Result> result) {
+        if (!circuitBreaker.tryAcquire()) {
+            result.completeExceptionally(new PayoutGatewayException(sent ? Kind.UNCERTAIN : Kind.UNAVAILABLE,
+                    "Payout gateway circuit is open"));
+            return;
+        }
+
+        CompletableFuture<PayoutGateway.Result> call;
+        try {
+            call = gateway.transfer(payout, idempotencyKey);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+
+        call.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((transfer, error) -> {
+            if (error == null) {
+                circuitBreaker.onSuccess();
+                result.complete(transfer);
+                return;
+            }
+
+            PayoutGatewayException failure = classify(error, sent);
+            if (failure.getKind() == Kind.REJECTED) {
+                circuitBreaker.onSuccess();
+                result.completeExceptionally(failure);
+                return;
+            }
+            circuitBreaker.onFailure();
+
+            boolean mayHaveSent = failure.getKind() == Kind.UNCERTAIN;
+            if (attemptNo >= maxAttempts) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            long delay = backoff(attemptNo);
+            log.warn("Payout gateway attempt {}/{} for payout {} failed ({}), retrying in {} ms",
+                    attemptNo, maxAttempts, payout.getPayoutId(), failure.getMessage(), delay);
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() ->
+                    attempt(payout, idempotencyKey, attemptNo + 1, mayHaveSent, result));
+        });
+    }
+
+    private static PayoutGatewayException classify(Throwable error, boolean sent) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof PayoutGatewayException failure) {
+            if (sent && failure.getKind() == Kind.UNAVAILABLE) {
+                return new PayoutGatewayException(Kind.UNCERTAIN, failure.getMessage(), failure);
+            }
+            return failure;
+        }
+        if (cause instanceof TimeoutException) {
+            return new PayoutGatewayException(Kind.UNCERTAIN, "Payout gateway timed out", cause);
+        }
+        return new PayoutGatewayException(Kind.UNCERTAIN, "Payout gateway error: " + cause.getMessage(), cause);
+    }
+
+    /**
+     * Exponential backoff with jitter: a random delay between half and all of
+     * backoff-initial-ms * 2^(attemptNo - 1), capped at backoff-max-ms
+     */
+    private long backoff(int attemptNo) {
+        long ceiling = backoffInitialMillis << Math.min(attemptNo - 1, 20);
+        ceiling = Math.min(ceiling, backoffMaxMillis);
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    /**
+     * Consecutive-failure circuit breaker: CLOSED, OPEN for a while, then HALF_OPEN with one
+     * trial call
+     */
+    private static final class CircuitBreaker {
+
+        private enum State { CLOSED, OPEN, HALF_OPEN }
+
+        private final int failureThreshold;
+        private final long openMillis;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private boolean trialInFlight;
+
+        CircuitBreaker(int failureThreshold, long openMillis) {
+            this.failureThreshold = failureThreshold;
+            this.openMillis = openMillis;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+            }
+            if (state == State.OPEN) {
+                return false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+            }
+            return true;
+        }
+
+        synchronized void onSuccess() {
+            if (state != State.CLOSED) {
+                log.info("Payout gateway circuit closed");
+            }
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            trialInFlight = false;
+        }
+
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                log.warn("Payout gateway circuit opened after {} consecutive failures", consecutiveFailures);
+                state = State.OPEN;
+                openedAt = System.currentTimeMillis();
+                trialInFlight = false;
+            }
+        }
+
+        synchronized boolean isOpen() {
+            return state == State.OPEN && System.currentTimeMillis() - openedAt < openMillis;
+        }
+    }
+}
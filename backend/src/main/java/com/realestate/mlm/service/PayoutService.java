@@ -1,6 +1,7 @@
 package com.realestate.mlm.service;
 
 import com.realestate.mlm.dto.request.WithdrawalRequest;
+import com.realestate.mlm.dto.response.CursorPageResponse;
 import com.realestate.mlm.dto.response.PageResponse;
 import com.realestate.mlm.dto.response.PayoutResponse;
 import com.realestate.mlm.exception.BadRequestException;
@@ -14,21 +15,22 @@ import com.realestate.mlm.model.Wallet;
 import com.realestate.mlm.repository.BankAccountRepository;
 import com.realestate.mlm.repository.PayoutRepository;
 import com.realestate.mlm.repository.UserRepository;
+import com.realestate.mlm.util.Money;
 import com.realestate.mlm.util.SecurityUtil;
+import com.realestate.mlm.util.SeekCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -40,10 +42,17 @@ public class PayoutService {
     private final BankAccountRepository bankAccountRepository;
     private final WalletService walletService;
     private final NotificationService notificationService;
+    private final IdGeneratorService idGeneratorService;
+    private final PayoutDispatchService payoutDispatchService;
+
+    @Value("${app.payout.max-daily-withdrawal:100000}")
+    private BigDecimal maxDailyWithdrawal;
 
     private static final BigDecimal MINIMUM_WITHDRAWAL = new BigDecimal("1000.00");
     private static final BigDecimal TDS_PERCENTAGE = new BigDecimal("10.00");
     private static final BigDecimal ADMIN_CHARGE_PERCENTAGE = new BigDecimal("2.00");
+    static final Money.Rate TDS_RATE = Money.Rate.of(TDS_PERCENTAGE);
+    static final Money.Rate ADMIN_CHARGE_RATE = Money.Rate.of(ADMIN_CHARGE_PERCENTAGE);
 
     /**
      * Request withdrawal/payout for current authenticated user
@@ -74,7 +83,7 @@ public class PayoutService {
         }
 
         // Get wallet and validate withdrawable balance
-        Wallet wallet = walletService.getWalletByUser(user);
+        Wallet wallet = walletService.getBalanceView(user);
         BigDecimal withdrawableBalance = wallet.getWithdrawableBalance();
 
         if (withdrawableBalance.compareTo(request.getAmount()) < 0) {
@@ -84,29 +93,27 @@ public class PayoutService {
                     request.getAmount()));
         }
 
+        Money requestedAmount = Money.of(request.getAmount());
+
         // Calculate TDS (10%)
-        BigDecimal tdsAmount = request.getAmount()
-                .multiply(TDS_PERCENTAGE)
-                .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+        Money tdsAmount = requestedAmount.percent(TDS_RATE);
 
         // Calculate admin charge (2%)
-        BigDecimal adminCharge = request.getAmount()
-                .multiply(ADMIN_CHARGE_PERCENTAGE)
-                .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+        Money adminCharge = requestedAmount.percent(ADMIN_CHARGE_RATE);
 
         // Calculate net amount
-        BigDecimal netAmount = request.getAmount()
-                .subtract(tdsAmount)
-                .subtract(adminCharge);
+        Money netAmount = requestedAmount
+                .minus(tdsAmount)
+                .minus(adminCharge);
 
         // Create payout record
         Payout payout = new Payout();
-        payout.setPayoutId(generatePayoutId());
+        payout.setPayoutId(idGeneratorService.nextPayoutId());
         payout.setUser(user);
         payout.setRequestedAmount(request.getAmount());
-        payout.setTdsAmount(tdsAmount);
-        payout.setAdminCharge(adminCharge);
-        payout.setNetAmount(netAmount);
+        payout.setTdsAmount(tdsAmount.toBigDecimal());
+        payout.setAdminCharge(adminCharge.toBigDecimal());
+        payout.setNetAmount(netAmount.toBigDecimal());
         payout.setPaymentMethod(request.getPaymentMethod());
         payout.setStatus("REQUESTED");
         payout.setRequestedAt(LocalDateTime.now());
@@ -142,8 +149,8 @@ public class PayoutService {
             payout.setUpiId(request.getUpiId());
         }
 
-        // Lock the balance
-        walletService.lockBalance(user, request.getAmount());
+        // Lock the balance, within the daily withdrawal limit
+        walletService.lockWithdrawal(user, request.getAmount(), maxDailyWithdrawal);
 
         Payout savedPayout = payoutRepository.save(payout);
 
@@ -152,7 +159,7 @@ public class PayoutService {
                 user.getEmail(),
                 user.getFullName(),
                 request.getAmount(),
-                netAmount);
+                payout.getNetAmount());
 
         log.info("Withdrawal request created: {}, net amount: {}", savedPayout.getPayoutId(), netAmount);
 
@@ -212,6 +219,19 @@ public class PayoutService {
                 .build();
     }
 
+    /**
+     * Keyset page of the current user's payouts, newest first, without a count query
+     */
+    public CursorPageResponse<PayoutResponse> getPayoutHistoryByCursor(String cursor, Integer size) {
+        Long userId = SecurityUtil.getCurrentUserId();
+        SeekCursor position = SeekCursor.decode(cursor);
+
+        List<Payout> payouts = payoutRepository.findPageBefore(
+                userId, position.createdAt(), position.id(), SeekCursor.limit(size));
+
+        return SeekCursor.page(payouts, size, Payout::getCreatedAt, Payout::getId, this::mapToResponse);
+    }
+
     /**
      * Get payout details for a specific payout
      * Validates that the payout belongs to the current user (non-admin users)
@@ -303,31 +323,14 @@ public class PayoutService {
     /**
      * Process all approved payouts (Scheduled Job)
      */
-    @Transactional
     public int processApprovedPayouts() {
         log.info("Starting processing of all approved payouts");
-
-        List<Payout> approvedPayouts = payoutRepository.findByStatus("APPROVED");
-        int processedCount = 0;
-
-        for (Payout payout : approvedPayouts) {
-            try {
-                processRazorpayPayout(payout);
-                processedCount++;
-            } catch (Exception e) {
-                log.error("Failed to process payout during scheduled job: {}", payout.getPayoutId(), e);
-                // We continue processing other payouts even if one fails
-            }
-        }
-
-        log.info("Completed processing of approved payouts. Processed: {}/{}", processedCount, approvedPayouts.size());
-        return processedCount;
+        return payoutDispatchService.dispatchApprovedPayouts();
     }
 
     /**
      * Process payout via Razorpay (Admin)
      */
-    @Transactional
     public PayoutResponse processRazorpayPayout(Payout payout) {
         log.info("Processing Razorpay payout: {}", payout.getPayoutId());
 
@@ -336,71 +339,26 @@ public class PayoutService {
             throw new BadRequestException("Only APPROVED payouts can be processed");
         }
 
-        try {
-            // TODO: Integrate with Razorpay Payout API
-            // For now, we'll simulate the payout
-
-            // Simulate API call
-            String razorpayPayoutId = "rzp_payout_" + UUID.randomUUID().toString().substring(0, 16);
-            String utrNumber = "UTR" + System.currentTimeMillis();
-
-            // Update payout status
-            payout.setStatus("PROCESSED");
-            payout.setProcessedAt(LocalDateTime.now());
-            payout.setPaymentGatewayRef(razorpayPayoutId);
-            payout.setUtrNumber(utrNumber);
-
-            // Deduct from wallet (unlock and deduct)
-            walletService.unlockBalance(payout.getUser(), payout.getRequestedAmount());
-            walletService.debitWallet(
-                    payout.getUser(),
-                    payout.getRequestedAmount(),
-                    "COMMISSION",
-                    "Withdrawal processed - " + payout.getPayoutId());
-
-            payout.setStatus("COMPLETED");
-            payout.setCompletedAt(LocalDateTime.now());
-
-            Payout completedPayout = payoutRepository.save(payout);
-
-            // Send notification
-            notificationService.sendPayoutCompletedNotification(
-                    payout.getUser().getEmail(),
-                    payout.getUser().getFullName(),
-                    payout.getNetAmount(),
-                    utrNumber);
-
-            log.info("Razorpay payout processed successfully: {}", payout.getPayoutId());
-
-            return mapToResponse(completedPayout);
-
-        } catch (Exception e) {
-            log.error("Failed to process Razorpay payout: {}", payout.getPayoutId(), e);
-
-            payout.setStatus("FAILED");
-            payout.setRejectionReason("Payment gateway error: " + e.getMessage());
-            payoutRepository.save(payout);
-
-            throw new RuntimeException("Failed to process payout: " + e.getMessage());
+        List<Payout> dispatched = payoutDispatchService.dispatchPayouts(List.of(payout.getId()));
+        if (dispatched.isEmpty()) {
+            throw new BadRequestException("Payout is already being processed");
         }
+        return toProcessedResponse(dispatched.get(0));
     }
 
     /**
      * Batch process payouts (Admin)
      */
-    @Transactional
     public List<PayoutResponse> batchProcessPayouts(List<Long> payoutIds) {
         log.info("Batch processing {} payouts", payoutIds.size());
 
-        List<Payout> payouts = payoutRepository.findAllById(payoutIds);
         List<PayoutResponse> responses = new ArrayList<>();
-
-        for (Payout payout : payouts) {
-            try {
-                PayoutResponse response = processRazorpayPayout(payout);
-                responses.add(response);
-            } catch (Exception e) {
-                log.error("Failed to process payout in batch: {}", payout.getPayoutId(), e);
+        for (Payout payout : payoutDispatchService.dispatchPayouts(payoutIds)) {
+            if ("COMPLETED".equals(payout.getStatus())) {
+                responses.add(mapToResponse(payout));
+            } else {
+                log.error("Failed to process payout in batch: {}, reason: {}",
+                        payout.getPayoutId(), payout.getRejectionReason());
             }
         }
 
@@ -412,32 +370,19 @@ public class PayoutService {
     /**
      * Retry failed payout
      */
-    @Transactional
     public PayoutResponse retryFailedPayout(Long payoutId) {
         log.info("Retrying failed payout ID: {}", payoutId);
-
-        Payout payout = payoutRepository.findById(payoutId)
-                .orElseThrow(() -> new ResourceNotFoundException("Payout not found with ID: " + payoutId));
-
-        // Validate status
-        if (!"FAILED".equals(payout.getStatus())) {
-            throw new BadRequestException("Only FAILED payouts can be retried");
-        }
-
-        // Reset status to approved for retry
-        payout.setStatus("APPROVED");
-        payout.setRejectionReason(null);
-        payoutRepository.save(payout);
-
-        // Process again
-        return processRazorpayPayout(payout);
+        return toProcessedResponse(payoutDispatchService.retryFailedPayout(payoutId));
     }
 
-    /**
-     * Generate unique payout ID
-     */
-    private String generatePayoutId() {
-        return "PAYOUT" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    private PayoutResponse toProcessedResponse(Payout payout) {
+        if ("FAILED".equals(payout.getStatus())) {
+            throw new RuntimeException("Failed to process payout: " + payout.getRejectionReason());
+        }
+        if ("PROCESSING".equals(payout.getStatus())) {
+            throw new RuntimeException("Payment gateway unavailable, the payout will be sent again with the next dispatch");
+        }
+        return mapToResponse(payout);
     }
 
     /**
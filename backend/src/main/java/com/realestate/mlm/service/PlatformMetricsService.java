@@ -0,0 +1,223 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.event.InvestmentCreatedEvent;
+import com.realestate.mlm.event.PayoutStatusChangedEvent;
+import com.realestate.mlm.event.UserPlacedEvent;
+import com.realestate.mlm.event.UserStatusChangedEvent;
+import com.realestate.mlm.event.WalletBalanceChangedEvent;
+import com.realestate.mlm.repository.PlatformMetricsRepository;
+import com.realestate.mlm.repository.PlatformMetricsRepository.MetricValue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.realestate.mlm.repository.PlatformMetricsRepository.ACTIVE_USERS;
+import static com.realestate.mlm.repository.PlatformMetricsRepository.INVESTMENTS;
+import static com.realestate.mlm.repository.PlatformMetricsRepository.LIFETIME_START;
+import static com.realestate.mlm.repository.PlatformMetricsRepository.PENDING_PAYOUTS;
+import static com.realestate.mlm.repository.PlatformMetricsRepository.PERIOD_ALL;
+import static com.realestate.mlm.repository.PlatformMetricsRepository.PERIOD_DAY;
+import static com.realestate.mlm.repository.PlatformMetricsRepository.PERIOD_MONTH;
+import static com.realestate.mlm.repository.PlatformMetricsRepository.USERS;
+import static com.realestate.mlm.repository.PlatformMetricsRepository.WALLET_BALANCE;
+
+/**
+ * Keeps the platform_metrics counters behind the admin dashboard in step with the data.
+ *
+ * Domain events are applied synchronously, in the transaction that published them, so a counter
+ * change commits or rolls back with the change it counts. Each change goes to a random stripe of
+ * its bucket, so registrations, investments and wallet postings do not serialize on one row.
+ * Metrics without an event source in the application (PAID commissions, rows written by scripts
+ * or migrations) are brought in by the recompute.
+ *
+ * {@link #recompute()} reads the stored counters and their exact values from one REPEATABLE
+ * READ snapshot and adds the difference as a correction. Changes committed after the snapshot
+ * are already in the counters and are left alone, so it never blocks or loses a concurrent
+ * update.
+ */
+@Service
+@Slf4j
+public class PlatformMetricsService {
+
+    static final String STATUS_ACTIVE = "ACTIVE";
+    static final String STATUS_PENDING = "PENDING";
+
+    /**
+     * Stripe the recompute writes its corrections to
+     */
+    private static final int CORRECTION_STRIPE = 0;
+
+    private final PlatformMetricsRepository platformMetricsRepository;
+    private final TransactionTemplate snapshotTemplate;
+    private final TransactionTemplate writeTemplate;
+    private final int stripeCount;
+    private final int dayRetentionDays;
+
+    public PlatformMetricsService(
+            PlatformMetricsRepository platformMetricsRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.metrics.stripe-count:8}") int stripeCount,
+            @Value("${app.metrics.day-retention-days:62}") int dayRetentionDays) {
+        this.platformMetricsRepository = platformMetricsRepository;
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.snapshotTemplate.setReadOnly(true);
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.writeTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.stripeCount = Math.max(1, stripeCount);
+        this.dayRetentionDays = Math.max(1, dayRetentionDays);
+    }
+
+    /**
+     * Current metric values, by metric and period
+     */
+    public static final class Snapshot {
+
+        private final Map<String, MetricValue> values = new HashMap<>();
+
+        private Snapshot(List<MetricValue> values) {
+            values.forEach(value -> this.values.put(key(value.metric(), value.period()), value));
+        }
+
+        public long count(String metric, String period) {
+            MetricValue value = values.get(key(metric, period));
+            return value != null ? value.count() : 0;
+        }
+
+        public BigDecimal amount(String metric, String period) {
+            MetricValue value = values.get(key(metric, period));
+            return value != null ? value.amount() : BigDecimal.ZERO;
+        }
+
+        private static String key(String metric, String period) {
+            return metric + ":" + period;
+        }
+    }
+
+    /**
+     * Lifetime, this month and today values of every metric - a few rows per metric, however
+     * large the tables behind them
+     */
+    public Snapshot getCurrent() {
+        LocalDate today = LocalDate.now();
+        return new Snapshot(platformMetricsRepository.findCurrent(today, today.withDayOfMonth(1)));
+    }
+
+    @EventListener
+    public void onUserPlaced(UserPlacedEvent event) {
+        addToPeriods(USERS, 1, BigDecimal.ZERO);
+    }
+
+    @EventListener
+    public void onUserStatusChanged(UserStatusChangedEvent event) {
+        boolean wasActive = STATUS_ACTIVE.equals(event.getPreviousStatus());
+        boolean active = STATUS_ACTIVE.equals(event.getStatus());
+        if (wasActive != active) {
+            addToLifetime(ACTIVE_USERS, active ? 1 : -1, BigDecimal.ZERO);
+        }
+    }
+
+    @EventListener
+    public void onInvestmentCreated(InvestmentCreatedEvent event) {
+        addToPeriods(INVESTMENTS, 1, valueOrZero(event.getInvestmentAmount()));
+    }
+
+    @EventListener
+    public void onPayoutStatusChanged(PayoutStatusChangedEvent event) {
+        boolean wasPending = STATUS_PENDING.equals(event.getPreviousStatus());
+        boolean pending = STATUS_PENDING.equals(event.getStatus());
+        if (wasPending != pending) {
+            BigDecimal amount = valueOrZero(event.getRequestedAmount());
+            addToLifetime(PENDING_PAYOUTS, pending ? 1 : -1, pending ? amount : amount.negate());
+        }
+    }
+
+    @EventListener
+    public void onWalletBalanceChanged(WalletBalanceChangedEvent event) {
+        BigDecimal amount = valueOrZero(event.getNetAmount());
+        if (amount.signum() != 0) {
+            addToLifetime(WALLET_BALANCE, 0, amount);
+        }
+    }
+
+    /**
+     * Correct every current bucket to its exact value and drop expired day buckets.
+     * Returns the number of buckets corrected.
+     */
+    public int recompute() {
+        long startTime = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        LocalDate monthStart = today.withDayOfMonth(1);
+
+        List<MetricValue> corrections = snapshotTemplate.execute(status -> {
+            Map<String, MetricValue> stored = new HashMap<>();
+            for (MetricValue value : platformMetricsRepository.findCurrent(today, monthStart)) {
+                stored.put(key(value), value);
+            }
+
+            List<MetricValue> drift = new ArrayList<>();
+            for (MetricValue exact : platformMetricsRepository.computeExact(today, monthStart)) {
+                MetricValue current = stored.get(key(exact));
+                long count = exact.count() - (current != null ? current.count() : 0);
+                BigDecimal amount = exact.amount().subtract(current != null ? current.amount() : BigDecimal.ZERO);
+                if (count != 0 || amount.signum() != 0) {
+                    drift.add(new MetricValue(exact.metric(), exact.period(), exact.periodStart(), count, amount));
+                }
+            }
+            return drift;
+        });
+
+        writeTemplate.executeWithoutResult(status -> {
+            platformMetricsRepository.add(Objects.requireNonNull(corrections), CORRECTION_STRIPE);
+            platformMetricsRepository.deleteDaysBefore(today.minusDays(dayRetentionDays));
+        });
+
+        for (MetricValue correction : corrections) {
+            log.warn("Platform metric {} {} {} drifted by {} / {}, corrected",
+                    correction.metric(), correction.period(), correction.periodStart(),
+                    correction.count(), correction.amount());
+        }
+        log.info("Platform metrics recomputed in {} ms, {} buckets corrected",
+                System.currentTimeMillis() - startTime, corrections.size());
+        return corrections.size();
+    }
+
+    private void addToPeriods(String metric, long count, BigDecimal amount) {
+        LocalDate today = LocalDate.now();
+        platformMetricsRepository.add(List.of(
+                new MetricValue(metric, PERIOD_DAY, today, count, amount),
+                new MetricValue(metric, PERIOD_MONTH, today.withDayOfMonth(1), count, amount),
+                new MetricValue(metric, PERIOD_ALL, LIFETIME_START, count, amount)), nextStripe());
+    }
+
+    private void addToLifetime(String metric, long count, BigDecimal amount) {
+        platformMetricsRepository.add(
+                List.of(new MetricValue(metric, PERIOD_ALL, LIFETIME_START, count, amount)), nextStripe());
+    }
+
+    private int nextStripe() {
+        return ThreadLocalRandom.current().nextInt(stripeCount);
+    }
+
+    private static String key(MetricValue value) {
+        return value.metric() + ":" + value.period() + ":" + value.periodStart();
+    }
+
+    private static BigDecimal valueOrZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
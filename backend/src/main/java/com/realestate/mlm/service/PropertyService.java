@@ -22,7 +22,6 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,6 +32,7 @@ public class PropertyService {
     private final PropertyRepository propertyRepository;
     private final FileStorageService fileStorageService;
     private final ObjectMapper objectMapper;
+    private final IdGeneratorService idGeneratorService;
 
     /**
      * Create new property with images
@@ -54,7 +54,7 @@ public class PropertyService {
 
         // Create property entity
         Property property = new Property();
-        property.setPropertyId(generatePropertyId());
+        property.setPropertyId(idGeneratorService.nextPropertyId());
         property.setTitle(request.getTitle());
         property.setDescription(request.getDescription());
         property.setPropertyType(request.getPropertyType());
@@ -336,13 +336,6 @@ public class PropertyService {
         return properties.map(this::mapToResponse);
     }
 
-    /**
-     * Generate unique property ID
-     */
-    private String generatePropertyId() {
-        return "PROP" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 6).toUpperCase();
-    }
-
     /**
      * Parse images JSON string
      */
@@ -0,0 +1,231 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.event.InvestmentCreatedEvent;
+import com.realestate.mlm.event.UserActivatedEvent;
+import com.realestate.mlm.event.UserPlacedEvent;
+import com.realestate.mlm.model.Commission;
+import com.realestate.mlm.model.RankSetting;
+import com.realestate.mlm.model.User;
+import com.realestate.mlm.repository.RankSettingRepository;
+import com.realestate.mlm.repository.UserRepository;
+import com.realestate.mlm.repository.UserRepository.RankCandidate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Set-based rank promotion engine.
+ *
+ * Eligibility inputs (direct referrals, active binary legs, personal investment and team BV)
+ * are evaluated in a single query that only returns users who can move up, so the cost of a run
+ * no longer depends on issuing one COUNT per user per rank. Each promoted user jumps straight to
+ * the highest rank they qualify for.
+ *
+ * Besides the nightly full run, placement, activation and investment events mark the affected
+ * user as changed; the incremental run re-evaluates only those users together with their sponsor
+ * and placement upline.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RankPromotionService {
+
+    private final UserRepository userRepository;
+    private final RankSettingRepository rankSettingRepository;
+    private final CommissionRollupService commissionRollupService;
+    private final WalletService walletService;
+    private final IdGeneratorService idGeneratorService;
+
+    /**
+     * Users whose rank inputs changed since the last incremental run
+     */
+    private final Set<Long> changedUsers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Evaluate and promote all active users (nightly job)
+     * Returns the number of users promoted
+     */
+    @Transactional
+    public int processRankPromotions() {
+        log.info("Processing rank promotions for all active users");
+
+        List<RankCandidate> candidates = userRepository.findRankPromotionCandidates();
+        int promotedCount = promoteCandidates(candidates);
+
+        log.info("Rank promotion processing completed. Candidates: {}, Promoted: {} users",
+                candidates.size(), promotedCount);
+        return promotedCount;
+    }
+
+    /**
+     * Re-evaluate only users whose inputs changed since the last run
+     * Returns the number of users promoted
+     */
+    @Transactional
+    public int processChangedRankPromotions() {
+        if (changedUsers.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> userIds = new ArrayList<>(changedUsers);
+        changedUsers.removeAll(userIds);
+        log.info("Processing incremental rank promotions for {} changed users", userIds.size());
+
+        try {
+            List<RankCandidate> candidates = userRepository.findRankPromotionCandidates(userIds);
+            int promotedCount = promoteCandidates(candidates);
+
+            log.info("Incremental rank promotion completed. Candidates: {}, Promoted: {} users",
+                    candidates.size(), promotedCount);
+            return promotedCount;
+        } catch (RuntimeException e) {
+            // Keep the users for the next run; the nightly full run is the final safety net
+            changedUsers.addAll(userIds);
+            throw e;
+        }
+    }
+
+    /**
+     * Mark a user whose rank inputs changed
+     */
+    public void markChanged(Long userId) {
+        if (userId != null) {
+            changedUsers.add(userId);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserPlaced(UserPlacedEvent event) {
+        markChanged(event.getUserId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserActivated(UserActivatedEvent event) {
+        markChanged(event.getUserId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInvestmentCreated(InvestmentCreatedEvent event) {
+        markChanged(event.getUserId());
+    }
+
+    /**
+     * Promote every candidate to the highest rank they qualify for
+     */
+    private int promoteCandidates(List<RankCandidate> candidates) {
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        List<RankSetting> ranks = rankSettingRepository.findByIsActiveTrueOrderByDisplayOrder();
+        Map<Long, User> users = userRepository.findAllById(
+                        candidates.stream().map(RankCandidate::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        int promotedCount = 0;
+        List<User> promotedUsers = new ArrayList<>();
+
+        for (RankCandidate candidate : candidates) {
+            User user = users.get(candidate.getId());
+            if (user == null) {
+                continue;
+            }
+
+            try {
+                List<RankSetting> achieved = ranks.stream()
+                        .filter(rank -> displayOrder(rank) > candidate.getCurrentOrder())
+                        .filter(rank -> isEligible(candidate, rank))
+                        .sorted(Comparator.comparingInt(RankPromotionService::displayOrder))
+                        .toList();
+
+                if (achieved.isEmpty()) {
+                    continue;
+                }
+
+                RankSetting newRank = achieved.get(achieved.size() - 1);
+                log.info("Promoting user {} from {} to {}", user.getUserId(), user.getRank(), newRank.getRankName());
+
+                user.setRank(newRank.getRankName());
+                user.setRankAchievedDate(LocalDateTime.now());
+                promotedUsers.add(user);
+
+                // Every rank passed on the way earns its one-time bonus, as if promoted one rank at a time
+                for (RankSetting rank : achieved) {
+                    creditRankBonus(user, rank);
+                }
+
+                promotedCount++;
+            } catch (Exception e) {
+                log.error("Error processing rank promotion for user: {}", user.getUserId(), e);
+            }
+        }
+
+        userRepository.saveAll(promotedUsers);
+
+        return promotedCount;
+    }
+
+    /**
+     * Check every requirement of the rank against the evaluated inputs
+     */
+    private boolean isEligible(RankCandidate candidate, RankSetting rank) {
+        return candidate.getDirectReferrals() >= valueOrZero(rank.getRequiredDirectReferrals())
+                && candidate.getActiveLegs() >= valueOrZero(rank.getRequiredActiveLegs())
+                && candidate.getTotalInvestment().compareTo(valueOrZero(rank.getRequiredPersonalInvestment())) >= 0
+                && candidate.getTeamBv().compareTo(valueOrZero(rank.getRequiredTeamInvestment())) >= 0;
+    }
+
+    /**
+     * Credit one-time rank achievement bonus if applicable
+     */
+    private void creditRankBonus(User user, RankSetting rank) {
+        if (rank.getOneTimeBonus() == null || rank.getOneTimeBonus().compareTo(BigDecimal.ZERO) <= 0) {
+            return;
+        }
+
+        walletService.creditWallet(
+                user,
+                rank.getOneTimeBonus(),
+                "COMMISSION",
+                "Rank achievement bonus for " + rank.getRankName());
+
+        // Create commission record for reporting
+        Commission commission = new Commission();
+        commission.setCommissionId(idGeneratorService.nextCommissionId());
+        commission.setUser(user);
+        commission.setCommissionType("RANK_BONUS");
+        commission.setLevel(0);
+        commission.setAmount(rank.getOneTimeBonus());
+        commission.setDescription("Rank achievement bonus for " + rank.getRankName());
+        commission.setStatus("CREDITED");
+        commission.setCreatedAt(LocalDateTime.now());
+        commissionRollupService.save(commission);
+    }
+
+    private static int displayOrder(RankSetting rank) {
+        return rank.getDisplayOrder() != null ? rank.getDisplayOrder() : 0;
+    }
+
+    private static long valueOrZero(Integer value) {
+        return value != null ? value : 0L;
+    }
+
+    private static BigDecimal valueOrZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,101 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.exception.PayoutGatewayException;
+import com.realestate.mlm.model.Payout;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stands in for the Razorpay Payout API until it is integrated, and for load-testing payout
+ * throughput offline.
+ *
+ * Each call answers after app.payout.gateway.simulator.latency-ms plus up to latency-jitter-ms,
+ * from a timer thread, so like a real HTTP client it ties up no thread while waiting. A fraction
+ * of calls fail: unavailable-rate never reach the gateway, rejection-rate are refused and
+ * timeout-rate never answer. References are derived from the idempotency key, so a repeated call
+ * returns the same transfer, as the real API does.
+ */
+@Component
+@Slf4j
+public class SimulatedPayoutGateway implements PayoutGateway {
+
+    // TODO: Integrate with Razorpay Payout API
+
+    private final long latencyMillis;
+    private final long latencyJitterMillis;
+    private final double unavailableRate;
+    private final double rejectionRate;
+    private final double timeoutRate;
+    private final ScheduledExecutorService timer;
+
+    public SimulatedPayoutGateway(
+            @Value("${app.payout.gateway.simulator.latency-ms:150}") long latencyMillis,
+            @Value("${app.payout.gateway.simulator.latency-jitter-ms:100}") long latencyJitterMillis,
+            @Value("${app.payout.gateway.simulator.unavailable-rate:0.0}") double unavailableRate,
+            @Value("${app.payout.gateway.simulator.rejection-rate:0.0}") double rejectionRate,
+            @Value("${app.payout.gateway.simulator.timeout-rate:0.0}") double timeoutRate) {
+        this.latencyMillis = Math.max(0, latencyMillis);
+        this.latencyJitterMillis = Math.max(0, latencyJitterMillis);
+        this.unavailableRate = unavailableRate;
+        this.rejectionRate = rejectionRate;
+        this.timeoutRate = timeoutRate;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payout-gateway-simulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    @Override
+    public CompletableFuture<Result> transfer(Payout payout, String idempotencyKey) {
+        CompletableFuture<Result> response = new CompletableFuture<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        double outcome = random.nextDouble();
+        if (outcome < unavailableRate) {
+            response.completeExceptionally(new PayoutGatewayException(
+                    PayoutGatewayException.Kind.UNAVAILABLE, "Simulated gateway unavailable"));
+            return response;
+        }
+        outcome -= unavailableRate;
+        if (outcome < timeoutRate) {
+            // Never answers; the client's timeout ends the call
+            return response;
+        }
+        outcome -= timeoutRate;
+        boolean rejected = outcome < rejectionRate;
+
+        long latency = latencyMillis + (latencyJitterMillis > 0 ? random.nextLong(latencyJitterMillis + 1) : 0);
+        timer.schedule(() -> {
+            if (rejected) {
+                response.completeExceptionally(new PayoutGatewayException(
+                        PayoutGatewayException.Kind.REJECTED, "Simulated rejection of payout " + payout.getPayoutId()));
+            } else {
+                response.complete(simulatedTransfer(idempotencyKey));
+            }
+        }, latency, TimeUnit.MILLISECONDS);
+        return response;
+    }
+
+    private static Result simulatedTransfer(String idempotencyKey) {
+        UUID transferId = UUID.nameUUIDFromBytes(idempotencyKey.getBytes(StandardCharsets.UTF_8));
+        String razorpayPayoutId = "rzp_payout_" + transferId.toString().replace("-", "").substring(0, 16);
+        String utrNumber = "UTR" + Long.toUnsignedString(transferId.getMostSignificantBits() >>> 1);
+        return new Result(razorpayPayoutId, utrNumber);
+    }
+}
@@ -0,0 +1,403 @@
+package com.realestate.mlm.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.realestate.mlm.exception.BadRequestException;
+import com.realestate.mlm.exception.ResourceNotFoundException;
+import com.realestate.mlm.model.User;
+import com.realestate.mlm.repository.PartitionArchiveRepository;
+import com.realestate.mlm.repository.TransactionStatementRepository;
+import com.realestate.mlm.repository.TransactionStatementRepository.StatementRow;
+import com.realestate.mlm.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Streams full wallet statements as CSV, NDJSON or XLSX.
+ *
+ * Transactions are read through a forward-only cursor and each row is written to the response as
+ * soon as it is fetched, so heap use does not grow with the statement. XLSX goes through POI's
+ * SXSSF writer, which keeps a small window of rows in memory and spills the rest to a compressed
+ * temp file until the workbook is written out.
+ *
+ * Months already moved to history_archive come first, decompressed one month at a time, so a
+ * statement covers the whole history and not only the live partitions.
+ */
+@Service
+@Slf4j
+public class StatementExportService {
+
+    private static final String[] COLUMNS = {
+            "Transaction ID", "Date", "Type", "Category", "Wallet", "Amount",
+            "Balance Before", "Balance After", "Description", "Reference ID", "Reference Type", "Status"
+    };
+
+    // One row below the XLSX limit of 1,048,576 is kept for the header
+    private static final int XLSX_MAX_ROWS_PER_SHEET = 1_000_000;
+
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final TransactionStatementRepository transactionStatementRepository;
+    private final HistoryArchiveService historyArchiveService;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int xlsxRowWindow;
+
+    public StatementExportService(
+            TransactionStatementRepository transactionStatementRepository,
+            HistoryArchiveService historyArchiveService,
+            UserRepository userRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.export.xlsx-row-window:100}") int xlsxRowWindow) {
+        this.transactionStatementRepository = transactionStatementRepository;
+        this.historyArchiveService = historyArchiveService;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.xlsxRowWindow = Math.max(1, xlsxRowWindow);
+    }
+
+    /**
+     * Supported statement formats
+     */
+    public enum StatementFormat {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        private final String contentType;
+        private final String extension;
+
+        StatementFormat(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public static StatementFormat of(String format) {
+            if (format == null || format.isBlank()) {
+                return CSV;
+            }
+            try {
+                return valueOf(format.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Unsupported statement format: " + format + " (use csv, ndjson or xlsx)");
+            }
+        }
+    }
+
+    /**
+     * A statement ready to stream: everything is validated before the first byte is written
+     */
+    public record StatementExport(String fileName, String contentType, StreamingResponseBody body) {
+    }
+
+    /**
+     * Statement of the given user
+     */
+    public StatementExport exportStatement(User user, String format, String startDate, String endDate) {
+        StatementFormat statementFormat = StatementFormat.of(format);
+        LocalDate startDay = parseDate(startDate, "startDate");
+        LocalDate endDay = parseDate(endDate, "endDate");
+        if (startDay != null && endDay != null && startDay.isAfter(endDay)) {
+            throw new BadRequestException("startDate must not be after endDate");
+        }
+        // [from, to): the whole of endDay, down to its last microsecond
+        LocalDateTime from = startDay != null ? startDay.atStartOfDay() : null;
+        LocalDateTime to = endDay != null ? endDay.plusDays(1).atStartOfDay() : null;
+
+        Long userId = user.getId();
+        String mlmId = user.getUserId();
+        String fileName = String.format("statement-%s-%s.%s",
+                mlmId, LocalDate.now().format(FILE_DATE), statementFormat.extension);
+
+        StreamingResponseBody body = out -> {
+            long started = System.currentTimeMillis();
+            long rows = write(statementFormat, userId, from, to, out);
+            log.info("Exported {} statement of user {}: {} rows in {} ms",
+                    statementFormat, mlmId, rows, System.currentTimeMillis() - started);
+        };
+        return new StatementExport(fileName, statementFormat.contentType, body);
+    }
+
+    /**
+     * Statement of any user, for admins and auditors
+     */
+    public StatementExport exportStatement(Long userId, String format, String startDate, String endDate) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+        return exportStatement(user, format, startDate, endDate);
+    }
+
+    private long write(StatementFormat format, Long userId, LocalDateTime from, LocalDateTime to, OutputStream out)
+            throws IOException {
+        return switch (format) {
+            case CSV -> writeCsv(userId, from, to, out);
+            case NDJSON -> writeNdjson(userId, from, to, out);
+            case XLSX -> writeXlsx(userId, from, to, out);
+        };
+    }
+
+    private long writeCsv(Long userId, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(String.join(",", COLUMNS));
+        writer.write("\r\n");
+
+        long rows = stream(userId, from, to, row -> {
+            try {
+                writer.write(csv(row.transactionId()));
+                writer.write(',');
+                writer.write(row.createdAt() != null ? row.createdAt().toString() : "");
+                writer.write(',');
+                writer.write(csv(row.type()));
+                writer.write(',');
+                writer.write(csv(row.category()));
+                writer.write(',');
+                writer.write(csv(row.walletType()));
+                writer.write(',');
+                writer.write(plain(row.amount()));
+                writer.write(',');
+                writer.write(plain(row.balanceBefore()));
+                writer.write(',');
+                writer.write(plain(row.balanceAfter()));
+                writer.write(',');
+                writer.write(csv(row.description()));
+                writer.write(',');
+                writer.write(csv(row.referenceId()));
+                writer.write(',');
+                writer.write(csv(row.referenceType()));
+                writer.write(',');
+                writer.write(csv(row.status()));
+                writer.write("\r\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+        return rows;
+    }
+
+    private long writeNdjson(Long userId, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        long rows = stream(userId, from, to, row -> {
+            try {
+                generator.writeStartObject();
+                generator.writeStringField("transactionId", row.transactionId());
+                generator.writeStringField("createdAt", row.createdAt() != null ? row.createdAt().toString() : null);
+                generator.writeStringField("type", row.type());
+                generator.writeStringField("category", row.category());
+                generator.writeStringField("walletType", row.walletType());
+                writeNumber(generator, "amount", row.amount());
+                writeNumber(generator, "balanceBefore", row.balanceBefore());
+                writeNumber(generator, "balanceAfter", row.balanceAfter());
+                generator.writeStringField("description", row.description());
+                generator.writeStringField("referenceId", row.referenceId());
+                generator.writeStringField("referenceType", row.referenceType());
+                generator.writeStringField("status", row.status());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        generator.close();
+        return rows;
+    }
+
+    private long writeXlsx(Long userId, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(xlsxRowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+            CellStyle amountStyle = workbook.createCellStyle();
+            amountStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+
+            XlsxSheets sheets = new XlsxSheets(workbook);
+            long rows = stream(userId, from, to, row -> {
+                Row sheetRow = sheets.nextRow();
+                sheetRow.createCell(0).setCellValue(row.transactionId());
+                if (row.createdAt() != null) {
+                    sheetRow.createCell(1).setCellValue(row.createdAt());
+                    sheetRow.getCell(1).setCellStyle(dateStyle);
+                }
+                sheetRow.createCell(2).setCellValue(row.type());
+                sheetRow.createCell(3).setCellValue(row.category());
+                sheetRow.createCell(4).setCellValue(row.walletType());
+                setAmount(sheetRow, 5, row.amount(), amountStyle);
+                setAmount(sheetRow, 6, row.balanceBefore(), amountStyle);
+                setAmount(sheetRow, 7, row.balanceAfter(), amountStyle);
+                sheetRow.createCell(8).setCellValue(row.description());
+                sheetRow.createCell(9).setCellValue(row.referenceId());
+                sheetRow.createCell(10).setCellValue(row.referenceType());
+                sheetRow.createCell(11).setCellValue(row.status());
+            });
+            if (rows == 0) {
+                sheets.nextSheet();
+            }
+            workbook.write(out);
+            out.flush();
+            return rows;
+        } finally {
+            workbook.close();
+            workbook.dispose();
+        }
+    }
+
+    /**
+     * Write the archived months first, then run the cursor over the live partitions in a
+     * read-only transaction, which the driver needs to honour the fetch size
+     */
+    private long stream(Long userId, LocalDateTime from, LocalDateTime to, Consumer<StatementRow> writer) throws IOException {
+        long[] rows = {0};
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                historyArchiveService.streamArchivedRows(PartitionArchiveRepository.TRANSACTIONS, userId,
+                        from != null ? YearMonth.from(from) : null, to != null ? YearMonth.from(to.minusDays(1)) : null, archived -> {
+                            StatementRow row = archivedRow(archived);
+                            if (row.createdAt() != null
+                                    && ((from != null && row.createdAt().isBefore(from)) || (to != null && !row.createdAt().isBefore(to)))) {
+                                return;
+                            }
+                            writer.accept(row);
+                            rows[0]++;
+                        });
+                transactionStatementRepository.streamStatement(userId, from, to, row -> {
+                    writer.accept(row);
+                    rows[0]++;
+                });
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; the cursor is closed with the transaction
+            throw e.getCause();
+        }
+        return rows[0];
+    }
+
+    /**
+     * A transaction as archived by {@link HistoryArchiveService}: column name to value
+     */
+    private static StatementRow archivedRow(Map<String, Object> row) {
+        Object createdAt = row.get("created_at");
+        return new StatementRow(
+                text(row.get("transaction_id")),
+                createdAt != null ? LocalDateTime.parse(createdAt.toString()) : null,
+                text(row.get("type")),
+                text(row.get("category")),
+                text(row.get("wallet_type")),
+                decimal(row.get("amount")),
+                decimal(row.get("balance_before")),
+                decimal(row.get("balance_after")),
+                text(row.get("description")),
+                text(row.get("reference_id")),
+                text(row.get("reference_type")),
+                text(row.get("status")));
+    }
+
+    private static String text(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static BigDecimal decimal(Object value) {
+        return value != null ? new BigDecimal(value.toString()) : null;
+    }
+
+    private LocalDate parseDate(String date, String name) {
+        if (date == null || date.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date, DateTimeFormatter.ISO_LOCAL_DATE);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Invalid " + name + ", expected yyyy-MM-dd: " + date);
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String plain(BigDecimal value) {
+        return value != null ? value.toPlainString() : "";
+    }
+
+    private static void writeNumber(JsonGenerator generator, String field, BigDecimal value) throws IOException {
+        if (value != null) {
+            generator.writeNumberField(field, value);
+        } else {
+            generator.writeNullField(field);
+        }
+    }
+
+    private static void setAmount(Row row, int column, BigDecimal value, CellStyle style) {
+        if (value != null) {
+            row.createCell(column).setCellValue(value.doubleValue());
+            row.getCell(column).setCellStyle(style);
+        }
+    }
+
+    /**
+     * Rolls over to a new sheet, with its own header, when one is full
+     */
+    private static final class XlsxSheets {
+        private final SXSSFWorkbook workbook;
+        private SXSSFSheet sheet;
+        private int rowNum;
+
+        private XlsxSheets(SXSSFWorkbook workbook) {
+            this.workbook = workbook;
+        }
+
+        private Row nextRow() {
+            if (sheet == null || rowNum > XLSX_MAX_ROWS_PER_SHEET) {
+                nextSheet();
+            }
+            return sheet.createRow(rowNum++);
+        }
+
+        private void nextSheet() {
+            sheet = workbook.createSheet("Statement" + (workbook.getNumberOfSheets() > 0
+                    ? " " + (workbook.getNumberOfSheets() + 1) : ""));
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < COLUMNS.length; i++) {
+                header.createCell(i).setCellValue(COLUMNS[i]);
+            }
+            rowNum = 1;
+        }
+    }
+}
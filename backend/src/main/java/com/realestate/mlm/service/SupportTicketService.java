@@ -25,7 +25,6 @@ import jakarta.persistence.criteria.Predicate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,6 +37,7 @@ public class SupportTicketService {
     private final EntityManager entityManager;
     private final NotificationService notificationService;
     private final ObjectMapper objectMapper;
+    private final IdGeneratorService idGeneratorService;
 
     /**
      * Create support ticket
@@ -52,7 +52,7 @@ public class SupportTicketService {
 
         // Create ticket
         SupportTicket ticket = new SupportTicket();
-        ticket.setTicketId(generateTicketId());
+        ticket.setTicketId(idGeneratorService.nextTicketId());
         ticket.setUser(user);
         ticket.setSubject(request.getSubject());
         ticket.setCategory(request.getCategory());
@@ -296,13 +296,6 @@ public class SupportTicketService {
         return mapToResponse(assignedTicket);
     }
 
-    /**
-     * Generate unique ticket ID
-     */
-    private String generateTicketId() {
-        return "TKT" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 6).toUpperCase();
-    }
-
     /**
      * Parse attachments JSON
      */
@@ -0,0 +1,246 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.event.WalletBalanceChangedEvent;
+import com.realestate.mlm.model.Transaction;
+import com.realestate.mlm.model.TransactionRollup;
+import com.realestate.mlm.repository.TransactionRepository;
+import com.realestate.mlm.repository.TransactionRollupRepository;
+import com.realestate.mlm.repository.WalletBatchRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps the transaction_rollups table in step with the transactions table.
+ *
+ * Every wallet transaction insert goes through {@link #save(Transaction)} or
+ * {@link #saveAll(Collection)}, which write the rows and add them to the user's day, month and
+ * lifetime buckets in the caller's transaction, so wallet summaries and dashboard income read a
+ * handful of rollup rows instead of the transaction history. Both also publish a
+ * {@link WalletBalanceChangedEvent} with the net amount posted.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionRollupService {
+
+    static final String PERIOD_DAY = "DAY";
+    static final String PERIOD_MONTH = "MONTH";
+    static final String PERIOD_ALL = "ALL";
+    static final LocalDate LIFETIME_START = LocalDate.of(1970, 1, 1);
+
+    /**
+     * Same categories the dashboard has always counted as income
+     */
+    private static final Set<String> INCOME_CATEGORIES = Set.of("COMMISSION", "RENTAL_INCOME", "ROI");
+
+    /**
+     * Debits that take back income already counted: commission clawbacks and recalculation
+     * reversals. Withdrawals of income are ordinary debits and leave income alone.
+     */
+    static final String COMMISSION_REVERSAL_CATEGORY = "COMMISSION_REVERSAL";
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionRollupRepository transactionRollupRepository;
+    private final WalletBatchRepository walletBatchRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Stripes per rollup bucket, the same spread as striped wallets
+     */
+    @Value("${app.wallet.stripe-count:8}")
+    private int stripeCount;
+
+    /**
+     * Lifetime, month-to-date and today totals of one user
+     */
+    public record Totals(
+            BigDecimal totalCredits,
+            BigDecimal totalDebits,
+            long transactionCount,
+            BigDecimal todayCredits,
+            BigDecimal monthCredits,
+            BigDecimal todayIncome,
+            BigDecimal monthIncome) {
+    }
+
+    /**
+     * Save a new transaction and add it to the rollups
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Transaction save(Transaction transaction) {
+        Transaction savedTransaction = transactionRepository.save(transaction);
+
+        BigDecimal amount = valueOrZero(savedTransaction.getAmount());
+        boolean credit = isCredit(savedTransaction);
+        boolean debit = isDebit(savedTransaction);
+        LocalDate day = rollupDate(savedTransaction);
+        transactionRollupRepository.addToRollups(
+                savedTransaction.getUser().getId(),
+                day,
+                day.withDayOfMonth(1),
+                LIFETIME_START,
+                nextStripe(),
+                credit ? amount : BigDecimal.ZERO,
+                debit ? amount : BigDecimal.ZERO,
+                incomeAmount(savedTransaction),
+                credit ? 1 : 0,
+                debit ? 1 : 0);
+        eventPublisher.publishEvent(new WalletBalanceChangedEvent(netAmount(savedTransaction)));
+        return savedTransaction;
+    }
+
+    /**
+     * Insert many new transactions with JDBC batches and add them to the rollups, one upsert per
+     * user/period bucket touched
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void saveAll(Collection<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        walletBatchRepository.insertTransactions(transactions);
+
+        Map<List<Object>, TransactionRollup> buckets = new LinkedHashMap<>();
+        BigDecimal netAmount = BigDecimal.ZERO;
+        for (Transaction transaction : transactions) {
+            netAmount = netAmount.add(netAmount(transaction));
+            Long userId = transaction.getUser().getId();
+            LocalDate day = rollupDate(transaction);
+            add(buckets, userId, PERIOD_DAY, day, transaction);
+            add(buckets, userId, PERIOD_MONTH, day.withDayOfMonth(1), transaction);
+            add(buckets, userId, PERIOD_ALL, LIFETIME_START, transaction);
+        }
+        walletBatchRepository.addToTransactionRollups(buckets.values());
+        eventPublisher.publishEvent(new WalletBalanceChangedEvent(netAmount));
+    }
+
+    /**
+     * Current totals of one user, from at most three rows per stripe
+     */
+    public Totals getCurrentTotals(Long userId) {
+        LocalDate today = LocalDate.now();
+        BigDecimal totalCredits = BigDecimal.ZERO;
+        BigDecimal totalDebits = BigDecimal.ZERO;
+        long transactionCount = 0;
+        BigDecimal todayCredits = BigDecimal.ZERO;
+        BigDecimal monthCredits = BigDecimal.ZERO;
+        BigDecimal todayIncome = BigDecimal.ZERO;
+        BigDecimal monthIncome = BigDecimal.ZERO;
+
+        for (TransactionRollupRepository.PeriodTotals totals
+                : transactionRollupRepository.findCurrentTotals(userId, today, today.withDayOfMonth(1))) {
+            switch (totals.getPeriod()) {
+                case PERIOD_ALL:
+                    totalCredits = valueOrZero(totals.getCreditAmount());
+                    totalDebits = valueOrZero(totals.getDebitAmount());
+                    transactionCount = valueOrZero(totals.getCreditCount()) + valueOrZero(totals.getDebitCount());
+                    break;
+                case PERIOD_MONTH:
+                    monthCredits = valueOrZero(totals.getCreditAmount());
+                    monthIncome = valueOrZero(totals.getIncomeAmount());
+                    break;
+                case PERIOD_DAY:
+                    todayCredits = valueOrZero(totals.getCreditAmount());
+                    todayIncome = valueOrZero(totals.getIncomeAmount());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new Totals(totalCredits, totalDebits, transactionCount, todayCredits, monthCredits, todayIncome, monthIncome);
+    }
+
+    private void add(Map<List<Object>, TransactionRollup> buckets, Long userId, String period, LocalDate periodStart,
+                     Transaction transaction) {
+        TransactionRollup bucket = buckets.computeIfAbsent(
+                List.of(userId, period, periodStart),
+                key -> TransactionRollup.builder()
+                        .userId(userId)
+                        .period(period)
+                        .periodStart(periodStart)
+                        .stripeNo(nextStripe())
+                        .creditAmount(BigDecimal.ZERO)
+                        .debitAmount(BigDecimal.ZERO)
+                        .incomeAmount(BigDecimal.ZERO)
+                        .creditCount(0)
+                        .debitCount(0)
+                        .build());
+
+        BigDecimal amount = valueOrZero(transaction.getAmount());
+        if (isCredit(transaction)) {
+            bucket.setCreditAmount(bucket.getCreditAmount().add(amount));
+            bucket.setCreditCount(bucket.getCreditCount() + 1);
+        }
+        if (isDebit(transaction)) {
+            bucket.setDebitAmount(bucket.getDebitAmount().add(amount));
+            bucket.setDebitCount(bucket.getDebitCount() + 1);
+        }
+        bucket.setIncomeAmount(bucket.getIncomeAmount().add(incomeAmount(transaction)));
+    }
+
+    private int nextStripe() {
+        return ThreadLocalRandom.current().nextInt(Math.max(1, stripeCount));
+    }
+
+    private static boolean isCredit(Transaction transaction) {
+        return "CREDIT".equals(transaction.getType());
+    }
+
+    private static boolean isDebit(Transaction transaction) {
+        return "DEBIT".equals(transaction.getType());
+    }
+
+    /**
+     * What the transaction did to the wallet's balance
+     */
+    private static BigDecimal netAmount(Transaction transaction) {
+        BigDecimal amount = valueOrZero(transaction.getAmount());
+        if (isCredit(transaction)) {
+            return amount;
+        }
+        return isDebit(transaction) ? amount.negate() : BigDecimal.ZERO;
+    }
+
+    /**
+     * What the transaction did to the user's income: credits in an income category add to it,
+     * reversal debits take it back
+     */
+    private static BigDecimal incomeAmount(Transaction transaction) {
+        BigDecimal amount = valueOrZero(transaction.getAmount());
+        if (isCredit(transaction) && INCOME_CATEGORIES.contains(transaction.getCategory())) {
+            return amount;
+        }
+        if (isDebit(transaction) && COMMISSION_REVERSAL_CATEGORY.equals(transaction.getCategory())) {
+            return amount.negate();
+        }
+        return BigDecimal.ZERO;
+    }
+
+    private static LocalDate rollupDate(Transaction transaction) {
+        LocalDateTime createdAt = transaction.getCreatedAt() != null ? transaction.getCreatedAt() : LocalDateTime.now();
+        return createdAt.toLocalDate();
+    }
+
+    private static BigDecimal valueOrZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    private static long valueOrZero(Long value) {
+        return value != null ? value : 0L;
+    }
+}
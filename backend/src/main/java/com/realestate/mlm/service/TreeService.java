@@ -4,6 +4,7 @@ import com.realestate.mlm.dto.response.TreeNodeResponse;
 import com.realestate.mlm.exception.ResourceNotFoundException;
 import com.realestate.mlm.exception.TreePlacementException;
 import com.realestate.mlm.model.User;
+import com.realestate.mlm.repository.BinaryPairingQueueRepository;
 import com.realestate.mlm.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +20,7 @@ import java.util.*;
 public class TreeService {
 
     private final UserRepository userRepository;
+    private final BinaryPairingQueueRepository binaryPairingQueueRepository;
 
     /**
      * Find placement position in binary tree
@@ -188,6 +190,11 @@ public class TreeService {
 
             // Save user
             userRepository.save(current);
+
+            // Queue for pairing in the same transaction as the BV change
+            if ("LEFT".equals(currentLeg) || "RIGHT".equals(currentLeg)) {
+                binaryPairingQueueRepository.markDirty(current.getId());
+            }
             log.debug("Updated BV for user: {}, Left: {}, Right: {}",
                     current.getUserId(), current.getLeftBv(), current.getRightBv());
 
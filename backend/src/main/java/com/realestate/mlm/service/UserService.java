@@ -6,31 +6,30 @@ import com.realestate.mlm.dto.response.ActivityResponse;
 import com.realestate.mlm.dto.response.DashboardStatsResponse;
 import com.realestate.mlm.dto.response.TeamCountResponse;
 import com.realestate.mlm.dto.response.UserResponse;
+import com.realestate.mlm.dto.response.WalletResponse;
+import com.realestate.mlm.event.UserStatusChangedEvent;
 import com.realestate.mlm.exception.BadRequestException;
 import com.realestate.mlm.exception.ResourceNotFoundException;
 import com.realestate.mlm.exception.UnauthorizedException;
 import com.realestate.mlm.model.Transaction;
 import com.realestate.mlm.model.User;
-import com.realestate.mlm.model.Wallet;
 import com.realestate.mlm.repository.PropertyInvestmentRepository;
 import com.realestate.mlm.repository.TransactionRepository;
 import com.realestate.mlm.repository.UserRepository;
-import com.realestate.mlm.repository.WalletRepository;
 import com.realestate.mlm.util.SecurityUtil;
+import com.realestate.mlm.util.SeekCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -40,10 +39,13 @@ import java.util.stream.Collectors;
 public class UserService {
 
     private final UserRepository userRepository;
-    private final WalletRepository walletRepository;
+    private final WalletService walletService;
     private final TransactionRepository transactionRepository;
+    private final TransactionRollupService transactionRollupService;
     private final PropertyInvestmentRepository propertyInvestmentRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DashboardComposer dashboardComposer;
 
     /**
      * Get user by ID
@@ -165,32 +167,33 @@ public class UserService {
         User user = userRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with userId: " + userId));
 
-        // Get wallet
-        Wallet wallet = walletRepository.findByUser(user)
-                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + userId));
-
-        // Calculate team counts
-        Map<String, Integer> teamCounts = getTeamCountMap(userId);
-
-        // Get active properties count
-        Long activePropertiesCount = propertyInvestmentRepository
-                .findByUser(user, Pageable.unpaged())
-                .stream()
-                .filter(pi -> "ACTIVE".equals(pi.getInvestmentStatus()))
-                .count();
-
-        // Calculate today's income
-        LocalDateTime todayStart = LocalDateTime.of(LocalDate.now(), LocalTime.MIN);
-        LocalDateTime todayEnd = LocalDateTime.of(LocalDate.now(), LocalTime.MAX);
-        BigDecimal todayIncome = calculateIncomeForPeriod(user, todayStart, todayEnd);
-
-        // Calculate this month's income
-        LocalDateTime monthStart = LocalDateTime.of(LocalDate.now().withDayOfMonth(1), LocalTime.MIN);
-        LocalDateTime monthEnd = LocalDateTime.now();
-        BigDecimal thisMonthIncome = calculateIncomeForPeriod(user, monthStart, monthEnd);
-
-        // Get recent activities (last 10 transactions)
-        List<ActivityResponse> recentActivities = getRecentActivities(user, 10);
+        // Independent widgets, queried concurrently
+        DashboardComposer.Composition composition = dashboardComposer.compose();
+        DashboardComposer.Widget<WalletResponse> walletWidget =
+                composition.add("wallet", () -> walletService.getWalletBalance(user.getId()));
+        DashboardComposer.Widget<Map<String, Integer>> teamCountsWidget =
+                composition.add("teamCounts", () -> getTeamCountMap(userId));
+        DashboardComposer.Widget<Long> activePropertiesWidget =
+                composition.add("activeProperties", () -> propertyInvestmentRepository
+                        .findByUser(user, Pageable.unpaged())
+                        .stream()
+                        .filter(pi -> "ACTIVE".equals(pi.getInvestmentStatus()))
+                        .count());
+        // Today's and this month's income from the running transaction rollups
+        DashboardComposer.Widget<TransactionRollupService.Totals> totalsWidget =
+                composition.add("income", () -> transactionRollupService.getCurrentTotals(user.getId()));
+        // Recent activities (last 10 transactions)
+        DashboardComposer.Widget<List<ActivityResponse>> recentActivitiesWidget =
+                composition.add("recentActivities", () -> getRecentActivities(user, 10));
+        List<String> unavailableWidgets = composition.await();
+
+        WalletResponse wallet = Objects.requireNonNullElseGet(walletWidget.get(), WalletResponse::new);
+        Map<String, Integer> teamCounts = Objects.requireNonNullElseGet(teamCountsWidget.get(), Map::of);
+        Long activePropertiesCount = activePropertiesWidget.get();
+        TransactionRollupService.Totals totals = totalsWidget.get();
+        BigDecimal todayIncome = totals != null ? totals.todayIncome() : null;
+        BigDecimal thisMonthIncome = totals != null ? totals.monthIncome() : null;
+        List<ActivityResponse> recentActivities = recentActivitiesWidget.get();
 
         return DashboardStatsResponse.builder()
                 .totalInvestment(wallet.getTotalInvested())
@@ -200,12 +203,13 @@ public class UserService {
                 .teamCount(teamCounts.get("total"))
                 .leftTeamCount(teamCounts.get("left"))
                 .rightTeamCount(teamCounts.get("right"))
-                .activeProperties(activePropertiesCount.intValue())
+                .activeProperties(activePropertiesCount != null ? activePropertiesCount.intValue() : null)
                 .pendingPayouts(0) // TODO: Implement payout counting
                 .todayIncome(todayIncome)
                 .thisMonthIncome(thisMonthIncome)
                 .rank(user.getRank())
                 .recentActivities(recentActivities)
+                .unavailableWidgets(unavailableWidgets)
                 .build();
     }
 
@@ -268,27 +272,13 @@ public class UserService {
         return count;
     }
 
-    /**
-     * Calculate income for a specific period
-     */
-    private BigDecimal calculateIncomeForPeriod(User user, LocalDateTime start, LocalDateTime end) {
-        Page<Transaction> transactions = transactionRepository.findByUserAndDateRange(
-                user, start, end, Pageable.unpaged());
-
-        return transactions.stream()
-                .filter(t -> "CREDIT".equals(t.getType()))
-                .filter(t -> List.of("COMMISSION", "RENTAL_INCOME", "ROI").contains(t.getCategory()))
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
     /**
      * Get recent activities (transactions)
      */
     private List<ActivityResponse> getRecentActivities(User user, int limit) {
-        Page<Transaction> transactions = transactionRepository.findByUser(
-                user,
-                PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "createdAt")));
+        // Newest first without a count, so only the latest partitions are read
+        List<Transaction> transactions = transactionRepository.findPageBefore(
+                user.getId(), null, SeekCursor.START.createdAt(), SeekCursor.START.id(), PageRequest.of(0, limit));
 
         return transactions.stream()
                 .map(this::mapToActivityResponse)
@@ -320,9 +310,11 @@ public class UserService {
             throw new BadRequestException("User is already active");
         }
 
+        String previousStatus = user.getStatus();
         user.setStatus("ACTIVE");
         user.setActivationDate(LocalDateTime.now());
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserStatusChangedEvent(user.getId(), previousStatus, user.getStatus()));
 
         log.info("User activated successfully: {}", user.getUserId());
 
@@ -343,8 +335,10 @@ public class UserService {
             throw new BadRequestException("User is already blocked");
         }
 
+        String previousStatus = user.getStatus();
         user.setStatus("BLOCKED");
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserStatusChangedEvent(user.getId(), previousStatus, user.getStatus()));
 
         log.info("User blocked successfully: {}", user.getUserId());
 
@@ -365,8 +359,10 @@ public class UserService {
             throw new BadRequestException("User is not blocked");
         }
 
+        String previousStatus = user.getStatus();
         user.setStatus("ACTIVE");
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserStatusChangedEvent(user.getId(), previousStatus, user.getStatus()));
 
         log.info("User unblocked successfully: {}", user.getUserId());
 
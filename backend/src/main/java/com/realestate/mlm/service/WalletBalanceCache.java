@@ -0,0 +1,270 @@
+package com.realestate.mlm.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.realestate.mlm.dto.response.WalletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of wallet balances by user id: a local map in front of Redis, in front of
+ * the database.
+ *
+ * Every balance change registers {@link #evictAfterCommit}. From just before its commit until it
+ * has completed, reads of the affected users bypass both levels; after it, both are evicted and
+ * a per-user generation is bumped, so a read that raced the change never stores what it saw.
+ * Redis entries carry the time their database read started and are ignored when older than the
+ * last change committed on this node. Together this means a node never serves a balance older
+ * than its own last committed change.
+ *
+ * Changes made on other nodes reach this node's map when its entry expires
+ * (app.wallet.cache.local-ttl-ms); the Redis entry is evicted by the writing node, and in the
+ * worst case (a concurrent read on a third node repopulating it, or Redis being unreachable)
+ * expires after app.wallet.cache.redis-ttl-ms. Cross-node staleness is bounded by the sum of the
+ * two. While Redis is unreachable it is skipped for app.wallet.cache.redis-retry-ms.
+ */
+@Component
+@Slf4j
+public class WalletBalanceCache {
+
+    private static final String KEY_PREFIX = "wallet:balance:";
+
+    /**
+     * Generations and pending changes are tracked per stripe of user ids, not per user, so they
+     * take fixed memory; a collision only costs a cache miss
+     */
+    private static final int STRIPES = 1024;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final long localTtlNanos;
+    private final int localMaxEntries;
+    private final Duration redisTtl;
+    private final long redisRetryMillis;
+
+    private final ConcurrentHashMap<Long, LocalEntry> local = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final AtomicIntegerArray pendingChanges = new AtomicIntegerArray(STRIPES);
+    private final AtomicLongArray lastCommitMillis = new AtomicLongArray(STRIPES);
+    private volatile long redisRetryAt;
+
+    public WalletBalanceCache(
+            StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            @Value("${app.wallet.cache.local-ttl-ms:2000}") long localTtlMillis,
+            @Value("${app.wallet.cache.local-max-entries:100000}") int localMaxEntries,
+            @Value("${app.wallet.cache.redis-ttl-ms:30000}") long redisTtlMillis,
+            @Value("${app.wallet.cache.redis-retry-ms:30000}") long redisRetryMillis) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.localTtlNanos = Duration.ofMillis(Math.max(0, localTtlMillis)).toNanos();
+        this.localMaxEntries = Math.max(1, localMaxEntries);
+        this.redisTtl = Duration.ofMillis(Math.max(1, redisTtlMillis));
+        this.redisRetryMillis = Math.max(0, redisRetryMillis);
+    }
+
+    private record LocalEntry(WalletResponse balance, long expiresAt) {
+    }
+
+    /**
+     * Balance as stored in Redis, with the time its database read started
+     */
+    record CachedBalance(WalletResponse balance, long loadedAt) {
+    }
+
+    /**
+     * Cached balance of a user, loaded from the database on a miss
+     */
+    public WalletResponse get(Long userId, Supplier<WalletResponse> loader) {
+        int stripe = stripe(userId);
+        if (pendingChanges.get(stripe) > 0) {
+            // A change is committing; neither level can be trusted until it has completed
+            return loader.get();
+        }
+
+        long now = System.nanoTime();
+        LocalEntry entry = local.get(userId);
+        if (entry != null && entry.expiresAt() - now > 0) {
+            return entry.balance();
+        }
+
+        long generation = generations.get(stripe);
+        CachedBalance cached = readRedis(userId);
+        if (cached != null && cached.loadedAt() > lastCommitMillis.get(stripe)) {
+            store(userId, stripe, generation, cached.balance(), now);
+            return cached.balance();
+        }
+
+        long loadedAt = System.currentTimeMillis();
+        WalletResponse balance = loader.get();
+        store(userId, stripe, generation, balance, now);
+        if (stillCurrent(stripe, generation)) {
+            writeRedis(userId, new CachedBalance(balance, loadedAt));
+            if (!stillCurrent(stripe, generation)) {
+                deleteRedis(List.of(userId));
+            }
+        }
+        return balance;
+    }
+
+    /**
+     * Evict the balances of the given users once the current transaction has committed, and
+     * bypass the cache for them while it commits. Without a transaction they are evicted now.
+     */
+    public void evictAfterCommit(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            int[] stripes = stripes(userIds);
+            for (int stripe : stripes) {
+                generations.incrementAndGet(stripe);
+                lastCommitMillis.accumulateAndGet(stripe, System.currentTimeMillis(), Math::max);
+            }
+            evict(userIds);
+            return;
+        }
+
+        List<Long> ids = List.copyOf(userIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            private int[] stripes;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                stripes = stripes(ids);
+                for (int stripe : stripes) {
+                    pendingChanges.incrementAndGet(stripe);
+                }
+                ids.forEach(local::remove);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (stripes == null) {
+                    // Rolled back before commit; nothing changed
+                    return;
+                }
+                long committedAt = System.currentTimeMillis();
+                for (int stripe : stripes) {
+                    generations.incrementAndGet(stripe);
+                    lastCommitMillis.accumulateAndGet(stripe, committedAt, Math::max);
+                }
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        evict(ids);
+                    } else {
+                        ids.forEach(local::remove);
+                    }
+                } finally {
+                    for (int stripe : stripes) {
+                        pendingChanges.decrementAndGet(stripe);
+                    }
+                }
+            }
+        });
+    }
+
+    public void evictAfterCommit(Long userId) {
+        evictAfterCommit(List.of(userId));
+    }
+
+    private void evict(Collection<Long> userIds) {
+        userIds.forEach(local::remove);
+        deleteRedis(userIds);
+    }
+
+    /**
+     * Put a balance in the local map, and take it out again if a change started or completed
+     * while it was being read
+     */
+    private void store(Long userId, int stripe, long generation, WalletResponse balance, long now) {
+        if (localTtlNanos == 0 || !stillCurrent(stripe, generation)) {
+            return;
+        }
+        if (local.size() >= localMaxEntries) {
+            local.values().removeIf(entry -> entry.expiresAt() - now <= 0);
+            if (local.size() >= localMaxEntries) {
+                return;
+            }
+        }
+        LocalEntry entry = new LocalEntry(balance, now + localTtlNanos);
+        local.put(userId, entry);
+        if (!stillCurrent(stripe, generation)) {
+            local.remove(userId, entry);
+        }
+    }
+
+    private boolean stillCurrent(int stripe, long generation) {
+        return pendingChanges.get(stripe) == 0 && generations.get(stripe) == generation;
+    }
+
+    private CachedBalance readRedis(Long userId) {
+        if (redisUnavailable()) {
+            return null;
+        }
+        try {
+            String json = redisTemplate.opsForValue().get(KEY_PREFIX + userId);
+            return json != null ? objectMapper.readValue(json, CachedBalance.class) : null;
+        } catch (DataAccessException e) {
+            redisFailed(e);
+        } catch (JsonProcessingException e) {
+            log.warn("Discarding unreadable cached balance of user {}", userId, e);
+        }
+        return null;
+    }
+
+    private void writeRedis(Long userId, CachedBalance cached) {
+        if (redisUnavailable()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + userId, objectMapper.writeValueAsString(cached), redisTtl);
+        } catch (DataAccessException e) {
+            redisFailed(e);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not cache balance of user {}", userId, e);
+        }
+    }
+
+    private void deleteRedis(Collection<Long> userIds) {
+        if (redisUnavailable()) {
+            return;
+        }
+        try {
+            redisTemplate.delete(userIds.stream().map(id -> KEY_PREFIX + id).toList());
+        } catch (DataAccessException e) {
+            redisFailed(e);
+        }
+    }
+
+    private boolean redisUnavailable() {
+        return System.currentTimeMillis() < redisRetryAt;
+    }
+
+    private void redisFailed(DataAccessException e) {
+        redisRetryAt = System.currentTimeMillis() + redisRetryMillis;
+        log.warn("Redis unavailable for wallet balances, skipping it for {} ms: {}", redisRetryMillis, e.getMessage());
+    }
+
+    private static int[] stripes(Collection<Long> userIds) {
+        return userIds.stream().mapToInt(WalletBalanceCache::stripe).distinct().toArray();
+    }
+
+    private static int stripe(Long userId) {
+        return Math.floorMod(Long.hashCode(userId), STRIPES);
+    }
+}
@@ -0,0 +1,352 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.dto.response.PageResponse;
+import com.realestate.mlm.dto.response.WalletReconciliationDiscrepancyResponse;
+import com.realestate.mlm.dto.response.WalletReconciliationRunResponse;
+import com.realestate.mlm.exception.BadRequestException;
+import com.realestate.mlm.exception.ResourceNotFoundException;
+import com.realestate.mlm.model.User;
+import com.realestate.mlm.model.WalletReconciliationDiscrepancy;
+import com.realestate.mlm.model.WalletReconciliationRun;
+import com.realestate.mlm.repository.UserRepository;
+import com.realestate.mlm.repository.WalletReconciliationDiscrepancyRepository;
+import com.realestate.mlm.repository.WalletReconciliationRepository;
+import com.realestate.mlm.repository.WalletReconciliationRepository.WalletLedger;
+import com.realestate.mlm.repository.WalletReconciliationRunRepository;
+import com.realestate.mlm.util.SecurityUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Nightly check that every wallet agrees with its ledger.
+ *
+ * For each wallet three things are compared: each balance (with unfolded stripe credits) against
+ * the credits minus debits of its transactions, including the archived months; the locked
+ * balance against the payouts still holding it; and Wallet.totalEarned (with unfolded stripe
+ * credits) against the income credits less commission reversals of the same transactions.
+ * Nothing is corrected, the run only records a discrepancy report.
+ *
+ * Wallets are walked in user id order and split into keyset ranges of app.reconciliation.chunk-size
+ * wallets. app.reconciliation.workers threads take the next range as they free up, read it with
+ * one set-based statement and write its discrepancies and progress in one short transaction, so
+ * memory and lock time stay flat however many wallets there are. A run interrupted by a restart
+ * is marked failed; the next run starts over, as reading is all it does.
+ */
+@Service
+@Slf4j
+public class WalletReconciliationService {
+
+    static final String STATUS_RUNNING = "RUNNING";
+    static final String STATUS_COMPLETED = "COMPLETED";
+    static final String STATUS_FAILED = "FAILED";
+
+    static final String CHECK_BALANCE = "BALANCE";
+    static final String CHECK_LOCKED = "LOCKED";
+    static final String CHECK_EARNINGS = "EARNINGS";
+
+    private static final String SCHEDULER = "SCHEDULER";
+
+    private final WalletReconciliationRunRepository runRepository;
+    private final WalletReconciliationDiscrepancyRepository discrepancyRepository;
+    private final WalletReconciliationRepository reconciliationRepository;
+    private final UserRepository userRepository;
+    private final IdGeneratorService idGeneratorService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService coordinator;
+    private final ExecutorService workerPool;
+    private final int workers;
+    private final int chunkSize;
+
+    public WalletReconciliationService(
+            WalletReconciliationRunRepository runRepository,
+            WalletReconciliationDiscrepancyRepository discrepancyRepository,
+            WalletReconciliationRepository reconciliationRepository,
+            UserRepository userRepository,
+            IdGeneratorService idGeneratorService,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.reconciliation.workers:4}") int workers,
+            @Value("${app.reconciliation.chunk-size:5000}") int chunkSize) {
+        this.runRepository = runRepository;
+        this.discrepancyRepository = discrepancyRepository;
+        this.reconciliationRepository = reconciliationRepository;
+        this.userRepository = userRepository;
+        this.idGeneratorService = idGeneratorService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workers = Math.max(1, workers);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.coordinator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wallet-reconciliation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadNo = new AtomicInteger();
+        this.workerPool = Executors.newFixedThreadPool(this.workers, runnable -> {
+            Thread thread = new Thread(runnable, "wallet-reconciliation-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workerPool.shutdownNow();
+    }
+
+    /**
+     * Runs still marked running were cut off by a restart
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedRuns() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (WalletReconciliationRun run : runRepository.findByStatusIn(List.of(STATUS_RUNNING))) {
+                log.warn("Wallet reconciliation {} was interrupted by a restart, marking it failed", run.getRunId());
+                runRepository.finish(run.getId(), STATUS_FAILED, "Interrupted by application restart", null);
+            }
+        });
+    }
+
+    /**
+     * Start a reconciliation in the background on behalf of the current admin
+     */
+    public WalletReconciliationRunResponse startReconciliation() {
+        return start(SecurityUtil.getCurrentUserMlmId());
+    }
+
+    /**
+     * Start the nightly reconciliation, unless one is still running
+     */
+    public void startScheduledReconciliation() {
+        try {
+            WalletReconciliationRunResponse run = start(SCHEDULER);
+            log.info("Scheduled wallet reconciliation {} started", run.getRunId());
+        } catch (BadRequestException e) {
+            log.warn("Scheduled wallet reconciliation skipped: {}", e.getMessage());
+        }
+    }
+
+    private synchronized WalletReconciliationRunResponse start(String requestedBy) {
+        WalletReconciliationRun run = transactionTemplate.execute(status -> {
+            if (runRepository.existsByStatusIn(List.of(STATUS_RUNNING))) {
+                throw new BadRequestException("A wallet reconciliation is already running");
+            }
+
+            WalletReconciliationRun newRun = new WalletReconciliationRun();
+            newRun.setRunId(idGeneratorService.nextReconciliationRunId());
+            newRun.setStatus(STATUS_RUNNING);
+            newRun.setWorkers(workers);
+            newRun.setChunkSize(chunkSize);
+            newRun.setRequestedBy(requestedBy);
+            return runRepository.save(newRun);
+        });
+
+        coordinator.submit(() -> execute(run.getId(), run.getRunId()));
+        return mapToResponse(run);
+    }
+
+    public WalletReconciliationRunResponse getReconciliation(String runId) {
+        return mapToResponse(getRunEntity(runId));
+    }
+
+    /**
+     * Discrepancy report of a run, in the order it was produced
+     */
+    public PageResponse<WalletReconciliationDiscrepancyResponse> getDiscrepancyReport(String runId, Pageable pageable) {
+        WalletReconciliationRun run = getRunEntity(runId);
+        Page<WalletReconciliationDiscrepancy> discrepancies = discrepancyRepository.findByRunIdOrderById(run.getId(), pageable);
+
+        // Resolve MLM user IDs for the page in one query
+        List<Long> userIds = discrepancies.getContent().stream()
+                .map(WalletReconciliationDiscrepancy::getUserId)
+                .distinct()
+                .toList();
+        Map<Long, String> mlmIds = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, User::getUserId));
+
+        List<WalletReconciliationDiscrepancyResponse> content = discrepancies.getContent().stream()
+                .map(discrepancy -> WalletReconciliationDiscrepancyResponse.builder()
+                        .userId(mlmIds.get(discrepancy.getUserId()))
+                        .checkType(discrepancy.getCheckType())
+                        .walletType(discrepancy.getWalletType())
+                        .recordedAmount(discrepancy.getRecordedAmount())
+                        .expectedAmount(discrepancy.getExpectedAmount())
+                        .deltaAmount(discrepancy.getDeltaAmount())
+                        .build())
+                .toList();
+
+        return PageResponse.<WalletReconciliationDiscrepancyResponse>builder()
+                .content(content)
+                .page(discrepancies.getNumber())
+                .size(discrepancies.getSize())
+                .totalElements(discrepancies.getTotalElements())
+                .totalPages(discrepancies.getTotalPages())
+                .first(discrepancies.isFirst())
+                .last(discrepancies.isLast())
+                .build();
+    }
+
+    /**
+     * Let the workers pull ranges until the wallets run out or one of them fails
+     */
+    void execute(Long id, String runId) {
+        long startTime = System.currentTimeMillis();
+        RangeCursor cursor = new RangeCursor();
+        AtomicBoolean failed = new AtomicBoolean();
+
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            futures.add(workerPool.submit(() -> {
+                try {
+                    long[] range;
+                    while (!failed.get() && (range = cursor.next()) != null) {
+                        long from = range[0];
+                        long to = range[1];
+                        transactionTemplate.executeWithoutResult(tx -> checkRange(id, from, to));
+                    }
+                } catch (RuntimeException e) {
+                    failed.set(true);
+                    throw e;
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            transactionTemplate.executeWithoutResult(tx ->
+                    runRepository.finish(id, STATUS_COMPLETED, null, LocalDateTime.now()));
+            log.info("Wallet reconciliation {} completed in {}ms", runId, System.currentTimeMillis() - startTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.set(true);
+        } catch (ExecutionException | RuntimeException e) {
+            failed.set(true);
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            log.error("Wallet reconciliation {} failed", runId, cause);
+            transactionTemplate.executeWithoutResult(tx -> runRepository.finish(id, STATUS_FAILED, cause.toString(), null));
+        }
+    }
+
+    /**
+     * Compare the wallets of one user id range with their ledger and record what differs - all in
+     * the caller's transaction
+     */
+    private void checkRange(Long id, long fromUserId, long toUserId) {
+        List<WalletLedger> wallets = reconciliationRepository.findWalletLedgers(fromUserId, toUserId);
+
+        List<WalletReconciliationDiscrepancy> discrepancies = new ArrayList<>();
+        for (WalletLedger wallet : wallets) {
+            for (String walletType : WalletReconciliationRepository.WALLET_TYPES) {
+                compare(id, wallet.userId(), CHECK_BALANCE, walletType,
+                        wallet.balances().get(walletType), wallet.ledger().get(walletType), discrepancies);
+            }
+            compare(id, wallet.userId(), CHECK_LOCKED, null,
+                    wallet.lockedBalance(), wallet.lockedPayouts(), discrepancies);
+            compare(id, wallet.userId(), CHECK_EARNINGS, null,
+                    wallet.totalEarned(), wallet.earnedLedger(), discrepancies);
+        }
+
+        BigDecimal absoluteDifference = discrepancies.stream()
+                .map(discrepancy -> discrepancy.getDeltaAmount().abs())
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        reconciliationRepository.insertDiscrepancies(discrepancies);
+        runRepository.addRangeProgress(id, wallets.size(), discrepancies.size(), absoluteDifference);
+
+        if (!discrepancies.isEmpty()) {
+            log.warn("Wallet reconciliation found {} discrepancies for user ids {} to {}",
+                    discrepancies.size(), fromUserId + 1, toUserId);
+        }
+    }
+
+    private static void compare(
+            Long runId,
+            Long userId,
+            String checkType,
+            String walletType,
+            BigDecimal recorded,
+            BigDecimal expected,
+            List<WalletReconciliationDiscrepancy> discrepancies) {
+        if (recorded.compareTo(expected) == 0) {
+            return;
+        }
+        WalletReconciliationDiscrepancy discrepancy = new WalletReconciliationDiscrepancy();
+        discrepancy.setRunId(runId);
+        discrepancy.setUserId(userId);
+        discrepancy.setCheckType(checkType);
+        discrepancy.setWalletType(walletType);
+        discrepancy.setRecordedAmount(recorded);
+        discrepancy.setExpectedAmount(expected);
+        discrepancy.setDeltaAmount(recorded.subtract(expected));
+        discrepancies.add(discrepancy);
+    }
+
+    /**
+     * Hands out consecutive (from, to] user id ranges of chunkSize wallets. Each step is one
+     * short index walk, so workers only wait on each other for that.
+     */
+    private final class RangeCursor {
+
+        private long lastUserId = 0;
+        private boolean exhausted;
+
+        synchronized long[] next() {
+            if (exhausted) {
+                return null;
+            }
+            Long rangeEnd = reconciliationRepository.findRangeEnd(lastUserId, chunkSize);
+            if (rangeEnd == null) {
+                exhausted = true;
+                return null;
+            }
+            long[] range = {lastUserId, rangeEnd};
+            lastUserId = rangeEnd;
+            return range;
+        }
+    }
+
+    private WalletReconciliationRun getRunEntity(String runId) {
+        return runRepository.findByRunId(runId)
+                .orElseThrow(() -> new ResourceNotFoundException("Wallet reconciliation not found: " + runId));
+    }
+
+    private WalletReconciliationRunResponse mapToResponse(WalletReconciliationRun run) {
+        return WalletReconciliationRunResponse.builder()
+                .runId(run.getRunId())
+                .status(run.getStatus())
+                .workers(run.getWorkers())
+                .chunkSize(run.getChunkSize())
+                .completedRanges(run.getCompletedRanges())
+                .walletsChecked(run.getWalletsChecked())
+                .discrepancyCount(run.getDiscrepancyCount())
+                .absoluteDifference(run.getAbsoluteDifference())
+                .lastError(run.getLastError())
+                .requestedBy(run.getRequestedBy())
+                .createdAt(run.getCreatedAt())
+                .updatedAt(run.getUpdatedAt())
+                .completedAt(run.getCompletedAt())
+                .build();
+    }
+}
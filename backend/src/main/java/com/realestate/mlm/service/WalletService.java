@@ -1,20 +1,29 @@
 package com.realestate.mlm.service;
 
+import com.realestate.mlm.dto.response.CursorPageResponse;
 import com.realestate.mlm.dto.response.PageResponse;
 import com.realestate.mlm.dto.response.TransactionResponse;
 import com.realestate.mlm.dto.response.WalletResponse;
 import com.realestate.mlm.dto.response.WalletSummaryResponse;
+import com.realestate.mlm.exception.BadRequestException;
 import com.realestate.mlm.exception.InsufficientBalanceException;
 import com.realestate.mlm.exception.ResourceNotFoundException;
 import com.realestate.mlm.model.Transaction;
 import com.realestate.mlm.model.User;
 import com.realestate.mlm.model.Wallet;
+import com.realestate.mlm.model.WalletStripe;
 import com.realestate.mlm.repository.TransactionRepository;
 import com.realestate.mlm.repository.UserRepository;
+import com.realestate.mlm.repository.WalletBatchRepository;
 import com.realestate.mlm.repository.WalletRepository;
+import com.realestate.mlm.repository.WalletStripeRepository;
 import com.realestate.mlm.util.SecurityUtil;
+import com.realestate.mlm.util.SeekCursor;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -24,7 +33,14 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @RequiredArgsConstructor
@@ -34,6 +50,18 @@ public class WalletService {
     private final WalletRepository walletRepository;
     private final UserRepository userRepository;
     private final TransactionRepository transactionRepository;
+    private final IdGeneratorService idGeneratorService;
+    private final WalletStripeRepository walletStripeRepository;
+    private final WalletBatchRepository walletBatchRepository;
+    private final EntityManager entityManager;
+    private final TransactionRollupService transactionRollupService;
+    private final WalletBalanceCache walletBalanceCache;
+
+    /**
+     * Stripes per wallet type for striped wallets; credit throughput to one user scales with it
+     */
+    @Value("${app.wallet.stripe-count:8}")
+    private int stripeCount;
 
     /**
      * Create wallet for new user
@@ -74,10 +102,7 @@ public class WalletService {
         User user = userRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with userId: " + userId));
 
-        Wallet wallet = walletRepository.findByUser(user)
-                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + userId));
-
-        return mapToWalletResponse(wallet);
+        return getWalletBalance(user.getId());
     }
 
     /**
@@ -86,12 +111,22 @@ public class WalletService {
     public WalletResponse getWalletBalance() {
         String currentUserMlmId = SecurityUtil.getCurrentUserMlmId();
         log.info("Fetching wallet balance for current user: {}", currentUserMlmId);
-        return getWalletBalance(currentUserMlmId);
+        return getWalletBalance(SecurityUtil.getCurrentUserId());
+    }
+
+    /**
+     * Get wallet balance by user ID, including credits still on stripes, through the balance
+     * cache. For display only: checks before moving money read the wallet row.
+     */
+    public WalletResponse getWalletBalance(Long userId) {
+        return walletBalanceCache.get(userId, () -> mapToWalletResponse(withStripes(walletRepository.findByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user ID: " + userId)))));
     }
 
     /**
      * Credit wallet - add money to specific wallet type
-     * Uses pessimistic locking to prevent race conditions
+     * Uses pessimistic locking to prevent race conditions; striped wallets take the credit on one
+     * of their stripes instead of locking the wallet row
      */
     @Transactional
     public Transaction creditWallet(User user, BigDecimal amount, String walletType, String description) {
@@ -101,6 +136,12 @@ public class WalletService {
             throw new IllegalArgumentException("Credit amount must be greater than zero");
         }
 
+        walletBalanceCache.evictAfterCommit(user.getId());
+
+        if (isStriped(user)) {
+            return creditStripe(user, amount, walletType, description);
+        }
+
         // Use pessimistic write lock to ensure thread-safety during concurrent updates
         Wallet wallet = walletRepository.findByUserWithLock(user)
                 .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + user.getUserId()));
@@ -108,6 +149,111 @@ public class WalletService {
         BigDecimal balanceBefore = getWalletTypeBalance(wallet, walletType);
 
         // Update specific wallet balance
+        applyCredit(wallet, walletType, amount);
+
+        walletRepository.save(wallet);
+
+        BigDecimal balanceAfter = getWalletTypeBalance(wallet, walletType);
+
+        // Create transaction record
+        Transaction transaction = createTransaction(
+                user,
+                "CREDIT",
+                walletType,
+                amount,
+                balanceBefore,
+                balanceAfter,
+                description
+        );
+
+        log.info("Wallet credited successfully for user: {}", user.getUserId());
+
+        return transaction;
+    }
+
+    /**
+     * Credit many wallets for one business operation, keyed by user id.
+     * All target wallets are locked with one SELECT ... FOR UPDATE in ascending user id order, so
+     * two operations crediting overlapping uplines can never deadlock; balances are flushed as
+     * batched updates and the transaction records written with one JDBC batch. Striped wallets
+     * take their credit on a stripe without locking the wallet row.
+     * Returns the transaction records written.
+     */
+    @Transactional
+    public List<Transaction> creditWallets(Map<Long, BigDecimal> amounts, String walletType, String description) {
+        if (amounts.isEmpty()) {
+            return List.of();
+        }
+        log.info("Crediting {} wallets, type: {}", amounts.size(), walletType);
+
+        String balanceType = stripeWalletType(walletType);
+        Map<Long, BigDecimal> sorted = new TreeMap<>(amounts);
+        for (Map.Entry<Long, BigDecimal> amount : sorted.entrySet()) {
+            if (amount.getValue() == null || amount.getValue().compareTo(BigDecimal.ZERO) <= 0) {
+                throw new IllegalArgumentException("Credit amount must be greater than zero for user ID: " + amount.getKey());
+            }
+        }
+
+        walletBalanceCache.evictAfterCommit(sorted.keySet());
+
+        Set<Long> stripedUserIds = new HashSet<>(walletRepository.findStripedUserIds(sorted.keySet()));
+        Map<Long, BigDecimal> stripeCredits = new TreeMap<>();
+        Map<Long, BigDecimal> rowCredits = new TreeMap<>();
+        sorted.forEach((userId, amount) -> (stripedUserIds.contains(userId) ? stripeCredits : rowCredits).put(userId, amount));
+
+        List<Transaction> transactions = new ArrayList<>(sorted.size());
+        LocalDateTime now = LocalDateTime.now();
+
+        if (!rowCredits.isEmpty()) {
+            List<Wallet> wallets = walletRepository.findAllByUserIdsWithLock(rowCredits.keySet());
+            if (wallets.size() < rowCredits.size()) {
+                Set<Long> missing = new HashSet<>(rowCredits.keySet());
+                wallets.forEach(wallet -> missing.remove(wallet.getUser().getId()));
+                throw new ResourceNotFoundException("Wallet not found for user IDs: " + missing);
+            }
+            for (Wallet wallet : wallets) {
+                BigDecimal amount = rowCredits.get(wallet.getUser().getId());
+                BigDecimal balanceBefore = getWalletTypeBalance(wallet, walletType);
+                applyCredit(wallet, walletType, amount);
+                transactions.add(newTransaction(wallet.getUser(), "CREDIT", walletType, amount,
+                        balanceBefore, getWalletTypeBalance(wallet, walletType), description, now));
+            }
+            walletRepository.saveAll(wallets);
+        }
+
+        if (!stripeCredits.isEmpty()) {
+            walletBatchRepository.addToStripes(stripeCredits, balanceType, stripeCount);
+            stripeCredits.forEach((userId, amount) -> transactions.add(newTransaction(
+                    userRepository.getReferenceById(userId), "CREDIT", walletType, amount, null, null, description, now)));
+        }
+
+        transactionRollupService.saveAll(transactions);
+
+        log.info("Credited {} wallets ({} striped)", sorted.size(), stripeCredits.size());
+
+        return transactions;
+    }
+
+    /**
+     * Add a credit to a random stripe of a striped wallet. Only that stripe row is locked;
+     * the balance after the credit is not known without summing the stripes, so the transaction
+     * record leaves it empty.
+     */
+    private Transaction creditStripe(User user, BigDecimal amount, String walletType, String description) {
+        int stripeNo = ThreadLocalRandom.current().nextInt(Math.max(1, stripeCount));
+        walletStripeRepository.addToStripe(user.getId(), stripeWalletType(walletType), stripeNo, amount);
+
+        Transaction transaction = createTransaction(user, "CREDIT", walletType, amount, null, null, description);
+
+        log.info("Striped wallet credited for user: {}, stripe: {}", user.getUserId(), stripeNo);
+
+        return transaction;
+    }
+
+    /**
+     * Add a credit to the matching balance and lifetime total
+     */
+    private void applyCredit(Wallet wallet, String walletType, BigDecimal amount) {
         switch (walletType.toUpperCase()) {
             case "INVESTMENT":
                 wallet.setInvestmentBalance(wallet.getInvestmentBalance().add(amount));
@@ -129,30 +275,123 @@ public class WalletService {
             default:
                 throw new IllegalArgumentException("Invalid wallet type: " + walletType);
         }
+    }
+
+    /**
+     * Stripes are kept per balance, so RENTAL and RENTAL_INCOME share theirs
+     */
+    private static String stripeWalletType(String walletType) {
+        switch (walletType.toUpperCase()) {
+            case "INVESTMENT":
+            case "COMMISSION":
+            case "ROI":
+                return walletType.toUpperCase();
+            case "RENTAL_INCOME":
+            case "RENTAL":
+                return "RENTAL_INCOME";
+            default:
+                throw new IllegalArgumentException("Invalid wallet type: " + walletType);
+        }
+    }
+
+    private boolean isStriped(User user) {
+        return walletRepository.findStripedByUserId(user.getId()).orElse(false);
+    }
+
+    /**
+     * Fold the stripes of a locked wallet into the wallet row, so it holds the whole balance
+     * before a debit or lock checks it
+     */
+    private void foldStripes(Wallet wallet) {
+        if (!Boolean.TRUE.equals(wallet.getStriped())) {
+            return;
+        }
+        foldStripesOf(wallet);
+    }
 
+    private int foldStripesOf(Wallet wallet) {
+        List<WalletStripe> stripes = walletStripeRepository.findByUserIdForUpdate(wallet.getUser().getId());
+        if (stripes.isEmpty()) {
+            return 0;
+        }
+        for (WalletStripe stripe : stripes) {
+            applyCredit(wallet, stripe.getWalletType(), stripe.getAmount());
+        }
+        walletStripeRepository.deleteAllInBatch(stripes);
         walletRepository.save(wallet);
+        return stripes.size();
+    }
 
-        BigDecimal balanceAfter = getWalletTypeBalance(wallet, walletType);
+    /**
+     * Unmanaged copy of a wallet with its unfolded stripes added, for balance reads.
+     * Wallets that are not striped are returned as they are.
+     */
+    private Wallet withStripes(Wallet wallet) {
+        if (!Boolean.TRUE.equals(wallet.getStriped())) {
+            return wallet;
+        }
+        List<WalletStripeRepository.StripeTotal> totals = walletStripeRepository.sumByUserId(wallet.getUser().getId());
+        if (totals.isEmpty()) {
+            return wallet;
+        }
 
-        // Create transaction record
-        Transaction transaction = createTransaction(
-                user,
-                "CREDIT",
-                walletType,
-                amount,
-                balanceBefore,
-                balanceAfter,
-                description
-        );
+        Wallet view = new Wallet();
+        view.setId(wallet.getId());
+        view.setUser(wallet.getUser());
+        view.setInvestmentBalance(wallet.getInvestmentBalance());
+        view.setCommissionBalance(wallet.getCommissionBalance());
+        view.setRentalIncomeBalance(wallet.getRentalIncomeBalance());
+        view.setRoiBalance(wallet.getRoiBalance());
+        view.setTotalEarned(wallet.getTotalEarned());
+        view.setTotalWithdrawn(wallet.getTotalWithdrawn());
+        view.setTotalInvested(wallet.getTotalInvested());
+        view.setLockedBalance(wallet.getLockedBalance());
+        view.setStriped(wallet.getStriped());
+        view.setCreatedAt(wallet.getCreatedAt());
+        view.setUpdatedAt(wallet.getUpdatedAt());
+        for (WalletStripeRepository.StripeTotal total : totals) {
+            applyCredit(view, total.getWalletType(), total.getAmount());
+        }
+        return view;
+    }
 
-        log.info("Wallet credited successfully for user: {}", user.getUserId());
+    /**
+     * Fold all stripes of a user into the wallet row (compaction)
+     * Returns the number of stripes folded
+     */
+    @Transactional
+    public int compactStripes(Long userId) {
+        Wallet wallet = walletRepository.findByUserIdWithLock(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user ID: " + userId));
+        // Also folds stripes left behind by credits racing a switch back to a single row
+        return foldStripesOf(wallet);
+    }
 
-        return transaction;
+    /**
+     * Switch striped credits on or off for a wallet (admin).
+     * Switching off folds the stripes back into the wallet row.
+     */
+    @Transactional
+    public String setStriped(Long userId, boolean striped) {
+        Wallet wallet = walletRepository.findByUserIdWithLock(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user ID: " + userId));
+
+        if (!striped) {
+            foldStripesOf(wallet);
+        }
+        wallet.setStriped(striped);
+        walletRepository.save(wallet);
+
+        log.info("Striped credits {} for wallet of user ID: {}", striped ? "enabled" : "disabled", userId);
+
+        return striped ? "Striped credits enabled" : "Striped credits disabled";
     }
 
     /**
      * Debit wallet - deduct money from specific wallet type
-     * Uses pessimistic locking to prevent race conditions
+     * A single conditional UPDATE checks the balance and debits it, so no row lock is held across
+     * application code. Only when it finds the balance short is the wallet read: to report the
+     * shortfall, or for a striped wallet to fold its stripes under the row lock and retry.
      */
     @Transactional
     public Transaction debitWallet(User user, BigDecimal amount, String walletType, String description) {
@@ -162,10 +401,75 @@ public class WalletService {
             throw new IllegalArgumentException("Debit amount must be greater than zero");
         }
 
+        walletBalanceCache.evictAfterCommit(user.getId());
+
+        Optional<WalletRepository.ConditionalDebit> debit = conditionalDebit(user, amount, walletType);
+        if (debit.isPresent()) {
+            BigDecimal balanceAfter = debit.get().getBalanceAfter();
+            Transaction transaction = createTransaction(
+                    user,
+                    "DEBIT",
+                    walletType,
+                    amount,
+                    balanceAfter.add(amount),
+                    balanceAfter,
+                    description
+            );
+
+            log.info("Wallet debited successfully for user: {}", user.getUserId());
+
+            return transaction;
+        }
+
+        Wallet wallet = walletRepository.findByUser(user)
+                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + user.getUserId()));
+        if (!Boolean.TRUE.equals(wallet.getStriped())) {
+            BigDecimal available = availableToDebit(wallet, walletType);
+            throw new InsufficientBalanceException(
+                    String.format("Insufficient %s balance. Available: %s, Required: %s",
+                            walletType, available, amount)
+            );
+        }
+
+        return debitWithLock(user, amount, walletType, description);
+    }
+
+    /**
+     * Debit one balance with a single conditional UPDATE.
+     * Empty when the balance does not cover the amount.
+     */
+    private Optional<WalletRepository.ConditionalDebit> conditionalDebit(User user, BigDecimal amount, String walletType) {
+        // Changes pending in this transaction (an unlock, an earlier credit) must reach the row first
+        entityManager.flush();
+
+        Optional<WalletRepository.ConditionalDebit> debit = switch (walletType.toUpperCase()) {
+            case "INVESTMENT" -> walletRepository.debitInvestmentBalance(user.getId(), amount);
+            case "COMMISSION" -> walletRepository.debitCommissionBalance(user.getId(), amount);
+            case "RENTAL_INCOME", "RENTAL" -> walletRepository.debitRentalIncomeBalance(user.getId(), amount);
+            case "ROI" -> walletRepository.debitRoiBalance(user.getId(), amount);
+            default -> throw new IllegalArgumentException("Invalid wallet type: " + walletType);
+        };
+
+        // A wallet already loaded in this transaction no longer matches its row
+        debit.ifPresent(result -> {
+            Wallet loaded = entityManager.getReference(Wallet.class, result.getWalletId());
+            if (Hibernate.isInitialized(loaded)) {
+                entityManager.refresh(loaded);
+            }
+        });
+        return debit;
+    }
+
+    /**
+     * Debit under the wallet row lock, after folding the wallet's stripes
+     */
+    private Transaction debitWithLock(User user, BigDecimal amount, String walletType, String description) {
         // Use pessimistic write lock to ensure thread-safety during concurrent updates
         Wallet wallet = walletRepository.findByUserWithLock(user)
                 .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + user.getUserId()));
 
+        foldStripes(wallet);
+
         // Validate sufficient balance
         validateSufficientBalance(user, amount, walletType);
 
@@ -213,6 +517,48 @@ public class WalletService {
         return transaction;
     }
 
+    /**
+     * Take back previously credited commission.
+     * Unlike a withdrawal this lowers total earned, and it never drives the commission balance
+     * below zero: returns the amount actually debited, which is less than requested when the
+     * balance does not cover it.
+     */
+    @Transactional
+    public BigDecimal reverseCommission(User user, BigDecimal amount, String description) {
+        log.info("Reversing commission for user: {}, amount: {}", user.getUserId(), amount);
+
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Reversal amount must be greater than zero");
+        }
+
+        walletBalanceCache.evictAfterCommit(user.getId());
+
+        Wallet wallet = walletRepository.findByUserWithLock(user)
+                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + user.getUserId()));
+        foldStripes(wallet);
+
+        BigDecimal balanceBefore = wallet.getCommissionBalance();
+        BigDecimal debited = amount.min(balanceBefore.max(BigDecimal.ZERO));
+        if (debited.compareTo(BigDecimal.ZERO) <= 0) {
+            log.warn("Commission balance of user {} cannot cover reversal of {}", user.getUserId(), amount);
+            return BigDecimal.ZERO;
+        }
+
+        wallet.setCommissionBalance(balanceBefore.subtract(debited));
+        wallet.setTotalEarned(wallet.getTotalEarned().subtract(debited));
+        walletRepository.save(wallet);
+
+        Transaction reversal = newTransaction(user, "DEBIT", "COMMISSION", debited, balanceBefore,
+                wallet.getCommissionBalance(), description, LocalDateTime.now());
+        reversal.setCategory(TransactionRollupService.COMMISSION_REVERSAL_CATEGORY);
+        transactionRollupService.save(reversal);
+
+        if (debited.compareTo(amount) < 0) {
+            log.warn("Commission reversal for user {} short by {}", user.getUserId(), amount.subtract(debited));
+        }
+        return debited;
+    }
+
     /**
      * Get transaction history with filters
      */
@@ -247,23 +593,37 @@ public class WalletService {
         log.debug("Validating sufficient balance for user: {}, amount: {}, type: {}",
                 user.getUserId(), amount, walletType);
 
-        Wallet wallet = walletRepository.findByUser(user)
-                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + user.getUserId()));
+        Wallet wallet = withStripes(walletRepository.findByUser(user)
+                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + user.getUserId())));
 
-        BigDecimal currentBalance = getWalletTypeBalance(wallet, walletType);
+        BigDecimal available = availableToDebit(wallet, walletType);
 
-        if (currentBalance.compareTo(amount) < 0) {
+        if (available.compareTo(amount) < 0) {
             throw new InsufficientBalanceException(
                     String.format("Insufficient %s balance. Available: %s, Required: %s",
-                            walletType, currentBalance, amount)
+                            walletType, available, amount)
             );
         }
     }
 
+    /**
+     * What a debit of one balance may take. An income debit is also held to the withdrawable
+     * balance, so it cannot spend money locked for another pending withdrawal; the lock of the
+     * payout being paid is released before its debit. Same rule as the conditional debits in
+     * {@link WalletRepository}.
+     */
+    static BigDecimal availableToDebit(Wallet wallet, String walletType) {
+        BigDecimal balance = getWalletTypeBalance(wallet, walletType);
+        if ("INVESTMENT".equalsIgnoreCase(walletType)) {
+            return balance;
+        }
+        return balance.min(wallet.getWithdrawableBalance());
+    }
+
     /**
      * Get balance for specific wallet type
      */
-    private BigDecimal getWalletTypeBalance(Wallet wallet, String walletType) {
+    private static BigDecimal getWalletTypeBalance(Wallet wallet, String walletType) {
         switch (walletType.toUpperCase()) {
             case "INVESTMENT":
                 return wallet.getInvestmentBalance();
@@ -290,9 +650,23 @@ public class WalletService {
             BigDecimal balanceBefore,
             BigDecimal balanceAfter,
             String description
+    ) {
+        return transactionRollupService.save(newTransaction(
+                user, type, walletType, amount, balanceBefore, balanceAfter, description, LocalDateTime.now()));
+    }
+
+    private Transaction newTransaction(
+            User user,
+            String type,
+            String walletType,
+            BigDecimal amount,
+            BigDecimal balanceBefore,
+            BigDecimal balanceAfter,
+            String description,
+            LocalDateTime createdAt
     ) {
         Transaction transaction = new Transaction();
-        transaction.setTransactionId(generateTransactionId());
+        transaction.setTransactionId(idGeneratorService.nextTransactionId());
         transaction.setUser(user);
         transaction.setType(type);
         transaction.setCategory(walletType);
@@ -302,16 +676,8 @@ public class WalletService {
         transaction.setBalanceAfter(balanceAfter);
         transaction.setDescription(description);
         transaction.setStatus("SUCCESS");
-        transaction.setCreatedAt(LocalDateTime.now());
-
-        return transactionRepository.save(transaction);
-    }
-
-    /**
-     * Generate unique transaction ID
-     */
-    private String generateTransactionId() {
-        return "TXN" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        transaction.setCreatedAt(createdAt);
+        return transaction;
     }
 
     /**
@@ -349,17 +715,49 @@ public class WalletService {
      */
     @Transactional
     public void lockBalance(User user, BigDecimal amount) {
+        lockBalance(user, amount, null);
+    }
+
+    /**
+     * Lock balance for a withdrawal request and count it against the user's daily limit.
+     * The limit is checked and the day's counter raised under the same wallet row lock as the
+     * balance, so concurrent requests can never exceed it together. The counter restarts at the
+     * first request of a new day.
+     */
+    @Transactional
+    public void lockWithdrawal(User user, BigDecimal amount, BigDecimal dailyLimit) {
+        lockBalance(user, amount, dailyLimit);
+    }
+
+    private void lockBalance(User user, BigDecimal amount, BigDecimal dailyLimit) {
         log.info("Locking balance for user: {}, amount: {}", user.getUserId(), amount);
 
+        walletBalanceCache.evictAfterCommit(user.getId());
+
         // Use pessimistic write lock to ensure thread-safety
         Wallet wallet = walletRepository.findByUserWithLock(user)
                 .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + user.getUserId()));
 
+        foldStripes(wallet);
+
         // Validate sufficient withdrawable balance
         if (wallet.getWithdrawableBalance().compareTo(amount) < 0) {
             throw new InsufficientBalanceException("Insufficient withdrawable balance to lock");
         }
 
+        if (dailyLimit != null) {
+            LocalDate today = LocalDate.now();
+            BigDecimal withdrawnToday = wallet.getDailyWithdrawalAmount(today);
+            if (withdrawnToday.add(amount).compareTo(dailyLimit) > 0) {
+                throw new BadRequestException(String.format(
+                        "Daily withdrawal limit of Rs %s exceeded. Remaining today: Rs %s",
+                        dailyLimit,
+                        dailyLimit.subtract(withdrawnToday).max(BigDecimal.ZERO)));
+            }
+            wallet.setDailyWithdrawalAmount(withdrawnToday.add(amount));
+            wallet.setDailyWithdrawalDate(today);
+        }
+
         wallet.setLockedBalance(wallet.getLockedBalance().add(amount));
         walletRepository.save(wallet);
 
@@ -374,6 +772,8 @@ public class WalletService {
     public void unlockBalance(User user, BigDecimal amount) {
         log.info("Unlocking balance for user: {}, amount: {}", user.getUserId(), amount);
 
+        walletBalanceCache.evictAfterCommit(user.getId());
+
         // Use pessimistic write lock to ensure thread-safety
         Wallet wallet = walletRepository.findByUserWithLock(user)
                 .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + user.getUserId()));
@@ -396,6 +796,14 @@ public class WalletService {
                 .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + user.getUserId()));
     }
 
+    /**
+     * Get wallet balances by user, including credits still on stripes.
+     * Read-only: the returned wallet is not attached to the persistence context.
+     */
+    public Wallet getBalanceView(User user) {
+        return withStripes(getWalletByUser(user));
+    }
+
     /**
      * Map Wallet to WalletResponse
      */
@@ -410,6 +818,7 @@ public class WalletService {
                 .lockedBalance(wallet.getLockedBalance())
                 .totalEarned(wallet.getTotalEarned())
                 .totalWithdrawn(wallet.getTotalWithdrawn())
+                .totalInvested(wallet.getTotalInvested())
                 .build();
     }
 
@@ -438,8 +847,8 @@ public class WalletService {
         User user = userRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with userId: " + userId));
 
-        Wallet wallet = walletRepository.findByUser(user)
-                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + userId));
+        Wallet wallet = withStripes(walletRepository.findByUser(user)
+                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + userId)));
 
         return wallet.getTotalEarned();
     }
@@ -451,8 +860,8 @@ public class WalletService {
         User user = userRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with userId: " + userId));
 
-        Wallet wallet = walletRepository.findByUser(user)
-                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + userId));
+        Wallet wallet = withStripes(walletRepository.findByUser(user)
+                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + userId)));
 
         return wallet.getWithdrawableBalance();
     }
@@ -511,6 +920,21 @@ public class WalletService {
                 .build();
     }
 
+    /**
+     * Keyset page of the current user's transactions, newest first, without a count query
+     */
+    public CursorPageResponse<TransactionResponse> getTransactionsByCursor(String cursor, Integer size, String type) {
+        Long userId = SecurityUtil.getCurrentUserId();
+        SeekCursor position = SeekCursor.decode(cursor);
+
+        List<Transaction> transactions = transactionRepository.findPageBefore(
+                userId, type != null && !type.isEmpty() ? type : null,
+                position.createdAt(), position.id(), SeekCursor.limit(size));
+
+        return SeekCursor.page(transactions, size, Transaction::getCreatedAt, Transaction::getId,
+                this::mapToTransactionResponse);
+    }
+
     /**
      * Get wallet summary for current authenticated user
      */
@@ -521,38 +945,10 @@ public class WalletService {
         User user = userRepository.findByUserId(currentUserMlmId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with userId: " + currentUserMlmId));
 
-        Wallet wallet = walletRepository.findByUser(user)
-                .orElseThrow(() -> new ResourceNotFoundException("Wallet not found for user: " + currentUserMlmId));
-
-        // Calculate total credits and debits
-        Page<Transaction> allTransactions = transactionRepository.findByUser(user, Pageable.unpaged());
-
-        BigDecimal totalCredits = allTransactions.stream()
-                .filter(t -> "CREDIT".equals(t.getType()))
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalDebits = allTransactions.stream()
-                .filter(t -> "DEBIT".equals(t.getType()))
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // Calculate today's and this month's earnings
-        LocalDateTime todayStart = LocalDateTime.of(java.time.LocalDate.now(), java.time.LocalTime.MIN);
-        LocalDateTime monthStart = LocalDateTime.of(java.time.LocalDate.now().withDayOfMonth(1), java.time.LocalTime.MIN);
-
-        Page<Transaction> todayTxns = transactionRepository.findByUserAndDateRange(user, todayStart, LocalDateTime.now(), Pageable.unpaged());
-        Page<Transaction> monthTxns = transactionRepository.findByUserAndDateRange(user, monthStart, LocalDateTime.now(), Pageable.unpaged());
-
-        BigDecimal todayEarnings = todayTxns.stream()
-                .filter(t -> "CREDIT".equals(t.getType()))
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        WalletResponse wallet = getWalletBalance(user.getId());
 
-        BigDecimal thisMonthEarnings = monthTxns.stream()
-                .filter(t -> "CREDIT".equals(t.getType()))
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Lifetime, this month's and today's credits and debits from the running rollups
+        TransactionRollupService.Totals totals = transactionRollupService.getCurrentTotals(user.getId());
 
         return WalletSummaryResponse.builder()
                 .investmentBalance(wallet.getInvestmentBalance())
@@ -564,11 +960,11 @@ public class WalletService {
                 .lockedBalance(wallet.getLockedBalance())
                 .totalEarned(wallet.getTotalEarned())
                 .totalWithdrawn(wallet.getTotalWithdrawn())
-                .totalCredits(totalCredits)
-                .totalDebits(totalDebits)
-                .thisMonthEarnings(thisMonthEarnings)
-                .todayEarnings(todayEarnings)
-                .transactionCount(allTransactions.getContent().size())
+                .totalCredits(totals.totalCredits())
+                .totalDebits(totals.totalDebits())
+                .thisMonthEarnings(totals.monthCredits())
+                .todayEarnings(totals.todayCredits())
+                .transactionCount((int) totals.transactionCount())
                 .build();
     }
 }
@@ -0,0 +1,202 @@
+package com.realestate.mlm.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Immutable amount of Indian rupees held as a whole number of paise.
+ *
+ * Used for commission, payout and wallet arithmetic so a calculation is a handful of long
+ * operations instead of a chain of BigDecimal allocations. Entities and DTOs keep BigDecimal;
+ * convert with {@link #of(BigDecimal)} and {@link #toBigDecimal()} at the boundary.
+ *
+ * Rounding matches the BigDecimal code it replaces: percentages are
+ * {@code amount * percent / 100} rounded HALF_UP to the paisa, and rupee values with more than
+ * two decimals are rounded HALF_UP on the way in. Overflow throws {@link ArithmeticException}
+ * rather than wrapping.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private static final long PAISE_PER_RUPEE = 100;
+
+    private final long paise;
+
+    private Money(long paise) {
+        this.paise = paise;
+    }
+
+    public static Money ofPaise(long paise) {
+        return paise == 0 ? ZERO : new Money(paise);
+    }
+
+    /**
+     * Convert a rupee amount, rounding HALF_UP to the paisa. Null is treated as zero.
+     */
+    public static Money of(BigDecimal rupees) {
+        if (rupees == null || rupees.signum() == 0) {
+            return ZERO;
+        }
+        return ofPaise(rupees.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact());
+    }
+
+    public static Money ofRupees(long rupees) {
+        return ofPaise(Math.multiplyExact(rupees, PAISE_PER_RUPEE));
+    }
+
+    public long paise() {
+        return paise;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(paise, 2);
+    }
+
+    public Money plus(Money other) {
+        return other.paise == 0 ? this : ofPaise(Math.addExact(paise, other.paise));
+    }
+
+    public Money minus(Money other) {
+        return other.paise == 0 ? this : ofPaise(Math.subtractExact(paise, other.paise));
+    }
+
+    public Money times(long factor) {
+        return ofPaise(Math.multiplyExact(paise, factor));
+    }
+
+    public Money negate() {
+        return ofPaise(Math.negateExact(paise));
+    }
+
+    /**
+     * Number of whole {@code unit}s contained in this amount (e.g. complete BV pairs)
+     */
+    public long wholeMultiplesOf(Money unit) {
+        if (unit.paise <= 0) {
+            throw new ArithmeticException("Unit must be positive");
+        }
+        return paise / unit.paise;
+    }
+
+    /**
+     * {@code this * rate / 100}, rounded HALF_UP to the paisa
+     */
+    public Money percent(Rate rate) {
+        return ofPaise(percentOf(paise, rate.micros));
+    }
+
+    public Money min(Money other) {
+        return paise <= other.paise ? this : other;
+    }
+
+    public Money max(Money other) {
+        return paise >= other.paise ? this : other;
+    }
+
+    public boolean isZero() {
+        return paise == 0;
+    }
+
+    public boolean isPositive() {
+        return paise > 0;
+    }
+
+    public boolean isNegative() {
+        return paise < 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return paise < other.paise;
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return paise > other.paise;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(paise, other.paise);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Money other && paise == other.paise);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(paise);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    /**
+     * {@code paise * percentMicros / 10^8} rounded HALF_UP (away from zero on a tie), where
+     * percentMicros is the percentage scaled by 10^6. Falls back to BigDecimal only when the
+     * intermediate product does not fit in a long.
+     */
+    public static long percentOf(long paise, long percentMicros) {
+        long high = Math.multiplyHigh(paise, percentMicros);
+        long product = paise * percentMicros;
+        if (high == (product >> 63)) {
+            long quotient = product / Rate.DIVISOR;
+            long remainder = product % Rate.DIVISOR;
+            if (Math.abs(remainder) * 2 >= Rate.DIVISOR) {
+                quotient += Long.signum(product);
+            }
+            return quotient;
+        }
+        return BigDecimal.valueOf(paise).multiply(BigDecimal.valueOf(percentMicros))
+                .movePointLeft(8).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * A percentage with up to six decimal places, precomputed once per plan setting
+     */
+    public static final class Rate {
+
+        private static final long MICROS_PER_PERCENT = 1_000_000L;
+        private static final long DIVISOR = 100 * MICROS_PER_PERCENT;
+
+        private final long micros;
+
+        private Rate(long micros) {
+            this.micros = micros;
+        }
+
+        /**
+         * @param percent e.g. 2.5 for 2.5%
+         */
+        public static Rate of(BigDecimal percent) {
+            return new Rate(percent == null ? 0
+                    : percent.setScale(6, RoundingMode.HALF_UP).movePointRight(6).longValueExact());
+        }
+
+        public long micros() {
+            return micros;
+        }
+
+        public BigDecimal toBigDecimal() {
+            return BigDecimal.valueOf(micros, 6).stripTrailingZeros();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof Rate other && micros == other.micros);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(micros);
+        }
+
+        @Override
+        public String toString() {
+            return toBigDecimal().toPlainString() + "%";
+        }
+    }
+}
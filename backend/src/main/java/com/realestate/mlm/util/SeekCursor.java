@@ -0,0 +1,96 @@
+package com.realestate.mlm.util;
+
+import com.realestate.mlm.dto.response.CursorPageResponse;
+import com.realestate.mlm.exception.BadRequestException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Opaque cursor for keyset (seek) pagination over (created_at, id), newest first.
+ *
+ * A page is the rows strictly before the cursor position, so it costs one index range scan of
+ * page size + 1 rows (the extra row only tells whether there is a next page) and no count query,
+ * however deep the client has scrolled. Rows inserted meanwhile never shift or repeat a page.
+ */
+public record SeekCursor(LocalDateTime createdAt, Long id) {
+
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 100;
+
+    /**
+     * Position before every row, used for the first page
+     */
+    public static final SeekCursor START = new SeekCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    /**
+     * Decode a cursor from a previous page, or {@link #START} when there is none
+     */
+    public static SeekCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            return new SeekCursor(
+                    LocalDateTime.parse(decoded.substring(0, separator)),
+                    Long.parseLong(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Rows to fetch for a page of the requested size: one more than the page. Repository methods
+     * take it as a Pageable but return a List, so Spring Data issues no count query.
+     */
+    public static Pageable limit(Integer size) {
+        return PageRequest.ofSize(pageSize(size) + 1);
+    }
+
+    /**
+     * Build a page from rows fetched with {@link #limit}, mapping each row to its response
+     */
+    public static <E, R> CursorPageResponse<R> page(
+            List<E> rows,
+            Integer size,
+            Function<E, LocalDateTime> createdAt,
+            Function<E, Long> id,
+            Function<E, R> mapper) {
+        int pageSize = pageSize(size);
+        boolean hasNext = rows.size() > pageSize;
+        List<E> pageRows = hasNext ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            E last = pageRows.get(pageRows.size() - 1);
+            nextCursor = new SeekCursor(createdAt.apply(last), id.apply(last)).encode();
+        }
+
+        return CursorPageResponse.<R>builder()
+                .content(pageRows.stream().map(mapper).toList())
+                .size(pageSize)
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .build();
+    }
+
+    private static int pageSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_SIZE;
+        }
+        return Math.max(1, Math.min(MAX_SIZE, size));
+    }
+}
@@ -0,0 +1,86 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.model.Commission;
+import com.realestate.mlm.model.CommissionRollup;
+import com.realestate.mlm.model.User;
+import com.realestate.mlm.repository.CommissionBatchRepository;
+import com.realestate.mlm.repository.CommissionRepository;
+import com.realestate.mlm.repository.CommissionRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class CommissionRollupServiceTest {
+
+    private static final LocalDateTime PAID_AT = LocalDateTime.of(2026, 3, 14, 10, 30);
+
+    private final CommissionBatchRepository commissionBatchRepository = mock(CommissionBatchRepository.class);
+    private final CommissionRollupService service = new CommissionRollupService(
+            mock(CommissionRepository.class), mock(CommissionRollupRepository.class), commissionBatchRepository);
+
+    @Test
+    void reversalTakesAmountOffWithoutCountingAnotherCommission() {
+        Commission original = commission("CREDITED", "1500.00");
+        Commission reversal = commission("REVERSED", "-1500.00");
+
+        service.saveAll(List.of(original, reversal), entry -> true);
+
+        CommissionRollup bucket = singleBucket();
+        assertEquals(1, bucket.getCommissionCount());
+        assertEquals(0, bucket.getTotalAmount().signum());
+        assertEquals(0, bucket.getSettledAmount().signum());
+        assertEquals(0, bucket.getPendingAmount().signum());
+    }
+
+    @Test
+    void reversalOfPendingCommissionComesOffPending() {
+        Commission original = commission("EARNED", "800.00");
+        Commission reversal = commission("REVERSED", "-800.00");
+
+        service.saveAll(List.of(original, reversal), entry -> false);
+
+        CommissionRollup bucket = singleBucket();
+        assertEquals(1, bucket.getCommissionCount());
+        assertEquals(0, bucket.getTotalAmount().signum());
+        assertEquals(0, bucket.getSettledAmount().signum());
+        assertEquals(0, bucket.getPendingAmount().signum());
+    }
+
+    @Test
+    void countsEveryCommissionThatIsNotAReversal() {
+        assertEquals(1, CommissionRollupService.countOf(commission("CREDITED", "10.00")));
+        assertEquals(1, CommissionRollupService.countOf(commission("REVERSED", "10.00")));
+        assertEquals(0, CommissionRollupService.countOf(commission("REVERSED", "-10.00")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private CommissionRollup singleBucket() {
+        ArgumentCaptor<Collection<CommissionRollup>> buckets = ArgumentCaptor.forClass(Collection.class);
+        verify(commissionBatchRepository).insertCommissions(any());
+        verify(commissionBatchRepository).addToRollups(buckets.capture(), eq(CommissionRollupService.LIFETIME_START));
+        assertEquals(1, buckets.getValue().size());
+        return buckets.getValue().iterator().next();
+    }
+
+    private static Commission commission(String status, String amount) {
+        User user = new User();
+        user.setId(42L);
+        Commission commission = new Commission();
+        commission.setUser(user);
+        commission.setCommissionType("LEVEL_1");
+        commission.setStatus(status);
+        commission.setAmount(new BigDecimal(amount));
+        commission.setCreatedAt(PAID_AT);
+        return commission;
+    }
+}
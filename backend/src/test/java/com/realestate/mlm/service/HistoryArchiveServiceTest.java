@@ -0,0 +1,40 @@
+package com.realestate.mlm.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.realestate.mlm.repository.PartitionArchiveRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+class HistoryArchiveServiceTest {
+
+    private static final int HORIZON_MONTHS = 24;
+
+    private final HistoryArchiveService service = new HistoryArchiveService(
+            mock(PartitionArchiveRepository.class), new ObjectMapper(), mock(PlatformTransactionManager.class),
+            HORIZON_MONTHS, 3);
+
+    @Test
+    void keepsTimesInsideTheHorizon() {
+        LocalDateTime horizonStart = YearMonth.now().minusMonths(HORIZON_MONTHS).atDay(1).atStartOfDay();
+        LocalDateTime lastMonth = LocalDateTime.now().minusMonths(1);
+
+        assertEquals(horizonStart, service.liveTime(horizonStart));
+        assertEquals(lastMonth, service.liveTime(lastMonth));
+        assertNull(service.liveTime(null));
+    }
+
+    @Test
+    void movesTimesPastTheHorizonToItsFirstMonth() {
+        LocalDateTime horizonStart = YearMonth.now().minusMonths(HORIZON_MONTHS).atDay(1).atStartOfDay();
+
+        assertEquals(horizonStart, service.liveTime(horizonStart.minusNanos(1000)));
+        assertEquals(horizonStart, service.liveTime(horizonStart.minusYears(3)));
+    }
+}
@@ -0,0 +1,67 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.model.Transaction;
+import com.realestate.mlm.model.TransactionRollup;
+import com.realestate.mlm.model.User;
+import com.realestate.mlm.repository.TransactionRepository;
+import com.realestate.mlm.repository.TransactionRollupRepository;
+import com.realestate.mlm.repository.WalletBatchRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class TransactionRollupServiceTest {
+
+    private static final LocalDateTime POSTED_AT = LocalDateTime.of(2026, 3, 14, 10, 30);
+
+    private final WalletBatchRepository walletBatchRepository = mock(WalletBatchRepository.class);
+    private final TransactionRollupService service = new TransactionRollupService(
+            mock(TransactionRepository.class), mock(TransactionRollupRepository.class), walletBatchRepository,
+            mock(ApplicationEventPublisher.class));
+
+    @Test
+    void clawbackTakesIncomeBackButWithdrawalDoesNot() {
+        service.saveAll(List.of(
+                transaction("CREDIT", "COMMISSION", "1500.00"),
+                transaction("DEBIT", TransactionRollupService.COMMISSION_REVERSAL_CATEGORY, "1500.00"),
+                transaction("CREDIT", "ROI", "200.00"),
+                transaction("DEBIT", "PAYOUT", "200.00")));
+
+        for (TransactionRollup bucket : buckets()) {
+            assertEquals(0, new BigDecimal("200.00").compareTo(bucket.getIncomeAmount()), bucket.getPeriod());
+            assertEquals(0, new BigDecimal("1700.00").compareTo(bucket.getCreditAmount()), bucket.getPeriod());
+            assertEquals(0, new BigDecimal("1700.00").compareTo(bucket.getDebitAmount()), bucket.getPeriod());
+            assertEquals(2, bucket.getCreditCount());
+            assertEquals(2, bucket.getDebitCount());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<TransactionRollup> buckets() {
+        ArgumentCaptor<Collection<TransactionRollup>> buckets = ArgumentCaptor.forClass(Collection.class);
+        verify(walletBatchRepository).addToTransactionRollups(buckets.capture());
+        assertEquals(3, buckets.getValue().size());
+        return buckets.getValue();
+    }
+
+    private static Transaction transaction(String type, String category, String amount) {
+        User user = new User();
+        user.setId(42L);
+        Transaction transaction = new Transaction();
+        transaction.setUser(user);
+        transaction.setType(type);
+        transaction.setCategory(category);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setCreatedAt(POSTED_AT);
+        return transaction;
+    }
+}
@@ -0,0 +1,108 @@
+package com.realestate.mlm.service;
+
+import com.realestate.mlm.exception.InsufficientBalanceException;
+import com.realestate.mlm.model.Transaction;
+import com.realestate.mlm.model.User;
+import com.realestate.mlm.model.Wallet;
+import com.realestate.mlm.repository.TransactionRepository;
+import com.realestate.mlm.repository.UserRepository;
+import com.realestate.mlm.repository.WalletBatchRepository;
+import com.realestate.mlm.repository.WalletRepository;
+import com.realestate.mlm.repository.WalletStripeRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WalletServiceTest {
+
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final WalletStripeRepository walletStripeRepository = mock(WalletStripeRepository.class);
+    private final TransactionRollupService transactionRollupService = mock(TransactionRollupService.class);
+    private final WalletService walletService = new WalletService(
+            walletRepository,
+            mock(UserRepository.class),
+            mock(TransactionRepository.class),
+            mock(IdGeneratorService.class),
+            walletStripeRepository,
+            mock(WalletBatchRepository.class),
+            mock(EntityManager.class),
+            transactionRollupService,
+            mock(WalletBalanceCache.class));
+
+    private User user;
+    private Wallet wallet;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(42L);
+        user.setUserId("MLM42");
+
+        // Two payouts pending at once: 100 from commission, 50 from ROI
+        wallet = new Wallet();
+        wallet.setUser(user);
+        wallet.setInvestmentBalance(BigDecimal.ZERO);
+        wallet.setCommissionBalance(new BigDecimal("100.00"));
+        wallet.setRentalIncomeBalance(BigDecimal.ZERO);
+        wallet.setRoiBalance(new BigDecimal("50.00"));
+        wallet.setTotalEarned(new BigDecimal("150.00"));
+        wallet.setTotalWithdrawn(BigDecimal.ZERO);
+        wallet.setTotalInvested(BigDecimal.ZERO);
+        wallet.setLockedBalance(new BigDecimal("150.00"));
+        wallet.setStriped(true);
+
+        when(walletRepository.findByUser(user)).thenReturn(Optional.of(wallet));
+        when(walletRepository.findByUserWithLock(user)).thenReturn(Optional.of(wallet));
+        when(walletRepository.debitCommissionBalance(anyLong(), any())).thenReturn(Optional.empty());
+        when(walletRepository.debitRoiBalance(anyLong(), any())).thenReturn(Optional.empty());
+        when(walletStripeRepository.findByUserIdForUpdate(anyLong())).thenReturn(List.of());
+        when(walletStripeRepository.sumByUserId(anyLong())).thenReturn(List.of());
+        when(transactionRollupService.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void completesTwoPendingPayoutsFromDifferentIncomeBalances() {
+        // Each payout releases its own lock before its debit, as PayoutDispatchService.complete does
+        walletService.unlockBalance(user, new BigDecimal("100.00"));
+        walletService.debitWallet(user, new BigDecimal("100.00"), "COMMISSION", "Payout A");
+
+        walletService.unlockBalance(user, new BigDecimal("50.00"));
+        walletService.debitWallet(user, new BigDecimal("50.00"), "ROI", "Payout B");
+
+        assertEquals(0, wallet.getCommissionBalance().signum());
+        assertEquals(0, wallet.getRoiBalance().signum());
+        assertEquals(0, wallet.getLockedBalance().signum());
+        assertEquals(0, new BigDecimal("150.00").compareTo(wallet.getTotalWithdrawn()));
+    }
+
+    @Test
+    void debitCannotSpendBalanceLockedForAnotherPayout() {
+        walletService.unlockBalance(user, new BigDecimal("50.00"));
+
+        // 100 of the 150 income is still locked for the commission payout
+        assertThrows(InsufficientBalanceException.class,
+                () -> walletService.debitWallet(user, new BigDecimal("100.00"), "COMMISSION", "Other debit"));
+        assertEquals(0, new BigDecimal("50.00").compareTo(WalletService.availableToDebit(wallet, "ROI")));
+        assertEquals(0, new BigDecimal("50.00").compareTo(WalletService.availableToDebit(wallet, "COMMISSION")));
+    }
+
+    @Test
+    void debitCannotTakeMoreThanItsOwnBalance() {
+        wallet.setLockedBalance(BigDecimal.ZERO);
+
+        assertThrows(InsufficientBalanceException.class,
+                () -> walletService.debitWallet(user, new BigDecimal("120.00"), "COMMISSION", "Too much"));
+        assertEquals(0, new BigDecimal("100.00").compareTo(wallet.getCommissionBalance()));
+    }
+}
@@ -0,0 +1,22 @@
+-- ==============================================
+-- BINARY PAIRING QUEUE MIGRATION
+-- Dirty set of users whose left or right BV changed since their last pairing.
+-- BV propagation marks uplines in the same transaction and the pairing jobs only
+-- visit marked users instead of sweeping every active member.
+-- ==============================================
+
+CREATE TABLE IF NOT EXISTS binary_pairing_queue (
+    user_id BIGINT PRIMARY KEY REFERENCES users(id),
+    marked_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_binary_pairing_queue_marked ON binary_pairing_queue(marked_at);
+
+-- Queue every active user who could pair today so nothing is missed on the switch-over
+INSERT INTO binary_pairing_queue (user_id, marked_at)
+SELECT id, NOW()
+FROM users
+WHERE status = 'ACTIVE'
+  AND COALESCE(left_bv, 0) + COALESCE(carry_forward_left, 0) > 0
+  AND COALESCE(right_bv, 0) + COALESCE(carry_forward_right, 0) > 0
+ON CONFLICT (user_id) DO NOTHING;
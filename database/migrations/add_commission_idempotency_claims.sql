@@ -0,0 +1,26 @@
+-- ==============================================
+-- COMMISSION IDEMPOTENCY CLAIMS MIGRATION
+-- The application now claims an investment-driven commission's idempotency
+-- key before inserting it, so a concurrent duplicate skips the commission
+-- instead of failing. The insert trigger accepts a key claimed beforehand
+-- for the same commission and still rejects any other duplicate.
+-- ==============================================
+
+CREATE OR REPLACE FUNCTION claim_commission_idempotency_key()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.idempotency_key IS NOT NULL THEN
+        INSERT INTO commission_idempotency_keys (idempotency_key, commission_id, created_at)
+        VALUES (NEW.idempotency_key, NEW.commission_id, NEW.created_at)
+        ON CONFLICT (idempotency_key) DO NOTHING;
+        -- A key claimed beforehand must be claimed for this very commission
+        IF NOT FOUND AND NOT EXISTS (SELECT 1 FROM commission_idempotency_keys
+                                     WHERE idempotency_key = NEW.idempotency_key
+                                       AND commission_id = NEW.commission_id) THEN
+            RAISE EXCEPTION 'duplicate commission idempotency key %', NEW.idempotency_key
+                USING ERRCODE = 'unique_violation';
+        END IF;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
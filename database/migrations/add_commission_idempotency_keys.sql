@@ -0,0 +1,18 @@
+-- ==============================================
+-- COMMISSION IDEMPOTENCY KEYS MIGRATION
+-- Investment-driven commissions carry the business investment and property IDs and an
+-- idempotency key (investment:beneficiary:type), unique, so a retried or replayed
+-- investment can never pay the same beneficiary twice.
+-- ==============================================
+
+-- The entity stores business IDs (INV..., PROP...), not numeric keys
+ALTER TABLE commissions ALTER COLUMN property_id TYPE VARCHAR(50) USING property_id::text;
+ALTER TABLE commissions ALTER COLUMN investment_id TYPE VARCHAR(50) USING investment_id::text;
+
+ALTER TABLE commissions ADD COLUMN IF NOT EXISTS idempotency_key VARCHAR(150);
+
+CREATE INDEX IF NOT EXISTS idx_commissions_investment ON commissions(investment_id);
+
+-- NULLs are distinct, so commissions without a key (binary pairing, rank bonuses,
+-- manual credits, recalculation entries) are unaffected
+CREATE UNIQUE INDEX IF NOT EXISTS idx_commission_idempotency_key ON commissions(idempotency_key);
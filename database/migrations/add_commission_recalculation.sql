@@ -0,0 +1,57 @@
+-- ==============================================
+-- COMMISSION RECALCULATION MIGRATION
+-- Run, partition (checkpoint) and difference report tables for the resumable
+-- whole-network commission recalculation job.
+-- ==============================================
+
+CREATE TABLE IF NOT EXISTS commission_recalculation_runs (
+    id BIGSERIAL PRIMARY KEY,
+    run_id VARCHAR(50) UNIQUE NOT NULL,
+    status VARCHAR(30) NOT NULL,  -- RUNNING, PAUSE_REQUESTED, PAUSED, COMPLETED, FAILED
+    dry_run BOOLEAN NOT NULL DEFAULT TRUE,
+    as_of TIMESTAMP NOT NULL,
+    total_partitions INTEGER NOT NULL DEFAULT 0,
+    completed_partitions INTEGER NOT NULL DEFAULT 0,
+    earners_processed BIGINT NOT NULL DEFAULT 0,
+    difference_count BIGINT NOT NULL DEFAULT 0,
+    existing_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    expected_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    commissions_written BIGINT NOT NULL DEFAULT 0,
+    wallet_shortfall DECIMAL(15,2) NOT NULL DEFAULT 0,
+    last_error TEXT,
+    requested_by VARCHAR(100),
+    completed_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_recalculation_run_status ON commission_recalculation_runs(status);
+
+CREATE TABLE IF NOT EXISTS commission_recalculation_partitions (
+    id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES commission_recalculation_runs(id),
+    partition_no INTEGER NOT NULL,
+    root_user_id BIGINT,  -- NULL for the users above every subtree root
+    status VARCHAR(30) NOT NULL,  -- PENDING, COMPLETED
+    earner_count INTEGER,
+    difference_count INTEGER,
+    completed_at TIMESTAMP,
+    CONSTRAINT uk_recalculation_partition_run_no UNIQUE (run_id, partition_no)
+);
+
+CREATE INDEX IF NOT EXISTS idx_recalculation_partition_run_status ON commission_recalculation_partitions(run_id, status);
+
+CREATE TABLE IF NOT EXISTS commission_recalculation_diffs (
+    id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES commission_recalculation_runs(id),
+    partition_no INTEGER NOT NULL,
+    user_id BIGINT NOT NULL,
+    from_user_id BIGINT,
+    commission_type VARCHAR(50) NOT NULL,
+    commission_date DATE NOT NULL,
+    existing_amount DECIMAL(15,2) NOT NULL,
+    expected_amount DECIMAL(15,2) NOT NULL,
+    delta_amount DECIMAL(15,2) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_recalculation_diff_run ON commission_recalculation_diffs(run_id, id);
@@ -0,0 +1,39 @@
+-- ==============================================
+-- COMMISSION ROLLUP PERIODS MIGRATION
+-- Adds month and lifetime buckets next to the per-day commission rollups, so
+-- commission summaries read a few rows per type instead of every day of a
+-- user's history. Run before the application starts writing the new buckets.
+-- ==============================================
+
+BEGIN;
+
+ALTER TABLE commission_rollups ADD COLUMN IF NOT EXISTS period VARCHAR(10) NOT NULL DEFAULT 'DAY';
+
+ALTER TABLE commission_rollups DROP CONSTRAINT IF EXISTS uk_commission_rollup_user_type_date;
+ALTER TABLE commission_rollups DROP CONSTRAINT IF EXISTS uk_commission_rollup_user_type_period_date;
+ALTER TABLE commission_rollups ADD CONSTRAINT uk_commission_rollup_user_type_period_date
+    UNIQUE (user_id, commission_type, period, rollup_date);
+
+DROP INDEX IF EXISTS idx_commission_rollup_user_date;
+CREATE INDEX IF NOT EXISTS idx_commission_rollup_user_period_date ON commission_rollups(user_id, period, rollup_date);
+
+-- Backfill month and lifetime buckets from the day buckets (safe to re-run)
+DELETE FROM commission_rollups WHERE period IN ('MONTH', 'ALL');
+
+INSERT INTO commission_rollups
+    (user_id, commission_type, period, rollup_date, total_amount, settled_amount, pending_amount, commission_count, updated_at)
+SELECT user_id, commission_type, 'MONTH', date_trunc('month', rollup_date)::date,
+       SUM(total_amount), SUM(settled_amount), SUM(pending_amount), SUM(commission_count), NOW()
+FROM commission_rollups
+WHERE period = 'DAY'
+GROUP BY user_id, commission_type, date_trunc('month', rollup_date)::date;
+
+INSERT INTO commission_rollups
+    (user_id, commission_type, period, rollup_date, total_amount, settled_amount, pending_amount, commission_count, updated_at)
+SELECT user_id, commission_type, 'ALL', DATE '1970-01-01',
+       SUM(total_amount), SUM(settled_amount), SUM(pending_amount), SUM(commission_count), NOW()
+FROM commission_rollups
+WHERE period = 'DAY'
+GROUP BY user_id, commission_type;
+
+COMMIT;
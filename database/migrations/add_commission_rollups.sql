@@ -0,0 +1,50 @@
+-- ==============================================
+-- COMMISSION ROLLUPS MIGRATION
+-- Per-user, per-type, per-day commission totals used by the commission summaries.
+-- The application keeps this table in step with every commission insert; this script
+-- creates it and backfills it from existing commissions.
+-- ==============================================
+
+CREATE TABLE IF NOT EXISTS commission_rollups (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id),
+    commission_type VARCHAR(50) NOT NULL,
+    rollup_date DATE NOT NULL,
+    total_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    settled_amount DECIMAL(15,2) NOT NULL DEFAULT 0,  -- CREDITED or PAID
+    pending_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    commission_count INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_commission_rollup_user_type_date UNIQUE (user_id, commission_type, rollup_date)
+);
+
+CREATE INDEX IF NOT EXISTS idx_commission_rollup_user_date ON commission_rollups(user_id, rollup_date);
+
+-- Rebuild from the commissions table (safe to re-run)
+BEGIN;
+
+DELETE FROM commission_rollups;
+
+INSERT INTO commission_rollups (
+    user_id,
+    commission_type,
+    rollup_date,
+    total_amount,
+    settled_amount,
+    pending_amount,
+    commission_count,
+    updated_at
+)
+SELECT
+    user_id,
+    commission_type,
+    CAST(created_at AS DATE),
+    SUM(amount),
+    SUM(CASE WHEN status IN ('CREDITED', 'PAID') THEN amount ELSE 0 END),
+    SUM(CASE WHEN status IN ('CREDITED', 'PAID') THEN 0 ELSE amount END),
+    COUNT(*),
+    CURRENT_TIMESTAMP
+FROM commissions
+GROUP BY user_id, commission_type, CAST(created_at AS DATE);
+
+COMMIT;
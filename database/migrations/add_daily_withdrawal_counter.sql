@@ -0,0 +1,9 @@
+-- ==============================================
+-- DAILY WITHDRAWAL COUNTER MIGRATION
+-- Per-wallet counter of the amount requested for withdrawal today, checked
+-- against app.payout.max-daily-withdrawal and raised under the same row lock
+-- as locked_balance. A counter dated an earlier day counts as zero.
+-- ==============================================
+
+ALTER TABLE wallets ADD COLUMN IF NOT EXISTS daily_withdrawal_amount DECIMAL(15,2) NOT NULL DEFAULT 0;
+ALTER TABLE wallets ADD COLUMN IF NOT EXISTS daily_withdrawal_date DATE;
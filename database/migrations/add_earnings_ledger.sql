@@ -0,0 +1,35 @@
+-- ==============================================
+-- EARNINGS LEDGER MIGRATION
+-- The reconciliation EARNINGS check compares wallets.total_earned with the ledger's
+-- income credits less commission reversals, instead of users.total_earnings, which
+-- nothing maintains. Archived months keep their earned amount next to their net amount.
+--
+-- Clawbacks and recalculation debits written before COMMISSION_REVERSAL existed carry
+-- category COMMISSION; they are recategorised here and taken off the rollup income.
+-- Months archived before this migration have no earned amount; their users show up as
+-- EARNINGS discrepancies until the totals are restored from history_archive.
+-- ==============================================
+
+ALTER TABLE ledger_archived_totals ADD COLUMN IF NOT EXISTS earned_amount DECIMAL(15,2) NOT NULL DEFAULT 0;
+
+WITH reversals AS (
+    UPDATE transactions SET category = 'COMMISSION_REVERSAL'
+    WHERE type = 'DEBIT' AND category = 'COMMISSION' AND UPPER(wallet_type) = 'COMMISSION'
+      AND (description LIKE 'Commission clawback for investment %'
+           OR description LIKE 'Commission recalculation adjustment (%')
+    RETURNING user_id, created_at, amount
+), deltas AS (
+    SELECT user_id, 'DAY' AS period, created_at::date AS period_start, SUM(amount) AS amount
+    FROM reversals GROUP BY user_id, created_at::date
+    UNION ALL
+    SELECT user_id, 'MONTH', date_trunc('month', created_at)::date, SUM(amount)
+    FROM reversals GROUP BY user_id, date_trunc('month', created_at)::date
+    UNION ALL
+    SELECT user_id, 'ALL', DATE '1970-01-01', SUM(amount)
+    FROM reversals GROUP BY user_id
+)
+INSERT INTO transaction_rollups (user_id, period, period_start, stripe_no, income_amount, updated_at)
+SELECT user_id, period, period_start, 0, -amount, NOW() FROM deltas
+ON CONFLICT (user_id, period, period_start, stripe_no) DO UPDATE SET
+    income_amount = transaction_rollups.income_amount + EXCLUDED.income_amount,
+    updated_at = NOW();
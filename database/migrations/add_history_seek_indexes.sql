@@ -0,0 +1,10 @@
+-- ==============================================
+-- HISTORY SEEK INDEXES MIGRATION
+-- Cursor (keyset) history pages seek on (created_at, id) per user, newest first,
+-- and read exactly one page of index entries without a count query.
+-- ==============================================
+
+CREATE INDEX IF NOT EXISTS idx_transactions_user_seek ON transactions(user_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_commissions_user_seek ON commissions(user_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_payouts_user_seek ON payouts(user_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_notifications_user_seek ON notifications(user_id, created_at, id);
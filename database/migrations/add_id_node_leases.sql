@@ -0,0 +1,13 @@
+-- ==============================================
+-- ID NODE LEASES MIGRATION
+-- Node ids of the running ID generators. Each instance leases a free node
+-- id at startup and renews it with a heartbeat, instead of deriving one
+-- from its host name, so two instances can never issue IDs as one node.
+-- ==============================================
+
+CREATE TABLE IF NOT EXISTS id_node_leases (
+    node_id INTEGER PRIMARY KEY,
+    instance_id VARCHAR(150) NOT NULL,
+    acquired_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    heartbeat_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
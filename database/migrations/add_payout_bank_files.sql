@@ -0,0 +1,32 @@
+-- ==============================================
+-- PAYOUT BANK FILES MIGRATION
+-- Bulk NEFT/IMPS files for weekly payout cycles. Exported payouts are claimed
+-- APPROVED -> PROCESSING under a bank batch and completed or failed from the
+-- bank's response file.
+-- ==============================================
+
+ALTER TABLE payouts ADD COLUMN IF NOT EXISTS bank_batch_id VARCHAR(50);
+
+CREATE INDEX IF NOT EXISTS idx_payouts_bank_batch ON payouts(bank_batch_id, id) WHERE bank_batch_id IS NOT NULL;
+
+CREATE TABLE IF NOT EXISTS payout_bank_batches (
+    id BIGSERIAL PRIMARY KEY,
+    batch_id VARCHAR(50) UNIQUE NOT NULL,
+    status VARCHAR(30) NOT NULL,  -- EXPORTING, EXPORTED, COMPLETED, FAILED
+    file_format VARCHAR(20) NOT NULL,  -- CSV, FIXED_WIDTH
+    transfer_mode VARCHAR(10) NOT NULL,  -- NEFT, IMPS
+    file_name VARCHAR(255),
+    payout_count INTEGER NOT NULL DEFAULT 0,
+    total_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    checksum_sha256 VARCHAR(64),
+    completed_count INTEGER NOT NULL DEFAULT 0,
+    failed_count INTEGER NOT NULL DEFAULT 0,
+    last_error TEXT,
+    created_by VARCHAR(100),
+    exported_at TIMESTAMP,
+    completed_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_payout_bank_batch_status ON payout_bank_batches(status);
@@ -0,0 +1,10 @@
+-- ==============================================
+-- PAYOUT CONSOLIDATION MIGRATION
+-- Before each payout cycle, the APPROVED payouts of a user to the same bank
+-- account or UPI id are replaced by one payout for their total. The originals
+-- become CONSOLIDATED and point at the payout that pays them.
+-- ==============================================
+
+ALTER TABLE payouts ADD COLUMN IF NOT EXISTS consolidated_payout_id BIGINT REFERENCES payouts(id);
+
+CREATE INDEX IF NOT EXISTS idx_payouts_consolidated ON payouts(consolidated_payout_id) WHERE consolidated_payout_id IS NOT NULL;
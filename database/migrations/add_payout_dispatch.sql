@@ -0,0 +1,13 @@
+-- ==============================================
+-- PAYOUT DISPATCH MIGRATION
+-- Claim and idempotency columns for the parallel payout dispatcher. Payouts are
+-- claimed APPROVED -> PROCESSING with FOR UPDATE SKIP LOCKED, paid through the
+-- gateway under their idempotency key and finalized each in its own transaction.
+-- ==============================================
+
+ALTER TABLE payouts ADD COLUMN IF NOT EXISTS idempotency_key VARCHAR(100);
+ALTER TABLE payouts ADD COLUMN IF NOT EXISTS dispatch_attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE payouts ADD COLUMN IF NOT EXISTS claimed_by VARCHAR(100);
+ALTER TABLE payouts ADD COLUMN IF NOT EXISTS claimed_at TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_payouts_dispatch ON payouts(id) WHERE status IN ('APPROVED', 'PROCESSING');
@@ -0,0 +1,57 @@
+-- ==============================================
+-- PLATFORM METRICS MIGRATION
+-- Platform-wide counters and sums behind the admin dashboard, kept up to date by domain
+-- events and corrected by a periodic exact recompute, so the dashboard reads a few rows
+-- instead of scanning users, investments, commissions, payouts and wallets.
+-- ==============================================
+
+CREATE TABLE IF NOT EXISTS platform_metrics (
+    id BIGSERIAL PRIMARY KEY,
+    metric VARCHAR(30) NOT NULL,
+    period VARCHAR(10) NOT NULL,
+    period_start DATE NOT NULL,
+    stripe_no INTEGER NOT NULL DEFAULT 0,
+    item_count BIGINT NOT NULL DEFAULT 0,
+    amount DECIMAL(18,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_platform_metric_period_stripe UNIQUE (metric, period, period_start, stripe_no)
+);
+
+-- Backfill lifetime, this month and today into stripe 0; the recompute job corrects anything
+-- written between this and the application starting
+WITH bounds AS (
+    SELECT CURRENT_DATE AS today, date_trunc('month', CURRENT_DATE)::date AS month_start
+), exact AS (
+    SELECT 'USERS' AS metric, 'ALL' AS period, DATE '1970-01-01' AS period_start, COUNT(*) AS item_count, 0 AS amount FROM users
+    UNION ALL
+    SELECT 'USERS', 'MONTH', b.month_start, COUNT(u.id), 0 FROM bounds b LEFT JOIN users u ON u.created_at >= b.month_start GROUP BY b.month_start
+    UNION ALL
+    SELECT 'USERS', 'DAY', b.today, COUNT(u.id), 0 FROM bounds b LEFT JOIN users u ON u.created_at >= b.today GROUP BY b.today
+    UNION ALL
+    SELECT 'ACTIVE_USERS', 'ALL', DATE '1970-01-01', COUNT(*), 0 FROM users WHERE status = 'ACTIVE'
+    UNION ALL
+    SELECT 'INVESTMENTS', 'ALL', DATE '1970-01-01', COUNT(*), COALESCE(SUM(investment_amount), 0) FROM property_investments
+    UNION ALL
+    SELECT 'INVESTMENTS', 'MONTH', b.month_start, COUNT(i.id), COALESCE(SUM(i.investment_amount), 0)
+    FROM bounds b LEFT JOIN property_investments i ON i.created_at >= b.month_start GROUP BY b.month_start
+    UNION ALL
+    SELECT 'INVESTMENTS', 'DAY', b.today, COUNT(i.id), COALESCE(SUM(i.investment_amount), 0)
+    FROM bounds b LEFT JOIN property_investments i ON i.created_at >= b.today GROUP BY b.today
+    UNION ALL
+    SELECT 'COMMISSIONS_PAID', 'ALL', DATE '1970-01-01', COUNT(*), COALESCE(SUM(amount), 0) FROM commissions WHERE status = 'PAID'
+    UNION ALL
+    SELECT 'COMMISSIONS_PAID', 'MONTH', b.month_start, COUNT(c.id), COALESCE(SUM(c.amount), 0)
+    FROM bounds b LEFT JOIN commissions c ON c.status = 'PAID' AND c.created_at >= b.month_start GROUP BY b.month_start
+    UNION ALL
+    SELECT 'PENDING_PAYOUTS', 'ALL', DATE '1970-01-01', COUNT(*), COALESCE(SUM(requested_amount), 0) FROM payouts WHERE status = 'PENDING'
+    UNION ALL
+    SELECT 'WALLET_BALANCE', 'ALL', DATE '1970-01-01', 0,
+           COALESCE(SUM(COALESCE(investment_balance, 0) + COALESCE(commission_balance, 0) +
+                        COALESCE(rental_income_balance, 0) + COALESCE(roi_balance, 0)), 0) +
+           (SELECT COALESCE(SUM(amount), 0) FROM wallet_stripes)
+    FROM wallets
+)
+INSERT INTO platform_metrics (metric, period, period_start, stripe_no, item_count, amount, updated_at)
+SELECT metric, period, period_start, 0, item_count, amount, NOW()
+FROM exact
+ON CONFLICT (metric, period, period_start, stripe_no) DO NOTHING;
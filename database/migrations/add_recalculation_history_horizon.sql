@@ -0,0 +1,8 @@
+-- ==============================================
+-- RECALCULATION HISTORY HORIZON MIGRATION
+-- First instant a commission recalculation run replays. Months before it
+-- have been archived to history_archive and dropped from the commissions
+-- table, so they cannot be compared and are left out of the run.
+-- ==============================================
+
+ALTER TABLE commission_recalculation_runs ADD COLUMN IF NOT EXISTS history_from TIMESTAMP;
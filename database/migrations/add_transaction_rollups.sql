@@ -0,0 +1,45 @@
+-- ==============================================
+-- TRANSACTION ROLLUPS MIGRATION
+-- Running day, month and lifetime totals of wallet transactions per user, so wallet
+-- summaries and dashboard income read a few rows instead of the transaction history.
+-- ==============================================
+
+CREATE TABLE IF NOT EXISTS transaction_rollups (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id),
+    period VARCHAR(10) NOT NULL,
+    period_start DATE NOT NULL,
+    stripe_no INTEGER NOT NULL DEFAULT 0,
+    credit_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    debit_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    income_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    credit_count INTEGER NOT NULL DEFAULT 0,
+    debit_count INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_transaction_rollup_user_period_stripe UNIQUE (user_id, period, period_start, stripe_no)
+);
+
+-- Backfill from the existing history into stripe 0; run before the application starts writing
+WITH history AS (
+    SELECT user_id,
+           created_at::date AS day,
+           CASE WHEN type = 'CREDIT' THEN amount ELSE 0 END AS credit_amount,
+           CASE WHEN type = 'DEBIT' THEN amount ELSE 0 END AS debit_amount,
+           CASE WHEN type = 'CREDIT' AND category IN ('COMMISSION', 'RENTAL_INCOME', 'ROI') THEN amount ELSE 0 END AS income_amount,
+           CASE WHEN type = 'CREDIT' THEN 1 ELSE 0 END AS credit_count,
+           CASE WHEN type = 'DEBIT' THEN 1 ELSE 0 END AS debit_count
+    FROM transactions
+), buckets AS (
+    SELECT user_id, 'DAY' AS period, day AS period_start, credit_amount, debit_amount, income_amount, credit_count, debit_count FROM history
+    UNION ALL
+    SELECT user_id, 'MONTH', date_trunc('month', day)::date, credit_amount, debit_amount, income_amount, credit_count, debit_count FROM history
+    UNION ALL
+    SELECT user_id, 'ALL', DATE '1970-01-01', credit_amount, debit_amount, income_amount, credit_count, debit_count FROM history
+)
+INSERT INTO transaction_rollups
+    (user_id, period, period_start, stripe_no, credit_amount, debit_amount, income_amount, credit_count, debit_count, updated_at)
+SELECT user_id, period, period_start, 0,
+       SUM(credit_amount), SUM(debit_amount), SUM(income_amount), SUM(credit_count), SUM(debit_count), NOW()
+FROM buckets
+GROUP BY user_id, period, period_start
+ON CONFLICT (user_id, period, period_start, stripe_no) DO NOTHING;
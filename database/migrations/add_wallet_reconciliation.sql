@@ -0,0 +1,49 @@
+-- ==============================================
+-- WALLET RECONCILIATION MIGRATION
+-- Run and discrepancy tables for the nightly wallet-vs-ledger reconciliation job,
+-- and the per-user net totals of archived transactions it adds to the live ledger.
+--
+-- Months archived before this migration are not in ledger_archived_totals; their
+-- users show up as BALANCE discrepancies until the totals are restored from
+-- history_archive.
+-- ==============================================
+
+CREATE TABLE IF NOT EXISTS ledger_archived_totals (
+    user_id BIGINT NOT NULL,
+    wallet_type VARCHAR(30) NOT NULL,  -- INVESTMENT, COMMISSION, RENTAL_INCOME, ROI
+    net_amount DECIMAL(15,2) NOT NULL DEFAULT 0,  -- credits minus debits
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, wallet_type)
+);
+
+CREATE TABLE IF NOT EXISTS wallet_reconciliation_runs (
+    id BIGSERIAL PRIMARY KEY,
+    run_id VARCHAR(50) UNIQUE NOT NULL,
+    status VARCHAR(30) NOT NULL,  -- RUNNING, COMPLETED, FAILED
+    workers INTEGER NOT NULL,
+    chunk_size INTEGER NOT NULL,
+    completed_ranges INTEGER NOT NULL DEFAULT 0,
+    wallets_checked BIGINT NOT NULL DEFAULT 0,
+    discrepancy_count BIGINT NOT NULL DEFAULT 0,
+    absolute_difference DECIMAL(15,2) NOT NULL DEFAULT 0,
+    last_error TEXT,
+    requested_by VARCHAR(100),
+    completed_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_reconciliation_run_status ON wallet_reconciliation_runs(status);
+
+CREATE TABLE IF NOT EXISTS wallet_reconciliation_discrepancies (
+    id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES wallet_reconciliation_runs(id),
+    user_id BIGINT NOT NULL,
+    check_type VARCHAR(30) NOT NULL,  -- BALANCE, LOCKED, EARNINGS
+    wallet_type VARCHAR(30),  -- BALANCE checks only
+    recorded_amount DECIMAL(15,2) NOT NULL,
+    expected_amount DECIMAL(15,2) NOT NULL,
+    delta_amount DECIMAL(15,2) NOT NULL  -- recorded minus expected
+);
+
+CREATE INDEX IF NOT EXISTS idx_reconciliation_discrepancy_run ON wallet_reconciliation_discrepancies(run_id, id);
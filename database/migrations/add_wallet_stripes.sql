@@ -0,0 +1,23 @@
+-- ==============================================
+-- WALLET STRIPES MIGRATION
+-- Striped (hot) wallets take credits on one of N sub-balance rows per wallet type
+-- instead of locking the wallet row. Reads add the stripes; debits, balance locks
+-- and the compaction job fold them into the wallet.
+-- ==============================================
+
+ALTER TABLE wallets ADD COLUMN IF NOT EXISTS striped BOOLEAN DEFAULT FALSE;
+
+CREATE TABLE IF NOT EXISTS wallet_stripes (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    wallet_type VARCHAR(30) NOT NULL,
+    stripe_no INTEGER NOT NULL,
+    amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    entry_count INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_wallet_stripe_user_type_no UNIQUE (user_id, wallet_type, stripe_no)
+);
+
+-- The root admin account sits above every sponsor chain
+UPDATE wallets SET striped = TRUE
+WHERE user_id IN (SELECT id FROM users WHERE role = 'ADMIN');
@@ -0,0 +1,143 @@
+-- ==============================================
+-- MONTHLY PARTITIONING MIGRATION
+-- transactions and commissions become range partitioned by created_at, one
+-- partition per month plus a default partition, so history, cap and dashboard
+-- queries only touch the months they ask for. Partitions past the archive horizon
+-- are moved to history_archive by PartitionMaintenanceJob.
+--
+-- Partitioned tables only enforce unique keys that contain the partition key:
+-- transaction_id and commission_id are unique by generation and lose their
+-- unique constraints, idempotency keys move to commission_idempotency_keys, and
+-- the foreign keys to transactions(id) are dropped.
+--
+-- Rewrites both tables; run in a maintenance window.
+-- ==============================================
+
+BEGIN;
+
+CREATE OR REPLACE FUNCTION create_monthly_partition(parent TEXT, month_start DATE)
+RETURNS TEXT AS $$
+DECLARE
+    from_date DATE := date_trunc('month', month_start)::date;
+    partition_name TEXT := parent || '_p' || to_char(from_date, 'YYYYMM');
+BEGIN
+    IF to_regclass(partition_name) IS NULL THEN
+        EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, parent, from_date, (from_date + INTERVAL '1 month')::date);
+    END IF;
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+ALTER TABLE commissions DROP CONSTRAINT IF EXISTS commissions_transaction_id_fkey;
+ALTER TABLE installment_payments DROP CONSTRAINT IF EXISTS installment_payments_transaction_id_fkey;
+ALTER TABLE payouts DROP CONSTRAINT IF EXISTS payouts_transaction_id_fkey;
+ALTER TABLE rental_income DROP CONSTRAINT IF EXISTS rental_income_transaction_id_fkey;
+
+-- ----------------------------------------------
+-- transactions
+-- ----------------------------------------------
+UPDATE transactions SET created_at = CURRENT_TIMESTAMP WHERE created_at IS NULL;
+ALTER TABLE transactions RENAME TO transactions_unpartitioned;
+
+CREATE TABLE transactions (LIKE transactions_unpartitioned INCLUDING DEFAULTS)
+    PARTITION BY RANGE (created_at);
+ALTER TABLE transactions ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE transactions ADD PRIMARY KEY (id, created_at);
+ALTER SEQUENCE transactions_id_seq OWNED BY transactions.id;
+
+CREATE TABLE transactions_default PARTITION OF transactions DEFAULT;
+SELECT create_monthly_partition('transactions', m::date)
+FROM generate_series(
+        date_trunc('month', COALESCE((SELECT MIN(created_at) FROM transactions_unpartitioned), CURRENT_TIMESTAMP)),
+        date_trunc('month', CURRENT_TIMESTAMP) + INTERVAL '3 months',
+        INTERVAL '1 month') AS m;
+
+INSERT INTO transactions SELECT * FROM transactions_unpartitioned;
+DROP TABLE transactions_unpartitioned;
+
+CREATE INDEX idx_transactions_transaction_id ON transactions(transaction_id);
+CREATE INDEX idx_transactions_user ON transactions(user_id);
+CREATE INDEX idx_transactions_type ON transactions(type);
+CREATE INDEX idx_transactions_category ON transactions(category);
+CREATE INDEX idx_transactions_reference ON transactions(reference_id, reference_type);
+CREATE INDEX idx_transactions_date ON transactions(created_at);
+CREATE INDEX idx_transactions_user_seek ON transactions(user_id, created_at, id);
+
+-- ----------------------------------------------
+-- commissions
+-- ----------------------------------------------
+UPDATE commissions SET created_at = CURRENT_TIMESTAMP WHERE created_at IS NULL;
+ALTER TABLE commissions RENAME TO commissions_unpartitioned;
+
+CREATE TABLE commissions (LIKE commissions_unpartitioned INCLUDING DEFAULTS)
+    PARTITION BY RANGE (created_at);
+ALTER TABLE commissions ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE commissions ADD PRIMARY KEY (id, created_at);
+ALTER SEQUENCE commissions_id_seq OWNED BY commissions.id;
+
+CREATE TABLE commissions_default PARTITION OF commissions DEFAULT;
+SELECT create_monthly_partition('commissions', m::date)
+FROM generate_series(
+        date_trunc('month', COALESCE((SELECT MIN(created_at) FROM commissions_unpartitioned), CURRENT_TIMESTAMP)),
+        date_trunc('month', CURRENT_TIMESTAMP) + INTERVAL '3 months',
+        INTERVAL '1 month') AS m;
+
+INSERT INTO commissions SELECT * FROM commissions_unpartitioned;
+
+CREATE TABLE IF NOT EXISTS commission_idempotency_keys (
+    idempotency_key VARCHAR(150) PRIMARY KEY,
+    commission_id VARCHAR(50) NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO commission_idempotency_keys (idempotency_key, commission_id, created_at)
+SELECT idempotency_key, commission_id, created_at FROM commissions_unpartitioned
+WHERE idempotency_key IS NOT NULL
+ON CONFLICT (idempotency_key) DO NOTHING;
+
+DROP TABLE commissions_unpartitioned;
+
+CREATE INDEX idx_commissions_commission_id ON commissions(commission_id);
+CREATE INDEX idx_commissions_user ON commissions(user_id);
+CREATE INDEX idx_commissions_from_user ON commissions(from_user_id);
+CREATE INDEX idx_commissions_type ON commissions(commission_type);
+CREATE INDEX idx_commissions_status ON commissions(status);
+CREATE INDEX idx_commissions_property ON commissions(property_id);
+CREATE INDEX idx_commissions_date ON commissions(created_at);
+CREATE INDEX idx_commissions_investment ON commissions(investment_id);
+CREATE INDEX idx_commissions_user_seek ON commissions(user_id, created_at, id);
+CREATE INDEX idx_commission_idempotency_key ON commissions(idempotency_key);
+
+CREATE OR REPLACE FUNCTION claim_commission_idempotency_key()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.idempotency_key IS NOT NULL THEN
+        INSERT INTO commission_idempotency_keys (idempotency_key, commission_id, created_at)
+        VALUES (NEW.idempotency_key, NEW.commission_id, NEW.created_at);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER claim_commission_idempotency_key AFTER INSERT ON commissions
+    FOR EACH ROW EXECUTE FUNCTION claim_commission_idempotency_key();
+
+-- ----------------------------------------------
+-- archive
+-- ----------------------------------------------
+CREATE TABLE IF NOT EXISTS history_archive (
+    id BIGSERIAL PRIMARY KEY,
+    source_table VARCHAR(30) NOT NULL,
+    period_start DATE NOT NULL,
+    user_id BIGINT NOT NULL,
+    row_count INTEGER NOT NULL,
+    payload BYTEA NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_history_archive_table_period_user UNIQUE (source_table, period_start, user_id)
+);
+
+ALTER TABLE history_archive ALTER COLUMN payload SET STORAGE EXTERNAL;
+CREATE INDEX IF NOT EXISTS idx_history_archive_user ON history_archive(user_id, source_table, period_start);
+
+COMMIT;
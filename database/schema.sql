@@ -106,11 +106,26 @@ CREATE TABLE wallets (
     total_withdrawn DECIMAL(15,2) DEFAULT 0,
     total_invested DECIMAL(15,2) DEFAULT 0,
     locked_balance DECIMAL(15,2) DEFAULT 0,
+    striped BOOLEAN DEFAULT FALSE,  -- hot wallet: credits go to wallet_stripes
+    daily_withdrawal_amount DECIMAL(15,2) NOT NULL DEFAULT 0,  -- withdrawals requested on daily_withdrawal_date
+    daily_withdrawal_date DATE,
 
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Unfolded credits of striped wallets, N rows per user and wallet type
+CREATE TABLE wallet_stripes (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    wallet_type VARCHAR(30) NOT NULL,
+    stripe_no INTEGER NOT NULL,
+    amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    entry_count INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_wallet_stripe_user_type_no UNIQUE (user_id, wallet_type, stripe_no)
+);
+
 CREATE INDEX idx_wallets_user ON wallets(user_id);
 
 -- ==============================================
@@ -221,16 +236,38 @@ CREATE INDEX idx_properties_city ON properties(city);
 CREATE INDEX idx_properties_price ON properties(investment_price);
 CREATE INDEX idx_properties_featured ON properties(featured);
 
+-- ==============================================
+-- MONTHLY PARTITIONS
+-- transactions and commissions are range partitioned by created_at, one partition
+-- per month plus a default partition. PartitionMaintenanceJob creates partitions
+-- ahead of time and archives the ones past app.archive.horizon-months.
+-- ==============================================
+
+-- Creates <parent>_pYYYYMM for the month containing month_start, if missing
+CREATE OR REPLACE FUNCTION create_monthly_partition(parent TEXT, month_start DATE)
+RETURNS TEXT AS $$
+DECLARE
+    from_date DATE := date_trunc('month', month_start)::date;
+    partition_name TEXT := parent || '_p' || to_char(from_date, 'YYYYMM');
+BEGIN
+    IF to_regclass(partition_name) IS NULL THEN
+        EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, parent, from_date, (from_date + INTERVAL '1 month')::date);
+    END IF;
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
 -- ==============================================
 -- TRANSACTIONS TABLE
 -- ==============================================
 CREATE TABLE transactions (
-    id BIGSERIAL PRIMARY KEY,
-    transaction_id VARCHAR(50) UNIQUE NOT NULL,
+    id BIGSERIAL,
+    transaction_id VARCHAR(50) NOT NULL,  -- unique by generation; partitioned tables only enforce keys containing created_at
     user_id BIGINT NOT NULL REFERENCES users(id),
 
     type VARCHAR(20) NOT NULL, -- CREDIT, DEBIT
-    category VARCHAR(50) NOT NULL, -- COMMISSION, WITHDRAWAL, INVESTMENT, REFUND, RENTAL, ROI
+    category VARCHAR(50) NOT NULL, -- COMMISSION, COMMISSION_REVERSAL, WITHDRAWAL, INVESTMENT, REFUND, RENTAL, ROI
     wallet_type VARCHAR(30),
 
     amount DECIMAL(15,2) NOT NULL,
@@ -248,21 +285,68 @@ CREATE TABLE transactions (
     ip_address VARCHAR(50),
     user_agent TEXT,
 
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-);
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE transactions_default PARTITION OF transactions DEFAULT;
+SELECT create_monthly_partition('transactions', (date_trunc('month', CURRENT_DATE) + make_interval(months => m))::date)
+FROM generate_series(0, 3) AS m;
 
+CREATE INDEX idx_transactions_transaction_id ON transactions(transaction_id);
 CREATE INDEX idx_transactions_user ON transactions(user_id);
 CREATE INDEX idx_transactions_type ON transactions(type);
 CREATE INDEX idx_transactions_category ON transactions(category);
 CREATE INDEX idx_transactions_reference ON transactions(reference_id, reference_type);
 CREATE INDEX idx_transactions_date ON transactions(created_at);
+CREATE INDEX idx_transactions_user_seek ON transactions(user_id, created_at, id);
+
+-- Per-user day, month and lifetime transaction totals, maintained with every transaction insert.
+-- Each bucket is spread over a few stripes so hot wallets do not serialize on one row.
+CREATE TABLE transaction_rollups (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id),
+    period VARCHAR(10) NOT NULL,  -- DAY, MONTH, ALL
+    period_start DATE NOT NULL,  -- 1970-01-01 for ALL
+    stripe_no INTEGER NOT NULL DEFAULT 0,
+    credit_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    debit_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    income_amount DECIMAL(15,2) NOT NULL DEFAULT 0,  -- COMMISSION, RENTAL_INCOME and ROI credits less COMMISSION_REVERSAL debits
+    credit_count INTEGER NOT NULL DEFAULT 0,
+    debit_count INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_transaction_rollup_user_period_stripe UNIQUE (user_id, period, period_start, stripe_no)
+);
+
+-- Platform-wide day, month and lifetime counters behind the admin dashboard, maintained by domain
+-- events in the transaction that changes the data and corrected by a periodic exact recompute.
+CREATE TABLE platform_metrics (
+    id BIGSERIAL PRIMARY KEY,
+    metric VARCHAR(30) NOT NULL,  -- USERS, ACTIVE_USERS, INVESTMENTS, COMMISSIONS_PAID, PENDING_PAYOUTS, WALLET_BALANCE
+    period VARCHAR(10) NOT NULL,  -- DAY, MONTH, ALL
+    period_start DATE NOT NULL,  -- 1970-01-01 for ALL
+    stripe_no INTEGER NOT NULL DEFAULT 0,
+    item_count BIGINT NOT NULL DEFAULT 0,
+    amount DECIMAL(18,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_platform_metric_period_stripe UNIQUE (metric, period, period_start, stripe_no)
+);
+
+-- Node ids of the running ID generators. An instance leases a free node id at startup and keeps it
+-- while its heartbeat is younger than app.id.lease-ttl-seconds, so no two instances share one.
+CREATE TABLE id_node_leases (
+    node_id INTEGER PRIMARY KEY,  -- 0-1023
+    instance_id VARCHAR(150) NOT NULL,
+    acquired_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    heartbeat_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
 
 -- ==============================================
 -- COMMISSIONS TABLE
 -- ==============================================
 CREATE TABLE commissions (
-    id BIGSERIAL PRIMARY KEY,
-    commission_id VARCHAR(50) UNIQUE NOT NULL,
+    id BIGSERIAL,
+    commission_id VARCHAR(50) NOT NULL,  -- unique by generation
     user_id BIGINT NOT NULL REFERENCES users(id),
     from_user_id BIGINT REFERENCES users(id),
 
@@ -273,8 +357,9 @@ CREATE TABLE commissions (
     percentage DECIMAL(5,2),
     base_amount DECIMAL(15,2),
 
-    property_id BIGINT,
-    investment_id BIGINT,
+    property_id VARCHAR(50),
+    investment_id VARCHAR(50),
+    idempotency_key VARCHAR(150),  -- investment:beneficiary:type, unique through commission_idempotency_keys
     business_volume DECIMAL(15,2),
 
     description TEXT,
@@ -285,17 +370,199 @@ CREATE TABLE commissions (
     capped_amount DECIMAL(15,2),
 
     paid_at TIMESTAMP,
-    transaction_id BIGINT REFERENCES transactions(id),
+    transaction_id BIGINT,
 
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-);
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE commissions_default PARTITION OF commissions DEFAULT;
+SELECT create_monthly_partition('commissions', (date_trunc('month', CURRENT_DATE) + make_interval(months => m))::date)
+FROM generate_series(0, 3) AS m;
 
+CREATE INDEX idx_commissions_commission_id ON commissions(commission_id);
 CREATE INDEX idx_commissions_user ON commissions(user_id);
 CREATE INDEX idx_commissions_from_user ON commissions(from_user_id);
 CREATE INDEX idx_commissions_type ON commissions(commission_type);
 CREATE INDEX idx_commissions_status ON commissions(status);
 CREATE INDEX idx_commissions_property ON commissions(property_id);
 CREATE INDEX idx_commissions_date ON commissions(created_at);
+CREATE INDEX idx_commissions_investment ON commissions(investment_id);
+CREATE INDEX idx_commissions_user_seek ON commissions(user_id, created_at, id);
+CREATE INDEX idx_commission_idempotency_key ON commissions(idempotency_key);
+
+-- A partitioned table cannot hold a unique index without the partition key, so idempotency
+-- keys are claimed in this narrow table, by the application before the insert or else by the
+-- insert trigger. Keys outlive archived partitions.
+CREATE TABLE commission_idempotency_keys (
+    idempotency_key VARCHAR(150) PRIMARY KEY,
+    commission_id VARCHAR(50) NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE OR REPLACE FUNCTION claim_commission_idempotency_key()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.idempotency_key IS NOT NULL THEN
+        INSERT INTO commission_idempotency_keys (idempotency_key, commission_id, created_at)
+        VALUES (NEW.idempotency_key, NEW.commission_id, NEW.created_at)
+        ON CONFLICT (idempotency_key) DO NOTHING;
+        -- A key claimed beforehand must be claimed for this very commission
+        IF NOT FOUND AND NOT EXISTS (SELECT 1 FROM commission_idempotency_keys
+                                     WHERE idempotency_key = NEW.idempotency_key
+                                       AND commission_id = NEW.commission_id) THEN
+            RAISE EXCEPTION 'duplicate commission idempotency key %', NEW.idempotency_key
+                USING ERRCODE = 'unique_violation';
+        END IF;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER claim_commission_idempotency_key AFTER INSERT ON commissions
+    FOR EACH ROW EXECUTE FUNCTION claim_commission_idempotency_key();
+
+-- Partitions past the archive horizon, one gzip NDJSON payload per user and month,
+-- rows in (created_at, id) order. Read by the archived history endpoints.
+CREATE TABLE history_archive (
+    id BIGSERIAL PRIMARY KEY,
+    source_table VARCHAR(30) NOT NULL,  -- transactions, commissions
+    period_start DATE NOT NULL,  -- first day of the archived month
+    user_id BIGINT NOT NULL,
+    row_count INTEGER NOT NULL,
+    payload BYTEA NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_history_archive_table_period_user UNIQUE (source_table, period_start, user_id)
+);
+
+-- Already compressed, so TOAST should not try again
+ALTER TABLE history_archive ALTER COLUMN payload SET STORAGE EXTERNAL;
+CREATE INDEX idx_history_archive_user ON history_archive(user_id, source_table, period_start);
+
+-- Net and earned amounts per user and wallet type of the archived transactions, so the
+-- ledger still adds up to the wallet balances and lifetime earnings once partitions are dropped
+CREATE TABLE ledger_archived_totals (
+    user_id BIGINT NOT NULL,
+    wallet_type VARCHAR(30) NOT NULL,  -- INVESTMENT, COMMISSION, RENTAL_INCOME, ROI
+    net_amount DECIMAL(15,2) NOT NULL DEFAULT 0,  -- credits minus debits
+    earned_amount DECIMAL(15,2) NOT NULL DEFAULT 0,  -- income credits minus COMMISSION_REVERSAL debits
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, wallet_type)
+);
+
+-- Per-user, per-type day, month and lifetime totals, maintained with every commission insert
+CREATE TABLE commission_rollups (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id),
+    commission_type VARCHAR(50) NOT NULL,
+    period VARCHAR(10) NOT NULL DEFAULT 'DAY',  -- DAY, MONTH, ALL
+    rollup_date DATE NOT NULL,  -- first day of the period, 1970-01-01 for ALL
+    total_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    settled_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    pending_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    commission_count INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_commission_rollup_user_type_period_date UNIQUE (user_id, commission_type, period, rollup_date)
+);
+
+CREATE INDEX idx_commission_rollup_user_period_date ON commission_rollups(user_id, period, rollup_date);
+
+-- ==============================================
+-- COMMISSION RECALCULATION TABLES
+-- ==============================================
+CREATE TABLE commission_recalculation_runs (
+    id BIGSERIAL PRIMARY KEY,
+    run_id VARCHAR(50) UNIQUE NOT NULL,
+    status VARCHAR(30) NOT NULL,  -- RUNNING, PAUSE_REQUESTED, PAUSED, COMPLETED, FAILED
+    dry_run BOOLEAN NOT NULL DEFAULT TRUE,
+    as_of TIMESTAMP NOT NULL,
+    history_from TIMESTAMP,  -- older commissions are archived and not replayed; NULL replays everything
+    total_partitions INTEGER NOT NULL DEFAULT 0,
+    completed_partitions INTEGER NOT NULL DEFAULT 0,
+    earners_processed BIGINT NOT NULL DEFAULT 0,
+    difference_count BIGINT NOT NULL DEFAULT 0,
+    existing_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    expected_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    commissions_written BIGINT NOT NULL DEFAULT 0,
+    wallet_shortfall DECIMAL(15,2) NOT NULL DEFAULT 0,
+    last_error TEXT,
+    requested_by VARCHAR(100),
+    completed_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_recalculation_run_status ON commission_recalculation_runs(status);
+
+CREATE TABLE commission_recalculation_partitions (
+    id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES commission_recalculation_runs(id),
+    partition_no INTEGER NOT NULL,
+    root_user_id BIGINT,  -- NULL for the users above every subtree root
+    status VARCHAR(30) NOT NULL,  -- PENDING, COMPLETED
+    earner_count INTEGER,
+    difference_count INTEGER,
+    completed_at TIMESTAMP,
+    CONSTRAINT uk_recalculation_partition_run_no UNIQUE (run_id, partition_no)
+);
+
+CREATE INDEX idx_recalculation_partition_run_status ON commission_recalculation_partitions(run_id, status);
+
+CREATE TABLE commission_recalculation_diffs (
+    id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES commission_recalculation_runs(id),
+    partition_no INTEGER NOT NULL,
+    user_id BIGINT NOT NULL,
+    from_user_id BIGINT,
+    commission_type VARCHAR(50) NOT NULL,
+    commission_date DATE NOT NULL,
+    existing_amount DECIMAL(15,2) NOT NULL,
+    expected_amount DECIMAL(15,2) NOT NULL,
+    delta_amount DECIMAL(15,2) NOT NULL
+);
+
+CREATE INDEX idx_recalculation_diff_run ON commission_recalculation_diffs(run_id, id);
+
+-- Nightly wallet-vs-ledger reconciliation runs and the discrepancies they found
+CREATE TABLE wallet_reconciliation_runs (
+    id BIGSERIAL PRIMARY KEY,
+    run_id VARCHAR(50) UNIQUE NOT NULL,
+    status VARCHAR(30) NOT NULL,  -- RUNNING, COMPLETED, FAILED
+    workers INTEGER NOT NULL,
+    chunk_size INTEGER NOT NULL,
+    completed_ranges INTEGER NOT NULL DEFAULT 0,
+    wallets_checked BIGINT NOT NULL DEFAULT 0,
+    discrepancy_count BIGINT NOT NULL DEFAULT 0,
+    absolute_difference DECIMAL(15,2) NOT NULL DEFAULT 0,
+    last_error TEXT,
+    requested_by VARCHAR(100),
+    completed_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_reconciliation_run_status ON wallet_reconciliation_runs(status);
+
+CREATE TABLE wallet_reconciliation_discrepancies (
+    id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES wallet_reconciliation_runs(id),
+    user_id BIGINT NOT NULL,
+    check_type VARCHAR(30) NOT NULL,  -- BALANCE, LOCKED, EARNINGS
+    wallet_type VARCHAR(30),  -- BALANCE checks only
+    recorded_amount DECIMAL(15,2) NOT NULL,
+    expected_amount DECIMAL(15,2) NOT NULL,
+    delta_amount DECIMAL(15,2) NOT NULL  -- recorded minus expected
+);
+
+CREATE INDEX idx_reconciliation_discrepancy_run ON wallet_reconciliation_discrepancies(run_id, id);
+
+-- Users whose left or right BV changed since their last binary pairing
+CREATE TABLE binary_pairing_queue (
+    user_id BIGINT PRIMARY KEY REFERENCES users(id),
+    marked_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_binary_pairing_queue_marked ON binary_pairing_queue(marked_at);
 
 -- ==============================================
 -- PROPERTY INVESTMENTS TABLE
@@ -390,7 +657,7 @@ CREATE TABLE installment_payments (
 
     status VARCHAR(30) DEFAULT 'PENDING',
     payment_method VARCHAR(30),
-    transaction_id BIGINT REFERENCES transactions(id),
+    transaction_id BIGINT,  -- transactions.id; partitioned, so not a foreign key
     payment_gateway_ref VARCHAR(100),
 
     reminder_sent BOOLEAN DEFAULT FALSE,
@@ -434,6 +701,14 @@ CREATE TABLE payouts (
     payment_gateway_ref VARCHAR(100),
     utr_number VARCHAR(100),
 
+    -- Dispatch to the payout gateway
+    idempotency_key VARCHAR(100),  -- sent with every gateway call of the current attempt
+    dispatch_attempts INTEGER NOT NULL DEFAULT 0,
+    claimed_by VARCHAR(100),  -- dispatcher node holding the payout while PROCESSING
+    claimed_at TIMESTAMP,
+    bank_batch_id VARCHAR(50),  -- payout_bank_batches.batch_id while paid through a bank bulk file
+    consolidated_payout_id BIGINT REFERENCES payouts(id),  -- set on CONSOLIDATED payouts: the payout that pays them
+
     requested_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     approved_at TIMESTAMP,
     processed_at TIMESTAMP,
@@ -441,7 +716,7 @@ CREATE TABLE payouts (
 
     approved_by BIGINT REFERENCES users(id),
     processed_by BIGINT REFERENCES users(id),
-    transaction_id BIGINT REFERENCES transactions(id),
+    transaction_id BIGINT,  -- transactions.id; partitioned, so not a foreign key
 
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
@@ -450,6 +725,36 @@ CREATE TABLE payouts (
 CREATE INDEX idx_payouts_user ON payouts(user_id);
 CREATE INDEX idx_payouts_status ON payouts(status);
 CREATE INDEX idx_payouts_date ON payouts(requested_at);
+CREATE INDEX idx_payouts_user_seek ON payouts(user_id, created_at, id);
+CREATE INDEX idx_payouts_dispatch ON payouts(id) WHERE status IN ('APPROVED', 'PROCESSING');
+CREATE INDEX idx_payouts_bank_batch ON payouts(bank_batch_id, id) WHERE bank_batch_id IS NOT NULL;
+CREATE INDEX idx_payouts_consolidated ON payouts(consolidated_payout_id) WHERE consolidated_payout_id IS NOT NULL;
+
+-- ==============================================
+-- PAYOUT BANK BATCHES TABLE
+-- NEFT/IMPS bulk files uploaded to the bank instead of per-payout gateway calls
+-- ==============================================
+CREATE TABLE payout_bank_batches (
+    id BIGSERIAL PRIMARY KEY,
+    batch_id VARCHAR(50) UNIQUE NOT NULL,
+    status VARCHAR(30) NOT NULL,  -- EXPORTING, EXPORTED, COMPLETED, FAILED
+    file_format VARCHAR(20) NOT NULL,  -- CSV, FIXED_WIDTH
+    transfer_mode VARCHAR(10) NOT NULL,  -- NEFT, IMPS
+    file_name VARCHAR(255),
+    payout_count INTEGER NOT NULL DEFAULT 0,
+    total_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    checksum_sha256 VARCHAR(64),
+    completed_count INTEGER NOT NULL DEFAULT 0,
+    failed_count INTEGER NOT NULL DEFAULT 0,
+    last_error TEXT,
+    created_by VARCHAR(100),
+    exported_at TIMESTAMP,
+    completed_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_payout_bank_batch_status ON payout_bank_batches(status);
 
 -- ==============================================
 -- KYC DOCUMENTS TABLE
@@ -575,6 +880,7 @@ CREATE TABLE notifications (
 CREATE INDEX idx_notifications_user ON notifications(user_id);
 CREATE INDEX idx_notifications_read ON notifications(is_read);
 CREATE INDEX idx_notifications_date ON notifications(created_at);
+CREATE INDEX idx_notifications_user_seek ON notifications(user_id, created_at, id);
 
 -- ==============================================
 -- RENTAL INCOME TABLE
@@ -597,7 +903,7 @@ CREATE TABLE rental_income (
 
     status VARCHAR(30) DEFAULT 'PENDING',
     paid_at TIMESTAMP,
-    transaction_id BIGINT REFERENCES transactions(id),
+    transaction_id BIGINT,  -- transactions.id; partitioned, so not a foreign key
 
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
@@ -751,7 +1057,7 @@ INSERT INTO users (user_id, full_name, email, mobile, password, status, role, em
 VALUES ('MLM001', 'System Administrator', 'admin@mlmplatform.com', '9999999999', '$2a$12$LQv3c1yqBWVHxkd0LHAkCOYz6TtxMQJqhN8/LewY5mYGLq1r7o.ZG', 'ACTIVE', 'ADMIN', TRUE, TRUE, 'PREMIUM', 'PREMIUM');
 
 -- Create wallet for admin
-INSERT INTO wallets (user_id, commission_balance, total_earned)
-VALUES (1, 0, 0);
+INSERT INTO wallets (user_id, commission_balance, total_earned, striped)
+VALUES (1, 0, 0, TRUE);
 
 COMMIT;